@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.b2eclipse.launching;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.debug.core.ILaunchConfigurationType;
+import org.eclipse.debug.core.ILaunchDelegate;
+import org.eclipse.debug.core.ILaunchManager;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.launching.IRuntimeClasspathEntry;
+import org.eclipse.jdt.launching.IRuntimeClasspathEntryResolver;
+import org.eclipse.jdt.launching.IVMInstall;
+import org.eclipse.jdt.launching.JavaRuntime;
+
+import com.salesforce.bazel.eclipse.classpath.CallSource;
+import com.salesforce.bazel.eclipse.classpath.ClasspathCallContext;
+
+/**
+ * Resolves the Bazel classpath container for a launch. The Java debugger of the language server resolves the runtime
+ * classpath of a launch configuration through JDT launching, so this is where we tell the container that a Run/Debug
+ * launch is asking, which makes it leave out the implicit Bazel test runner jar. Test launches, whose configuration
+ * is of the JUnit type or has a JUnit delegate, enter the JUNIT call source instead. A call source that the caller
+ * already entered is kept, and resolutions without a launch configuration keep the full classpath.
+ * <p>
+ * Registering a resolver replaces the default resolution of the container by JDT, so the entries are resolved here
+ * the same way JDT does it for application containers.
+ */
+public class BazelRuntimeClasspathEntryResolver implements IRuntimeClasspathEntryResolver {
+    /**
+     * Projects whose runtime classpath is being resolved on this thread, project references can be cyclic.
+     */
+    private static final ThreadLocal<Set<IJavaProject>> resolvingProjects = ThreadLocal.withInitial(HashSet::new);
+
+    private static final String JUNIT_LAUNCH_CONFIG_TYPE = "org.eclipse.jdt.junit.launchconfig";
+    private static final String JUNIT_LAUNCH_DELEGATE =
+            "org.eclipse.jdt.junit.launcher.JUnitLaunchConfigurationDelegate";
+
+    @Override
+    public IRuntimeClasspathEntry[] resolveRuntimeClasspathEntry(IRuntimeClasspathEntry entry,
+            ILaunchConfiguration configuration) throws CoreException {
+        IJavaProject project = JavaRuntime.getJavaProject(configuration);
+        if (ClasspathCallContext.getCallSource() != CallSource.UNDEFINED) {
+            return resolveRuntimeClasspathEntry(entry, project);
+        }
+        try (ClasspathCallContext context = ClasspathCallContext.enter(getLaunchCallSource(configuration))) {
+            return resolveRuntimeClasspathEntry(entry, project);
+        }
+    }
+
+    @Override
+    public IRuntimeClasspathEntry[] resolveRuntimeClasspathEntry(IRuntimeClasspathEntry entry, IJavaProject project)
+            throws CoreException {
+        if ((entry == null) || (project == null)) {
+            return new IRuntimeClasspathEntry[0];
+        }
+        IClasspathEntry[] containerEntries = getContainerEntries(entry, project);
+
+        // project references can repeat the same jars, keep the first occurrence in classpath order
+        Set<IRuntimeClasspathEntry> resolved = new LinkedHashSet<>();
+        Set<IJavaProject> projects = resolvingProjects.get();
+        boolean isOutermost = projects.isEmpty();
+        projects.add(project);
+        try {
+            for (IClasspathEntry containerEntry : containerEntries) {
+                if (containerEntry.getEntryKind() == IClasspathEntry.CPE_PROJECT) {
+                    IProject referencedProject =
+                            ResourcesPlugin.getWorkspace().getRoot().getProject(containerEntry.getPath().segment(0));
+                    IJavaProject referencedJavaProject = JavaCore.create(referencedProject);
+                    if (projects.add(referencedJavaProject)) {
+                        IRuntimeClasspathEntry projectEntry =
+                                JavaRuntime.newDefaultProjectClasspathEntry(referencedJavaProject);
+                        for (IRuntimeClasspathEntry projectRuntimeEntry : JavaRuntime
+                                .resolveRuntimeClasspathEntry(projectEntry, referencedJavaProject)) {
+                            resolved.add(projectRuntimeEntry);
+                        }
+                    }
+                } else {
+                    resolved.add(JavaRuntime.newArchiveRuntimeClasspathEntry(containerEntry.getPath(),
+                        containerEntry.getSourceAttachmentPath(), containerEntry.getSourceAttachmentRootPath(),
+                        containerEntry.getAccessRules(), containerEntry.getExtraAttributes(),
+                        containerEntry.isExported()));
+                }
+            }
+        } finally {
+            if (isOutermost) {
+                resolvingProjects.remove();
+            }
+        }
+
+        for (IRuntimeClasspathEntry resolvedEntry : resolved) {
+            resolvedEntry.setClasspathProperty(IRuntimeClasspathEntry.USER_CLASSES);
+        }
+        return resolved.toArray(new IRuntimeClasspathEntry[] {});
+    }
+
+    @Override
+    public IVMInstall resolveVMInstall(IClasspathEntry entry) throws CoreException {
+        // the Bazel classpath container does not reference a JRE
+        return null;
+    }
+
+    // INTERNAL
+
+    private static IClasspathEntry[] getContainerEntries(IRuntimeClasspathEntry entry, IJavaProject project)
+            throws CoreException {
+        IClasspathContainer container = JavaCore.getClasspathContainer(entry.getPath(), project);
+        if (container == null) {
+            return new IClasspathEntry[0];
+        }
+        return container.getClasspathEntries();
+    }
+
+    /**
+     * Test launches need the test runner jar, so only the other launches are treated as Run/Debug.
+     */
+    private static CallSource getLaunchCallSource(ILaunchConfiguration configuration) {
+        try {
+            ILaunchConfigurationType type = configuration.getType();
+            if (type == null) {
+                return CallSource.RUN_DEBUG;
+            }
+            if (JUNIT_LAUNCH_CONFIG_TYPE.equals(type.getIdentifier())) {
+                return CallSource.JUNIT;
+            }
+            for (ILaunchDelegate delegate : type.getDelegates(Collections.singleton(ILaunchManager.RUN_MODE))) {
+                if (isJUnitDelegate(delegate.getDelegate().getClass())) {
+                    return CallSource.JUNIT;
+                }
+            }
+        } catch (CoreException e) {
+            // the debugger resolves the classpath of application launches with configurations that are not saved
+        }
+        return CallSource.RUN_DEBUG;
+    }
+
+    /**
+     * JUnit launching is not a dependency of this bundle, so the delegate hierarchy is checked by class name.
+     */
+    private static boolean isJUnitDelegate(Class<?> delegateClass) {
+        for (Class<?> c = delegateClass; c != null; c = c.getSuperclass()) {
+            if (JUNIT_LAUNCH_DELEGATE.equals(c.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
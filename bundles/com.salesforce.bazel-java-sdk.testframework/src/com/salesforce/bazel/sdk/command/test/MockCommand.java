@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import org.mockito.Mockito;
 
@@ -47,6 +48,10 @@ public class MockCommand implements Command {
     public List<String> outputLines = new ArrayList<>();
     public List<String> errorLines = new ArrayList<>();
 
+    // STREAMING, if set the simulated lines are passed to these on run() instead of being returned as selected lines
+    public Consumer<String> stdoutLineConsumer;
+    public Consumer<String> stderrLineConsumer;
+
     public MockCommand(List<String> commandTokens, TestOptions testOptions,
             TestBazelWorkspaceFactory testWorkspaceFactory) {
         this.commandTokens = commandTokens;
@@ -74,11 +79,20 @@ public class MockCommand implements Command {
 
     @Override
     public int run() throws IOException, InterruptedException {
+        if ((stdoutLineConsumer != null) && (outputLines != null)) {
+            outputLines.forEach(stdoutLineConsumer);
+        }
+        if ((stderrLineConsumer != null) && (errorLines != null)) {
+            errorLines.forEach(stderrLineConsumer);
+        }
         return 0;
     }
 
     @Override
     public List<String> getSelectedErrorLines() {
+        if (stderrLineConsumer != null) {
+            return new ArrayList<>();
+        }
         if (errorLines != null) {
             return errorLines;
         }
@@ -97,6 +111,9 @@ public class MockCommand implements Command {
 
     @Override
     public List<String> getSelectedOutputLines() {
+        if (stdoutLineConsumer != null) {
+            return new ArrayList<>();
+        }
         if (outputLines != null) {
             return outputLines;
         }
@@ -26,7 +26,10 @@ package com.salesforce.bazel.sdk.command.test;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import com.salesforce.bazel.sdk.command.Command;
 import com.salesforce.bazel.sdk.command.CommandBuilder;
@@ -78,6 +81,17 @@ public class MockCommandBuilder extends CommandBuilder {
      */
     public List<MockCommandSimulatedOutput> simulatedOutputLines = new ArrayList<>();
 
+    /**
+     * Number of commands built for each Bazel verb (info, query, build...), so tests can verify caching behavior.
+     */
+    private final Map<String, Integer> bazelCommandCounts = new HashMap<>();
+
+    /**
+     * Optional callback invoked with the command line of each command as it is built, before it runs. Tests use it to
+     * simulate things that happen while Bazel is running, like a BUILD file change.
+     */
+    public Consumer<List<String>> commandListener = null;
+
     /**
      * If an aspect build command is run, we need to know the list of aspect file paths for the workspace to be able to
      * create the specific output.
@@ -137,14 +151,25 @@ public class MockCommandBuilder extends CommandBuilder {
         simulatedOutputLines.add(out);
     }
 
+    /**
+     * Returns the number of commands that have been built for the passed Bazel verb, e.g. 'query'.
+     */
+    public int getBazelCommandCount(String bazelVerb) {
+        return bazelCommandCounts.getOrDefault(bazelVerb, 0);
+    }
+
     // MOCK METHOD UNDER TEST
 
     @Override
     public Command build_impl() throws IOException {
         MockCommand mockCommand = null;
+        if (commandListener != null) {
+            commandListener.accept(args);
+        }
 
         // check if this is from a catalog of standard commands with stock responses
         if (args.get(0).endsWith(File.separatorChar + "bazel")) {
+            bazelCommandCounts.merge(args.get(1), 1, Integer::sum);
             if ("info".equals(args.get(1))) {
                 // command is of the form 'bazel info' with an optional third param
                 mockCommand = new MockInfoCommand(args, testOptions, testWorkspaceFactory);
@@ -172,6 +197,8 @@ public class MockCommandBuilder extends CommandBuilder {
         if (mockCommand == null) {
             mockCommand = new MockCustomCommand(args, testOptions, testWorkspaceFactory, simulatedOutputLines);
         }
+        mockCommand.stdoutLineConsumer = stdoutLineConsumer;
+        mockCommand.stderrLineConsumer = stderrLineConsumer;
 
         return mockCommand;
     }
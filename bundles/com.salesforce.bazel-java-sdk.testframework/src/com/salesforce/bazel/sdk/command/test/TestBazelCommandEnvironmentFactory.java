@@ -42,6 +42,7 @@ import com.salesforce.bazel.sdk.workspace.test.TestOptions;
  */
 public class TestBazelCommandEnvironmentFactory {
     public TestBazelWorkspaceFactory testWorkspace;
+    public BazelCommandManager bazelCommandManager;
     public BazelWorkspaceCommandRunner globalCommandRunner;
     public BazelWorkspaceCommandRunner bazelWorkspaceCommandRunner;
 
@@ -88,7 +89,7 @@ public class TestBazelCommandEnvironmentFactory {
         commandConsole = new MockCommandConsole();
         commandBuilder = new MockCommandBuilder(commandConsole, testWorkspace, testOptions);
 
-        BazelCommandManager bazelCommandManager = new BazelCommandManager(bazelAspectLocation, commandBuilder,
+        bazelCommandManager = new BazelCommandManager(bazelAspectLocation, commandBuilder,
                 commandConsole, bazelExecutable.bazelExecutableFile);
         bazelCommandManager.setBazelExecutablePath(bazelExecutable.bazelExecutableFile.getAbsolutePath());
 
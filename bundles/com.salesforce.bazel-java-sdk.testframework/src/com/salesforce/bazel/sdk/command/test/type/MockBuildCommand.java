@@ -23,10 +23,13 @@
  */
 package com.salesforce.bazel.sdk.command.test.type;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import com.salesforce.bazel.sdk.command.internal.BazelWorkspaceAspectProcessor;
 import com.salesforce.bazel.sdk.command.test.MockCommand;
@@ -108,14 +111,40 @@ public class MockBuildCommand extends MockCommand {
                     new MockCommandSimulatedOutput(nameForLog, outputLines, aspectFilePathsList, matchers);
             simulatedOutputLines.add(aspectOutput);
         }
-        for (MockCommandSimulatedOutput candidateOutput : simulatedOutputLines) {
-            if (candidateOutput.doesMatch(commandTokens)) {
-                // the output is targeted to this command
-                outputLines = candidateOutput.outputLines;
-                errorLines = candidateOutput.errorLines;
-                break;
+        // the aspect processor passes a batch of targets to each build, starting at the target label arg index, so
+        // the output is the union of the aspect files of each target
+        Set<String> batchErrorLines = new LinkedHashSet<>();
+        List<String> candidateTokens = new ArrayList<>(commandTokens);
+        for (int argIndex = BazelWorkspaceAspectProcessor.ASPECTCMD_TARGETLABEL_ARGINDEX; argIndex < commandTokens
+                .size(); argIndex++) {
+            candidateTokens.set(BazelWorkspaceAspectProcessor.ASPECTCMD_TARGETLABEL_ARGINDEX,
+                commandTokens.get(argIndex));
+            for (MockCommandSimulatedOutput candidateOutput : simulatedOutputLines) {
+                if (candidateOutput.doesMatch(candidateTokens)) {
+                    // the output is targeted to this command
+                    outputLines = candidateOutput.outputLines;
+                    batchErrorLines.addAll(candidateOutput.errorLines);
+                    break;
+                }
             }
         }
+        if (!batchErrorLines.isEmpty()) {
+            errorLines = new ArrayList<>(batchErrorLines);
+        }
+    }
+
+    /**
+     * Simulates the time taken by Bazel to run the build, if configured by the test.
+     */
+    @Override
+    public int run() throws IOException, InterruptedException {
+        if (testOptions.beforeBuildHook != null) {
+            testOptions.beforeBuildHook.run();
+        }
+        if (testOptions.buildLatencyMillis > 0) {
+            Thread.sleep(testOptions.buildLatencyMillis);
+        }
+        return super.run();
     }
 
     void createCodeBuildCommand() {
@@ -23,6 +23,7 @@
  */
 package com.salesforce.bazel.sdk.command.test.type;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.salesforce.bazel.sdk.command.test.MockCommand;
@@ -44,22 +45,37 @@ public class MockInfoCommand extends MockCommand {
             throw new IllegalArgumentException(
                     "The plugin issued the command 'bazel info' without a third arg. Please consider using a more specific 'bazel info xyz' command instead.");
         }
-        if ("workspace".equals(commandTokens.get(2))) {
+        if (commandTokens.size() > 3) {
+            // 'bazel info key1 key2 ...' responds with one 'key: value' line per key
+            List<String> outputLines = new ArrayList<>();
+            outputLines.add("INFO: Invocation ID: a6809b5e-3fb4-462e-8fcc-2c18575122e7");
+            for (String key : commandTokens.subList(2, commandTokens.size())) {
+                outputLines.add(key + ": " + getInfoValue(key, testWorkspaceFactory));
+            }
+            addSimulatedOutputToCommandStdOut(outputLines);
+        } else if ("workspace".equals(commandTokens.get(2))) {
             addSimulatedOutputToCommandStdOut("INFO: Invocation ID: a6809b5e-3fb4-462e-8fcc-2c18575122e7",
-                testWorkspaceFactory.workspaceDescriptor.workspaceRootDirectory.getAbsolutePath());
-        } else if ("execution_root".equals(commandTokens.get(2))) {
-            addSimulatedOutputToCommandStdOut(testWorkspaceFactory.workspaceDescriptor.dirExecRoot.getAbsolutePath());
-        } else if ("output_base".equals(commandTokens.get(2))) {
-            addSimulatedOutputToCommandStdOut(
-                testWorkspaceFactory.workspaceDescriptor.outputBaseDirectory.getAbsolutePath());
-        } else if ("output_path".equals(commandTokens.get(2))) {
-            addSimulatedOutputToCommandStdOut(testWorkspaceFactory.workspaceDescriptor.dirOutputPath.getAbsolutePath());
-        } else if ("bazel-bin".equals(commandTokens.get(2))) {
-            addSimulatedOutputToCommandStdOut(testWorkspaceFactory.workspaceDescriptor.dirBazelBin.getAbsolutePath());
+                getInfoValue(commandTokens.get(2), testWorkspaceFactory));
         } else {
-            throw new IllegalArgumentException("MockInfoCommand does not know how to mock 'bazel info "
-                    + commandTokens.get(2) + "'. Please add code to handle this case.");
+            addSimulatedOutputToCommandStdOut(getInfoValue(commandTokens.get(2), testWorkspaceFactory));
         }
     }
 
+    private static String getInfoValue(String key, TestBazelWorkspaceFactory testWorkspaceFactory) {
+        if ("workspace".equals(key)) {
+            return testWorkspaceFactory.workspaceDescriptor.workspaceRootDirectory.getAbsolutePath();
+        } else if ("execution_root".equals(key)) {
+            return testWorkspaceFactory.workspaceDescriptor.dirExecRoot.getAbsolutePath();
+        } else if ("output_base".equals(key)) {
+            return testWorkspaceFactory.workspaceDescriptor.outputBaseDirectory.getAbsolutePath();
+        } else if ("output_path".equals(key)) {
+            return testWorkspaceFactory.workspaceDescriptor.dirOutputPath.getAbsolutePath();
+        } else if ("bazel-bin".equals(key) || "bazel-genfiles".equals(key)) {
+            // recent Bazel versions report the same directory for both
+            return testWorkspaceFactory.workspaceDescriptor.dirBazelBin.getAbsolutePath();
+        }
+        throw new IllegalArgumentException("MockInfoCommand does not know how to mock 'bazel info " + key
+                + "'. Please add code to handle this case.");
+    }
+
 }
@@ -150,4 +150,21 @@ public class TestOptions extends HashMap<String, String> {
         return this;
     }
 
+    // simulated duration of each 'bazel build' command, useful for benchmarking the code that issues builds
+    public long buildLatencyMillis = 0;
+
+    public TestOptions buildLatencyMillis(long millis) {
+        buildLatencyMillis = millis;
+        return this;
+    }
+
+    // called on the thread that runs each simulated 'bazel build' command, before the build output is produced; lets
+    // tests coordinate deterministically with the code that issues builds
+    public Runnable beforeBuildHook = null;
+
+    public TestOptions beforeBuildHook(Runnable hook) {
+        beforeBuildHook = hook;
+        return this;
+    }
+
 }
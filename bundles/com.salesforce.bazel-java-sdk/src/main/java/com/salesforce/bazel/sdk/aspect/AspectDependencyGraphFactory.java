@@ -35,6 +35,7 @@ package com.salesforce.bazel.sdk.aspect;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.salesforce.bazel.sdk.graph.BazelDependencyGraph;
 import com.salesforce.bazel.sdk.graph.BazelDependencyGraphFactory;
@@ -54,7 +55,16 @@ public class AspectDependencyGraphFactory {
      * edge in between two packages if any target in package A depends on any target in package B.
      */
     public static BazelDependencyGraph build(AspectTargetInfos aspects, boolean includeTarget) {
-        BazelDependencyGraph graph = BazelDependencyGraphFactory.build("AspectDependencyGraphFactory", new HashMap<>());
+        return build(aspects, includeTarget, new HashMap<>());
+    }
+
+    /**
+     * Builds the dependency graph using the data collected by running aspects. The options are passed to the
+     * BazelDependencyGraphFactory to select the graph implementation (e.g. CompactDependencyGraphBuilder.OPTION_COMPACT).
+     */
+    public static BazelDependencyGraph build(AspectTargetInfos aspects, boolean includeTarget,
+            Map<String, String> options) {
+        BazelDependencyGraph graph = BazelDependencyGraphFactory.build("AspectDependencyGraphFactory", options);
 
         // TODO the stripTargetFromLabel invocations here need to be removed in order for us to solve the
         // the cyclical dependency problems tracked by https://github.com/salesforce/bazel-java-sdk/issues/23
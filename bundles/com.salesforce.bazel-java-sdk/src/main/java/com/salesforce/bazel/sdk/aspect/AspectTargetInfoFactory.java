@@ -36,6 +36,7 @@ package com.salesforce.bazel.sdk.aspect;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -47,6 +48,7 @@ import org.json.simple.parser.JSONParser;
 
 import com.salesforce.bazel.sdk.aspect.jvm.JVMAspectTargetInfoFactoryProvider;
 import com.salesforce.bazel.sdk.logging.LogHelper;
+import com.salesforce.bazel.sdk.util.JsonStreamReader;
 
 /**
  * Factory for AspectTargetInfo instances, using the JSON emitted from the aspect. Each rule type will have a different
@@ -62,6 +64,11 @@ public class AspectTargetInfoFactory {
         providers.add(new JVMAspectTargetInfoFactoryProvider());
     }
 
+    /**
+     * Streaming json readers are reused across aspect files, one per thread.
+     */
+    private static final ThreadLocal<JsonStreamReader> jsonReaders = ThreadLocal.withInitial(JsonStreamReader::new);
+
     /**
      * During initialization, add providers that can parse target specific json in the apsect files.
      */
@@ -112,10 +119,41 @@ public class AspectTargetInfoFactory {
     }
 
     /**
-     * Constructs a map of label -> {@link AspectTargetInfo} from a list of files, parsing each files into a
-     * {@link JSONObject} and then converting that {@link JSONObject} to an {@link AspectTargetInfo} object.
+     * Constructs an {@link AspectTargetInfo} from an aspect file. If all registered providers support streaming, the
+     * file is bound directly from a {@link JsonStreamReader}, otherwise it is parsed into a {@link JSONObject} first.
      */
     public static AspectTargetInfo loadAspectFile(File aspectFile) {
+        if (!isStreamingSupported()) {
+            return loadAspectFileAsTree(aspectFile);
+        }
+        AspectTargetInfo targetInfo = null;
+
+        if (aspectFile.exists()) {
+            JsonStreamReader jsonReader = jsonReaders.get();
+            try (Reader fileReader = new FileReader(aspectFile)) {
+                targetInfo = loadAspectFromStream(aspectFile, jsonReader.reset(fileReader));
+            } catch (Exception je) {
+                LOG.error("JSON file {} has illegal characters: {}", aspectFile.getAbsolutePath(), je.getMessage());
+                throw new IllegalArgumentException(je);
+            } finally {
+                // release the file reader, but keep the buffers
+                jsonReader.reset((Reader) null);
+            }
+            if (targetInfo != null) {
+                LOG.info("Loaded aspect for target {} from file {}", targetInfo.label,
+                    targetInfo.aspectDataFile.getAbsolutePath());
+            }
+        } else {
+            LOG.error("Aspect JSON file {} is missing.", aspectFile.getAbsolutePath());
+        }
+        return targetInfo;
+    }
+
+    /**
+     * Constructs an {@link AspectTargetInfo} from an aspect file, parsing the file into a {@link JSONObject} and then
+     * converting that {@link JSONObject} to an {@link AspectTargetInfo} object.
+     */
+    static AspectTargetInfo loadAspectFileAsTree(File aspectFile) {
         AspectTargetInfo targetInfo = null;
         JSONParser jsonParser = new JSONParser();
 
@@ -141,13 +179,149 @@ public class AspectTargetInfoFactory {
 
     // INTERNAL
 
+    static boolean isStreamingSupported() {
+        for (AspectTargetInfoFactoryProvider provider : providers) {
+            if (provider.getSectionName() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static AspectTargetInfo loadAspectFromStream(File aspectDataFile, JsonStreamReader reader) throws IOException {
+        AspectTargetInfo info = null;
+        String kind = null;
+        String label = null;
+        String build_file_artifact_location = null;
+        List<String> deps = new ArrayList<>();
+        Map<AspectTargetInfoFactoryProvider, Object> sections = new HashMap<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("key".equals(name)) {
+                label = readLabel(reader);
+            } else if ("kind_string".equals(name)) {
+                kind = reader.nextString();
+            } else if ("deps".equals(name)) {
+                readDeps(reader, deps);
+            } else if ("build_file_artifact_location".equals(name)) {
+                build_file_artifact_location = readRelativePath(reader);
+            } else {
+                AspectTargetInfoFactoryProvider sectionProvider = null;
+                for (AspectTargetInfoFactoryProvider provider : providers) {
+                    if (name.equals(provider.getSectionName())) {
+                        sectionProvider = provider;
+                        break;
+                    }
+                }
+                if (sectionProvider != null) {
+                    sections.put(sectionProvider, sectionProvider.readSection(reader));
+                } else {
+                    reader.skipValue();
+                }
+            }
+        }
+        reader.endObject();
+
+        if (kind == null) {
+            LOG.error(
+                "Aspect file {} is missing the kind_string property; this is likely a data file created by an older version of the aspect",
+                aspectDataFile);
+        }
+        for (AspectTargetInfoFactoryProvider provider : providers) {
+            info = provider.buildAspectTargetInfo(aspectDataFile, sections.get(provider), build_file_artifact_location,
+                kind, label, deps);
+            if (info != null) {
+                break;
+            }
+        }
+        if (info == null) {
+            LOG.info("Could not find an AspectTargetInfoFactoryProvider for rule kind {}", kind);
+        }
+        return info;
+    }
+
+    /**
+     * Reads the label from the key object: "key": { "label": "//a/b/c:d" }
+     */
+    private static String readLabel(JsonStreamReader reader) throws IOException {
+        String label = null;
+        if (reader.peek() != JsonStreamReader.Token.BEGIN_OBJECT) {
+            reader.skipValue();
+            return label;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("label".equals(reader.nextName())) {
+                label = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return label;
+    }
+
+    /**
+     * Reads the relative path from an artifact location: "build_file_artifact_location": { "relative_path": "a/BUILD" }
+     * Older aspect files (and our test aspect files) contain the path as a plain string.
+     */
+    private static String readRelativePath(JsonStreamReader reader) throws IOException {
+        String relativePath = null;
+        JsonStreamReader.Token token = reader.peek();
+        if (token == JsonStreamReader.Token.STRING) {
+            return reader.nextString();
+        }
+        if (token != JsonStreamReader.Token.BEGIN_OBJECT) {
+            reader.skipValue();
+            return relativePath;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("relative_path".equals(reader.nextName())) {
+                relativePath = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return relativePath;
+    }
+
+    /**
+     * Reads the dep labels from the deps array: "deps": [ { "target": { "label": "//a/b/c:d" } } ]
+     */
+    private static void readDeps(JsonStreamReader reader, List<String> deps) throws IOException {
+        if (reader.peek() != JsonStreamReader.Token.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("target".equals(reader.nextName()) && (reader.peek() == JsonStreamReader.Token.BEGIN_OBJECT)) {
+                    String label = readLabel(reader);
+                    if (label != null) {
+                        deps.add(label);
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+    }
+
     static AspectTargetInfo loadAspectFromJson(File aspectDataFile, JSONObject aspectObject, JSONParser jsonParser) {
         AspectTargetInfo info = null;
 
         try {
             List<String> deps = loadDeps(aspectObject);
 
-            String build_file_artifact_location = "test";//aspectObject.getString("build_file_artifact_location"); // TODO this field should be parsed correctly
+            String build_file_artifact_location = loadRelativePath(aspectObject.get("build_file_artifact_location"));
             String kind = (String) aspectObject.get("kind_string");
             if (kind == null) {
                 LOG.error(
@@ -187,6 +361,20 @@ public class AspectTargetInfoFactory {
         return label;
     }
 
+    private static String loadRelativePath(Object artifactLocation) {
+        if (artifactLocation instanceof String) {
+            // older aspect files (and our test aspect files) contain the path as a plain string
+            return (String) artifactLocation;
+        }
+        if (artifactLocation instanceof JSONObject) {
+            Object relativePath = ((JSONObject) artifactLocation).get("relative_path");
+            if (relativePath != null) {
+                return relativePath.toString();
+            }
+        }
+        return null;
+    }
+
     private static List<String> loadDeps(JSONObject aspectObject) throws Exception {
         List<String> list = new ArrayList<>();
         if (aspectObject == null) {
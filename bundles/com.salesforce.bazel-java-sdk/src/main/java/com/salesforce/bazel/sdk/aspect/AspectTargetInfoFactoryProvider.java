@@ -34,11 +34,14 @@
 package com.salesforce.bazel.sdk.aspect;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 
+import com.salesforce.bazel.sdk.util.JsonStreamReader;
+
 /**
  * Provider that knows how to construct AspectTargetInfo objects for one or more rule kinds. (e.g. java_library)
  */
@@ -47,4 +50,35 @@ public interface AspectTargetInfoFactoryProvider {
     AspectTargetInfo buildAspectTargetInfo(File aspectDataFile, JSONObject jsonObject, JSONParser jsonParser,
             String workspaceRelativePath, String kind, String label, List<String> deps);
 
+    // STREAMING SUPPORT
+    // Providers may optionally bind their rule specific section of the aspect file directly from a streaming reader,
+    // which avoids building a JSONObject tree for every aspect file. The streaming loader is only used if every
+    // registered provider supports it.
+
+    /**
+     * Returns the name of the top level section of the aspect file (e.g. java_ide_info) that this provider binds in
+     * {@link #readSection(JsonStreamReader)}, or null if this provider does not support streaming.
+     */
+    default String getSectionName() {
+        return null;
+    }
+
+    /**
+     * Binds the section named by {@link #getSectionName()}. The reader is positioned on the section value, and this
+     * method must consume the value entirely. The returned object is passed back into
+     * {@link #buildAspectTargetInfo(File, Object, String, String, String, List)}.
+     */
+    default Object readSection(JsonStreamReader reader) throws IOException {
+        reader.skipValue();
+        return null;
+    }
+
+    /**
+     * Streaming variant of the build method. The sectionData is the object returned from
+     * {@link #readSection(JsonStreamReader)}, or null if the aspect file did not contain the section.
+     */
+    default AspectTargetInfo buildAspectTargetInfo(File aspectDataFile, Object sectionData,
+            String workspaceRelativePath, String kind, String label, List<String> deps) {
+        return null;
+    }
 }
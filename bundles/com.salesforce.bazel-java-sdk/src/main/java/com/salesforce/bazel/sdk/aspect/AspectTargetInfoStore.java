@@ -0,0 +1,511 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.aspect;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+import com.salesforce.bazel.sdk.logging.LogHelper;
+import com.salesforce.bazel.sdk.model.BazelLabel;
+import com.salesforce.bazel.sdk.util.BazelConstants;
+
+/**
+ * Persistent on-disk store of the aspect data computed for requested labels. Running the aspects for a large workspace
+ * can take many minutes, so this store allows the results from a prior session (e.g. before an IDE restart) to be
+ * reused.
+ * <p>
+ * The store does not copy the aspect data itself, it records the paths to the aspect json files Bazel already wrote
+ * into the output base. Each entry is keyed by the requested label and records a content fingerprint of the BUILD files
+ * of the label's package and of every package in its transitive closure, plus the modification time and size of each
+ * aspect file that contributed to the result. An entry is only served if all of those still match, otherwise it is
+ * discarded and the caller falls back to running the aspects with Bazel. The aspect files are only rewritten when the
+ * aspects run, so a change to the deps of a dependency is only detected through the BUILD file of that dependency.
+ * <p>
+ * The index file is loaded lazily on first access, or by {@link #load()}, and written back when {@link #save()} is
+ * called.
+ */
+public class AspectTargetInfoStore {
+    private static final LogHelper LOG = LogHelper.log(AspectTargetInfoStore.class);
+
+    public static final String STORE_FILENAME = "bzljavasdk-aspect-store.json";
+
+    /**
+     * Bump this if the format of the store file changes, older files will then be ignored.
+     */
+    static final long STORE_VERSION = 2L;
+
+    private static final String NO_BUILD_FILE_FINGERPRINT = "none";
+
+    /**
+     * Memoized BUILD file fingerprints, shared by all stores and by the persisted classpath files, which check the
+     * BUILD files of every dependency of every target. An entry is reused while the file keeps the same modification
+     * time and size, so an unchanged BUILD file is only read once. key=absolute path of the BUILD file
+     */
+    private static final Map<String, BuildFileStamp> buildFileStamps = new ConcurrentHashMap<>();
+
+    private final File storeFile;
+    private final File bazelWorkspaceRootDirectory;
+
+    /**
+     * Persisted entries. key=label (//a/b/c:*) value=entry. Null until the store file is loaded.
+     */
+    private Map<String, StoreEntry> entries;
+
+    /**
+     * The labels of the persisted entries, by package, so that a package can be flushed without visiting every entry.
+     * key=package path (a/b/c) value=labels (//a/b/c:*)
+     */
+    private final Map<String, Set<String>> labelsByPackagePath = new HashMap<>();
+
+    /**
+     * Aspect files already parsed during this session, so that files shared between entries (e.g. a common
+     * dependency) are only parsed once. key=absolute path of the aspect file
+     */
+    private final Map<String, LoadedAspectFile> loadedAspectFiles = new HashMap<>();
+
+    private boolean dirty = false;
+
+    /**
+     * Tracks the number of entries that were found in the store but rejected because they are out of date.
+     */
+    int numberStaleEntries = 0;
+
+    /**
+     * @param storeDirectory
+     *            the directory into which the store file is written; this should be a tool specific data location
+     *            and not within the Bazel workspace
+     * @param bazelWorkspaceRootDirectory
+     *            the root of the workspace the aspect data belongs to, used to locate BUILD files
+     */
+    public AspectTargetInfoStore(File storeDirectory, File bazelWorkspaceRootDirectory) {
+        storeFile = new File(storeDirectory, STORE_FILENAME);
+        this.bazelWorkspaceRootDirectory = bazelWorkspaceRootDirectory;
+    }
+
+    /**
+     * Loads the index file now, if it was not loaded yet, so that later calls do not read it.
+     */
+    public synchronized void load() {
+        getEntries();
+    }
+
+    /**
+     * Returns the persisted aspect data for the label, or null if the label is not in the store or the stored entry
+     * is no longer valid.
+     */
+    public synchronized Set<AspectTargetInfo> get(BazelLabel label) {
+        StoreEntry entry = getEntries().get(label.getLabelPath());
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.buildFileFingerprint.equals(computeBuildFilesFingerprint(entry.packagePaths))) {
+            LOG.info("Persisted aspect data for {} is stale, a BUILD file in its closure has changed.", label);
+            discardEntry(label);
+            return null;
+        }
+
+        Set<AspectTargetInfo> infos = new LinkedHashSet<>();
+        for (AspectFileStamp stamp : entry.aspectFiles) {
+            AspectTargetInfo info = loadAspectFile(stamp);
+            if (info == null) {
+                LOG.info("Persisted aspect data for {} is stale, aspect file {} has changed.", label, stamp.path);
+                discardEntry(label);
+                return null;
+            }
+            infos.add(info);
+        }
+        return infos;
+    }
+
+    /**
+     * Records the aspect data computed for the label. The store is not written to disk until {@link #save()} is
+     * called.
+     */
+    public synchronized void put(BazelLabel label, Set<AspectTargetInfo> infos) {
+        List<AspectFileStamp> stamps = new ArrayList<>();
+        for (AspectTargetInfo info : infos) {
+            File aspectFile = info.getAspectDataFile();
+            if ((aspectFile == null) || !aspectFile.exists()) {
+                // we can't validate this entry in a future session, so don't persist it at all
+                LOG.info("Not persisting aspect data for {} because an aspect file is missing.", label);
+                removeEntry(label);
+                return;
+            }
+            AspectFileStamp stamp =
+                    new AspectFileStamp(aspectFile.getAbsolutePath(), aspectFile.lastModified(), aspectFile.length());
+            loadedAspectFiles.put(stamp.path, new LoadedAspectFile(stamp, info));
+            stamps.add(stamp);
+        }
+        List<String> packagePaths = getPackagePaths(label, infos);
+        getEntries().put(label.getLabelPath(),
+            new StoreEntry(computeBuildFilesFingerprint(packagePaths), packagePaths, stamps));
+        labelsByPackagePath.computeIfAbsent(label.getPackagePath(), p -> new HashSet<>()).add(label.getLabelPath());
+        dirty = true;
+    }
+
+    /**
+     * Removes the persisted aspect data for the label.
+     */
+    public synchronized void remove(BazelLabel label) {
+        removeEntry(label);
+    }
+
+    /**
+     * Removes the persisted aspect data for all labels in the passed package.
+     */
+    public synchronized void removePackage(BazelLabel bazelPackage) {
+        Map<String, StoreEntry> currentEntries = getEntries();
+        Set<String> labelPaths = labelsByPackagePath.remove(bazelPackage.getPackagePath());
+        if (labelPaths == null) {
+            return;
+        }
+        for (String labelPath : labelPaths) {
+            currentEntries.remove(labelPath);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Removes all persisted aspect data.
+     */
+    public synchronized void clear() {
+        // no need to read the file just to drop its content
+        entries = new TreeMap<>();
+        labelsByPackagePath.clear();
+        loadedAspectFiles.clear();
+        dirty = true;
+    }
+
+    /**
+     * Writes the store to disk, if it has changed since it was loaded.
+     */
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        JSONObject entriesJson = new JSONObject();
+        for (Map.Entry<String, StoreEntry> entry : getEntries().entrySet()) {
+            entriesJson.put(entry.getKey(), entry.getValue().toJson());
+        }
+        JSONObject body = new JSONObject();
+        body.put("version", STORE_VERSION);
+        body.put("workspace", bazelWorkspaceRootDirectory.getAbsolutePath());
+        body.put("entries", entriesJson);
+
+        File tempFile = new File(storeFile.getParentFile(), storeFile.getName() + ".tmp");
+        try {
+            storeFile.getParentFile().mkdirs();
+            try (Writer writer = new FileWriter(tempFile)) {
+                body.writeJSONString(writer);
+            }
+            // write then move, so that a crash while writing never leaves a truncated store behind
+            Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            dirty = false;
+        } catch (IOException ioe) {
+            LOG.error("Could not write the aspect store file {}", ioe, storeFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Number of entries currently held in the store.
+     */
+    public synchronized int size() {
+        return getEntries().size();
+    }
+
+    // INTERNAL
+
+    private Map<String, StoreEntry> getEntries() {
+        if (entries == null) {
+            entries = readStoreFile();
+            for (String labelPath : entries.keySet()) {
+                String packagePath = new BazelLabel(labelPath).getPackagePath();
+                labelsByPackagePath.computeIfAbsent(packagePath, p -> new HashSet<>()).add(labelPath);
+            }
+        }
+        return entries;
+    }
+
+    private Map<String, StoreEntry> readStoreFile() {
+        Map<String, StoreEntry> loaded = new TreeMap<>();
+        if (!storeFile.exists()) {
+            return loaded;
+        }
+        try (Reader reader = new FileReader(storeFile)) {
+            JSONObject body = (JSONObject) new JSONParser().parse(reader);
+            Object version = body.get("version");
+            Object workspace = body.get("workspace");
+            if (!Long.valueOf(STORE_VERSION).equals(version)
+                    || !bazelWorkspaceRootDirectory.getAbsolutePath().equals(workspace)) {
+                LOG.info("Ignoring aspect store file {} as it was written for a different version or workspace.",
+                    storeFile.getAbsolutePath());
+                return loaded;
+            }
+            JSONObject entriesJson = (JSONObject) body.get("entries");
+            if (entriesJson != null) {
+                for (Object key : entriesJson.keySet()) {
+                    loaded.put((String) key, StoreEntry.fromJson((JSONObject) entriesJson.get(key)));
+                }
+            }
+            LOG.info("Loaded {} entries from aspect store file {}", loaded.size(), storeFile.getAbsolutePath());
+        } catch (Exception anyE) {
+            // a corrupt store is not fatal, we just have to run the aspects again
+            LOG.error("Could not read the aspect store file {}", anyE, storeFile.getAbsolutePath());
+            loaded.clear();
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns the parsed aspect file, or null if the file no longer matches the stamp.
+     */
+    private AspectTargetInfo loadAspectFile(AspectFileStamp stamp) {
+        File aspectFile = new File(stamp.path);
+        if ((aspectFile.lastModified() != stamp.lastModified) || (aspectFile.length() != stamp.size)) {
+            // this also catches a deleted file, as lastModified() returns 0
+            return null;
+        }
+        LoadedAspectFile loaded = loadedAspectFiles.get(stamp.path);
+        if ((loaded != null) && loaded.stamp.equals(stamp)) {
+            return loaded.info;
+        }
+        AspectTargetInfo info = null;
+        try {
+            info = AspectTargetInfoFactory.loadAspectFile(aspectFile);
+        } catch (Exception anyE) {
+            LOG.error("Could not parse the persisted aspect file {}", anyE, stamp.path);
+        }
+        if (info != null) {
+            loadedAspectFiles.put(stamp.path, new LoadedAspectFile(stamp, info));
+        }
+        return info;
+    }
+
+    private void discardEntry(BazelLabel label) {
+        numberStaleEntries++;
+        removeEntry(label);
+    }
+
+    private void removeEntry(BazelLabel label) {
+        if (getEntries().remove(label.getLabelPath()) != null) {
+            Set<String> labelPaths = labelsByPackagePath.get(label.getPackagePath());
+            if ((labelPaths != null) && labelPaths.remove(label.getLabelPath()) && labelPaths.isEmpty()) {
+                labelsByPackagePath.remove(label.getPackagePath());
+            }
+            dirty = true;
+        }
+    }
+
+    /**
+     * Returns the sorted paths of the workspace packages of the label and of the targets in its closure. Labels from
+     * external repositories do not have a BUILD file in the workspace, for those we rely solely on the aspect file
+     * stamps.
+     */
+    private static List<String> getPackagePaths(BazelLabel label, Collection<AspectTargetInfo> infos) {
+        Set<String> packagePaths = new TreeSet<>();
+        if (!label.isExternalRepoLabel()) {
+            packagePaths.add(label.getPackagePath());
+        }
+        for (AspectTargetInfo info : infos) {
+            if (info.getLabelPath() != null) {
+                BazelLabel infoLabel = new BazelLabel(info.getLabelPath());
+                if (!infoLabel.isExternalRepoLabel()) {
+                    packagePaths.add(infoLabel.getPackagePath());
+                }
+            }
+        }
+        return new ArrayList<>(packagePaths);
+    }
+
+    /**
+     * Computes a content fingerprint of the BUILD files of the passed packages.
+     */
+    String computeBuildFilesFingerprint(List<String> packagePaths) {
+        CRC32 crc = new CRC32();
+        for (String packagePath : packagePaths) {
+            String stamp =
+                    packagePath + ":" + computeBuildFileFingerprint(bazelWorkspaceRootDirectory, packagePath) + "\n";
+            crc.update(stamp.getBytes(StandardCharsets.UTF_8));
+        }
+        return packagePaths.size() + ":" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Computes a content fingerprint of the BUILD file of the label's package in the passed workspace. Returns a fixed
+     * value for external labels and packages without a BUILD file.
+     */
+    public static String computeBuildFileFingerprint(File bazelWorkspaceRootDirectory, BazelLabel label) {
+        if (label.isExternalRepoLabel()) {
+            return NO_BUILD_FILE_FINGERPRINT;
+        }
+        return computeBuildFileFingerprint(bazelWorkspaceRootDirectory, label.getPackagePath());
+    }
+
+    /**
+     * Computes a content fingerprint of the BUILD file of the package in the passed workspace. Returns a fixed value
+     * for packages without a BUILD file. The file is only read again if its modification time or size changed since
+     * the last call.
+     */
+    public static String computeBuildFileFingerprint(File bazelWorkspaceRootDirectory, String packagePath) {
+        File packageDir = new File(bazelWorkspaceRootDirectory, packagePath);
+        for (String buildFileName : BazelConstants.BUILD_FILE_NAMES) {
+            File buildFile = new File(packageDir, buildFileName);
+            if (buildFile.isFile()) {
+                long lastModified = buildFile.lastModified();
+                long size = buildFile.length();
+                String path = buildFile.getAbsolutePath();
+                BuildFileStamp stamp = buildFileStamps.get(path);
+                if ((stamp != null) && (stamp.lastModified == lastModified) && (stamp.size == size)) {
+                    return stamp.fingerprint;
+                }
+                try {
+                    CRC32 crc = new CRC32();
+                    crc.update(Files.readAllBytes(buildFile.toPath()));
+                    String fingerprint = buildFileName + ":" + size + ":" + Long.toHexString(crc.getValue());
+                    buildFileStamps.put(path, new BuildFileStamp(lastModified, size, fingerprint));
+                    return fingerprint;
+                } catch (IOException ioe) {
+                    LOG.error("Could not read BUILD file {}", ioe, path);
+                }
+            }
+        }
+        return NO_BUILD_FILE_FINGERPRINT;
+    }
+
+    private static class BuildFileStamp {
+        final long lastModified;
+        final long size;
+        final String fingerprint;
+
+        BuildFileStamp(long lastModified, long size, String fingerprint) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static class StoreEntry {
+        final String buildFileFingerprint;
+        final List<String> packagePaths;
+        final List<AspectFileStamp> aspectFiles;
+
+        StoreEntry(String buildFileFingerprint, List<String> packagePaths, List<AspectFileStamp> aspectFiles) {
+            this.buildFileFingerprint = buildFileFingerprint;
+            this.packagePaths = packagePaths;
+            this.aspectFiles = aspectFiles;
+        }
+
+        JSONObject toJson() {
+            JSONArray filesJson = new JSONArray();
+            for (AspectFileStamp stamp : aspectFiles) {
+                JSONObject fileJson = new JSONObject();
+                fileJson.put("path", stamp.path);
+                fileJson.put("modified", stamp.lastModified);
+                fileJson.put("size", stamp.size);
+                filesJson.add(fileJson);
+            }
+            JSONArray packagesJson = new JSONArray();
+            packagesJson.addAll(packagePaths);
+            JSONObject entryJson = new JSONObject();
+            entryJson.put("build", buildFileFingerprint);
+            entryJson.put("packages", packagesJson);
+            entryJson.put("files", filesJson);
+            return entryJson;
+        }
+
+        static StoreEntry fromJson(JSONObject entryJson) {
+            List<AspectFileStamp> stamps = new ArrayList<>();
+            JSONArray filesJson = (JSONArray) entryJson.get("files");
+            for (Object fileObj : filesJson) {
+                JSONObject fileJson = (JSONObject) fileObj;
+                stamps.add(new AspectFileStamp((String) fileJson.get("path"), (Long) fileJson.get("modified"),
+                        (Long) fileJson.get("size")));
+            }
+            List<String> packagePaths = new ArrayList<>();
+            for (Object packagePath : (JSONArray) entryJson.get("packages")) {
+                packagePaths.add((String) packagePath);
+            }
+            return new StoreEntry((String) entryJson.get("build"), packagePaths, stamps);
+        }
+    }
+
+    private static class AspectFileStamp {
+        final String path;
+        final long lastModified;
+        final long size;
+
+        AspectFileStamp(String path, long lastModified, long size) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof AspectFileStamp)) {
+                return false;
+            }
+            AspectFileStamp other = (AspectFileStamp) obj;
+            return path.equals(other.path) && (lastModified == other.lastModified) && (size == other.size);
+        }
+    }
+
+    private static class LoadedAspectFile {
+        final AspectFileStamp stamp;
+        final AspectTargetInfo info;
+
+        LoadedAspectFile(AspectFileStamp stamp, AspectTargetInfo info) {
+            this.stamp = stamp;
+            this.info = info;
+        }
+    }
+}
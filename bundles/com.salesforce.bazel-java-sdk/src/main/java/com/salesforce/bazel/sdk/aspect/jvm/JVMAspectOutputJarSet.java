@@ -34,10 +34,13 @@
 package com.salesforce.bazel.sdk.aspect.jvm;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Objects;
 
 import org.json.simple.JSONObject;
 
+import com.salesforce.bazel.sdk.util.JsonStreamReader;
+
 /**
  * A structure containing the set of jar files (interface, class and source jars) generated by a JVM rule target
  * (java_library).
@@ -47,37 +50,81 @@ public final class JVMAspectOutputJarSet {
     private String jar; // jar
     private String srcjar; // source_jar
 
+    public JVMAspectOutputJarSet(String jar, String ijar, String srcjar) {
+        this.jar = jar;
+        this.ijar = ijar;
+        this.srcjar = srcjar;
+    }
+
     public JVMAspectOutputJarSet(JSONObject arrayObj) {
-        JSONObject jarObj = (JSONObject) arrayObj.get("jar");
-        if (jarObj != null) {
-            String relPath = (String) jarObj.get("relative_path");
-            String base = (String) jarObj.get("root_execution_path_fragment");
-            if (base != null && !base.isEmpty()) {
-                jar = base + File.separator + relPath;
-            } else {
-                jar = relPath;
-            }
+        jar = toArtifactPath((JSONObject) arrayObj.get("jar"));
+        ijar = toArtifactPath((JSONObject) arrayObj.get("interface_jar"));
+        srcjar = toArtifactPath((JSONObject) arrayObj.get("source_jar"));
+    }
+
+    private static String toArtifactPath(JSONObject artifactObj) {
+        if (artifactObj == null) {
+            return null;
+        }
+        return joinArtifactPath((String) artifactObj.get("root_execution_path_fragment"),
+            (String) artifactObj.get("relative_path"));
+    }
+
+    private static String joinArtifactPath(String base, String relPath) {
+        if ((base != null) && !base.isEmpty()) {
+            return base + File.separator + relPath;
         }
-        JSONObject ijarObj = (JSONObject) arrayObj.get("interface_jar");
-        if (ijarObj != null) {
-            String base = (String) ijarObj.get("root_execution_path_fragment");
-            String relPath = (String) ijarObj.get("relative_path");
-            if (base != null && !base.isEmpty()) {
-                ijar = base + File.separator + relPath;
+        return relPath;
+    }
+
+    /**
+     * Binds a jar set directly from a streaming reader positioned on the jar set object.
+     */
+    static JVMAspectOutputJarSet read(JsonStreamReader reader) throws IOException {
+        String jar = null;
+        String ijar = null;
+        String srcjar = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("jar".equals(name)) {
+                jar = readArtifactPath(reader);
+            } else if ("interface_jar".equals(name)) {
+                ijar = readArtifactPath(reader);
+            } else if ("source_jar".equals(name)) {
+                srcjar = readArtifactPath(reader);
             } else {
-                ijar = relPath;
+                reader.skipValue();
             }
         }
-        JSONObject sjarObj = (JSONObject) arrayObj.get("source_jar");
-        if (sjarObj != null) {
-            String base = (String) sjarObj.get("root_execution_path_fragment");
-            String relPath = (String) sjarObj.get("relative_path");
-            if (base != null && !base.isEmpty()) {
-                srcjar = base + File.separator + relPath;
+        reader.endObject();
+        return new JVMAspectOutputJarSet(jar, ijar, srcjar);
+    }
+
+    /**
+     * Reads an artifact location object: { "relative_path": "...", "root_execution_path_fragment": "..." }
+     */
+    private static String readArtifactPath(JsonStreamReader reader) throws IOException {
+        if (reader.peek() == JsonStreamReader.Token.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        String relPath = null;
+        String base = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("relative_path".equals(name)) {
+                relPath = reader.nextString();
+            } else if ("root_execution_path_fragment".equals(name)) {
+                base = reader.nextString();
             } else {
-                srcjar = relPath;
+                reader.skipValue();
             }
         }
+        reader.endObject();
+        return joinArtifactPath(base, relPath);
     }
 
     @Override
@@ -34,14 +34,15 @@
 package com.salesforce.bazel.sdk.aspect.jvm;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 
 import com.salesforce.bazel.sdk.aspect.AspectTargetInfo;
+import com.salesforce.bazel.sdk.util.JsonStreamReader;
 
 /**
  * The subclass of AspectTargetInfo for JVM based rules.
@@ -70,19 +71,19 @@ public class JVMAspectTargetInfo extends AspectTargetInfo {
     protected List<JVMAspectOutputJarSet> generatedJars;
     protected List<JVMAspectOutputJarSet> jars;
 
-    JVMAspectTargetInfo(File aspectDataFile, JSONObject aspectObject, JSONParser jsonParser,
-            String workspaceRelativePath, String kind, String label, List<String> deps) throws Exception {
+    JVMAspectTargetInfo(File aspectDataFile, JSONObject aspectObject, String workspaceRelativePath, String kind,
+            String label, List<String> deps) throws Exception {
         super(aspectDataFile, workspaceRelativePath, kind, label, deps, null);
 
         JSONObject ideInfoObj = (JSONObject) aspectObject.get("java_ide_info");
         if (ideInfoObj != null) {
             sources = loadSources(ideInfoObj);
 
-            List<JVMAspectOutputJarSet> jarsList = jsonArrayToJarArray(ideInfoObj.get("jars"), jsonParser);
+            List<JVMAspectOutputJarSet> jarsList = jsonArrayToJarArray(ideInfoObj.get("jars"));
             jars = jarsList;
 
             List<JVMAspectOutputJarSet> generatedJarsList =
-                    jsonArrayToJarArray(ideInfoObj.get("generated_jars"), jsonParser);
+                    jsonArrayToJarArray(ideInfoObj.get("generated_jars"));
             generatedJars = generatedJarsList;
 
             String mainClass = (String) ideInfoObj.get("main_class");
@@ -94,6 +95,22 @@ public class JVMAspectTargetInfo extends AspectTargetInfo {
         }
     }
 
+    JVMAspectTargetInfo(File aspectDataFile, JavaIdeInfo ideInfo, String workspaceRelativePath, String kind,
+            String label, List<String> deps) {
+        super(aspectDataFile, workspaceRelativePath, kind, label, deps, null);
+
+        if (ideInfo != null) {
+            sources = ideInfo.sources;
+            jars = ideInfo.jars;
+            generatedJars = ideInfo.generatedJars;
+            mainClass = ideInfo.mainClass;
+        } else {
+            sources = new ArrayList<>();
+            jars = new ArrayList<>();
+            generatedJars = new ArrayList<>();
+        }
+    }
+
     /**
      * List of jars generated by annotations processors when building this target.
      */
@@ -133,24 +150,93 @@ public class JVMAspectTargetInfo extends AspectTargetInfo {
         return list;
     }
 
-    private static List<JVMAspectOutputJarSet> jsonArrayToJarArray(Object arrayObject, JSONParser jsonParser)
-            throws Exception {
-        List<JVMAspectOutputJarSet> jarList = new ArrayList<>();
-        if (arrayObject == null) {
-            return jarList;
-        }
+    static List<JVMAspectOutputJarSet> jsonArrayToJarArray(Object arrayObject) {
         if (!(arrayObject instanceof JSONArray)) {
-            return jarList;
+            return new ArrayList<>();
         }
 
+        // the elements are already parsed, bind them directly rather than round tripping through json text
         JSONArray array = (JSONArray) arrayObject;
+        List<JVMAspectOutputJarSet> jarList = new ArrayList<>(array.size());
         for (Object jarSet : array) {
-            JSONObject jarSetObject = (JSONObject) jsonParser.parse(jarSet.toString());
-            jarList.add(new JVMAspectOutputJarSet(jarSetObject));
+            jarList.add(new JVMAspectOutputJarSet((JSONObject) jarSet));
         }
         return jarList;
     }
 
+    // STREAMING
+
+    /**
+     * The contents of the java_ide_info section of the aspect file, bound directly from a streaming reader.
+     */
+    static class JavaIdeInfo {
+        List<String> sources = new ArrayList<>();
+        List<JVMAspectOutputJarSet> jars = new ArrayList<>();
+        List<JVMAspectOutputJarSet> generatedJars = new ArrayList<>();
+        String mainClass;
+    }
+
+    static JavaIdeInfo readJavaIdeInfo(JsonStreamReader reader) throws IOException {
+        if (reader.peek() != JsonStreamReader.Token.BEGIN_OBJECT) {
+            reader.skipValue();
+            return null;
+        }
+        JavaIdeInfo ideInfo = new JavaIdeInfo();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("sources".equals(name)) {
+                readSources(reader, ideInfo.sources);
+            } else if ("jars".equals(name)) {
+                readJarSets(reader, ideInfo.jars);
+            } else if ("generated_jars".equals(name)) {
+                readJarSets(reader, ideInfo.generatedJars);
+            } else if ("main_class".equals(name)) {
+                ideInfo.mainClass = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return ideInfo;
+    }
+
+    private static void readSources(JsonStreamReader reader, List<String> sources) throws IOException {
+        if (reader.peek() != JsonStreamReader.Token.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("relative_path".equals(reader.nextName())) {
+                    String path = reader.nextString();
+                    if (path != null) {
+                        sources.add(path);
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+    }
+
+    private static void readJarSets(JsonStreamReader reader, List<JVMAspectOutputJarSet> jarSets)
+            throws IOException {
+        if (reader.peek() != JsonStreamReader.Token.BEGIN_ARRAY) {
+            reader.skipValue();
+            return;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            jarSets.add(JVMAspectOutputJarSet.read(reader));
+        }
+        reader.endArray();
+    }
+
     @Override
     public String toString() {
         StringBuffer builder = new StringBuffer();
@@ -34,6 +34,7 @@
 package com.salesforce.bazel.sdk.aspect.jvm;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 import org.json.simple.JSONObject;
@@ -42,6 +43,7 @@ import org.json.simple.parser.JSONParser;
 import com.salesforce.bazel.sdk.aspect.AspectTargetInfo;
 import com.salesforce.bazel.sdk.aspect.AspectTargetInfoFactoryProvider;
 import com.salesforce.bazel.sdk.logging.LogHelper;
+import com.salesforce.bazel.sdk.util.JsonStreamReader;
 
 /**
  * Provider that knows how to construct AspectTargetInfo objects for JVM rule kinds. (e.g. java_library)
@@ -58,8 +60,7 @@ public class JVMAspectTargetInfoFactoryProvider implements AspectTargetInfoFacto
 
         try {
 
-            info = new JVMAspectTargetInfo(aspectDataFile, jsonObject, jsonParser, workspaceRelativePath, kind, label,
-                    deps);
+            info = new JVMAspectTargetInfo(aspectDataFile, jsonObject, workspaceRelativePath, kind, label, deps);
         } catch (Exception anyE) {
             LOG.error("Error creating the JVMAspectTargetInfo for path [{}] label [{}] kind [{}] from json {}", anyE,
                 workspaceRelativePath, label, kind, jsonObject);
@@ -67,4 +68,21 @@ public class JVMAspectTargetInfoFactoryProvider implements AspectTargetInfoFacto
 
         return info;
     }
+
+    @Override
+    public String getSectionName() {
+        return "java_ide_info";
+    }
+
+    @Override
+    public Object readSection(JsonStreamReader reader) throws IOException {
+        return JVMAspectTargetInfo.readJavaIdeInfo(reader);
+    }
+
+    @Override
+    public AspectTargetInfo buildAspectTargetInfo(File aspectDataFile, Object sectionData,
+            String workspaceRelativePath, String kind, String label, List<String> deps) {
+        return new JVMAspectTargetInfo(aspectDataFile, (JVMAspectTargetInfo.JavaIdeInfo) sectionData,
+                workspaceRelativePath, kind, label, deps);
+    }
 }
@@ -33,13 +33,13 @@
  */
 package com.salesforce.bazel.sdk.bep;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 
 import com.salesforce.bazel.sdk.bep.event.BEPBuildFinishedEvent;
 import com.salesforce.bazel.sdk.bep.event.BEPBuildMetricsEvent;
@@ -56,12 +56,19 @@ import com.salesforce.bazel.sdk.bep.event.BEPTestResultEvent;
 import com.salesforce.bazel.sdk.bep.event.BEPTestSummaryEvent;
 import com.salesforce.bazel.sdk.bep.event.BEPUnstructuredCommandLineEvent;
 import com.salesforce.bazel.sdk.logging.LogHelper;
+import com.salesforce.bazel.sdk.util.JsonStreamReader;
 
 public class BazelBuildEventTypeManager {
     private static final LogHelper LOG = LogHelper.log(BazelBuildEventTypeManager.class);
 
     public static final String EVENTTYPE_IGNORED = "ignored";
 
+    /**
+     * BEP files contain thousands of events, so the reader (and its buffers) is reused for each event parsed on a
+     * thread.
+     */
+    private static final ThreadLocal<JsonStreamReader> jsonReaders = ThreadLocal.withInitial(JsonStreamReader::new);
+
     /**
      * List of resolvers that can map a textual BEP event type to a concrete implementation. SDK users can add their own
      * resolver if they need to process more BEP event types than what the SDK supports.
@@ -110,25 +117,21 @@ public class BazelBuildEventTypeManager {
 
     /**
      * Normally called by a BazelBuildEventsStream while loading an event json.
+     * <p>
+     * If the id of an event has more than one key of a supported type, the first one in the event wins. BEP ids have a
+     * single key, so this only matters for malformed or hand written events.
      */
     public static BEPEvent parseEvent(String json, int index) {
         BEPEvent event = null;
 
         try {
-            JSONObject eventObject = (JSONObject) new JSONParser().parse(json);
-            JSONObject id = (JSONObject) eventObject.get("id");
-
-            if (id != null) {
-                // it is a little awkward to determine the event type, since the type is expressed
-                // as a key name, not a key value. So we iterate through the type we care about and
-                // look for a key match.
-                for (String eventType : eventTypes) {
-                    Object type = id.get(eventType);
-                    if (type != null) {
-                        // this is a supported type in the SDK
-                        event = createEvent(eventType, json, index, eventObject);
-                    }
-                }
+            // it is a little awkward to determine the event type, since the type is expressed
+            // as a key name, not a key value. We stream through the event once, which allows us to avoid building
+            // the object tree for the many event types we ignore.
+            TypedEventObject typedEvent = readEvent(jsonReaders.get().reset(json));
+            if (typedEvent.eventType != null) {
+                // this is a supported type in the SDK
+                event = createEvent(typedEvent.eventType, json, index, typedEvent.eventObject);
             }
             if (event == null) {
                 // placeholder event, having this in the list makes it possible to skip reparsing
@@ -144,6 +147,60 @@ public class BazelBuildEventTypeManager {
         return event;
     }
 
+    /**
+     * Reads the event in a single pass. BEP writes the id object, which holds the event type, first. Once the id shows
+     * that the event is of a type the SDK does not support, the remaining members are skipped instead of being
+     * materialized. The whole event is still scanned, so that malformed events, such as a partially written last line,
+     * are detected.
+     */
+    @SuppressWarnings("unchecked")
+    private static TypedEventObject readEvent(JsonStreamReader reader) throws IOException {
+        TypedEventObject typedEvent = new TypedEventObject();
+        JSONObject eventObject = new JSONObject();
+        boolean isIgnored = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (isIgnored) {
+                reader.skipValue();
+            } else if ("id".equals(name) && (reader.peek() == JsonStreamReader.Token.BEGIN_OBJECT)) {
+                eventObject.put(name, readEventId(reader, typedEvent));
+                isIgnored = typedEvent.eventType == null;
+            } else {
+                eventObject.put(name, reader.readValue());
+            }
+        }
+        reader.endObject();
+        if (reader.peek() != JsonStreamReader.Token.END_DOCUMENT) {
+            throw new IOException("Unexpected content after the event at position " + reader.getPosition());
+        }
+        if (!isIgnored && (typedEvent.eventType != null)) {
+            typedEvent.eventObject = eventObject;
+        } else {
+            typedEvent.eventType = null;
+        }
+        return typedEvent;
+    }
+
+    /**
+     * Reads the id object of the event, and records the first key in it that is a supported event type.
+     */
+    @SuppressWarnings("unchecked")
+    private static JSONObject readEventId(JsonStreamReader reader, TypedEventObject typedEvent) throws IOException {
+        JSONObject id = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String type = reader.nextName();
+            Object value = reader.readValue();
+            if ((typedEvent.eventType == null) && (value != null) && eventTypes.contains(type)) {
+                typedEvent.eventType = type;
+            }
+            id.put(type, value);
+        }
+        reader.endObject();
+        return id;
+    }
+
     /**
      * Used by a BazelBuildEventStream to create an event object when it receives the json event.
      */
@@ -158,4 +215,9 @@ public class BazelBuildEventTypeManager {
         }
         return event;
     }
+
+    private static class TypedEventObject {
+        String eventType;
+        JSONObject eventObject;
+    }
 }
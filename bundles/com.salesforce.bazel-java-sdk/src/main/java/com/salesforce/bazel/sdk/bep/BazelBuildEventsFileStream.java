@@ -112,11 +112,9 @@ public class BazelBuildEventsFileStream extends BazelBuildEventStream {
             return;
         }
 
-        // parse the file, but use the previous results (if this file has been scanned before) as a cache,
-        // to avoid reparsing lines we have already parsed
-        BEPFileContents previousContent = monitoredFile.previousResults;
+        // the parser tails the file, so this only reads and parses the events written since the last time
         BEPFileParser bepFile = monitoredFile.bepFile;
-        BEPFileContents newContent = bepFile.readEvents("BazelBuildEventsFileStream", previousContent);
+        BEPFileContents newContent = bepFile.readNewEvents("BazelBuildEventsFileStream");
         monitoredFile.previousResults = newContent;
 
         // iterate through the newly found lines and send them to the subscribers
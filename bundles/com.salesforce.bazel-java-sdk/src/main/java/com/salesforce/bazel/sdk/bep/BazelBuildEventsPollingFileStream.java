@@ -34,6 +34,15 @@
 package com.salesforce.bazel.sdk.bep;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import com.salesforce.bazel.sdk.bep.file.BEPMonitoredFile;
 import com.salesforce.bazel.sdk.logging.LogHelper;
@@ -41,12 +50,18 @@ import com.salesforce.bazel.sdk.logging.LogHelper;
 /**
  * Bazel build event protocol stream (BEP) for a Bazel workspace. A BEP stream allows you to monitor and react to build
  * events emitted from Bazel. This implementation spawns a thread and actively polls one or more BEP files for new
- * events. It is intelligent and will only reparse a file if the file modification time has changed.
+ * events. It is intelligent and will only read a file if the file modification time or length has changed, and then
+ * only reads the part of the file that was appended since the previous poll.
+ * <p>
+ * Optionally, the stream can use a file system WatchService to wake up as soon as a BEP file is written, instead of
+ * waiting for the next polling interval. The polling interval is then only a fallback, for file systems on which the
+ * watch service does not deliver events.
  * <p>
  * Because this stream integrates with your builds with Bazel using BEP, this stream will work with command line builds
  * but also with IDE builds.
  * <p>
- * After creation, you must start the stream by calling activateStream().
+ * After creation, you must start the stream by calling activateStream(). Call stopStream() to stop the polling thread
+ * for good.
  * <p>
  * <b>NOTE:</b> This feature requires a configuration change to your Bazel workspace: you must add the following lines
  * to your .bazelrc file to enable BEP:<br/>
@@ -60,7 +75,9 @@ public class BazelBuildEventsPollingFileStream extends BazelBuildEventsFileStrea
     private static final LogHelper LOG = LogHelper.log(BazelBuildEventsPollingFileStream.class);
 
     public int filePollerIntervalSeconds = 5;
+    private boolean useWatchService = false;
     private FilePoller filePoller = null;
+    private Thread filePollerThread = null;
 
     public BazelBuildEventsPollingFileStream() {}
 
@@ -80,9 +97,11 @@ public class BazelBuildEventsPollingFileStream extends BazelBuildEventsFileStrea
     public void addFileToMonitor(File bepFile, boolean parseOnStart) {
         BEPMonitoredFile monitoredFile = addFileToMonitor_Internal(bepFile);
 
-        // if caller does not want the initial state parsed, capture the current last mod
+        // if caller does not want the initial state parsed, capture the current state and move the parser past it
         if (!parseOnStart && monitoredFile.file.exists()) {
             monitoredFile.fileLastModifiedMS = monitoredFile.file.lastModified();
+            monitoredFile.fileLength = monitoredFile.file.length();
+            monitoredFile.bepFile.skipExistingEvents();
         }
     }
 
@@ -93,58 +112,160 @@ public class BazelBuildEventsPollingFileStream extends BazelBuildEventsFileStrea
         filePollerIntervalSeconds = seconds;
     }
 
+    /**
+     * If enabled, the stream registers the directories of the BEP files with a WatchService and checks the files as
+     * soon as they are written. The polling interval still applies as the maximum wait between checks. Must be set
+     * before the stream is activated.
+     */
+    public void setUseWatchService(boolean useWatchService) {
+        this.useWatchService = useWatchService;
+    }
+
     @Override
     public void activateStream() {
-        if (filePoller == null) {
-            filePoller = new FilePoller();
-            // let's go
-            new Thread(filePoller).start();
+        synchronized (this) {
+            if (filePoller == null) {
+                filePoller = new FilePoller();
+                // let's go
+                filePollerThread = new Thread(filePoller, "bzl-bep-file-poller");
+                filePollerThread.setDaemon(true);
+                filePollerThread.start();
+            }
         }
         super.activateStream();
     }
 
+    /**
+     * Stops the polling thread. Unlike pauseStream(), the stream cannot be activated again after this.
+     */
+    public void stopStream() {
+        Thread pollerThread;
+        synchronized (this) {
+            if (filePoller == null) {
+                return;
+            }
+            filePoller.stop();
+            pollerThread = filePollerThread;
+        }
+        pollerThread.interrupt();
+        try {
+            pollerThread.join(TimeUnit.SECONDS.toMillis(filePollerIntervalSeconds) + 1000);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     // INTERNAL
 
+    /**
+     * Checks the monitored files, and publishes the new events of the ones that changed.
+     */
+    void pollFiles() {
+        for (BEPMonitoredFile monitoredFile : monitoredFiles) {
+            if (!monitoredFile.file.exists()) {
+                // the monitored file does not exist yet (user needs to run a build?)
+                LOG.debug("File [{}] does not exist yet. Run a build?", monitoredFile.file.getAbsolutePath());
+                continue;
+            }
+
+            // only read the file if it has changed since the last iteration; the length is checked too as the
+            // modification time has a coarse granularity on some file systems
+            long currentLastMod = monitoredFile.file.lastModified();
+            long currentLength = monitoredFile.file.length();
+            if ((currentLastMod == monitoredFile.fileLastModifiedMS) && (currentLength == monitoredFile.fileLength)) {
+                // the file hasn't changed since we last parsed it, bail
+                LOG.debug("FilePoller will not parse [{}] because it hasn't changed.", monitoredFile.file.getName());
+                continue;
+            }
+            monitoredFile.fileLastModifiedMS = currentLastMod;
+            monitoredFile.fileLength = currentLength;
+
+            // parse the new part of the file and publish events
+            processFile(monitoredFile);
+        }
+    }
+
     /**
      * Internal thread for polling the BEP files on an interval.
      */
     private class FilePoller implements Runnable {
+        private volatile boolean running = true;
+        private WatchService watchService;
+
+        void stop() {
+            running = false;
+        }
 
         @Override
         public void run() {
+            if (useWatchService) {
+                watchService = createWatchService();
+            }
+            try {
+                while (running) {
+                    if (!waitForNextPoll()) {
+                        break;
+                    }
+                    if (paused) {
+                        // if still paused, just restart the loop
+                        continue;
+                    }
+                    pollFiles();
+                }
+            } finally {
+                closeWatchService();
+            }
+            LOG.info("Stopped polling the BEP files.");
+        }
 
-            while (true) {
-                try {
-                    Thread.sleep(filePollerIntervalSeconds * 1000);
-                } catch (InterruptedException ie) {}
-
-                if (paused) {
-                    // if still paused, just restart the loop
-                    continue;
+        /**
+         * Waits for the polling interval, or until the watch service reports a change in one of the directories.
+         * Returns false if the thread was interrupted because the stream is stopping.
+         */
+        private boolean waitForNextPoll() {
+            try {
+                if (watchService == null) {
+                    Thread.sleep(filePollerIntervalSeconds * 1000L);
+                    return running;
+                }
+                WatchKey key = watchService.poll(filePollerIntervalSeconds, TimeUnit.SECONDS);
+                if (key != null) {
+                    // we don't need the details, any event means we should check the files
+                    key.pollEvents();
+                    key.reset();
                 }
+            } catch (InterruptedException ie) {
+                if (!running) {
+                    return false;
+                }
+            }
+            return running;
+        }
 
+        private WatchService createWatchService() {
+            try {
+                WatchService service = FileSystems.getDefault().newWatchService();
+                Set<Path> directories = new HashSet<>();
                 for (BEPMonitoredFile monitoredFile : monitoredFiles) {
-                    if (!monitoredFile.file.exists()) {
-                        // the monitored file does not exist yet (user needs to run a build?)
-                        LOG.info("File [{}] does not exist yet. Run a build?", monitoredFile.file.getAbsolutePath());
-                        continue;
+                    File directory = monitoredFile.file.getAbsoluteFile().getParentFile();
+                    if ((directory != null) && directory.isDirectory() && directories.add(directory.toPath())) {
+                        directory.toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY);
                     }
-
-                    // only re-parse the file if it has changed since the last iteration
-                    long currentLastMod = monitoredFile.file.lastModified();
-                    if (currentLastMod == monitoredFile.fileLastModifiedMS) {
-                        // the file hasn't changed since we last parsed it, bail
-                        LOG.info("FilePoller will not parse [{}] because it hasn't changed.",
-                            monitoredFile.file.getName());
-                        continue;
-                    }
-                    monitoredFile.fileLastModifiedMS = currentLastMod;
-
-                    // parse the file and publish events
-                    processFile(monitoredFile);
                 }
+                return service;
+            } catch (IOException | RuntimeException anyE) {
+                LOG.error("Could not watch the BEP file directories, falling back to polling.", anyE);
+                return null;
             }
         }
 
+        private void closeWatchService() {
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException ioe) {}
+            }
+        }
     }
 }
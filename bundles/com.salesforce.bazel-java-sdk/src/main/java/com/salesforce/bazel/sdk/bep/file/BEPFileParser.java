@@ -37,7 +37,12 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.salesforce.bazel.sdk.bep.BazelBuildEventTypeManager;
@@ -56,6 +61,10 @@ import com.salesforce.bazel.sdk.logging.LogHelper;
  * consumption.
  * <p>
  * <a href="https://docs.bazel.build/versions/master/build-event-protocol.html">BEP Documentation</a>
+ * <p>
+ * There are two ways to read the file. readEvents() parses the whole file each time. readNewEvents() tails the file:
+ * it remembers the byte offset of the last complete line it parsed and on the next call only reads the bytes appended
+ * since. This is what the file streams use, as BEP files for long test runs can grow to hundreds of MB.
  */
 public class BEPFileParser {
     static final LogHelper LOG = LogHelper.log(BEPFileParser.class);
@@ -65,6 +74,15 @@ public class BEPFileParser {
     // since it is common to want to see the errors in a build, we always populate the list
     private final List<BEPEvent> errorEvents = new ArrayList<>();
 
+    // tailing state, see readNewEvents()
+    static final int TAIL_READ_BUFFER_SIZE = 64 * 1024;
+    static final int TAIL_FIRST_LINE_MAX_LENGTH = 64 * 1024;
+    private long tailOffset = 0L;
+    private int tailEventIndex = 0;
+    private byte[] tailFirstLine = null;
+    private BEPStartedEvent tailStartedEvent = null;
+    private boolean tailHasLastEvent = false;
+
     /**
      * Creates the BazelBuildEventsFile for a File. Note that the File may not exist. This can happen if this
      * configuration happens prior to a build with the configuration setting enabled.
@@ -157,6 +175,175 @@ public class BEPFileParser {
         return result;
     }
 
+    /**
+     * Reads the events appended to the BEP json file since the previous invocation of this method, and returns a
+     * results object with just those events. The startedEvent and hasLastEvent fields of the result describe the
+     * build as a whole, not just the new events.
+     * <p>
+     * Only complete lines are parsed. A trailing partial line (Bazel is in the middle of writing it) is left in the
+     * file and parsed by a later invocation. If the file was truncated or replaced since the previous invocation,
+     * which Bazel does when a new build starts, the file is read again from the start.
+     */
+    public synchronized BEPFileContents readNewEvents(String callerForLog) {
+        BEPFileContents result = new BEPFileContents();
+        if (!bepFile.exists()) {
+            LOG.debug(callerForLog + ": BEP file " + bepFile.getAbsolutePath() + " does not exist.");
+            return result;
+        }
+
+        try (FileChannel channel = FileChannel.open(bepFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if ((tailOffset > 0) && ((size < tailOffset) || !isSameFirstLine(channel))) {
+                LOG.info(callerForLog + ": BEP file " + bepFile.getAbsolutePath()
+                        + " was truncated or replaced, reading it from the start.");
+                resetTail();
+            }
+            if ((tailOffset == 0) && (size < 100)) {
+                // if there are less than 100 bytes in the file, it means there isn't anything interesting to look at
+                // yet (Bazel truncates the file when the build starts) so just cut off our processing early
+                LOG.debug(callerForLog + ": Halting processing of BEP file " + bepFile.getAbsolutePath()
+                        + " because it has a short length of [" + size + "] bytes.");
+                return result;
+            }
+            readAppendedLines(channel, result);
+        } catch (IOException e) {
+            LOG.error("error reading BEP events file [{}]", e, bepFile.getAbsolutePath());
+        }
+        result.startedEvent = tailStartedEvent;
+        result.hasLastEvent = tailHasLastEvent;
+        return result;
+    }
+
+    /**
+     * Moves the tail position past the current content of the file, without parsing it. The next invocation of
+     * readNewEvents() will only return events written after this call (or all events of a new build).
+     */
+    public synchronized void skipExistingEvents() {
+        resetTail();
+        if (!bepFile.exists()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(bepFile.toPath(), StandardOpenOption.READ)) {
+            readAppendedLines(channel, null);
+        } catch (IOException e) {
+            LOG.error("error reading BEP events file [{}]", e, bepFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Returns the byte offset in the file up to which readNewEvents() has consumed the file.
+     */
+    public synchronized long getTailOffset() {
+        return tailOffset;
+    }
+
+    private void resetTail() {
+        tailOffset = 0L;
+        tailEventIndex = 0;
+        tailFirstLine = null;
+        tailStartedEvent = null;
+        tailHasLastEvent = false;
+        // the errors belong to the build that was tailed
+        errorEvents.clear();
+    }
+
+    /**
+     * The first line of a BEP file is the started event, which identifies the build. If it is different than the one
+     * we saw before, the file was rewritten by a new build, even if it is already larger than our offset.
+     */
+    private boolean isSameFirstLine(FileChannel channel) throws IOException {
+        if (tailFirstLine == null) {
+            return true;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(tailFirstLine.length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return Arrays.equals(buffer.array(), tailFirstLine);
+    }
+
+    /**
+     * Reads the complete lines after the tail offset and advances the offset past them. If result is null the lines
+     * are skipped instead of parsed.
+     */
+    private void readAppendedLines(FileChannel channel, BEPFileContents result) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TAIL_READ_BUFFER_SIZE);
+        byte[] line = new byte[8192];
+        int lineLength = 0;
+        long position = tailOffset;
+
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            position += read;
+            buffer.flip();
+            byte[] bytes = buffer.array();
+            int limit = buffer.limit();
+            int lineStart = 0;
+            for (int i = 0; i < limit; i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                // complete line, append the remaining bytes of the line from this buffer
+                int length = i - lineStart;
+                if ((result != null) || (tailFirstLine == null)) {
+                    line = appendBytes(line, lineLength, bytes, lineStart, length);
+                }
+                lineLength += length;
+                completedLine(line, lineLength, result);
+                lineLength = 0;
+                lineStart = i + 1;
+            }
+            // keep the partial line, it may be completed by the next buffer
+            int length = limit - lineStart;
+            line = appendBytes(line, lineLength, bytes, lineStart, length);
+            lineLength += length;
+            buffer.clear();
+        }
+    }
+
+    private void completedLine(byte[] line, int lineLength, BEPFileContents result) {
+        tailOffset += lineLength + 1;
+        if (tailFirstLine == null) {
+            tailFirstLine = Arrays.copyOf(line, Math.min(lineLength, TAIL_FIRST_LINE_MAX_LENGTH));
+        }
+        if (result == null) {
+            return;
+        }
+        int length = lineLength;
+        if ((length > 0) && (line[length - 1] == '\r')) {
+            length--;
+        }
+        String eventString = new String(line, 0, length, StandardCharsets.UTF_8);
+        LOG.debug("BEP EVENT: {}", eventString);
+
+        BEPEvent event = BazelBuildEventTypeManager.parseEvent(eventString, tailEventIndex);
+        if (event == null) {
+            return;
+        }
+        if (BEPStartedEvent.NAME.equals(event.getEventType())) {
+            tailStartedEvent = (BEPStartedEvent) event;
+        }
+        result.events.add(event);
+        tailEventIndex++;
+
+        if (event.isError()) {
+            errorEvents.add(event);
+        }
+        if (event.isLastMessage()) {
+            tailHasLastEvent = true;
+        }
+    }
+
+    private static byte[] appendBytes(byte[] line, int lineLength, byte[] bytes, int offset, int length) {
+        if (lineLength + length > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+        }
+        System.arraycopy(bytes, offset, line, lineLength, length);
+        return line;
+    }
+
     public List<BEPEvent> getBuildErrorEvents() {
         return errorEvents;
     }
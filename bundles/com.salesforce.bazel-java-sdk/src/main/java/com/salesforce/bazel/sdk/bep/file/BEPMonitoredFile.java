@@ -41,6 +41,8 @@ import java.io.File;
 public class BEPMonitoredFile {
     public File file;
     public long fileLastModifiedMS = 0L;
+    public long fileLength = 0L;
     public BEPFileParser bepFile;
+    // the events read by the most recent pass over the file
     public BEPFileContents previousResults;
 }
@@ -37,8 +37,9 @@
 package com.salesforce.bazel.sdk.command;
 
 import java.io.File;
-import java.util.Map;
-import java.util.TreeMap;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.salesforce.bazel.sdk.aspect.BazelAspectLocation;
 import com.salesforce.bazel.sdk.console.CommandConsoleFactory;
@@ -66,10 +67,14 @@ public class BazelCommandManager {
     private final BazelWorkspaceCommandRunner genericCommandRunner;
 
     /**
-     * The set of workspace specific command runners. The key is the File workspaceRoot. We don't yet support multiple
-     * Bazel workspaces, but when we do this will be important.
+     * The set of workspace specific command runners. The key is the canonical File workspaceRoot. We don't yet support
+     * multiple Bazel workspaces, but when we do this will be important.
+     * <p>
+     * Runners are looked up from several jobs at once (builder, classpath containers, launchers), and each runner owns
+     * the caches for its workspace, so the map creates at most one runner per workspace.
      */
-    private final Map<File, BazelWorkspaceCommandRunner> workspaceCommandRunners = new TreeMap<>();
+    private final ConcurrentMap<File, BazelWorkspaceCommandRunner> workspaceCommandRunners =
+            new ConcurrentHashMap<>();
 
     /**
      * Create a {@link BazelCommandManager} object, providing the implementation for locating aspect and getting console
@@ -104,23 +109,46 @@ public class BazelCommandManager {
             return null;
         }
         File bazelWorkspaceRootDirectory = bazelWorkspace.getBazelWorkspaceRootDirectory();
-        BazelWorkspaceCommandRunner workspaceCommandRunner = workspaceCommandRunners.get(bazelWorkspaceRootDirectory);
-        if (workspaceCommandRunner == null) {
-            File bazelExecutable = null;
-            String execPath = "";
-            try {
-                execPath = getBazelExecutablePath();
-                bazelExecutable = new File(execPath);
-            } catch (Exception ex) {
-                LOG.error("Could not locate the Bazel executable at path [{}]", ex, execPath);
-                return null;
-            }
-
-            workspaceCommandRunner = new BazelWorkspaceCommandRunner(bazelExecutable, aspectLocation, commandBuilder,
-                    consoleFactory, bazelWorkspaceRootDirectory);
-            workspaceCommandRunners.put(bazelWorkspaceRootDirectory, workspaceCommandRunner);
+        File key = getCanonicalFileSafely(bazelWorkspaceRootDirectory);
+        BazelWorkspaceCommandRunner workspaceCommandRunner = workspaceCommandRunners.get(key);
+        if (workspaceCommandRunner != null) {
+            return workspaceCommandRunner;
+        }
+        // the runner constructor is cheap and does not call back into this manager, so it is safe to create it while
+        // the map holds the entry; concurrent callers for the same workspace wait and get the same instance
+        return workspaceCommandRunners.computeIfAbsent(key, k -> createWorkspaceCommandRunner(k));
+    }
+
+    /**
+     * Returns the number of workspace specific command runners that have been created.
+     */
+    int getWorkspaceCommandRunnerCount() {
+        return workspaceCommandRunners.size();
+    }
+
+    private BazelWorkspaceCommandRunner createWorkspaceCommandRunner(File bazelWorkspaceRootDirectory) {
+        File bazelExecutable = null;
+        String execPath = "";
+        try {
+            execPath = getBazelExecutablePath();
+            bazelExecutable = new File(execPath);
+        } catch (Exception ex) {
+            LOG.error("Could not locate the Bazel executable at path [{}]", ex, execPath);
+            // nothing is stored in the map, so a later call tries again
+            return null;
+        }
+        LOG.info("Creating the command runner for workspace [{}]", bazelWorkspaceRootDirectory);
+        return new BazelWorkspaceCommandRunner(bazelExecutable, aspectLocation, commandBuilder, consoleFactory,
+                bazelWorkspaceRootDirectory);
+    }
+
+    private static File getCanonicalFileSafely(File directory) {
+        try {
+            return directory.getCanonicalFile();
+        } catch (IOException ioe) {
+            LOG.error("Could not canonicalize the workspace root [{}]", ioe, directory);
+            return directory.getAbsoluteFile();
         }
-        return workspaceCommandRunner;
     }
 
     // BAZEL EXECUTABLE
@@ -42,12 +42,15 @@ import com.salesforce.bazel.sdk.path.FSPathHelper;
 
 /**
  * Parses Bazel output.
+ * <p>
+ * This parser works on the complete output of a command. To parse the output while the command is running, see
+ * {@link IncrementalBazelOutputParser}.
  */
 public class BazelOutputParser {
     // TODO LOGGING TO stdout/err doesnt work here because the command runner output is redirected
     private static final LogHelper LOG = LogHelper.log(BazelOutputParser.class);
 
-    private static enum FailureType {
+    static enum FailureType {
         BUILD_FILE, JAVA_FILE, UNKNOWN;
     }
 
@@ -77,20 +80,31 @@ public class BazelOutputParser {
     // GENERAL PURPOSE HELPER UTILS FOR ALL FAILURE TYPES
 
     private FailureType assessFailureType(List<String> stderrOutputLines) {
-
-        // TODO is there a more robust way to determining the type of package build failure rather than string matches?
         for (String line : stderrOutputLines) {
-            if (line.startsWith("ERROR: error loading package")) {
-                return FailureType.BUILD_FILE;
-            }
-            if (line.contains(".java:")) {
-                return FailureType.JAVA_FILE;
+            FailureType failureType = assessFailureType(line);
+            if (failureType != FailureType.UNKNOWN) {
+                return failureType;
             }
         }
 
         return FailureType.UNKNOWN;
     }
 
+    /**
+     * Returns the failure type indicated by a single line, the first line that indicates one decides the type of the
+     * failure.
+     */
+    FailureType assessFailureType(String line) {
+        // TODO is there a more robust way to determining the type of package build failure rather than string matches?
+        if (line.startsWith("ERROR: error loading package")) {
+            return FailureType.BUILD_FILE;
+        }
+        if (line.contains(".java:")) {
+            return FailureType.JAVA_FILE;
+        }
+        return FailureType.UNKNOWN;
+    }
+
     boolean isErrorStatusLine(String line) {
         return line.startsWith("ERROR:");
     }
@@ -177,7 +191,7 @@ public class BazelOutputParser {
     // ERROR: /Users/plaird/dev/bazel-demo/main_usecases/java/simplejava-mvninstall/projects/libs/apple/apple-api/BUILD:16:5: name 'xyx' is not defined
     // ERROR: error loading package 'projects/libs/apple/apple-api': Package 'projects/libs/apple/apple-api' contains errors
 
-    private void parseBuildFileErrorLine(String line, List<BazelProblem> problemList) {
+    void parseBuildFileErrorLine(String line, List<BazelProblem> problemList) {
         if (!isErrorStatusLine(line)) {
             return;
         }
@@ -192,69 +206,77 @@ public class BazelOutputParser {
 
     // JAVA SOURCE FILE FAILURES
 
-    // TODO refactor (remove stateful variables) and move this Java error parsing out to a jvm specific package
+    // TODO move this Java error parsing out to a jvm specific package
     private static final String JAVA_FILE_PATH_SUFFX = ".java";
-    private boolean haveSkippedFirstLine = false;
-    private String errorSourcePathLine = null;
-    private String moreDetailsLine = null;
 
     List<BazelProblem> parseJavaFileErrorsAsProblems(List<String> stderrOutputLines) {
         List<BazelProblem> problems = new ArrayList<>();
 
+        JavaErrorLineParser javaErrorLineParser = new JavaErrorLineParser();
         for (String line : stderrOutputLines) {
-            parseJavaFileErrorLine(line, problems);
+            javaErrorLineParser.parseJavaFileErrorLine(line, problems);
         }
         return problems;
     }
 
-    private void parseJavaFileErrorLine(String line, List<BazelProblem> problemList) {
-        line = line.trim();
-
-        // the first error line in a Java file failure output is contains confusing information and should be skipped
-        if (haveSkippedFirstLine) {
-            if (line.isEmpty()) {
-                if (errorSourcePathLine != null) {
-                    problemList.add(buildProblemDetailsForJavaError(errorSourcePathLine, moreDetailsLine));
-                    errorSourcePathLine = null;
-                    moreDetailsLine = null;
+    /**
+     * Holds the state of the Java error parsing between lines.
+     */
+    class JavaErrorLineParser {
+        private boolean haveSkippedFirstLine = false;
+        private String errorSourcePathLine = null;
+        private String moreDetailsLine = null;
+
+        void parseJavaFileErrorLine(String line, List<BazelProblem> problemList) {
+            line = line.trim();
+
+            // the first error line in a Java file failure output is contains confusing information and should be
+            // skipped
+            if (haveSkippedFirstLine) {
+                if (line.isEmpty()) {
+                    if (errorSourcePathLine != null) {
+                        problemList.add(buildProblemDetailsForJavaError(errorSourcePathLine, moreDetailsLine));
+                        errorSourcePathLine = null;
+                        moreDetailsLine = null;
+                    }
                 }
-            }
 
-            else if (isInitialJavaErrorSourcePathLine(line)) {
-                if (errorSourcePathLine == null) {
-                    errorSourcePathLine = line;
-                } else {
-                    problemList.add(buildProblemDetailsForJavaError(errorSourcePathLine, moreDetailsLine));
-                    errorSourcePathLine = line;
-                    moreDetailsLine = null;
-                }
+                else if (isInitialJavaErrorSourcePathLine(line)) {
+                    if (errorSourcePathLine == null) {
+                        errorSourcePathLine = line;
+                    } else {
+                        problemList.add(buildProblemDetailsForJavaError(errorSourcePathLine, moreDetailsLine));
+                        errorSourcePathLine = line;
+                        moreDetailsLine = null;
+                    }
 
-            } else if (isNonErrorStatusLine(line)) {
-                haveSkippedFirstLine = false;
-                if (errorSourcePathLine != null) {
-                    problemList.add(buildProblemDetailsForJavaError(errorSourcePathLine, moreDetailsLine));
-                    errorSourcePathLine = null;
-                    moreDetailsLine = null;
+                } else if (isNonErrorStatusLine(line)) {
+                    haveSkippedFirstLine = false;
+                    if (errorSourcePathLine != null) {
+                        problemList.add(buildProblemDetailsForJavaError(errorSourcePathLine, moreDetailsLine));
+                        errorSourcePathLine = null;
+                        moreDetailsLine = null;
+                    }
+                } else {
+                    if (errorSourcePathLine != null) {
+                        // already found a line like this: projects/libs/apple/apple-api/src/main/java/demo/apple/api/Apple.java:15: error: ';' expected
+                        // the next like may have more details
+                        if (moreDetailsLine == null) {
+                            moreDetailsLine = line;
+                        }
+                    }
                 }
             } else {
-                if (errorSourcePathLine != null) {
-                    // already found a line like this: projects/libs/apple/apple-api/src/main/java/demo/apple/api/Apple.java:15: error: ';' expected
-                    // the next like may have more details
-                    if (moreDetailsLine == null) {
-                        moreDetailsLine = line;
-                    }
+                if (isErrorStatusLine(line)) {
+                    haveSkippedFirstLine = true;
                 }
             }
-        } else {
-            if (isErrorStatusLine(line)) {
-                haveSkippedFirstLine = true;
-            }
-        }
 
-        if (moreDetailsLine != null) {
-            problemList.add(buildProblemDetailsForJavaError(errorSourcePathLine, moreDetailsLine));
-            errorSourcePathLine = null;
-            moreDetailsLine = null;
+            if (moreDetailsLine != null) {
+                problemList.add(buildProblemDetailsForJavaError(errorSourcePathLine, moreDetailsLine));
+                errorSourcePathLine = null;
+                moreDetailsLine = null;
+            }
         }
     }
 
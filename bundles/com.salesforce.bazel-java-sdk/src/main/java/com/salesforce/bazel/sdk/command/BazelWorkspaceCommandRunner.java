@@ -45,15 +45,21 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.salesforce.bazel.sdk.aspect.AspectTargetInfo;
+import com.salesforce.bazel.sdk.aspect.AspectTargetInfoStore;
 import com.salesforce.bazel.sdk.aspect.BazelAspectLocation;
 import com.salesforce.bazel.sdk.command.internal.BazelCommandExecutor;
 import com.salesforce.bazel.sdk.command.internal.BazelQueryHelper;
+import com.salesforce.bazel.sdk.command.internal.BazelQueryResultCache;
 import com.salesforce.bazel.sdk.command.internal.BazelVersionChecker;
 import com.salesforce.bazel.sdk.command.internal.BazelWorkspaceAspectProcessor;
+import com.salesforce.bazel.sdk.command.internal.ConsoleType;
 import com.salesforce.bazel.sdk.console.CommandConsoleFactory;
 import com.salesforce.bazel.sdk.logging.LogHelper;
 import com.salesforce.bazel.sdk.model.BazelBuildFile;
@@ -81,35 +87,36 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
     private final File bazelWorkspaceRootDirectory;
 
     /**
-     * The internal location on disk for Bazel's 'execroot' for this workspace. E.g.
-     * <i>/private/var/tmp/_bazel_plaird/edb34c7f4bfffeb66012c4fc6aaab239/execroot/bazel_demo_simplejava</i>
-     * <p>
-     * Determined by running this command line: <i>bazel info execution_root</i>
+     * The result of the last <i>bazel info</i> for this workspace, which holds the execution root, output base,
+     * bazel-bin and the other internal locations, along with their canonical forms. It is fetched with a single Bazel
+     * invocation and only refreshed when the WORKSPACE or .bazelrc files change, see {@link #getBazelWorkspaceInfo()}.
+     * Read without locking.
      */
-    private File bazelExecRootDirectory;
+    private volatile StampedWorkspaceInfo workspaceInfo;
 
     /**
-     * The internal location on disk for Bazel's 'output base' for this workspace. E.g.
-     * <i>/private/var/tmp/_bazel_plaird/edb34c7f4bfffeb66012c4fc6aaab239</i>
-     * <p>
-     * Determined by running this command line: <i>bazel info output_base</i>
+     * Held while <i>bazel info</i> runs, so that concurrent callers that find a stale value wait for a single refresh.
      */
-    private File bazelOutputBaseDirectory;
+    private final Object workspaceInfoLock = new Object();
 
     /**
-     * The internal location on disk for Bazel's 'bazel-bin' for this workspace. E.g.
-     * <i>/private/var/tmp/_bazel_plaird/f521799c9882dcc6330b57416b13ba81/execroot/bazel_feature/bazel-out/darwin-fastbuild/bin</i>
-     * <p>
-     * Determined by running this command line: <i>bazel info bazel-bin</i>
+     * Config files that can change the values reported by <i>bazel info</i>.
      */
-    private File bazelBinDirectory;
+    private static final String[] WORKSPACE_CONFIG_FILES = { "WORKSPACE", "WORKSPACE.bazel", ".bazelrc" };
+
+    /**
+     * The config files are checked for changes at most once per interval, the info lookups are made very often while
+     * classpaths are computed.
+     */
+    static final long WORKSPACE_CONFIG_CHECK_INTERVAL_MILLIS = 1000L;
+    long workspaceConfigCheckIntervalMillis = WORKSPACE_CONFIG_CHECK_INTERVAL_MILLIS;
 
     // GLOBAL CONFIG
 
     /**
      * Location of the Bazel command line executable.
      */
-    private static File bazelExecutable = null;
+    private static volatile File bazelExecutable = null;
 
     // COLLABORATORS
 
@@ -143,16 +150,28 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      * These arguments are added to all "bazel build" commands that run for the purpose of building code. These may be
      * workspace specific.
      */
-    private List<String> buildOptions = Collections.emptyList();
+    private volatile List<String> buildOptions = Collections.emptyList();
 
     // CACHES
 
     /**
-     * This is to cache the last query and return the query result without actually computing it. This is required
-     * because computeUnresolvedPath tries to compute the bazel query multiple time
+     * Caches the results of recent queries. Import and classpath computation interleave many different queries, and
+     * computeUnresolvedPath asks for the same query multiple times. Entries are flushed per package when BUILD files
+     * change, see {@link #flushQueryCache(BazelLabel)}.
+     */
+    private final BazelQueryResultCache queryResultCache = new BazelQueryResultCache();
+
+    /**
+     * Generation counters for the cached data of each package, bumped by the flush methods after the cache is cleared.
+     * Caches built on top of this runner (e.g. classpaths) compare generations to know when their inputs changed.
+     * key=package path (projects/libs/foo)
      */
-    private String query;
-    private List<String> queryResults;
+    private final Map<String, AtomicLong> packageCacheGenerations = new ConcurrentHashMap<>();
+
+    /**
+     * Generation counter for flushes that affect every package.
+     */
+    private final AtomicLong workspaceCacheGeneration = new AtomicLong();
 
     // CTORS
 
@@ -187,7 +206,7 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
 
         aspectHelper = new BazelWorkspaceAspectProcessor(this, aspectLocation, bazelCommandExecutor);
         bazelVersionChecker = new BazelVersionChecker(this.commandBuilder);
-        bazelQueryHelper = new BazelQueryHelper(bazelCommandExecutor);
+        bazelQueryHelper = new BazelQueryHelper(bazelCommandExecutor, queryResultCache);
     }
 
     // WORKSPACE CONFIG
@@ -200,28 +219,86 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
     }
 
     /**
-     * Returns the execution root of the current Bazel workspace by running <i>bazel info</i>. It caches the answer
-     * since this cannot change for a workspace.
+     * Returns the execution root of the current Bazel workspace. E.g.
+     * <i>/private/var/tmp/_bazel_plaird/edb34c7f4bfffeb66012c4fc6aaab239/execroot/bazel_demo_simplejava</i>
+     * <p>
+     * The value comes from the memoized <i>bazel info</i> result, see {@link #getBazelWorkspaceInfo()}.
      */
     @Override
     public File computeBazelWorkspaceExecRoot() {
+        StampedWorkspaceInfo current = getStampedWorkspaceInfo();
+        File execRoot = current.canonicalExecRoot;
+        if (execRoot == null) {
+            execRoot = getCanonicalFileSafely(current.info.getExecutionRoot());
+            current.canonicalExecRoot = execRoot;
+        }
+        return execRoot;
+    }
+
+    /**
+     * Returns the result of <i>bazel info</i> for this workspace. All the keys in
+     * {@link BazelWorkspaceInfo#DEFAULT_KEYS} are fetched with a single Bazel invocation, and the answer is cached until
+     * the WORKSPACE or .bazelrc file of the workspace changes. The config files are checked at most once per
+     * {@link #WORKSPACE_CONFIG_CHECK_INTERVAL_MILLIS}.
+     */
+    public BazelWorkspaceInfo getBazelWorkspaceInfo() {
+        return getStampedWorkspaceInfo().info;
+    }
 
-        if (bazelExecRootDirectory == null) {
+    private StampedWorkspaceInfo getStampedWorkspaceInfo() {
+        long now = System.currentTimeMillis();
+        StampedWorkspaceInfo current = workspaceInfo;
+        if ((current != null) && ((now - current.checkedAtMillis) < workspaceConfigCheckIntervalMillis)) {
+            return current;
+        }
+        String configStamp = computeWorkspaceConfigStamp();
+        if ((current != null) && configStamp.equals(current.configStamp)) {
+            current.checkedAtMillis = now;
+            return current;
+        }
+        synchronized (workspaceInfoLock) {
+            // another thread may have refreshed it while we waited
+            current = workspaceInfo;
+            if ((current != null) && configStamp.equals(current.configStamp)) {
+                return current;
+            }
+            if (current != null) {
+                LOG.info("Workspace configuration changed, refreshing the bazel info for {}",
+                    bazelWorkspaceRootDirectory);
+            }
             try {
                 List<String> argBuilder = new ArrayList<>();
                 argBuilder.add("info");
-                argBuilder.add("execution_root");
+                argBuilder.addAll(BazelWorkspaceInfo.DEFAULT_KEYS);
 
                 List<String> outputLines = bazelCommandExecutor.runBazelAndGetOutputLines(bazelWorkspaceRootDirectory,
                     null, argBuilder, t -> t, BazelCommandExecutor.TIMEOUT_INFINITE);
-                outputLines = BazelCommandExecutor.stripInfoLines(outputLines);
-                bazelExecRootDirectory = new File(String.join("", outputLines));
-                bazelExecRootDirectory = getCanonicalFileSafely(bazelExecRootDirectory);
+                current = new StampedWorkspaceInfo(
+                        BazelWorkspaceInfo.parse(outputLines, BazelWorkspaceInfo.DEFAULT_KEYS), configStamp, now);
+                workspaceInfo = current;
             } catch (Exception anyE) {
                 throw new IllegalStateException(anyE);
             }
+            return current;
+        }
+    }
+
+    /**
+     * Forgets the cached <i>bazel info</i> result and the canonical locations derived from it, so that the next call
+     * will run Bazel again.
+     */
+    public void flushBazelWorkspaceInfo() {
+        workspaceInfo = null;
+        workspaceCacheGeneration.incrementAndGet();
+    }
+
+    private String computeWorkspaceConfigStamp() {
+        StringBuilder stamp = new StringBuilder();
+        for (String configFileName : WORKSPACE_CONFIG_FILES) {
+            File configFile = new File(bazelWorkspaceRootDirectory, configFileName);
+            stamp.append(configFile.length()).append(':').append(configFile.lastModified()).append(';');
         }
-        return bazelExecRootDirectory;
+        return stamp.toString();
     }
 
     /**
@@ -233,11 +310,13 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
     @Override
     public List<String> computeBazelQuery(String query) {
 
-        if ((this.query != null) && this.query.equals(query)) {
-            return queryResults;
+        // read before the query runs, so that results made stale by a flush in the meantime are not cached
+        long generation = queryResultCache.getGeneration();
+        List<String> results = queryResultCache.get(query);
+        if (results != null) {
+            return results;
         }
 
-        List<String> results = new ArrayList<>();
         try {
             List<String> argBuilder = new ArrayList<>();
             argBuilder.add("query");
@@ -249,59 +328,43 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
         } catch (IOException | InterruptedException | BazelCommandLineToolConfigurationException e) {
             throw new IllegalStateException(e);
         }
-        //update cached values
-        this.query = query;
-        queryResults = results;
+        queryResultCache.put(query, results, generation);
 
         return results;
     }
 
     /**
-     * Returns the output base of the current Bazel workspace by running <i>bazel info</i>. It caches the answer since
-     * this cannot change for a workspace.
+     * Returns the output base of the current Bazel workspace. E.g.
+     * <i>/private/var/tmp/_bazel_plaird/edb34c7f4bfffeb66012c4fc6aaab239</i>
+     * <p>
+     * The value comes from the memoized <i>bazel info</i> result, see {@link #getBazelWorkspaceInfo()}.
      */
     @Override
     public File computeBazelWorkspaceOutputBase() {
-        if (bazelOutputBaseDirectory == null) {
-            try {
-                List<String> argBuilder = new ArrayList<>();
-                argBuilder.add("info");
-                argBuilder.add("output_base");
-
-                List<String> outputLines = bazelCommandExecutor.runBazelAndGetOutputLines(bazelWorkspaceRootDirectory,
-                    null, argBuilder, t -> t, BazelCommandExecutor.TIMEOUT_INFINITE);
-                outputLines = BazelCommandExecutor.stripInfoLines(outputLines);
-                bazelOutputBaseDirectory = new File(String.join("", outputLines));
-                bazelOutputBaseDirectory = getCanonicalFileSafely(bazelOutputBaseDirectory);
-            } catch (Exception anyE) {
-                throw new IllegalStateException(anyE);
-            }
+        StampedWorkspaceInfo current = getStampedWorkspaceInfo();
+        File outputBase = current.canonicalOutputBase;
+        if (outputBase == null) {
+            outputBase = getCanonicalFileSafely(current.info.getOutputBase());
+            current.canonicalOutputBase = outputBase;
         }
-        return bazelOutputBaseDirectory;
+        return outputBase;
     }
 
     /**
-     * Returns the bazel-bin of the current Bazel workspace by running <i>bazel info</i>. It caches the answer since
-     * this cannot change for a workspace.
+     * Returns the bazel-bin of the current Bazel workspace. E.g.
+     * <i>/private/var/tmp/_bazel_plaird/f521799c9882dcc6330b57416b13ba81/execroot/bazel_feature/bazel-out/darwin-fastbuild/bin</i>
+     * <p>
+     * The value comes from the memoized <i>bazel info</i> result, see {@link #getBazelWorkspaceInfo()}.
      */
     @Override
     public File computeBazelWorkspaceBin() {
-        if (bazelBinDirectory == null) {
-            try {
-                List<String> argBuilder = new ArrayList<>();
-                argBuilder.add("info");
-                argBuilder.add("bazel-bin");
-
-                List<String> outputLines = bazelCommandExecutor.runBazelAndGetOutputLines(bazelWorkspaceRootDirectory,
-                    null, argBuilder, t -> t, BazelCommandExecutor.TIMEOUT_INFINITE);
-                outputLines = BazelCommandExecutor.stripInfoLines(outputLines);
-                bazelBinDirectory = new File(String.join("", outputLines));
-                bazelBinDirectory = getCanonicalFileSafely(bazelBinDirectory);
-            } catch (Exception anyE) {
-                throw new IllegalStateException(anyE);
-            }
+        StampedWorkspaceInfo current = getStampedWorkspaceInfo();
+        File bin = current.canonicalBin;
+        if (bin == null) {
+            bin = getCanonicalFileSafely(current.info.getBazelBin());
+            current.canonicalBin = bin;
         }
-        return bazelBinDirectory;
+        return bin;
     }
 
     /**
@@ -336,7 +399,7 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
     /**
      * Set the path to the Bazel binary. Allows the user to override the default via the Preferences ui.
      */
-    public synchronized static void setBazelExecutablePath(String bazelExecutablePath) {
+    public static void setBazelExecutablePath(String bazelExecutablePath) {
         bazelExecutable = new File(bazelExecutablePath);
     }
 
@@ -366,7 +429,7 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      * @param labels
      *            the labels to query
      */
-    public synchronized Collection<BazelBuildFile> queryBazelTargetsInBuildFile(Collection<BazelLabel> labels)
+    public Collection<BazelBuildFile> queryBazelTargetsInBuildFile(Collection<BazelLabel> labels)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
         return bazelQueryHelper.queryBazelTargetsInBuildFile(bazelWorkspaceRootDirectory, labels);
     }
@@ -374,7 +437,7 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
     /**
      * Returns the list of source files that are used to build a target. Uses Bazel Query to build the list.
      */
-    public synchronized Collection<String> querySourceFilesForTarget(File bazelWorkspaceRootDirectory,
+    public Collection<String> querySourceFilesForTarget(File bazelWorkspaceRootDirectory,
             BazelLabel bazelLabel)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
         return bazelQueryHelper.querySourceFilesForTarget(bazelWorkspaceRootDirectory, bazelLabel);
@@ -384,8 +447,18 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      * @param bazelPackageName
      *            the label path that identifies the package where the BUILD file lives (//projects/libs/foo)
      */
-    public synchronized void flushQueryCache(BazelLabel bazelPackageLabel) {
+    public void flushQueryCache(BazelLabel bazelPackageLabel) {
         bazelQueryHelper.flushCache(bazelPackageLabel);
+        queryResultCache.invalidatePackage(bazelPackageLabel.getPackagePath(true));
+        bumpCacheGeneration(bazelPackageLabel);
+    }
+
+    /**
+     * Returns the cache of results for {@link #computeBazelQuery(String)}, which exposes the hit, miss and eviction
+     * counters.
+     */
+    public BazelQueryResultCache getQueryResultCache() {
+        return queryResultCache;
     }
 
     /**
@@ -397,7 +470,7 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      * @throws BazelCommandLineToolConfigurationException
      */
     @Deprecated
-    public synchronized List<String> listBazelTargetsInBuildFiles(WorkProgressMonitor progressMonitor,
+    public List<String> listBazelTargetsInBuildFiles(WorkProgressMonitor progressMonitor,
             File... directories) throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
         return bazelQueryHelper.listBazelTargetsInBuildFiles(bazelWorkspaceRootDirectory, progressMonitor, directories);
     }
@@ -407,7 +480,7 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      *
      * @return a List of error details, this list is empty if the build was successful
      */
-    public synchronized List<BazelProblem> runBazelBuild(Set<String> bazelTargets, List<String> extraArgs)
+    public List<BazelProblem> runBazelBuild(Set<String> bazelTargets, List<String> extraArgs)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
         return runBazelBuild(bazelTargets, extraArgs, null);
     }
@@ -417,9 +490,21 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      *
      * @return a List of error details, this list is empty if the build was successful
      */
-    public synchronized List<BazelProblem> runBazelBuild(Set<String> bazelTargets, List<String> extraArgs,
+    public List<BazelProblem> runBazelBuild(Set<String> bazelTargets, List<String> extraArgs,
             WorkProgressMonitor progressMonitor)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+        return runBazelBuild(bazelTargets, extraArgs, progressMonitor, null);
+    }
+
+    /**
+     * Run a bazel build on a list of targets in the current workspace. Each error is passed to the problemListener as
+     * soon as Bazel has printed it, while the build is still running; see {@link IncrementalBazelOutputParser}.
+     *
+     * @return a List of error details, this list is empty if the build was successful
+     */
+    public List<BazelProblem> runBazelBuild(Set<String> bazelTargets, List<String> extraArgs,
+            WorkProgressMonitor progressMonitor, Consumer<BazelProblem> problemListener)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
         List<String> extraArgsList = new ArrayList<String>();
         extraArgsList.add("build");
         extraArgsList.addAll(buildOptions);
@@ -427,20 +512,14 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
         extraArgsList.add("--");
         extraArgsList.addAll(bazelTargets);
 
-        // run the build
-        List<String> stderrOutput = bazelCommandExecutor.runBazelAndGetErrorLines(bazelWorkspaceRootDirectory,
-            progressMonitor, extraArgsList, new ErrorOutputSelector(), BazelCommandExecutor.TIMEOUT_INFINITE);
-
-        if (stderrOutput.isEmpty()) {
-            // the build was a success
-            return Collections.emptyList();
-        }
-
-        // there was an error(s) in the build, parse them as BazelProblem objects
-        BazelOutputParser outputParser = new BazelOutputParser();
-        List<BazelProblem> errors = outputParser.convertErrorOutputToProblems(stderrOutput);
+        // run the build, parsing the errors as BazelProblem objects as they are printed
+        IncrementalBazelOutputParser outputParser = new IncrementalBazelOutputParser(problemListener);
+        bazelCommandExecutor.runBazelAndStreamErrorLines(ConsoleType.WORKSPACE, bazelWorkspaceRootDirectory,
+            progressMonitor, extraArgsList, new ErrorOutputSelector(), outputParser,
+            BazelCommandExecutor.TIMEOUT_INFINITE);
 
-        return errors;
+        // the list is empty if the build was a success
+        return outputParser.finish();
     }
 
     // ASPECT OPERATIONS
@@ -458,7 +537,7 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      *
      * @throws BazelCommandLineToolConfigurationException
      */
-    public synchronized Map<BazelLabel, Set<AspectTargetInfo>> getAspectTargetInfoForPackages(
+    public Map<BazelLabel, Set<AspectTargetInfo>> getAspectTargetInfoForPackages(
             Collection<BazelPackageLocation> targetPackages, String caller)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
         List<BazelLabel> targetLabels = new ArrayList<>();
@@ -487,46 +566,83 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
      * @return Mapping of the requested label to its AspectTargetInfo instances
      * @throws BazelCommandLineToolConfigurationException
      */
-    public synchronized Map<BazelLabel, Set<AspectTargetInfo>> getAspectTargetInfos(Collection<String> targetLabels,
+    public Map<BazelLabel, Set<AspectTargetInfo>> getAspectTargetInfos(Collection<String> targetLabels,
             String caller) throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
 
         Collection<BazelLabel> labels = targetLabels.stream().map(BazelLabel::new).collect(Collectors.toList());
         return aspectHelper.getAspectTargetInfos(labels, caller);
     }
 
+    /**
+     * Enables the persistent aspect store, such that aspect data computed in a prior session (e.g. before an IDE
+     * restart) can be reused instead of running the aspects again. The store file is written into the passed
+     * directory, which should be a tool specific data location. Pass null to disable the store.
+     */
+    public void setAspectStoreDirectory(File storeDirectory) {
+        if (storeDirectory == null) {
+            aspectHelper.setAspectTargetInfoStore(null);
+        } else {
+            aspectHelper.setAspectTargetInfoStore(
+                new AspectTargetInfoStore(storeDirectory, bazelWorkspaceRootDirectory));
+        }
+    }
+
     /**
      * Clear the entire AspectTargetInfo cache. This flushes the dependency graph for the workspace.
      */
-    public synchronized void flushAspectInfoCache() {
+    public void flushAspectInfoCache() {
         aspectHelper.flushAspectInfoCache();
+        workspaceCacheGeneration.incrementAndGet();
     }
 
     /**
      * Clear the AspectTargetInfo cache for the passed target. This flushes the dependency graph for that target.
      */
-    public synchronized void flushAspectInfoCache(String target) {
-        aspectHelper.flushAspectInfoCache(new BazelLabel(target));
+    public void flushAspectInfoCache(String target) {
+        BazelLabel label = new BazelLabel(target);
+        aspectHelper.flushAspectInfoCache(label);
+        bumpCacheGeneration(label);
     }
 
     /**
      * Clear the AspectTargetInfo cache for the passed targets. This flushes the dependency graph for those targets.
      */
-    public synchronized void flushAspectInfoCache(Set<String> targets) {
+    public void flushAspectInfoCache(Set<String> targets) {
         Set<BazelLabel> labels = targets.stream().map(BazelLabel::new).collect(Collectors.toSet());
         aspectHelper.flushAspectInfoCache(labels);
+        labels.forEach(this::bumpCacheGeneration);
     }
 
     /**
      * Clear the AspectTargetInfo cache for the passed package. This flushes the dependency graph for any target that
      * contains the package name.
      */
-    public synchronized Set<String> flushAspectInfoCacheForPackage(String packageName) {
+    public Set<String> flushAspectInfoCacheForPackage(String packageName) {
         BazelLabel packageLabel = new BazelLabel(packageName);
         Set<BazelLabel> flushedPackages = aspectHelper.flushAspectInfoCacheForPackage(packageLabel);
+        bumpCacheGeneration(packageLabel);
         LOG.info("Flushed aspect cache for package: " + packageLabel);
         return flushedPackages.stream().map(BazelLabel::getPackagePath).collect(Collectors.toSet());
     }
 
+    /**
+     * Returns the generation of the cached data for the passed package. The value increases each time the aspect,
+     * query or info data that the package depends on is flushed, so a value derived from that data is current as long
+     * as the generation has not changed.
+     *
+     * @param packagePath
+     *            the package path, without leading slashes (projects/libs/foo)
+     */
+    public long getCacheGeneration(String packagePath) {
+        AtomicLong packageGeneration = packageCacheGenerations.get(packagePath);
+        // both counters only increase, so the sum changes whenever either one does
+        return workspaceCacheGeneration.get() + (packageGeneration == null ? 0 : packageGeneration.get());
+    }
+
+    private void bumpCacheGeneration(BazelLabel label) {
+        packageCacheGenerations.computeIfAbsent(label.getPackagePath(), k -> new AtomicLong()).incrementAndGet();
+    }
+
     /**
      * Access to the low level aspect collaborator. Visible for tests.
      */
@@ -582,18 +698,7 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
     }
 
     public File getBazelGeneratedFilesFolder() {
-        try {
-            List<String> argBuilder = new ArrayList<>();
-            argBuilder.add("info");
-            argBuilder.add("bazel-genfiles");
-
-            List<String> outputLines = bazelCommandExecutor.runBazelAndGetOutputLines(bazelWorkspaceRootDirectory, null,
-                argBuilder, t -> t, BazelCommandExecutor.TIMEOUT_INFINITE);
-            outputLines = BazelCommandExecutor.stripInfoLines(outputLines);
-            return new File(String.join("", outputLines));
-        } catch (Exception exc) {
-            throw new IllegalStateException(exc);
-        }
+        return getBazelWorkspaceInfo().getBazelGenfiles();
     }
 
     public String getProjectOutputPath(BazelLabel bazelLabel) {
@@ -612,6 +717,26 @@ public class BazelWorkspaceCommandRunner implements BazelWorkspaceMetadataStrate
 
     // HELPERS
 
+    /**
+     * A <i>bazel info</i> result with the stamp of the workspace config files it was computed from, published as one
+     * value so readers do not need a lock. The canonical locations are resolved on first use and are dropped with the
+     * info when it is refreshed or flushed. Racing threads may resolve a location twice, to the same value.
+     */
+    private static final class StampedWorkspaceInfo {
+        final BazelWorkspaceInfo info;
+        final String configStamp;
+        volatile long checkedAtMillis;
+        volatile File canonicalExecRoot;
+        volatile File canonicalOutputBase;
+        volatile File canonicalBin;
+
+        StampedWorkspaceInfo(BazelWorkspaceInfo info, String configStamp, long checkedAtMillis) {
+            this.info = info;
+            this.configStamp = configStamp;
+            this.checkedAtMillis = checkedAtMillis;
+        }
+    }
+
     private static class ErrorOutputSelector implements Function<String, String> {
 
         private boolean keep = false;
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a single <i>bazel info key1 key2 ...</i> invocation for a workspace.
+ * <p>
+ * When more than one key is requested, Bazel writes one <i>key: value</i> line per key. Fetching all the keys we need
+ * at once avoids paying the Bazel client startup cost for each of them.
+ */
+public class BazelWorkspaceInfo {
+
+    public static final String EXECUTION_ROOT = "execution_root";
+    public static final String OUTPUT_BASE = "output_base";
+    public static final String OUTPUT_PATH = "output_path";
+    public static final String BAZEL_BIN = "bazel-bin";
+    public static final String BAZEL_GENFILES = "bazel-genfiles";
+
+    /**
+     * The keys requested by {@link BazelWorkspaceCommandRunner}, in order.
+     */
+    public static final List<String> DEFAULT_KEYS = Collections
+            .unmodifiableList(Arrays.asList(EXECUTION_ROOT, OUTPUT_BASE, OUTPUT_PATH, BAZEL_BIN, BAZEL_GENFILES));
+
+    private final Map<String, String> values;
+
+    public BazelWorkspaceInfo(Map<String, String> values) {
+        this.values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
+    }
+
+    /**
+     * Parses the output lines of a multi key <i>bazel info</i> command. Lines that are not of the form <i>key:
+     * value</i> for one of the requested keys (e.g. INFO: lines) are ignored.
+     */
+    public static BazelWorkspaceInfo parse(List<String> outputLines, List<String> requestedKeys) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String line : outputLines) {
+            int colon = line.indexOf(": ");
+            if (colon == -1) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim();
+            if (requestedKeys.contains(key)) {
+                // the trim() is essential on Windows, otherwise we end up with a trailing carriage return
+                values.put(key, line.substring(colon + 2).trim());
+            }
+        }
+        return new BazelWorkspaceInfo(values);
+    }
+
+    /**
+     * Returns the raw value for the key, or null if Bazel did not report it.
+     */
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    public Map<String, String> getValues() {
+        return values;
+    }
+
+    public File getExecutionRoot() {
+        return getFile(EXECUTION_ROOT);
+    }
+
+    public File getOutputBase() {
+        return getFile(OUTPUT_BASE);
+    }
+
+    public File getOutputPath() {
+        return getFile(OUTPUT_PATH);
+    }
+
+    public File getBazelBin() {
+        return getFile(BAZEL_BIN);
+    }
+
+    public File getBazelGenfiles() {
+        return getFile(BAZEL_GENFILES);
+    }
+
+    private File getFile(String key) {
+        String value = values.get(key);
+        if (value == null) {
+            throw new IllegalStateException("bazel info did not report a value for " + key);
+        }
+        return new File(value);
+    }
+}
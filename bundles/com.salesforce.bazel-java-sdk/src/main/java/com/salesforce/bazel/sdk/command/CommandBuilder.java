@@ -29,6 +29,7 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import com.salesforce.bazel.sdk.console.CommandConsoleFactory;
@@ -54,6 +55,8 @@ public abstract class CommandBuilder {
     protected OutputStream stderr = null;
     protected Function<String, String> stdoutSelector;
     protected Function<String, String> stderrSelector;
+    protected Consumer<String> stdoutLineConsumer;
+    protected Consumer<String> stderrLineConsumer;
     protected final CommandConsoleFactory consoleFactory;
     protected WorkProgressMonitor progressMonitor;
     protected long timeoutMS;
@@ -74,6 +77,8 @@ public abstract class CommandBuilder {
         this.stderr = null;
         this.stdoutSelector = null;
         this.stderrSelector = null;
+        this.stdoutLineConsumer = null;
+        this.stderrLineConsumer = null;
         this.progressMonitor = null;
 
         // TODO make Bazel command timeout configurable
@@ -172,6 +177,34 @@ public abstract class CommandBuilder {
         return this;
     }
 
+    /**
+     * Set a consumer that receives the lines selected from the standard output stream while the command is running.
+     *
+     * <p>
+     * Each value returned by the selector set with {@link #setStdoutLineSelector(Function)} is passed to the consumer
+     * as soon as the line is printed, instead of being stored for {@link Command#getSelectedOutputLines()}, which then
+     * returns an empty list. The consumer is called on the thread reading the output of the program. A consumer that
+     * blocks stops that thread from reading, and once the pipe buffer is full the program itself waits, so a slow
+     * consumer applies backpressure to the program rather than growing a buffer.
+     */
+    public CommandBuilder setStdoutLineConsumer(Consumer<String> consumer) {
+        this.stdoutLineConsumer = consumer;
+        return this;
+    }
+
+    /**
+     * Set a consumer that receives the lines selected from the standard error stream while the command is running.
+     *
+     * <p>
+     * This is the standard error counterpart of {@link #setStdoutLineConsumer(Consumer)}, fed by the selector set with
+     * {@link #setStderrLineSelector(Function)}. {@link Command#getSelectedErrorLines()} returns an empty list when a
+     * consumer is set.
+     */
+    public CommandBuilder setStderrLineConsumer(Consumer<String> consumer) {
+        this.stderrLineConsumer = consumer;
+        return this;
+    }
+
     /**
      * Provide an optional progress monitor.
      */
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.salesforce.bazel.sdk.command.BazelOutputParser.FailureType;
+import com.salesforce.bazel.sdk.command.BazelOutputParser.JavaErrorLineParser;
+import com.salesforce.bazel.sdk.model.BazelProblem;
+
+/**
+ * Parses Bazel output one line at a time, while the command is running, and passes each {@link BazelProblem} to a
+ * listener as soon as the lines that describe it have been seen. It is a line consumer so it can be registered
+ * directly with {@link CommandBuilder#setStderrLineConsumer(Consumer)}.
+ * <p>
+ * The problems found are the same as {@link BazelOutputParser#convertErrorOutputToProblems(List)} returns for the
+ * complete output. The type of failure is decided by the first line that indicates one; BUILD file problems seen
+ * before that line are held back and published when the type is known. The generic problem created for unrecognized
+ * output is only published by {@link #finish()}.
+ * <p>
+ * Instances are not thread safe, lines must be passed by one thread at a time, and an instance parses the output of a
+ * single command.
+ */
+public class IncrementalBazelOutputParser implements Consumer<String> {
+
+    private final BazelOutputParser lineParser = new BazelOutputParser();
+    private final JavaErrorLineParser javaErrorLineParser = lineParser.new JavaErrorLineParser();
+    private final Consumer<BazelProblem> problemListener;
+
+    private FailureType failureType = FailureType.UNKNOWN;
+    private String firstLine = null;
+    private final List<BazelProblem> buildFileProblems = new ArrayList<>();
+    private final List<BazelProblem> javaFileProblems = new ArrayList<>();
+    private int numberPublished = 0;
+    private List<BazelProblem> problems = null;
+
+    /**
+     * @param problemListener
+     *            receives each problem once it is complete, on the thread that passes the lines, may be null
+     */
+    public IncrementalBazelOutputParser(Consumer<BazelProblem> problemListener) {
+        this.problemListener = problemListener;
+    }
+
+    /**
+     * Parses the next line of output.
+     */
+    @Override
+    public void accept(String line) {
+        if (problems != null) {
+            throw new IllegalStateException("The output has already been finished.");
+        }
+        if (firstLine == null) {
+            firstLine = line;
+        }
+        if (failureType == FailureType.UNKNOWN) {
+            failureType = lineParser.assessFailureType(line);
+        }
+
+        // until the failure type is known, both kinds of problems are tracked
+        if (failureType != FailureType.JAVA_FILE) {
+            lineParser.parseBuildFileErrorLine(line, buildFileProblems);
+        }
+        if (failureType != FailureType.BUILD_FILE) {
+            javaErrorLineParser.parseJavaFileErrorLine(line, javaFileProblems);
+        }
+
+        if (failureType == FailureType.BUILD_FILE) {
+            publish(buildFileProblems);
+        } else if (failureType == FailureType.JAVA_FILE) {
+            publish(javaFileProblems);
+        }
+    }
+
+    /**
+     * Signals the end of the output. Publishes the problems that could only be determined at the end, and returns all
+     * the problems found.
+     */
+    public List<BazelProblem> finish() {
+        if (problems == null) {
+            if (failureType == FailureType.BUILD_FILE) {
+                problems = buildFileProblems;
+            } else if (failureType == FailureType.JAVA_FILE) {
+                problems = javaFileProblems;
+            } else {
+                problems = new ArrayList<>();
+                if (firstLine != null) {
+                    // create a generic error entry, hopefully the user can make sense of it
+                    problems.add(BazelProblem.createError("", 1, firstLine));
+                }
+            }
+            publish(problems);
+        }
+        return Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * Returns the number of problems passed to the listener so far.
+     */
+    public int getNumberOfPublishedProblems() {
+        return numberPublished;
+    }
+
+    private void publish(List<BazelProblem> found) {
+        while (numberPublished < found.size()) {
+            BazelProblem problem = found.get(numberPublished++);
+            if (problemListener != null) {
+                problemListener.accept(problem);
+            }
+        }
+    }
+}
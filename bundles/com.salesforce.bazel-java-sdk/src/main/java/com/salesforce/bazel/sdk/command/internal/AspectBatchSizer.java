@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command.internal;
+
+/**
+ * Chooses how many labels to pass to each aspect <i>bazel build</i> invocation.
+ * <p>
+ * Every invocation has a fixed overhead, so larger batches are cheaper overall, but each batch is also the unit of
+ * progress reporting and of pipelining (the aspect files of a batch are parsed while the next batch builds). The sizer
+ * observes the build time per label and sizes the next batch so that it takes roughly the target duration.
+ */
+public class AspectBatchSizer {
+
+    public static final int DEFAULT_INITIAL_BATCH_SIZE = 25;
+    public static final int DEFAULT_MIN_BATCH_SIZE = 5;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 250;
+    public static final long DEFAULT_TARGET_BATCH_MILLIS = 15000;
+
+    // weight of the newest observation in the moving average of millis per label
+    private static final double SMOOTHING = 0.5;
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetBatchMillis;
+
+    private int batchSize;
+    private double millisPerLabel = -1.0;
+
+    public AspectBatchSizer() {
+        this(DEFAULT_INITIAL_BATCH_SIZE, DEFAULT_MIN_BATCH_SIZE, DEFAULT_MAX_BATCH_SIZE, DEFAULT_TARGET_BATCH_MILLIS);
+    }
+
+    public AspectBatchSizer(int initialBatchSize, int minBatchSize, int maxBatchSize, long targetBatchMillis) {
+        if ((minBatchSize < 1) || (maxBatchSize < minBatchSize)) {
+            throw new IllegalArgumentException(
+                    "Invalid aspect batch size bounds [" + minBatchSize + ", " + maxBatchSize + "]");
+        }
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetBatchMillis = targetBatchMillis;
+        batchSize = clamp(initialBatchSize);
+    }
+
+    /**
+     * Returns the number of labels to put in the next batch.
+     */
+    public synchronized int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Returns the smoothed build time per label, or a negative number if no batch has been recorded yet.
+     */
+    public synchronized double getMillisPerLabel() {
+        return millisPerLabel;
+    }
+
+    /**
+     * Records the duration of a completed batch, and recomputes the size of the next batch. The batch size at most
+     * doubles per batch, so that a single fast (e.g. fully cached) batch does not produce a huge next batch.
+     */
+    public synchronized void recordBatch(int labelCount, long elapsedMillis) {
+        if (labelCount <= 0) {
+            return;
+        }
+        double observed = Math.max(1.0, (double) elapsedMillis / labelCount);
+        if (millisPerLabel < 0) {
+            millisPerLabel = observed;
+        } else {
+            millisPerLabel = (SMOOTHING * observed) + ((1.0 - SMOOTHING) * millisPerLabel);
+        }
+
+        long idealSize = Math.round(targetBatchMillis / millisPerLabel);
+        batchSize = clamp((int) Math.min(idealSize, 2L * batchSize));
+    }
+
+    private int clamp(int size) {
+        return Math.max(minBatchSize, Math.min(maxBatchSize, size));
+    }
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.salesforce.bazel.sdk.aspect.AspectTargetInfo;
+import com.salesforce.bazel.sdk.logging.LogHelper;
+import com.salesforce.bazel.sdk.model.BazelLabel;
+import com.salesforce.bazel.sdk.model.BazelTargetKind;
+
+/**
+ * The dependency graph between the AspectTargetInfos loaded by one aspect run, used to compute the transitive closure
+ * of each requested label.
+ * <p>
+ * Each AspectTargetInfo is interned to an int id, and each distinct dependency label string is resolved to an id only
+ * once. Closures are computed as bitsets, bottom up over the strongly connected components of the part of the graph
+ * reachable from the requested id (Tarjan's algorithm, with explicit stacks). Every closure computed along the way is
+ * memoized, so each edge is only walked once no matter how many labels are requested. The memoized closures live as
+ * long as the graph. A graph is built for each batch of cache misses loaded by the aspect processor, is shared by all
+ * of the labels requested in that batch, and is then discarded; the resulting closures are cached per label by the
+ * processor.
+ * <p>
+ * Not thread safe.
+ */
+class AspectClosureGraph {
+    private static final LogHelper LOG = LogHelper.log(AspectClosureGraph.class);
+
+    // shared by all the components without dependencies, closures are never modified once computed
+    private static final BitSet NO_DEPS = new BitSet();
+
+    private final AspectTargetInfo[] infos;
+    private final BazelLabel[] labels;
+    private final int[][] deps;
+    private final Map<BazelLabel, Integer> idsByLabel = new HashMap<>();
+    private final Map<String, List<Integer>> idsByPackagePath = new HashMap<>();
+
+    // memoized per id: the ids reachable through at least one edge, and the resulting closure set
+    private final BitSet[] reachable;
+    private final List<Set<AspectTargetInfo>> closures;
+    private Set<AspectTargetInfo> allInfos;
+
+    // Tarjan state, allocated on first use; it carries over between calls since completed nodes are never revisited
+    private int[] dfsIndex;
+    private int[] lowLink;
+    private boolean[] onStack;
+    private int[] componentStack;
+    private int[] callStack;
+    private int[] edgeCursor;
+    private int nextDfsIndex = 0;
+
+    AspectClosureGraph(Map<BazelLabel, AspectTargetInfo> depNameToTargetInfo) {
+        int size = depNameToTargetInfo.size();
+        infos = new AspectTargetInfo[size];
+        labels = new BazelLabel[size];
+        deps = new int[size][];
+        reachable = new BitSet[size];
+        closures = new ArrayList<>(Collections.nCopies(size, null));
+
+        int id = 0;
+        for (Map.Entry<BazelLabel, AspectTargetInfo> entry : depNameToTargetInfo.entrySet()) {
+            infos[id] = entry.getValue();
+            labels[id] = entry.getKey();
+            idsByLabel.put(entry.getKey(), id);
+            idsByPackagePath.computeIfAbsent(entry.getKey().getPackagePath(), p -> new ArrayList<>()).add(id);
+            id++;
+        }
+
+        // resolve each distinct dep label string once, -1 means there is no AspectTargetInfo for it
+        Map<String, Integer> depIds = new HashMap<>();
+        for (id = 0; id < size; id++) {
+            List<String> depLabels = infos[id].getDeps();
+            int[] resolved = new int[depLabels.size()];
+            int count = 0;
+            for (String depLabel : depLabels) {
+                Integer depId = depIds.get(depLabel);
+                if (depId == null) {
+                    depId = idsByLabel.getOrDefault(new BazelLabel(depLabel), -1);
+                    depIds.put(depLabel, depId);
+                    if (depId < 0) {
+                        LOG.info("No AspectTargetInfo exists for " + depLabel
+                                + "; it and its descendents are excluded from analysis.");
+                    }
+                }
+                if (depId >= 0) {
+                    resolved[count++] = depId;
+                }
+            }
+            deps[id] = count == resolved.length ? resolved : Arrays.copyOf(resolved, count);
+        }
+    }
+
+    /**
+     * Returns the id of the AspectTargetInfo for the label, or null if it was not loaded.
+     */
+    Integer getId(BazelLabel label) {
+        return idsByLabel.get(label);
+    }
+
+    /**
+     * Returns the ids of the AspectTargetInfos in the package.
+     */
+    List<Integer> getIdsInPackage(String packagePath) {
+        return idsByPackagePath.getOrDefault(packagePath, Collections.emptyList());
+    }
+
+    BazelLabel getLabel(int id) {
+        return labels[id];
+    }
+
+    /**
+     * Returns all of the AspectTargetInfos in the graph, as a shared unmodifiable set.
+     */
+    Set<AspectTargetInfo> getAllInfos() {
+        if (allInfos == null) {
+            allInfos = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(infos)));
+        }
+        return allInfos;
+    }
+
+    /**
+     * Returns the AspectTargetInfos the passed one depends on, directly or transitively. The passed AspectTargetInfo
+     * itself is only included for java_test and java_import targets.
+     */
+    Set<AspectTargetInfo> getTransitiveClosure(int id) {
+        Set<AspectTargetInfo> closure = closures.get(id);
+        if (closure != null) {
+            return closure;
+        }
+
+        BitSet reach = computeReachable(id);
+        Set<AspectTargetInfo> allDeps = new HashSet<>(reach.cardinality() + 1);
+        for (int depId = reach.nextSetBit(0); depId >= 0; depId = reach.nextSetBit(depId + 1)) {
+            if (depId != id) {
+                allDeps.add(infos[depId]);
+            }
+        }
+
+        // now add this aspect to the transitive closure if test or import (TODO why?)
+        AspectTargetInfo aspectTargetInfo = infos[id];
+        BazelTargetKind kind = aspectTargetInfo.getKind();
+        if (kind != null) {
+            if (kind.isKind("java_test")) {
+                allDeps.add(aspectTargetInfo);
+            } else if (kind.isKind("java_import")) {
+                allDeps.add(aspectTargetInfo);
+            }
+        } else {
+            LOG.info("AspectInfo " + aspectTargetInfo.getLabel().getLabelPath()
+                + " does not have an associated target kind.");
+        }
+
+        closure = Collections.unmodifiableSet(allDeps);
+        closures.set(id, closure);
+        return closure;
+    }
+
+    /**
+     * Returns the ids reachable from the passed id through at least one edge. A component is only completed once all
+     * of the components it depends on are, so its closure is the union of its edges and of their closures. All members
+     * of a component share the same (read only) closure.
+     */
+    private BitSet computeReachable(int root) {
+        if (reachable[root] != null) {
+            return reachable[root];
+        }
+        int size = infos.length;
+        if (dfsIndex == null) {
+            dfsIndex = new int[size];
+            Arrays.fill(dfsIndex, -1);
+            lowLink = new int[size];
+            onStack = new boolean[size];
+            componentStack = new int[size];
+            callStack = new int[size];
+            edgeCursor = new int[size];
+        }
+
+        int componentTop = 0;
+        int callTop = 0;
+        callTop = visit(root, callTop);
+        componentStack[componentTop++] = root;
+        while (callTop > 0) {
+            int node = callStack[callTop - 1];
+            if (edgeCursor[callTop - 1] < deps[node].length) {
+                int dep = deps[node][edgeCursor[callTop - 1]++];
+                if (dfsIndex[dep] < 0) {
+                    callTop = visit(dep, callTop);
+                    componentStack[componentTop++] = dep;
+                } else if (onStack[dep]) {
+                    lowLink[node] = Math.min(lowLink[node], dfsIndex[dep]);
+                }
+                // otherwise the dep belongs to a completed component, whose closure is known
+                continue;
+            }
+
+            callTop--;
+            if (callTop > 0) {
+                int parent = callStack[callTop - 1];
+                lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+            }
+            if (lowLink[node] == dfsIndex[node]) {
+                // node is the root of a component, its members are on top of the component stack
+                int componentStart = componentTop;
+                do {
+                    componentStart--;
+                } while (componentStack[componentStart] != node);
+
+                // sized on demand, most closures only reach a small part of the graph
+                BitSet reach = null;
+                for (int c = componentStart; c < componentTop; c++) {
+                    for (int dep : deps[componentStack[c]]) {
+                        if (reach == null) {
+                            reach = new BitSet();
+                        }
+                        reach.set(dep);
+                        BitSet known = reachable[dep];
+                        if (known != null) {
+                            reach.or(known);
+                        }
+                    }
+                }
+                if (reach == null) {
+                    reach = NO_DEPS;
+                }
+                for (int c = componentStart; c < componentTop; c++) {
+                    reachable[componentStack[c]] = reach;
+                    onStack[componentStack[c]] = false;
+                }
+                componentTop = componentStart;
+            }
+        }
+        return reachable[root];
+    }
+
+    private int visit(int node, int callTop) {
+        dfsIndex[node] = nextDfsIndex;
+        lowLink[node] = nextDfsIndex;
+        nextDfsIndex++;
+        onStack[node] = true;
+        callStack[callTop] = node;
+        edgeCursor[callTop] = 0;
+        return callTop + 1;
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.salesforce.bazel.sdk.aspect.AspectTargetInfo;
+import com.salesforce.bazel.sdk.model.BazelLabel;
+
+/**
+ * In memory cache of the aspect data for each label, used by {@link BazelWorkspaceAspectProcessor}.
+ * <p>
+ * The cached labels are also indexed by package path, so that flushing a package (which happens on each BUILD file
+ * save) does not need to scan the whole cache. The cache can optionally be bounded, by number of entries and by weight,
+ * which is the number of AspectTargetInfo references held by the cached sets. When a bound is exceeded, the least
+ * recently used entries are evicted.
+ * <p>
+ * Not thread safe, the processor synchronizes access.
+ */
+class AspectInfoCache {
+
+    private final LinkedHashMap<BazelLabel, Set<AspectTargetInfo>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<BazelLabel>> labelsByPackage = new HashMap<>();
+
+    private int maxEntries;
+    private long maxWeight;
+    private long weight = 0;
+    private long evictionCount = 0;
+
+    /**
+     * Creates an unbounded cache.
+     */
+    AspectInfoCache() {
+        this(Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    AspectInfoCache(int maxEntries, long maxWeight) {
+        setLimits(maxEntries, maxWeight);
+    }
+
+    /**
+     * Changes the bounds of the cache, evicting entries right away if needed.
+     */
+    void setLimits(int maxEntries, long maxWeight) {
+        if ((maxEntries < 1) || (maxWeight < 1)) {
+            throw new IllegalArgumentException("The aspect cache limits must be positive.");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        evictIfNeeded();
+    }
+
+    Set<AspectTargetInfo> get(BazelLabel label) {
+        return entries.get(label);
+    }
+
+    void put(BazelLabel label, Set<AspectTargetInfo> infos) {
+        Set<AspectTargetInfo> previous = entries.put(label, infos);
+        if (previous != null) {
+            weight -= weigh(previous);
+        } else {
+            labelsByPackage.computeIfAbsent(label.getPackagePath(), p -> new LinkedHashSet<>()).add(label);
+        }
+        weight += weigh(infos);
+        evictIfNeeded();
+    }
+
+    Set<AspectTargetInfo> remove(BazelLabel label) {
+        Set<AspectTargetInfo> previous = entries.remove(label);
+        if (previous != null) {
+            weight -= weigh(previous);
+            unindex(label);
+        }
+        return previous;
+    }
+
+    /**
+     * Removes the entries for all of the labels in the package, and returns those labels.
+     */
+    Set<BazelLabel> removePackage(String packagePath) {
+        Set<BazelLabel> labels = labelsByPackage.remove(packagePath);
+        if (labels == null) {
+            return Collections.emptySet();
+        }
+        for (BazelLabel label : labels) {
+            Set<AspectTargetInfo> previous = entries.remove(label);
+            if (previous != null) {
+                weight -= weigh(previous);
+            }
+        }
+        return labels;
+    }
+
+    void clear() {
+        entries.clear();
+        labelsByPackage.clear();
+        weight = 0;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Number of AspectTargetInfo references held by the cached sets.
+     */
+    long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Number of entries evicted because the cache exceeded its bounds.
+     */
+    long getEvictionCount() {
+        return evictionCount;
+    }
+
+    // INTERNALS
+
+    private void evictIfNeeded() {
+        // the most recently used entry is always kept, even if it alone exceeds the weight bound
+        Iterator<Map.Entry<BazelLabel, Set<AspectTargetInfo>>> iter = entries.entrySet().iterator();
+        while (((entries.size() > maxEntries) || (weight > maxWeight)) && (entries.size() > 1)) {
+            Map.Entry<BazelLabel, Set<AspectTargetInfo>> eldest = iter.next();
+            iter.remove();
+            weight -= weigh(eldest.getValue());
+            unindex(eldest.getKey());
+            evictionCount++;
+        }
+    }
+
+    private void unindex(BazelLabel label) {
+        String packagePath = label.getPackagePath();
+        Set<BazelLabel> labels = labelsByPackage.get(packagePath);
+        if (labels != null) {
+            labels.remove(label);
+            if (labels.isEmpty()) {
+                labelsByPackage.remove(packagePath);
+            }
+        }
+    }
+
+    private static long weigh(Set<AspectTargetInfo> infos) {
+        return 1L + infos.size();
+    }
+}
@@ -40,6 +40,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import com.salesforce.bazel.sdk.command.BazelCommandLineToolConfigurationException;
@@ -50,6 +52,9 @@ import com.salesforce.bazel.sdk.util.WorkProgressMonitor;
 
 /**
  * Utility class that understands how to run Command objects and collect output from them.
+ * <p>
+ * Commands are run one at a time, in the order they were requested. Only the building and running of the command is
+ * serialized, so callers do not hold any other lock while they wait for their turn.
  */
 public class BazelCommandExecutor {
     static final LogHelper LOG = LogHelper.log(BazelCommandExecutor.class);
@@ -58,6 +63,12 @@ public class BazelCommandExecutor {
     private final CommandBuilder commandBuilder;
     public static final long TIMEOUT_INFINITE = 0L;
 
+    /**
+     * Serializes use of the (stateful) command builder and of the Bazel client. It is fair, so waiting commands run in
+     * the order they were requested.
+     */
+    private final ReentrantLock commandLock = new ReentrantLock(true);
+
     public BazelCommandExecutor(File bazelExecutable, CommandBuilder commandBuilder) {
         this.bazelExecutable = bazelExecutable;
         this.commandBuilder = commandBuilder;
@@ -65,62 +76,107 @@ public class BazelCommandExecutor {
 
     // WHEN INTERESTING OUTPUT IS ON STDOUT...
 
-    public synchronized List<String> runBazelAndGetOutputLines(File workingDirectory,
+    public List<String> runBazelAndGetOutputLines(File workingDirectory,
             WorkProgressMonitor progressMonitor, List<String> args, Function<String, String> selector, long timeoutMS)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
 
-        CommandBuilder builder =
-                getConfiguredCommandBuilder(ConsoleType.WORKSPACE, workingDirectory, progressMonitor, args, timeoutMS);
-        Command command = builder.setStdoutLineSelector(selector).build();
-        command.run();
-
-        return command.getSelectedOutputLines();
+        List<String> lines = new ArrayList<>();
+        runBazelAndStreamOutputLines(ConsoleType.WORKSPACE, workingDirectory, progressMonitor, args, selector,
+            lines::add, timeoutMS);
+        return lines;
     }
 
-    public synchronized List<String> runBazelAndGetOuputLines(ConsoleType consoleType, File workingDirectory,
+    public List<String> runBazelAndGetOuputLines(ConsoleType consoleType, File workingDirectory,
             WorkProgressMonitor progressMonitor, List<String> args, Function<String, String> selector, long timeoutMS)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
 
-        CommandBuilder builder =
-                getConfiguredCommandBuilder(consoleType, workingDirectory, progressMonitor, args, timeoutMS);
-        Command command = builder.setStdoutLineSelector(selector).build();
-
-        int exitCode = command.run();
+        List<String> lines = new ArrayList<>();
+        int exitCode = runBazelAndStreamOutputLines(consoleType, workingDirectory, progressMonitor, args, selector,
+            lines::add, timeoutMS);
         if (exitCode == 0) {
-            return command.getSelectedOutputLines();
+            return lines;
         }
         LOG.error("Command [{}] failed with this exit code: {}", args, exitCode);
         return new ArrayList<>();
     }
 
+    /**
+     * Runs the command and passes each line selected from stdout to the consumer while the command is running. See
+     * {@link CommandBuilder#setStdoutLineConsumer(Consumer)} for the threading and backpressure behavior.
+     *
+     * @return the exit code of the command
+     */
+    public int runBazelAndStreamOutputLines(ConsoleType consoleType, File workingDirectory,
+            WorkProgressMonitor progressMonitor, List<String> args, Function<String, String> selector,
+            Consumer<String> lineConsumer, long timeoutMS)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+
+        commandLock.lockInterruptibly();
+        try {
+            CommandBuilder builder =
+                    getConfiguredCommandBuilder(consoleType, workingDirectory, progressMonitor, args, timeoutMS);
+            Command command = builder.setStdoutLineSelector(selector).setStdoutLineConsumer(lineConsumer).build();
+            return command.run();
+        } finally {
+            commandLock.unlock();
+        }
+    }
+
     // WHEN INTERESTING OUTPUT IS ON STDERR...
 
-    public synchronized List<String> runBazelAndGetErrorLines(File directory, WorkProgressMonitor progressMonitor,
+    public List<String> runBazelAndGetErrorLines(File directory, WorkProgressMonitor progressMonitor,
             List<String> args, Function<String, String> selector, long timeoutMS)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
 
-        CommandBuilder builder =
-                getConfiguredCommandBuilder(ConsoleType.WORKSPACE, directory, progressMonitor, args, timeoutMS);
-        Command command = builder.setStderrLineSelector(selector).build();
-        command.run();
-
-        return command.getSelectedErrorLines();
+        List<String> lines = new ArrayList<>();
+        runBazelAndStreamErrorLines(ConsoleType.WORKSPACE, directory, progressMonitor, args, selector, lines::add,
+            timeoutMS);
+        return lines;
     }
 
-    public synchronized List<String> runBazelAndGetErrorLines(ConsoleType consoleType, File directory,
+    public List<String> runBazelAndGetErrorLines(ConsoleType consoleType, File directory,
             WorkProgressMonitor progressMonitor, List<String> args, Function<String, String> selector, long timeoutMS)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
 
-        CommandBuilder builder = getConfiguredCommandBuilder(consoleType, directory, progressMonitor, args, timeoutMS);
-        Command command = builder.setStderrLineSelector(selector).build();
-        int exitCode = command.run();
+        List<String> lines = new ArrayList<>();
+        int exitCode = runBazelAndStreamErrorLines(consoleType, directory, progressMonitor, args, selector,
+            lines::add, timeoutMS);
         if (exitCode == 0) {
-            return command.getSelectedErrorLines();
+            return lines;
         }
         LOG.error("Command [{}] failed with this exit code: {}", args, exitCode);
         return new ArrayList<>();
     }
 
+    /**
+     * Runs the command and passes each line selected from stderr to the consumer while the command is running. See
+     * {@link CommandBuilder#setStderrLineConsumer(Consumer)} for the threading and backpressure behavior.
+     *
+     * @return the exit code of the command
+     */
+    public int runBazelAndStreamErrorLines(ConsoleType consoleType, File directory,
+            WorkProgressMonitor progressMonitor, List<String> args, Function<String, String> selector,
+            Consumer<String> lineConsumer, long timeoutMS)
+            throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
+
+        commandLock.lockInterruptibly();
+        try {
+            CommandBuilder builder =
+                    getConfiguredCommandBuilder(consoleType, directory, progressMonitor, args, timeoutMS);
+            Command command = builder.setStderrLineSelector(selector).setStderrLineConsumer(lineConsumer).build();
+            return command.run();
+        } finally {
+            commandLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of commands waiting for the running command to finish.
+     */
+    public int getNumberOfQueuedCommands() {
+        return commandLock.getQueueLength();
+    }
+
     // HELPERS
 
     /**
@@ -34,6 +34,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import com.salesforce.bazel.sdk.command.BazelCommandLineToolConfigurationException;
@@ -57,10 +59,30 @@ public class BazelQueryHelper {
      */
     private final BazelCommandExecutor bazelCommandExecutor;
 
-    private final Map<BazelLabel, BazelBuildFile> buildFileCache = new HashMap<>();
+    /**
+     * Read by concurrent callers without locking. Two callers that miss on the same package may both run the query,
+     * the last one to finish wins, which is harmless as the results are the same.
+     */
+    private final Map<BazelLabel, BazelBuildFile> buildFileCache = new ConcurrentHashMap<>();
+
+    /**
+     * Bumped by {@link #flushCache(BazelLabel)} before the package is removed from the buildFileCache, so that a query
+     * that was running during the flush does not publish its stale result. key=package label
+     */
+    private final Map<BazelLabel, AtomicLong> buildFileGenerations = new ConcurrentHashMap<>();
+
+    /**
+     * Optional cache shared with the workspace command runner, used for the raw query results.
+     */
+    private final BazelQueryResultCache queryResultCache;
 
     public BazelQueryHelper(BazelCommandExecutor bazelCommandExecutor) {
+        this(bazelCommandExecutor, null);
+    }
+
+    public BazelQueryHelper(BazelCommandExecutor bazelCommandExecutor, BazelQueryResultCache queryResultCache) {
         this.bazelCommandExecutor = bazelCommandExecutor;
+        this.queryResultCache = queryResultCache;
     }
 
     /**
@@ -72,7 +94,7 @@ public class BazelQueryHelper {
      * @throws BazelCommandLineToolConfigurationException
      */
     @Deprecated
-    public synchronized List<String> listBazelTargetsInBuildFiles(File bazelWorkspaceRootDirectory,
+    public List<String> listBazelTargetsInBuildFiles(File bazelWorkspaceRootDirectory,
             WorkProgressMonitor progressMonitor, File... directories)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
         List<String> argBuilder = new ArrayList<>();
@@ -89,7 +111,7 @@ public class BazelQueryHelper {
      * Returns the list of targets, with type data, found in a BUILD files for the given package. Uses Bazel Query to
      * build the list.
      */
-    public synchronized Collection<BazelBuildFile> queryBazelTargetsInBuildFile(File bazelWorkspaceRootDirectory,
+    public Collection<BazelBuildFile> queryBazelTargetsInBuildFile(File bazelWorkspaceRootDirectory,
             Collection<BazelLabel> bazelLabels)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
 
@@ -122,7 +144,7 @@ public class BazelQueryHelper {
     /**
      * Returns the list of source files that are used to build a target. Uses Bazel Query to build the list.
      */
-    public synchronized Collection<String> querySourceFilesForTarget(File bazelWorkspaceRootDirectory,
+    public Collection<String> querySourceFilesForTarget(File bazelWorkspaceRootDirectory,
             BazelLabel bazelLabel)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
 
@@ -132,6 +154,7 @@ public class BazelQueryHelper {
 
     public void flushCache(BazelLabel bazelPackageName) {
         BazelLabel pack = bazelPackageName.getPackageLabel();
+        buildFileGenerations.computeIfAbsent(pack, k -> new AtomicLong()).incrementAndGet();
         BazelBuildFile previousValue = buildFileCache.remove(pack);
         if (previousValue != null) {
             LOG.info("Build file cache flush, package " + pack);
@@ -145,6 +168,11 @@ public class BazelQueryHelper {
             File bazelWorkspaceRootDirectory)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
         String labels = bazelLabels.stream().map(BazelLabel::getLabelPath).collect(Collectors.joining(" "));
+        Set<BazelLabel> packages = BazelLabelUtil.groupByPackage(bazelLabels).keySet();
+        Map<BazelLabel, Long> generations = new HashMap<>();
+        for (BazelLabel pack : packages) {
+            generations.put(pack, getBuildFileGeneration(pack));
+        }
 
         // bazel query 'kind(rule, [label]:*)' --output label_kind
 
@@ -172,7 +200,7 @@ public class BazelQueryHelper {
             labelToRuleType.put(new BazelLabel(targetLabel), ruleType);
         }
 
-        Set<BazelLabel> unprocessed = new HashSet<>(BazelLabelUtil.groupByPackage(bazelLabels).keySet());
+        Set<BazelLabel> unprocessed = new HashSet<>(packages);
 
         Map<BazelLabel, Collection<BazelLabel>> packageToLabel =
                 BazelLabelUtil.groupByPackage(labelToRuleType.keySet());
@@ -180,26 +208,44 @@ public class BazelQueryHelper {
         Collection<BazelBuildFile> buildFiles = new HashSet<>();
         for (BazelLabel pack : packageToLabel.keySet()) {
             BazelBuildFile buildFile = new BazelBuildFile(pack.getLabelPath());
-            buildFileCache.put(pack, buildFile);
-            LOG.info("Build file cache put, package: " + pack);
             buildFiles.add(buildFile);
             unprocessed.remove(pack);
             for (BazelLabel target : packageToLabel.get(pack)) {
                 String ruleType = Objects.requireNonNull(labelToRuleType.get(target));
                 buildFile.addTarget(ruleType, target.getLabelPath());
             }
+            // only publish the build file once it is complete, readers do not lock
+            publishBuildFile(pack, buildFile, generations.get(pack));
         }
 
         // some packages may not have any targets - they need to be accounted for
         for (BazelLabel pack : unprocessed) {
             BazelBuildFile buildFile = new BazelBuildFile(pack.getLabelPath());
-            buildFileCache.put(pack, buildFile);
-            LOG.info("Build file cache put (no targets) package: " + pack);
+            publishBuildFile(pack, buildFile, generations.get(pack));
         }
 
         return buildFiles;
     }
 
+    private long getBuildFileGeneration(BazelLabel pack) {
+        AtomicLong generation = buildFileGenerations.get(pack);
+        return generation == null ? 0L : generation.get();
+    }
+
+    /**
+     * Caches the build file, unless the package was flushed since the query started. The generation is checked after
+     * the put, and the flush bumps it before it removes, so a flush that races with the put always wins.
+     */
+    private void publishBuildFile(BazelLabel pack, BazelBuildFile buildFile, Long generationAtStart) {
+        buildFileCache.put(pack, buildFile);
+        if ((generationAtStart != null) && (getBuildFileGeneration(pack) != generationAtStart)) {
+            buildFileCache.remove(pack, buildFile);
+            LOG.info("Build file cache flushed during the query, not caching package: " + pack);
+        } else {
+            LOG.info("Build file cache put, package: " + pack);
+        }
+    }
+
     // runs label query and populates cache, returns loaded BazelBuildFile instances
     private Collection<String> runSourceFileQuery(BazelLabel bazelLabel, File bazelWorkspaceRootDirectory)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
@@ -207,11 +253,19 @@ public class BazelQueryHelper {
         // bazel query 'kind("source file", deps(//apple-api:apple-api))'
         // bazel query 'kind("source file", deps(//apple-api:*))'
 
-        List<String> argBuilder = new ArrayList<>();
-        argBuilder.add("query");
-        argBuilder.add("kind('source file', deps(" + bazelLabel + "))");
-        List<String> resultLines = bazelCommandExecutor.runBazelAndGetOutputLines(bazelWorkspaceRootDirectory, null,
-            argBuilder, t -> t, BazelCommandExecutor.TIMEOUT_INFINITE);
+        String query = "kind('source file', deps(" + bazelLabel + "))";
+        long generation = queryResultCache != null ? queryResultCache.getGeneration() : 0L;
+        List<String> resultLines = queryResultCache != null ? queryResultCache.get(query) : null;
+        if (resultLines == null) {
+            List<String> argBuilder = new ArrayList<>();
+            argBuilder.add("query");
+            argBuilder.add(query);
+            resultLines = bazelCommandExecutor.runBazelAndGetOutputLines(bazelWorkspaceRootDirectory, null, argBuilder,
+                t -> t, BazelCommandExecutor.TIMEOUT_INFINITE);
+            if (queryResultCache != null) {
+                queryResultCache.put(query, resultLines, generation);
+            }
+        }
 
         // Sample Output:  (notice the cruft we don't want)
         // @local_jdk//:bin/javap
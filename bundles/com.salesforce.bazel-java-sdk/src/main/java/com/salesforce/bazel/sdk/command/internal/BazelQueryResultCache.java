@@ -0,0 +1,281 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.salesforce.bazel.sdk.logging.LogHelper;
+
+/**
+ * Bounded LRU cache of <i>bazel query</i> results, keyed by the normalized query expression.
+ * <p>
+ * Each entry remembers the packages referenced by its query expression so that a BUILD file change only evicts the
+ * queries that could observe it. Queries that reference a recursive pattern (//a/b/...) are evicted for any package
+ * beneath that pattern. Queries that follow dependency edges (deps, rdeps, ...) can observe any package, as can queries
+ * in which no package could be found, so those are evicted for every package change.
+ * <p>
+ * A query may be flushed while it is running. Callers read {@link #getGeneration()} before running the query and pass
+ * it to {@link #put(String, List, long)}, which drops the results if a package the query looks at was invalidated in
+ * the meantime.
+ */
+public class BazelQueryResultCache {
+    private static final LogHelper LOG = LogHelper.log(BazelQueryResultCache.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private static final String RECURSIVE_WILDCARD = "...";
+
+    // matches the label portion of //a/b/c:target, //a/b/..., @repo//a/b (the repo prefix is ignored)
+    private static final Pattern LABEL_PATTERN = Pattern.compile("//([^\\s:,()'\"]*)");
+
+    // query functions whose result depends on packages other than the ones named in the expression
+    private static final Pattern TRANSITIVE_FUNCTION_PATTERN =
+            Pattern.compile("\\b(deps|rdeps|allrdeps|allpaths|somepath|buildfiles|rbuildfiles|loadfiles)\\s*\\(");
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, CachedQuery> entries;
+
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long invalidationCount = 0;
+
+    // bumped by each invalidation, see put(String, List, long)
+    private long generation = 0;
+    private long invalidateAllGeneration = 0;
+    // key=package path (a/b/c) value=generation of the last invalidation of the package
+    private final Map<String, Long> packageInvalidationGenerations = new HashMap<>();
+
+    public BazelQueryResultCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public BazelQueryResultCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The query result cache must allow at least one entry.");
+        }
+        this.maxEntries = maxEntries;
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedQuery> eldest) {
+                if (size() > BazelQueryResultCache.this.maxEntries) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a copy of the cached results for the query, or null if the query is not cached.
+     */
+    public synchronized List<String> get(String query) {
+        CachedQuery entry = entries.get(normalizeQuery(query));
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return new ArrayList<>(entry.results);
+    }
+
+    /**
+     * Caches the results of the query, evicting the least recently used entry if the cache is full.
+     */
+    public synchronized void put(String query, List<String> results) {
+        put(query, results, generation);
+    }
+
+    /**
+     * Caches the results of the query, unless a package the query looks at was invalidated after the passed
+     * generation was read. Returns false if the results were stale and were not cached.
+     *
+     * @param generationAtStart
+     *            the value of {@link #getGeneration()} before the query was run
+     */
+    public synchronized boolean put(String query, List<String> results, long generationAtStart) {
+        String normalizedQuery = normalizeQuery(query);
+        CachedQuery entry = new CachedQuery(new ArrayList<>(results), findReferencedPackages(normalizedQuery));
+        if (generationAtStart != generation) {
+            if (invalidateAllGeneration > generationAtStart) {
+                return false;
+            }
+            for (Map.Entry<String, Long> invalidation : packageInvalidationGenerations.entrySet()) {
+                if ((invalidation.getValue() > generationAtStart) && entry.isAffectedBy(invalidation.getKey())) {
+                    LOG.debug("Not caching the results of query {}, package {} changed while it ran",
+                        normalizedQuery, invalidation.getKey());
+                    return false;
+                }
+            }
+        }
+        entries.put(normalizedQuery, entry);
+        return true;
+    }
+
+    /**
+     * Returns the current invalidation generation, to be passed to {@link #put(String, List, long)}.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Removes all cached queries that could be affected by a change to the BUILD file of the passed package.
+     *
+     * @param packagePath
+     *            the package path, with or without the leading slashes (//a/b/c or a/b/c)
+     * @return the number of queries that were removed
+     */
+    public synchronized int invalidatePackage(String packagePath) {
+        String changedPackage = stripLeadingSlashes(packagePath);
+        packageInvalidationGenerations.put(changedPackage, ++generation);
+        int removed = 0;
+        Iterator<CachedQuery> iter = entries.values().iterator();
+        while (iter.hasNext()) {
+            CachedQuery entry = iter.next();
+            if (entry.isAffectedBy(changedPackage)) {
+                iter.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            invalidationCount += removed;
+            LOG.debug("Query cache flushed {} queries for package {}", removed, changedPackage);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all cached queries. The counters are not reset.
+     */
+    public synchronized void invalidateAll() {
+        invalidateAllGeneration = ++generation;
+        // the per package generations are all older now
+        packageInvalidationGenerations.clear();
+        invalidationCount += entries.size();
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Number of entries removed because the cache was full.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Number of entries removed because of a package change or a full flush.
+     */
+    public synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    // INTERNALS
+
+    /**
+     * Collapses runs of whitespace so that queries which differ only in formatting share an entry.
+     */
+    static String normalizeQuery(String query) {
+        return query.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Returns the package paths (without leading slashes) referenced by the query. Recursive patterns keep their
+     * trailing /... so that they can be matched against sub-packages.
+     */
+    static Set<String> findReferencedPackages(String query) {
+        if (TRANSITIVE_FUNCTION_PATTERN.matcher(query).find()) {
+            return Collections.singleton(RECURSIVE_WILDCARD);
+        }
+        Set<String> packages = new HashSet<>();
+        Matcher matcher = LABEL_PATTERN.matcher(query);
+        while (matcher.find()) {
+            packages.add(matcher.group(1));
+        }
+        return packages.isEmpty() ? Collections.emptySet() : packages;
+    }
+
+    private static String stripLeadingSlashes(String packagePath) {
+        String path = packagePath.startsWith("//") ? packagePath.substring(2) : packagePath;
+        int colon = path.indexOf(':');
+        return colon == -1 ? path : path.substring(0, colon);
+    }
+
+    private static class CachedQuery {
+        final List<String> results;
+        final Set<String> packages;
+
+        CachedQuery(List<String> results, Set<String> packages) {
+            this.results = results;
+            this.packages = packages;
+        }
+
+        boolean isAffectedBy(String changedPackage) {
+            if (packages.isEmpty()) {
+                // we could not tell what the query looks at, so be conservative
+                return true;
+            }
+            for (String queryPackage : packages) {
+                if (queryPackage.endsWith(RECURSIVE_WILDCARD)) {
+                    String root = queryPackage.substring(0, queryPackage.length() - RECURSIVE_WILDCARD.length());
+                    if (root.isEmpty() || (changedPackage + "/").startsWith(root)) {
+                        return true;
+                    }
+                } else if (queryPackage.equals(changedPackage)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
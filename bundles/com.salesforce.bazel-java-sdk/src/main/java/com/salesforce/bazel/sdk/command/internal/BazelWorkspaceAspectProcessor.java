@@ -29,27 +29,37 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 
 import com.salesforce.bazel.sdk.aspect.AspectTargetInfo;
 import com.salesforce.bazel.sdk.aspect.AspectTargetInfoFactory;
+import com.salesforce.bazel.sdk.aspect.AspectTargetInfoStore;
 import com.salesforce.bazel.sdk.aspect.BazelAspectLocation;
 import com.salesforce.bazel.sdk.command.BazelCommandLineToolConfigurationException;
 import com.salesforce.bazel.sdk.command.BazelWorkspaceCommandRunner;
 import com.salesforce.bazel.sdk.logging.LogHelper;
 import com.salesforce.bazel.sdk.model.BazelLabel;
-import com.salesforce.bazel.sdk.model.BazelTargetKind;
 
 /**
  * Manages running, collecting, and caching all of the build info aspects for a specific workspace.
  * <p>
+ * The caches are guarded by this object's monitor, which is only held for in memory work. Aspect builds are serialized
+ * by a separate lock, so that cached lookups and flushes do not wait for a running build. A flush that happens while a
+ * build is running wins: the results of that build are returned to its caller but are not cached. The persistent store
+ * validates its entries against the file system, so it is read and written outside of the monitor as well.
+ * <p>
  * TODO this belongs in an sdk.aspect package, not buried down in command.internal
  */
 public class BazelWorkspaceAspectProcessor {
@@ -68,22 +78,74 @@ public class BazelWorkspaceAspectProcessor {
      * Cache of the Aspect data for each target. key=String target (//a/b/c) value=Set<AspectTargetInfo> data that came
      * from running the aspect.
      *
-     * This cache includes wildcard (//a/b/c:*) targets and concrete targets.
+     * This cache includes wildcard (//a/b/c:*) targets and concrete targets. It is indexed by package, so that package
+     * flushes are cheap.
      */
-    final Map<BazelLabel, Set<AspectTargetInfo>> aspectInfoCache_current = new HashMap<>();
+    final AspectInfoCache aspectInfoCache_current = new AspectInfoCache();
+
+    /**
+     * Default bounds of the last good cache. The weight is the number of AspectTargetInfo references held by the
+     * cached sets, which is a proxy for the memory they retain.
+     */
+    public static final int DEFAULT_LASTGOOD_MAX_ENTRIES = 25000;
+    public static final long DEFAULT_LASTGOOD_MAX_WEIGHT = 2500000;
 
     /**
      * Cache of the Aspect data for each target. key=String target (//a/b/c) value=AspectTargetInfo data that came from
-     * running the aspect. This cache is never cleared and is used for cases in which the developer introduces a compile
-     * error into the package, such that the Aspect will fail to run.
+     * running the aspect. This cache is not cleared and is used for cases in which the developer introduces a compile
+     * error into the package, such that the Aspect will fail to run. It is bounded, and evicts the least recently used
+     * entries once the limits set by {@link #setLastGoodRetentionLimits(int, long)} are exceeded.
      */
-    final Map<BazelLabel, Set<AspectTargetInfo>> aspectInfoCache_lastgood = new HashMap<>();
+    final AspectInfoCache aspectInfoCache_lastgood =
+            new AspectInfoCache(DEFAULT_LASTGOOD_MAX_ENTRIES, DEFAULT_LASTGOOD_MAX_WEIGHT);
+
+    /**
+     * Optional persistent store of aspect data, which survives restarts of the tool. If null, aspect data is only
+     * cached in memory.
+     */
+    private AspectTargetInfoStore aspectInfoStore;
 
     /**
      * Tracks the number of cache hits for getAspectTargetInfos() invocations.
      */
     int numberCacheHits = 0;
 
+    /**
+     * Tracks the number of in memory cache misses that were satisfied by the persistent store.
+     */
+    int numberPersistedCacheHits = 0;
+
+    /**
+     * Tracks the number of aspect bazel build invocations.
+     */
+    int numberAspectBatches = 0;
+
+    /**
+     * Chooses the number of labels passed to each aspect build invocation.
+     */
+    private volatile AspectBatchSizer batchSizer = new AspectBatchSizer();
+
+    /**
+     * Held while aspect builds run for cache misses. Only one caller builds at a time, the others wait and then find
+     * their targets in the cache.
+     */
+    private final ReentrantLock aspectLoadLock = new ReentrantLock();
+
+    /**
+     * Incremented by each flush. A load that started under an older generation does not write its results into the
+     * caches, as they may predate the change that caused the flush.
+     */
+    private long cacheGeneration = 0;
+
+    /**
+     * Parses the aspect files of a batch while the next batch is building. Created on first use, unless one is
+     * provided with {@link #setAspectParsingExecutor(ExecutorService)}.
+     */
+    private ExecutorService aspectParsingExecutor;
+    private boolean parseOnCallingThread = false;
+
+    private static final int MAX_ASPECT_PARSING_THREADS = 4;
+
     // CTORS
 
     // if you change or reorder the aspectOptions args below, you will need to update these
@@ -120,6 +182,55 @@ public class BazelWorkspaceAspectProcessor {
         this.aspectOptions = aspectOptions;
     }
 
+    /**
+     * Sets the persistent store used to reuse aspect data computed in a prior session. Entries in the store are
+     * validated before use, and stale entries are recomputed by running the aspects. Pass null to disable.
+     */
+    public void setAspectTargetInfoStore(AspectTargetInfoStore aspectInfoStore) {
+        if (aspectInfoStore != null) {
+            // flushes remove entries from the store while holding the monitor, so don't let them read the file
+            aspectInfoStore.load();
+        }
+        synchronized (this) {
+            this.aspectInfoStore = aspectInfoStore;
+        }
+    }
+
+    /**
+     * Bounds the last good aspect data that is retained as a fallback for targets that fail to build. The weight is the
+     * total number of AspectTargetInfo references held across the retained entries.
+     */
+    public synchronized void setLastGoodRetentionLimits(int maxEntries, long maxWeight) {
+        aspectInfoCache_lastgood.setLimits(maxEntries, maxWeight);
+    }
+
+    /**
+     * Returns the number of last good entries evicted because the retention limits were exceeded.
+     */
+    public synchronized long getLastGoodEvictionCount() {
+        return aspectInfoCache_lastgood.getEvictionCount();
+    }
+
+    /**
+     * Sets the executor used to parse the aspect files of a batch while the next batch is building. Pass null to parse
+     * the files on the calling thread, after each batch completes.
+     */
+    public synchronized void setAspectParsingExecutor(ExecutorService aspectParsingExecutor) {
+        this.aspectParsingExecutor = aspectParsingExecutor;
+        parseOnCallingThread = aspectParsingExecutor == null;
+    }
+
+    /**
+     * Replaces the policy that chooses the number of labels passed to each aspect build invocation.
+     */
+    public void setAspectBatchSizer(AspectBatchSizer batchSizer) {
+        this.batchSizer = batchSizer;
+    }
+
+    public AspectBatchSizer getAspectBatchSizer() {
+        return batchSizer;
+    }
+
     /**
      * Runs the analysis of the given list of targets using the build information Bazel Aspect and returns a map of
      * {@link AspectTargetInfo}-s (key is the label of the target) containing the parsed form of the JSON file created
@@ -133,13 +244,22 @@ public class BazelWorkspaceAspectProcessor {
      *
      * @throws BazelCommandLineToolConfigurationException
      */
-    public synchronized Map<BazelLabel, Set<AspectTargetInfo>> getAspectTargetInfos(Collection<BazelLabel> targets,
+    public Map<BazelLabel, Set<AspectTargetInfo>> getAspectTargetInfos(Collection<BazelLabel> targets,
             String caller) throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
 
         Map<BazelLabel, Set<AspectTargetInfo>> resultMap = new LinkedHashMap<>();
         Collection<BazelLabel> cacheMisses = populateFromCache(targets, resultMap, caller);
         if (!cacheMisses.isEmpty()) {
-            loadTargetInfos(cacheMisses, resultMap, caller);
+            aspectLoadLock.lockInterruptibly();
+            try {
+                // another caller may have loaded some of the targets while we waited for the lock
+                cacheMisses = populateFromCache(cacheMisses, resultMap, caller);
+                if (!cacheMisses.isEmpty()) {
+                    loadTargetInfos(cacheMisses, resultMap, caller);
+                }
+            } finally {
+                aspectLoadLock.unlock();
+            }
         }
         return resultMap;
     }
@@ -147,8 +267,19 @@ public class BazelWorkspaceAspectProcessor {
     /**
      * Clear the entire AspectTargetInfo cache. This flushes the dependency graph for the workspace.
      */
-    public synchronized void flushAspectInfoCache() {
-        aspectInfoCache_current.clear();
+    public void flushAspectInfoCache() {
+        AspectTargetInfoStore store;
+        synchronized (this) {
+            cacheGeneration++;
+            aspectInfoCache_current.clear();
+            store = aspectInfoStore;
+            if (store != null) {
+                store.clear();
+            }
+        }
+        if (store != null) {
+            store.save();
+        }
     }
 
     /**
@@ -157,17 +288,25 @@ public class BazelWorkspaceAspectProcessor {
     public synchronized void flushAspectInfoCache(BazelLabel target) {
         // the target may not even be in cache, that is ok, just try to remove it from both current and wildcard caches
         // if the target exists in either it will get flushed
+        cacheGeneration++;
         aspectInfoCache_current.remove(target);
+        if (aspectInfoStore != null) {
+            aspectInfoStore.remove(target);
+        }
     }
 
     /**
      * Clear the AspectTargetInfo cache for the passed targets. This flushes the dependency graph for those targets.
      */
     public synchronized void flushAspectInfoCache(Set<BazelLabel> targets) {
+        cacheGeneration++;
         for (BazelLabel target : targets) {
             // the target may not even be in cache, that is ok, just try to remove it from both current and wildcard caches
             // if the target exists in either it will get flushed
             aspectInfoCache_current.remove(target);
+            if (aspectInfoStore != null) {
+                aspectInfoStore.remove(target);
+            }
         }
     }
 
@@ -176,17 +315,11 @@ public class BazelWorkspaceAspectProcessor {
      * contains the package name.
      */
     public synchronized Set<BazelLabel> flushAspectInfoCacheForPackage(BazelLabel bazelPackage) {
-        Set<BazelLabel> flushedTargets = new LinkedHashSet<>();
-
-        // the target may not even be in cache, that is ok, just try to remove it from both current and wildcard caches
-        // if the target exists in either it will get flushed
-        Iterator<BazelLabel> iter = aspectInfoCache_current.keySet().iterator();
-        while (iter.hasNext()) {
-            BazelLabel key = iter.next();
-            if (key.getPackagePath().equals(bazelPackage.getPackagePath())) {
-                flushedTargets.add(key);
-                iter.remove();
-            }
+        // the target may not even be in cache, that is ok, the package index knows which cached targets to flush
+        cacheGeneration++;
+        Set<BazelLabel> flushedTargets = aspectInfoCache_current.removePackage(bazelPackage.getPackagePath());
+        if (aspectInfoStore != null) {
+            aspectInfoStore.removePackage(bazelPackage);
         }
         return flushedTargets;
     }
@@ -196,34 +329,72 @@ public class BazelWorkspaceAspectProcessor {
     /**
      * Populates the specified resultMap from cache. Returns the cache misses.
      */
-    private synchronized Collection<BazelLabel> populateFromCache(Collection<BazelLabel> labels,
+    private Collection<BazelLabel> populateFromCache(Collection<BazelLabel> labels,
             Map<BazelLabel, Set<AspectTargetInfo>> resultMap, String caller) {
+        List<BazelLabel> memoryMisses = new ArrayList<>();
+        AspectTargetInfoStore store;
+        long generation;
+        synchronized (this) {
+            for (BazelLabel target : labels) {
+                Set<AspectTargetInfo> aspectInfos = aspectInfoCache_current.get(target);
+                if (aspectInfos == null) {
+                    memoryMisses.add(target);
+                } else {
+                    LOG.info("Aspect data found in cache for: " + target + getLogStr(target, caller));
+                    resultMap.put(target, aspectInfos);
+                    numberCacheHits++;
+                }
+            }
+            store = aspectInfoStore;
+            generation = cacheGeneration;
+        }
+
+        // reading the store stats and parses files, so it is done without holding the monitor
         List<BazelLabel> cacheMisses = new ArrayList<>();
-        for (BazelLabel target : labels) {
-            String logstr = getLogStr(target, caller);
-            Set<AspectTargetInfo> aspectInfos = aspectInfoCache_current.get(target);
+        Map<BazelLabel, Set<AspectTargetInfo>> persistedInfos = new LinkedHashMap<>();
+        for (BazelLabel target : memoryMisses) {
+            Set<AspectTargetInfo> aspectInfos = store == null ? null : store.get(target);
             if (aspectInfos == null) {
-                LOG.info("Aspect data not found in cache for: " + target + logstr);
+                LOG.info("Aspect data not found in cache for: " + target + getLogStr(target, caller));
                 cacheMisses.add(target);
             } else {
-                LOG.info("Aspect data found in cache for: " + target + logstr);
-                resultMap.put(target, aspectInfos);
-                numberCacheHits++;
+                LOG.info("Aspect data found in persistent store for: " + target + getLogStr(target, caller));
+                persistedInfos.put(target, aspectInfos);
+            }
+        }
+        if (!persistedInfos.isEmpty()) {
+            synchronized (this) {
+                // as for loads, a flush while the store was read means the entries may already be stale
+                boolean cached = (generation == cacheGeneration) && (store == aspectInfoStore);
+                for (Map.Entry<BazelLabel, Set<AspectTargetInfo>> persisted : persistedInfos.entrySet()) {
+                    if (cached) {
+                        aspectInfoCache_current.put(persisted.getKey(), persisted.getValue());
+                        aspectInfoCache_lastgood.put(persisted.getKey(), persisted.getValue());
+                    }
+                    resultMap.put(persisted.getKey(), persisted.getValue());
+                    numberPersistedCacheHits++;
+                }
             }
         }
         return cacheMisses;
     }
 
-    private synchronized void loadTargetInfos(Collection<BazelLabel> cacheMisses,
+    /**
+     * Runs the aspects for the cache misses and caches the results. Called with the aspectLoadLock held, the monitor is
+     * only taken to read and write the caches.
+     */
+    private void loadTargetInfos(Collection<BazelLabel> cacheMisses,
             Map<BazelLabel, Set<AspectTargetInfo>> resultMap, String caller)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
 
+        long generation;
+        synchronized (this) {
+            generation = cacheGeneration;
+        }
         LOG.info("Starting generation of Aspect files for " + cacheMisses.size() + " packages.");
-        List<String> discoveredAspectFilePaths = generateAspectTargetInfoFiles(cacheMisses);
+        Map<BazelLabel, AspectTargetInfo> aspectInfos = generateAndLoadAspectTargetInfos(cacheMisses);
         LOG.info("Finished generation of Aspect files for " + cacheMisses.size() + " packages.");
 
-        Map<BazelLabel, AspectTargetInfo> aspectInfos = loadAspectFilePaths(discoveredAspectFilePaths);
-
         if (aspectInfos.isEmpty()) {
             // We were not able to load any aspects, this generally indicates some sort of error condition;
             // it could be because the user introduced a compile error in it and the Aspect wont run.
@@ -231,7 +402,10 @@ public class BazelWorkspaceAspectProcessor {
             // cleared, so if the Aspect ran correctly at least once since the IDE started it should be here (but possibly out of date depending
             // on what changes were introduced along with the compile error)
             for (BazelLabel label : cacheMisses) {
-                Set<AspectTargetInfo> lastgood = aspectInfoCache_lastgood.get(label);
+                Set<AspectTargetInfo> lastgood;
+                synchronized (this) {
+                    lastgood = aspectInfoCache_lastgood.get(label);
+                }
                 if (lastgood == null) {
                     LOG.info("Aspect execution failed (all) for target: {}", getLogStr(label, caller));
                 } else {
@@ -239,21 +413,36 @@ public class BazelWorkspaceAspectProcessor {
                 }
             }
         } else {
+            // the graph memoizes the closures, so labels requested together share the work
+            AspectClosureGraph closureGraph = new AspectClosureGraph(aspectInfos);
             Map<BazelLabel, Set<AspectTargetInfo>> owningLabelToAspectInfos = new HashMap<>();
             for (BazelLabel label : cacheMisses) {
-                Map<BazelLabel, Set<AspectTargetInfo>> m = assignAspectsToOwningLabel(label, aspectInfos);
-                owningLabelToAspectInfos.putAll(m);
+                assignAspectsToOwningLabel(label, closureGraph, owningLabelToAspectInfos);
             }
-            for (BazelLabel label : owningLabelToAspectInfos.keySet()) {
-                Set<AspectTargetInfo> infos = owningLabelToAspectInfos.get(label);
-                aspectInfoCache_current.put(label, infos);
-                aspectInfoCache_lastgood.put(label, infos);
-                LOG.info("Aspect data loaded for target: " + label + getLogStr(label, caller));
+            boolean cached;
+            AspectTargetInfoStore store;
+            synchronized (this) {
+                // a flush during the build means these results may already be stale, so only the caller gets them
+                cached = generation == cacheGeneration;
+                store = cached ? aspectInfoStore : null;
+                for (BazelLabel label : owningLabelToAspectInfos.keySet()) {
+                    Set<AspectTargetInfo> infos = owningLabelToAspectInfos.get(label);
+                    aspectInfoCache_lastgood.put(label, infos);
+                    if (cached) {
+                        aspectInfoCache_current.put(label, infos);
+                    }
+                    LOG.info("Aspect data loaded for target: " + label + getLogStr(label, caller));
+                }
+            }
+            if (store != null) {
+                persistTargetInfos(store, generation, owningLabelToAspectInfos);
+            }
+            if (!cached) {
+                LOG.info("Aspect cache was flushed while loading {} targets, the results were not cached.",
+                    cacheMisses.size());
             }
             for (BazelLabel label : cacheMisses) {
-                // since we just populated the caches above, we should now find results
-                // this could be done in the loop above, but this is good sanity
-                Set<AspectTargetInfo> atis = aspectInfoCache_current.get(label);
+                Set<AspectTargetInfo> atis = owningLabelToAspectInfos.get(label);
                 if (atis == null) {
                     LOG.error("Aspect execution failed (single) for target: " + label + getLogStr(label, caller));
                     atis = Collections.emptySet();
@@ -264,13 +453,33 @@ public class BazelWorkspaceAspectProcessor {
     }
 
     /**
-     * This method creates and returns a mapping of a Label to the AspectTargetInfo (ATI) instances belonging to that
+     * Writes freshly loaded aspect data to the persistent store. Putting an entry fingerprints the BUILD files of its
+     * closure, so this runs without holding the monitor. A flush that happens meanwhile may have removed the entries
+     * before they were put, so they are removed again if the generation moved on.
+     */
+    private void persistTargetInfos(AspectTargetInfoStore store, long generation,
+            Map<BazelLabel, Set<AspectTargetInfo>> labelToAspectInfos) {
+        for (Map.Entry<BazelLabel, Set<AspectTargetInfo>> entry : labelToAspectInfos.entrySet()) {
+            store.put(entry.getKey(), entry.getValue());
+        }
+        synchronized (this) {
+            if (generation != cacheGeneration) {
+                for (BazelLabel label : labelToAspectInfos.keySet()) {
+                    store.remove(label);
+                }
+            }
+        }
+        store.save();
+    }
+
+    /**
+     * This method adds to the passed map a mapping of a Label to the AspectTargetInfo (ATI) instances belonging to that
      * Label. These ATI instances are the transitive closure of ATIs referenced by the mapped Label.
      *
      * This method behaves differently based on whatever the specified requestingLabel is a wildcard label or a concrete
      * Label:
      *
-     * If the specified requestedLabel is concrete (//a/b/c), this method returns a single mapping: BazelLabel(//a/b/c)
+     * If the specified requestedLabel is concrete (//a/b/c), this method adds a single mapping: BazelLabel(//a/b/c)
      * -> Set of all ATI instances (transitive closure) owned by that label.
      *
      * If the specified requestingLabel is a wildcard label (//a/b/c:*), this method looks at all ATIs passed into this
@@ -278,165 +487,146 @@ public class BazelWorkspaceAspectProcessor {
      * to the mapping for the wildcard target.
      *
      * For example, with ATIs for these targets: //a/b/c:t1 and //a/b/c:t2 and a requestingLabel of //a/b/c:*, this
-     * method returns:
+     * method adds:
      *
      * //a/b/c:* -> all specified ATIs //a/b/c:t1 -> transitive closure of ATIs for t1 //a/b/c:t2 -> transitive closure
      * of ATIs for t2
      */
-    private static Map<BazelLabel, Set<AspectTargetInfo>> assignAspectsToOwningLabel(BazelLabel requestingLabel,
-            Map<BazelLabel, AspectTargetInfo> depNameToTargetInfo) {
-        Map<BazelLabel, Set<AspectTargetInfo>> transitivesClosures = new HashMap<>();
+    private static void assignAspectsToOwningLabel(BazelLabel requestingLabel, AspectClosureGraph closureGraph,
+            Map<BazelLabel, Set<AspectTargetInfo>> transitivesClosures) {
 
         // find starting point, based on target - this is trivial, but we also support wildcard
         // targets (so that we can run a single bazal build cmd and get all aspects)
-        for (AspectTargetInfo ati : depNameToTargetInfo.values()) {
-            BazelLabel currentLabel = new BazelLabel(ati.getLabelPath());
-            if (requestingLabel.isConcrete()) {
-                if (requestingLabel.equals(currentLabel)) {
-                    Set<AspectTargetInfo> allDeps = getTransitiveClosure(ati, depNameToTargetInfo);
-                    transitivesClosures.put(new BazelLabel(ati.getLabelPath()), allDeps);
-                }
-            } else {
-                // all targets in the requested package qualify
-                if (currentLabel.getPackagePath().equals(requestingLabel.getPackagePath())) {
-                    Set<AspectTargetInfo> allDeps = getTransitiveClosure(ati, depNameToTargetInfo);
-                    transitivesClosures.put(new BazelLabel(ati.getLabelPath()), allDeps);
-                }
+        if (requestingLabel.isConcrete()) {
+            Integer id = closureGraph.getId(requestingLabel);
+            if (id != null) {
+                transitivesClosures.put(closureGraph.getLabel(id), closureGraph.getTransitiveClosure(id));
             }
-        }
-
-        if (!requestingLabel.isConcrete()) {
-            // also return a mapping of wildcard target -> all AspectTargetInfo instances
-            transitivesClosures.put(requestingLabel, new HashSet<>(depNameToTargetInfo.values()));
-        }
-
-        return transitivesClosures;
-
-    }
-
-    private static Set<AspectTargetInfo> getTransitiveClosure(AspectTargetInfo aspectTargetInfo,
-            Map<BazelLabel, AspectTargetInfo> depNameToTargetInfo) {
-        Set<AspectTargetInfo> allDeps = new HashSet<>();
-        List<AspectTargetInfo> queue = new ArrayList<>();
-        Set<String> skippedLabels = new HashSet<>();
-        Set<String> visitedLabels = new HashSet<>();
-        queue.add(aspectTargetInfo);
-        while (!queue.isEmpty()) {
-            AspectTargetInfo ati = queue.remove(0);
-
-            String thisLabel = ati.getLabelPath();
-            if (visitedLabels.contains(thisLabel)) {
-                // we have already visited this dependency (through another path) just skip it
-                continue;
-            }
-            visitedLabels.add(thisLabel);
-
-            if (ati != aspectTargetInfo) {
-                allDeps.add(ati);
-            }
-            List<String> depLabels = ati.getDeps();
-            for (String label : depLabels) {
-                if (skippedLabels.contains(label)) {
-                    // this is a dep that is not something we work with, so we ignore it
-                    continue;
-                }
-                if (visitedLabels.contains(label)) {
-                    // we have already visited this dependency (through another path) just skip it
-                    continue;
-                }
-
-                BazelLabel depLabel = new BazelLabel(label);
-                AspectTargetInfo dep = depNameToTargetInfo.get(depLabel);
-                if (dep == null) {
-                    LOG.info("No AspectTargetInfo exists for " + label
-                            + "; it and its descendents are excluded from analysis.");
-                    skippedLabels.add(label);
-                } else {
-                    queue.add(dep);
-                }
+        } else {
+            // all targets in the requested package qualify
+            for (int id : closureGraph.getIdsInPackage(requestingLabel.getPackagePath())) {
+                transitivesClosures.put(closureGraph.getLabel(id), closureGraph.getTransitiveClosure(id));
             }
-        }
 
-        // now add this aspect to the transitive closure if test or import (TODO why?)
-        BazelTargetKind kind = aspectTargetInfo.getKind();
-        if (kind != null) {
-            if (kind.isKind("java_test")) {
-                allDeps.add(aspectTargetInfo);
-            } else if (kind.isKind("java_import")) {
-                allDeps.add(aspectTargetInfo);
-            }
-        } else {
-            kind = aspectTargetInfo.getKind();
-            LOG.info("AspectInfo " + aspectTargetInfo.getLabel().getLabelPath()
-                + " does not have an associated target kind.");
+            // also return a mapping of wildcard target -> all AspectTargetInfo instances
+            transitivesClosures.put(requestingLabel, closureGraph.getAllInfos());
         }
-
-        return Collections.unmodifiableSet(allDeps);
     }
 
     /**
-     * Runs the Aspect for the list of passed targets. Returns the list of file paths to the output artifacts created by
-     * the Aspects.
+     * Runs the Aspect for the list of passed targets, and loads the output artifacts created by the Aspects.
+     * <p>
+     * The targets are split into batches, one bazel build per batch. Bazel serializes the builds anyway, but the aspect
+     * files written by a batch are parsed on the parsing executor while the next batch is building. The batch size
+     * adapts to the observed build time per label, see {@link AspectBatchSizer}.
      *
      * @throws BazelCommandLineToolConfigurationException
      */
-    private synchronized List<String> generateAspectTargetInfoFiles(Collection<BazelLabel> targets)
+    private Map<BazelLabel, AspectTargetInfo> generateAndLoadAspectTargetInfos(
+            Collection<BazelLabel> targets)
             throws IOException, InterruptedException, BazelCommandLineToolConfigurationException {
         if (targets.isEmpty()) {
             throw new IllegalArgumentException("Parameter [targets] cannot be empty.");
         }
         File bazelWorkspaceRootDirectory = bazelWorkspaceCommandRunner.getBazelWorkspaceRootDirectory();
+        ExecutorService executor = getAspectParsingExecutor();
+        AspectBatchSizer batchSizer = this.batchSizer;
 
         BazelLabel[] targetsArray = targets.toArray(new BazelLabel[] {});
-        int lastValidTargetIndex = targets.size() - 1;
+        int totalTargets = targetsArray.length;
         int currentTargetIndex = 0;
-        List<String> listOfGeneratedFilePaths = new ArrayList<>();
-
-        // run the aspect generation for the target labels, we want to minimize the number of bazel invocations
-        // because there is a few seconds of overhead for each invocation, but we only do 25 at a time so we get
-        // progress log messages along the way
-        while (currentTargetIndex <= lastValidTargetIndex) {
-            int startTargetIndex = currentTargetIndex;
-            List<String> args = new ArrayList<>();
-            args.add("build");
-            args.addAll(aspectOptions);
-            for (int i = 0; i < 25; i++) {
-                if (currentTargetIndex > lastValidTargetIndex) {
-                    break;
+        int generatedFileCount = 0;
+        List<Future<Map<String, AspectTargetInfo>>> parsedBatches = new ArrayList<>();
+        Map<String, AspectTargetInfo> labelToAspectInfo = new HashMap<>();
+
+        try {
+            // run the aspect generation for the target labels, we want to minimize the number of bazel invocations
+            // because there is a few seconds of overhead for each invocation, but we batch them so we get
+            // progress log messages along the way
+            while (currentTargetIndex < totalTargets) {
+                int startTargetIndex = currentTargetIndex;
+                int batchEndIndex = Math.min(totalTargets, startTargetIndex + batchSizer.getBatchSize());
+                List<String> args = new ArrayList<>();
+                args.add("build");
+                args.addAll(aspectOptions);
+                for (; currentTargetIndex < batchEndIndex; currentTargetIndex++) {
+                    args.add(targetsArray[currentTargetIndex].toString());
                 }
-                String label = targetsArray[currentTargetIndex].toString();
-                currentTargetIndex++;
-                args.add(label);
-            }
 
-            // Strip out the artifact list, keeping the xyz.bzljavasdk-data.json files (located in subdirs in the bazel-out path)
-            // Line must start with >>> and end with the aspect file suffix
-            LOG.info("Running command to generate aspect file for labels indexed [" + startTargetIndex + "] through ["
-                    + (startTargetIndex + 25) + "] out of the total [" + (lastValidTargetIndex + 1) + "]");
-            Function<String, String> filter = (t) -> {
-                LOG.info("Aspect output line: " + t);
-                String r = null;
-                if (t.startsWith(">>>")) {
-                    if (t.endsWith(AspectTargetInfoFactory.ASPECT_FILENAME_SUFFIX)) {
-                        LOG.info("  Aspect output (json file): {}", t);
-                        r = t.substring(3);
-                    } else {
-                        LOG.info("  Aspect output (ignored): {}", t);
-                        r = null;
-                    }
+                LOG.info("Running command to generate aspect file for labels indexed [" + startTargetIndex
+                        + "] through [" + batchEndIndex + "] out of the total [" + totalTargets + "]");
+                long startTime = System.currentTimeMillis();
+                List<String> batchFilePaths = bazelCommandExecutor.runBazelAndGetErrorLines(ConsoleType.WORKSPACE,
+                    bazelWorkspaceRootDirectory, null, args, ASPECT_FILE_PATH_FILTER,
+                    BazelCommandExecutor.TIMEOUT_INFINITE);
+                batchSizer.recordBatch(batchEndIndex - startTargetIndex, System.currentTimeMillis() - startTime);
+                numberAspectBatches++;
+                generatedFileCount += batchFilePaths.size();
+
+                if (executor == null) {
+                    labelToAspectInfo.putAll(AspectTargetInfoFactory.loadAspectFilePaths(batchFilePaths));
                 } else {
-                    LOG.info("  Aspect output (ignored): {}", t);
-                    r = null;
+                    parsedBatches
+                            .add(executor.submit(() -> AspectTargetInfoFactory.loadAspectFilePaths(batchFilePaths)));
                 }
-                return r;
-            };
+            }
 
-            List<String> partialListOfGeneratedFilePaths =
-                    bazelCommandExecutor.runBazelAndGetErrorLines(ConsoleType.WORKSPACE, bazelWorkspaceRootDirectory,
-                        null, args, filter, BazelCommandExecutor.TIMEOUT_INFINITE);
-            listOfGeneratedFilePaths.addAll(partialListOfGeneratedFilePaths);
+            // merge in batch order, so that the result does not depend on which parse finished first
+            for (Future<Map<String, AspectTargetInfo>> parsedBatch : parsedBatches) {
+                labelToAspectInfo.putAll(parsedBatch.get());
+            }
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IllegalStateException("Failure parsing the aspect files.", cause);
+        } finally {
+            for (Future<Map<String, AspectTargetInfo>> parsedBatch : parsedBatches) {
+                parsedBatch.cancel(true);
+            }
+        }
+        return toBazelLabelMap(labelToAspectInfo, generatedFileCount);
+    }
+
+    /**
+     * Keeps the xyz.bzljavasdk-data.json files (located in subdirs in the bazel-out path) from the artifact list
+     * printed by the aspect build. Line must start with >>> and end with the aspect file suffix.
+     */
+    private static final Function<String, String> ASPECT_FILE_PATH_FILTER = (t) -> {
+        LOG.info("Aspect output line: " + t);
+        String r = null;
+        if (t.startsWith(">>>")) {
+            if (t.endsWith(AspectTargetInfoFactory.ASPECT_FILENAME_SUFFIX)) {
+                LOG.info("  Aspect output (json file): {}", t);
+                r = t.substring(3);
+            } else {
+                LOG.info("  Aspect output (ignored): {}", t);
+                r = null;
+            }
+        } else {
+            LOG.info("  Aspect output (ignored): {}", t);
+            r = null;
         }
-        return listOfGeneratedFilePaths;
+        return r;
+    };
+
+    private synchronized ExecutorService getAspectParsingExecutor() {
+        if ((aspectParsingExecutor == null) && !parseOnCallingThread) {
+            int threadCount =
+                    Math.max(1, Math.min(MAX_ASPECT_PARSING_THREADS, Runtime.getRuntime().availableProcessors()));
+            AtomicInteger threadIndex = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "bzl-aspect-parser-" + threadIndex.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            // idle threads go away between imports
+            executor.allowCoreThreadTimeOut(true);
+            aspectParsingExecutor = executor;
+        }
+        return aspectParsingExecutor;
     }
 
     private static String getLogStr(BazelLabel target, String caller) {
@@ -445,18 +635,25 @@ public class BazelWorkspaceAspectProcessor {
 
     public static Map<BazelLabel, AspectTargetInfo> loadAspectFilePaths(List<String> aspectFilePaths)
             throws IOException, InterruptedException {
+        if (aspectFilePaths.size() == 0) {
+            return toBazelLabelMap(Collections.emptyMap(), 0);
+        }
+        return toBazelLabelMap(AspectTargetInfoFactory.loadAspectFilePaths(aspectFilePaths), aspectFilePaths.size());
+    }
+
+    private static Map<BazelLabel, AspectTargetInfo> toBazelLabelMap(Map<String, AspectTargetInfo> lToAtis,
+            int aspectFileCount) {
         Map<BazelLabel, AspectTargetInfo> bzToAtis = new HashMap<>();
 
-        if (aspectFilePaths.size() == 0) {
+        if (aspectFileCount == 0) {
             LOG.error(
                 "No results returned from running aspects. This normally means there is a build error in the BUILD file. "
                         + "Please run 'bazel build //...' to verify that the workspace is valid. ");
             return bzToAtis;
         }
 
-        Map<String, AspectTargetInfo> lToAtis = AspectTargetInfoFactory.loadAspectFilePaths(aspectFilePaths);
         if (lToAtis.isEmpty()) {
-            LOG.error("No aspect files were parsed successfully. Aspect file list size: " + aspectFilePaths.size());
+            LOG.error("No aspect files were parsed successfully. Aspect file list size: " + aspectFileCount);
             return bzToAtis;
         }
         for (Map.Entry<String, AspectTargetInfo> e : lToAtis.entrySet()) {
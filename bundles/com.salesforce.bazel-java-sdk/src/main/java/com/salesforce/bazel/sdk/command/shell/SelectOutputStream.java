@@ -36,27 +36,38 @@
 
 package com.salesforce.bazel.sdk.command.shell;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
-import java.util.LinkedList;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
  * A wrapper output stream to output part of the result to a given output and extracting the other part with a selector
  * function. The other part is return as a list of string.
+ * <p>
+ * Bulk writes are split into lines directly on the incoming byte array. A line that is fully contained in a single
+ * write is never copied into the partial line buffer, and unselected lines are kept as raw bytes and only decoded if
+ * they are requested via {@link #getOutputLines()}.
  */
 public class SelectOutputStream extends OutputStream {
 
+    private static final int INITIAL_LINE_BUFFER_SIZE = 256;
+
     private final OutputStream output;
     private final Function<String, String> selector;
+    private final Consumer<String> selectedLineConsumer;
     private boolean closed = false;
-    private final List<String> lines = new LinkedList<>();
-    private final List<String> outputLines = new LinkedList<>();
-    private final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    private final List<String> lines = new ArrayList<>();
+    private final List<byte[]> outputLines = new ArrayList<>();
+
+    // bytes of the current line that were not terminated by a newline in the write that delivered them
+    private byte[] lineBuffer = new byte[INITIAL_LINE_BUFFER_SIZE];
+    private int lineLength = 0;
 
     /**
      * Create a SelectOutputStream. <code>output<code> is the output stream where non-selected lines
@@ -70,40 +81,106 @@ public class SelectOutputStream extends OutputStream {
      * will be discarded. If <code>selector</code> is null, all lines will be considered as unselected.
      */
     public SelectOutputStream(OutputStream output, Function<String, String> selector) {
+        this(output, selector, null);
+    }
+
+    /**
+     * Create a SelectOutputStream that passes each selected line to <code>selectedLineConsumer</code> as soon as the
+     * line is complete, instead of storing it for {@link #getLines()}. If <code>selectedLineConsumer</code> is null,
+     * this behaves like {@link #SelectOutputStream(OutputStream, Function)}.
+     */
+    public SelectOutputStream(OutputStream output, Function<String, String> selector,
+            Consumer<String> selectedLineConsumer) {
         super();
         this.output = output;
         this.selector = selector;
+        this.selectedLineConsumer = selectedLineConsumer == null ? lines::add : selectedLineConsumer;
     }
 
     @Override
     public void write(int b) throws IOException {
+        checkNotClosed();
+        byte b0 = (byte) b;
+        appendToLineBuffer(b0);
+        if (b0 == '\n') {
+            selectLineBuffer(true);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkNotClosed();
+        if ((off < 0) || (len < 0) || (len > (b.length - off))) {
+            throw new IndexOutOfBoundsException();
+        }
+        int end = off + len;
+        int lineStart = off;
+        for (int i = off; i < end; i++) {
+            if (b[i] != '\n') {
+                continue;
+            }
+            if (lineLength == 0) {
+                // the whole line is in the caller's buffer, select it in place
+                select(b, lineStart, i - lineStart, true);
+            } else {
+                appendToLineBuffer(b, lineStart, (i + 1) - lineStart);
+                selectLineBuffer(true);
+            }
+            lineStart = i + 1;
+        }
+        if (lineStart < end) {
+            appendToLineBuffer(b, lineStart, end - lineStart);
+        }
+    }
+
+    private void checkNotClosed() {
         if (closed) {
             throw new IllegalStateException("Attempted to write on a closed stream");
         }
-        byte b0 = (byte) b;
-        if (b0 == '\n') {
-            select(true);
-        } else {
-            stream.write(b);
+    }
+
+    private void appendToLineBuffer(byte b) {
+        ensureLineBufferCapacity(lineLength + 1);
+        lineBuffer[lineLength++] = b;
+    }
+
+    private void appendToLineBuffer(byte[] b, int off, int len) {
+        ensureLineBufferCapacity(lineLength + len);
+        System.arraycopy(b, off, lineBuffer, lineLength, len);
+        lineLength += len;
+    }
+
+    private void ensureLineBufferCapacity(int capacity) {
+        if (capacity > lineBuffer.length) {
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.max(capacity, lineBuffer.length * 2));
         }
     }
 
-    private void select(boolean appendNewLine) throws UnsupportedEncodingException, IOException {
+    /**
+     * Selects the content of the line buffer. If terminated, the last byte of the buffer is the newline.
+     */
+    private void selectLineBuffer(boolean terminated) throws IOException {
+        select(lineBuffer, 0, terminated ? lineLength - 1 : lineLength, terminated);
+        lineLength = 0;
+    }
+
+    /**
+     * Selects the line stored in <code>b</code> from <code>off</code> for <code>len</code> bytes. If
+     * <code>terminated</code> is true, the byte right after the line is the newline that ended it.
+     */
+    private void select(byte[] b, int off, int len, boolean terminated) throws IOException {
         String line = null;
         if (selector != null) {
-            line = selector.apply(stream.toString(StandardCharsets.UTF_8.name()));
+            line = selector.apply(new String(b, off, len, StandardCharsets.UTF_8));
         }
 
         if (line != null) {
-            lines.add(line);
+            selectedLineConsumer.accept(line);
         } else if (output != null) {
-            if (appendNewLine) {
-                stream.write('\n');
-            }
-            output.write(stream.toByteArray());
-            outputLines.add(stream.toString(StandardCharsets.UTF_8.name()));
+            int outputLength = terminated ? len + 1 : len;
+            output.write(b, off, outputLength);
+            outputLines.add(Arrays.copyOfRange(b, off, off + outputLength));
         }
-        stream.reset();
     }
 
     @Override
@@ -112,21 +189,31 @@ public class SelectOutputStream extends OutputStream {
             throw new IllegalStateException("Attempted to close a closed stream");
         }
         super.close();
-        select(false);
+        selectLineBuffer(false);
         closed = true;
     }
 
     /**
-     * Returns the list of selected lines.
+     * Returns the list of selected lines. Always empty if a selected line consumer was provided.
      */
     List<String> getLines() {
         return lines;
     }
 
     /**
-     * Returns the list of output lines.
+     * Returns the list of output lines. Each line is decoded when it is accessed.
      */
     List<String> getOutputLines() {
-        return outputLines;
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return new String(outputLines.get(index), StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public int size() {
+                return outputLines.size();
+            }
+        };
     }
 }
@@ -45,6 +45,11 @@ import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import com.salesforce.bazel.sdk.command.BazelProcessBuilder;
@@ -90,8 +95,14 @@ public final class ShellCommand implements Command {
 
     private boolean executed = false;
 
+    // stream metrics, available once the command has run
+    private long stdoutBytes = 0;
+    private long stderrBytes = 0;
+    private long streamDrainMillis = 0;
+
     ShellCommand(CommandConsole console, File directory, List<String> args, Function<String, String> stdoutSelector,
-            Function<String, String> stderrSelector, OutputStream stdout, OutputStream stderr,
+            Function<String, String> stderrSelector, Consumer<String> stdoutLineConsumer,
+            Consumer<String> stderrLineConsumer, OutputStream stdout, OutputStream stderr,
             WorkProgressMonitor progressMonitor, long timeoutMS, ShellEnvironment shellEnvironment) {
         this.directory = directory;
         this.args = args;
@@ -104,8 +115,8 @@ public final class ShellCommand implements Command {
                 stderr = console.createErrorStream();
             }
         }
-        this.stderr = new SelectOutputStream(stderr, stderrSelector);
-        this.stdout = new SelectOutputStream(stdout, stdoutSelector);
+        this.stderr = new SelectOutputStream(stderr, stderrSelector, stderrLineConsumer);
+        this.stdout = new SelectOutputStream(stdout, stdoutSelector, stdoutLineConsumer);
         this.progressMonitor = progressMonitor;
         this.timeoutMS = timeoutMS;
 
@@ -184,15 +195,14 @@ public final class ShellCommand implements Command {
         boolean success = false;
 
         try {
-            Thread err = copyStream(process.getErrorStream(), stderr);
-            Thread out = copyStream(process.getInputStream(), stdout);
+            ShellStreamPump pump = ShellStreamPump.getDefault();
+            Future<Long> err = copyStream(pump, process.getErrorStream(), stderr);
+            Future<Long> out = copyStream(pump, process.getInputStream(), stdout);
             int exitCode = process.waitFor();
-            if (err != null) {
-                err.join(timeoutMS);
-            }
-            if (out != null) {
-                out.join(timeoutMS);
-            }
+            long exitTimeMS = System.currentTimeMillis();
+            stderrBytes = awaitStream(err, timeoutMS);
+            stdoutBytes = awaitStream(out, timeoutMS);
+            streamDrainMillis = System.currentTimeMillis() - exitTimeMS;
             success = exitCode == 0;
             return exitCode;
         } catch (InterruptedException interrupted) {
@@ -210,6 +220,8 @@ public final class ShellCommand implements Command {
             // report results to console
             long elapsedTimeMS = System.currentTimeMillis() - startTimeMS;
             LOG.info("Finished command ({} millis) (success={}): {}", elapsedTimeMS, success, command);
+            LOG.debug("Command streams: stdout {} bytes, stderr {} bytes, drained {} millis after exit", stdoutBytes,
+                stderrBytes, streamDrainMillis);
 
             if (LOG.getLevel() <= LOG_LEVEL_FOR_STDOUTERR) {
                 StringBuffer stdoutBuffer = new StringBuffer();
@@ -241,38 +253,30 @@ public final class ShellCommand implements Command {
         } catch (Exception ignore) {}
     }
 
-    private static class CopyStreamRunnable implements Runnable {
-        private final InputStream inputStream;
-        private final OutputStream outputStream;
-
-        CopyStreamRunnable(InputStream inputStream, OutputStream outputStream) {
-            this.inputStream = inputStream;
-            this.outputStream = outputStream;
-        }
-
-        @Override
-        public void run() {
-            byte[] buffer = new byte[4096];
-            int read;
-            try {
-                while ((read = inputStream.read(buffer)) > 0) {
-                    outputStream.write(buffer, 0, read);
-                }
-            } catch (Exception ex) {
-                LOG.error("Error writing command stream to the channel.", ex);
-                // we simply terminate the thread on exceptions
-            }
+    // Start copying all data from inputStream to outputStream on the shared stream pump
+    private static Future<Long> copyStream(ShellStreamPump pump, InputStream inputStream, OutputStream outputStream) {
+        if (outputStream != null) {
+            return pump.pump(inputStream, outputStream);
         }
+        return null;
     }
 
-    // Launch a thread to copy all data from inputStream to outputStream
-    private static Thread copyStream(InputStream inputStream, OutputStream outputStream) {
-        if (outputStream != null) {
-            Thread t = new Thread(new CopyStreamRunnable(inputStream, outputStream), "CopyStream");
-            t.start();
-            return t;
+    // Wait for a stream copy to finish, returns the number of bytes copied or -1 if not known
+    private static long awaitStream(Future<Long> copy, long timeoutMS) throws InterruptedException {
+        if (copy == null) {
+            return -1;
         }
-        return null;
+        try {
+            if (timeoutMS > 0) {
+                return copy.get(timeoutMS, TimeUnit.MILLISECONDS);
+            }
+            return copy.get();
+        } catch (TimeoutException te) {
+            LOG.warn("Timed out after {} millis waiting for the command stream to be copied.", timeoutMS);
+        } catch (ExecutionException ee) {
+            LOG.error("Error copying the command stream.", ee.getCause());
+        }
+        return -1;
     }
 
     /**
@@ -297,6 +301,27 @@ public final class ShellCommand implements Command {
         return stdout.getLines();
     }
 
+    /**
+     * Returns the number of bytes the command wrote to its standard output stream, or -1 if not known.
+     */
+    public long getStdoutBytes() {
+        return stdoutBytes;
+    }
+
+    /**
+     * Returns the number of bytes the command wrote to its standard error stream, or -1 if not known.
+     */
+    public long getStderrBytes() {
+        return stderrBytes;
+    }
+
+    /**
+     * Returns the time between the exit of the process and the end of the copy of its output streams.
+     */
+    public long getStreamDrainMillis() {
+        return streamDrainMillis;
+    }
+
     /**
      * Returns a {@link CommandBuilder} object to use to create a {@link ShellCommand} object.
      */
@@ -57,8 +57,8 @@ public class ShellCommandBuilder extends CommandBuilder {
         CommandConsole console = consoleName == null ? null : consoleFactory.get(consoleName,
             "Running " + String.join(" ", args) + " from " + directory.toString());
 
-        ShellCommand command = new ShellCommand(console, directory, args, stdoutSelector, stderrSelector, stdout,
-                stderr, progressMonitor, timeoutMS, shellEnvironment);
+        ShellCommand command = new ShellCommand(console, directory, args, stdoutSelector, stderrSelector,
+                stdoutLineConsumer, stderrLineConsumer, stdout, stderr, progressMonitor, timeoutMS, shellEnvironment);
 
         return command;
     }
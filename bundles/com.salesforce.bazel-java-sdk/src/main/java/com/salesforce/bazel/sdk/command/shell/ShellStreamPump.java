@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command.shell;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.salesforce.bazel.sdk.logging.LogHelper;
+
+/**
+ * Copies the stdout/stderr streams of spawned processes to their destination output streams, using a shared pool of
+ * daemon threads instead of creating two new threads for every command.
+ * <p>
+ * A pump task must start right away, otherwise the process can block on a full pipe. So the pool does not queue
+ * tasks: if all pooled threads are busy, the task runs on a dedicated overflow thread, which is what every command did
+ * before the pool existed. Idle pooled threads expire after a minute.
+ * <p>
+ * Java process streams are not selectable channels, so a single reader multiplexing both streams is not possible
+ * without busy polling; each stream gets its own (pooled) thread.
+ */
+public class ShellStreamPump {
+    private static final LogHelper LOG = LogHelper.log(ShellStreamPump.class);
+
+    public static final int DEFAULT_MAX_THREADS = 32;
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final long HANDOFF_WAIT_MILLIS = 20;
+
+    private static volatile ShellStreamPump defaultPump;
+
+    private final ThreadPoolExecutor executor;
+    private volatile int bufferSize;
+
+    // metrics
+    private final AtomicLong numberOfPumps = new AtomicLong();
+    private final AtomicLong numberOfOverflowThreads = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong totalCopyMillis = new AtomicLong();
+
+    public ShellStreamPump() {
+        this(DEFAULT_MAX_THREADS, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param maxThreads
+     *            the number of pooled threads, each pumping one stream at a time
+     * @param bufferSize
+     *            the size of the buffer used to copy each stream
+     */
+    public ShellStreamPump(int maxThreads, int bufferSize) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("The stream pump needs at least one thread.");
+        }
+        setBufferSize(bufferSize);
+        AtomicInteger threadIndex = new AtomicInteger();
+        AtomicInteger overflowIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "bzl-stream-pump-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, (r, e) -> {
+                    if (!handOffToPooledThread(e, r)) {
+                        numberOfOverflowThreads.incrementAndGet();
+                        Thread t = new Thread(r, "bzl-stream-pump-overflow-" + overflowIndex.incrementAndGet());
+                        t.setDaemon(true);
+                        t.start();
+                    }
+                });
+        // idle threads go away between imports
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * A pooled thread that just finished a copy may not be waiting for work yet, so give it a moment before
+     * resorting to an overflow thread.
+     */
+    private static boolean handOffToPooledThread(ThreadPoolExecutor executor, Runnable task) {
+        try {
+            return executor.getQueue().offer(task, HANDOFF_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the pump shared by all {@link ShellCommand}s.
+     */
+    public static ShellStreamPump getDefault() {
+        if (defaultPump == null) {
+            synchronized (ShellStreamPump.class) {
+                if (defaultPump == null) {
+                    defaultPump = new ShellStreamPump();
+                }
+            }
+        }
+        return defaultPump;
+    }
+
+    /**
+     * Replaces the pump shared by all {@link ShellCommand}s. The previous pump is not shut down, as commands may still
+     * be using it; its idle threads expire on their own.
+     */
+    public static void setDefault(ShellStreamPump pump) {
+        synchronized (ShellStreamPump.class) {
+            defaultPump = pump;
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the size of the buffer used by pump tasks started after this call.
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("The stream pump buffer size must be positive.");
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Starts copying all data from inputStream to outputStream. The returned future completes with the number of bytes
+     * copied once the input stream is exhausted. The output stream is not closed.
+     */
+    public Future<Long> pump(InputStream inputStream, OutputStream outputStream) {
+        int size = bufferSize;
+        FutureTask<Long> task = new FutureTask<>(() -> copy(inputStream, outputStream, size));
+        numberOfPumps.incrementAndGet();
+        executor.execute(task);
+        return task;
+    }
+
+    private long copy(InputStream inputStream, OutputStream outputStream, int size) {
+        long startTimeMS = System.currentTimeMillis();
+        byte[] buffer = new byte[size];
+        long count = 0;
+        int read;
+        try {
+            while ((read = inputStream.read(buffer)) > 0) {
+                outputStream.write(buffer, 0, read);
+                count += read;
+            }
+        } catch (Exception ex) {
+            LOG.error("Error writing command stream to the channel.", ex);
+            // keep reading so that the process does not block on a full pipe
+            drain(inputStream, buffer);
+        }
+        totalBytes.addAndGet(count);
+        totalCopyMillis.addAndGet(System.currentTimeMillis() - startTimeMS);
+        return count;
+    }
+
+    private static void drain(InputStream inputStream, byte[] buffer) {
+        try {
+            while (inputStream.read(buffer) > 0) {
+                // discard
+            }
+        } catch (Exception ignore) {}
+    }
+
+    // METRICS
+
+    /**
+     * Number of streams pumped since this pump was created.
+     */
+    public long getNumberOfPumps() {
+        return numberOfPumps.get();
+    }
+
+    /**
+     * Number of pump tasks that could not get a pooled thread and ran on a dedicated thread instead.
+     */
+    public long getNumberOfOverflowThreads() {
+        return numberOfOverflowThreads.get();
+    }
+
+    /**
+     * Total number of bytes copied, across all streams.
+     */
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * Total time spent in pump tasks, from start until the input stream was exhausted, across all streams.
+     */
+    public long getTotalCopyMillis() {
+        return totalCopyMillis.get();
+    }
+
+    /**
+     * Number of pooled threads currently alive.
+     */
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+}
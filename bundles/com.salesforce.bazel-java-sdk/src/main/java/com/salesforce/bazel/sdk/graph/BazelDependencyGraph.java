@@ -33,6 +33,10 @@
  */
 package com.salesforce.bazel.sdk.graph;
 
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -162,4 +166,47 @@ public abstract class BazelDependencyGraph {
     public abstract boolean isDependency(String label, String possibleDependency, Map<String, Boolean> depCache,
             boolean followExternalTransitives);
 
+    /**
+     * Returns all labels that the passed label depends on, directly or transitively. If the label is on a dependency
+     * cycle, it is included in the result.
+     * <p>
+     * This default implementation traverses the dependsOn map on each call, implementations are encouraged to
+     * override it with a memoized version.
+     */
+    public Set<String> getTransitiveDependencies(String label) {
+        return traverse(label, getDependsOnMap());
+    }
+
+    /**
+     * Returns all labels that depend on the passed label, directly or transitively (the reverse dependencies, or
+     * rdeps). If the label is on a dependency cycle, it is included in the result.
+     * <p>
+     * This default implementation traverses the usedBy map on each call, implementations are encouraged to override
+     * it with a memoized version.
+     */
+    public Set<String> getTransitiveDependents(String label) {
+        return traverse(label, getUsedByMap());
+    }
+
+    /**
+     * Iterative (not recursive) traversal, so that deep dependency chains cannot overflow the stack.
+     */
+    private static Set<String> traverse(String label, Map<String, Set<String>> edges) {
+        Set<String> reached = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(label);
+        while (!pending.isEmpty()) {
+            Set<String> next = edges.get(pending.poll());
+            if (next == null) {
+                continue;
+            }
+            for (String nextLabel : next) {
+                if (reached.add(nextLabel)) {
+                    pending.add(nextLabel);
+                }
+            }
+        }
+        return Collections.unmodifiableSet(reached);
+    }
+
 }
@@ -47,6 +47,8 @@ public class BazelDependencyGraphFactory {
      */
     public static List<BazelDependencyGraphBuilder> builders = new ArrayList<>();
     static {
+        // the compact graph is only built if the caller asks for it with the CompactDependencyGraphBuilder.OPTION_COMPACT
+        builders.add(new CompactDependencyGraphBuilder());
         // unless the user configures a custom graph impl, the default inmemory graph will be built
         builders.add(new InMemoryDependencyGraphBuilder());
     }
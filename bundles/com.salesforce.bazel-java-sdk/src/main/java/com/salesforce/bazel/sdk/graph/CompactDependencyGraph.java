@@ -0,0 +1,686 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.salesforce.bazel.sdk.logging.LogHelper;
+import com.salesforce.bazel.sdk.model.BazelLabel;
+import com.salesforce.bazel.sdk.model.BazelPackageLocation;
+
+/**
+ * A BazelDependencyGraph implementation intended for large workspaces (thousands of packages). Labels are interned to
+ * int ids as they are added, and the edges are stored in primitive arrays. On the first lookup after a modification,
+ * the edges are compacted into forward and reverse adjacency arrays (compressed sparse row form), which all of the
+ * analysis operations then work from.
+ * <p>
+ * Ordering is done with Kahn's algorithm, so it is linear in the size of the part of the graph reachable from the
+ * selected labels. Unlike the InMemoryDependencyGraph, cycles are reported explicitly: they are logged as errors, and
+ * are available from {@link #getDetectedCycles()} and {@link #findCycles()}.
+ * <p>
+ * Transitive closures (see {@link #getTransitiveDependencies(String)} and {@link #getTransitiveDependents(String)})
+ * are computed as bitsets, reusing the closures already computed for other labels, and are memoized until the graph is
+ * next modified.
+ * <p>
+ * The graph uses the same label granularity as the InMemoryDependencyGraph, see the CAVEAT in that class. It is not
+ * thread safe.
+ */
+public class CompactDependencyGraph extends BazelDependencyGraph {
+
+    private static final LogHelper LOG = LogHelper.log(CompactDependencyGraph.class);
+
+    // label interning
+    private final Map<String, Integer> labelIds = new HashMap<>();
+    private final List<String> labels = new ArrayList<>();
+
+    // edges in the order they were added (source -> dep), possibly with duplicates
+    private int[] edgeSources = new int[1024];
+    private int[] edgeDeps = new int[1024];
+    private int edgeCount = 0;
+
+    // incremented on every modification, the derived data below is rebuilt when it is stale
+    private int generation = 0;
+    private int frozenGeneration = -1;
+
+    // compacted adjacency: the deps of node n are depTargets[depOffsets[n]..depOffsets[n+1]), usedBy likewise
+    private int[] depOffsets;
+    private int[] depTargets;
+    private int[] usedByOffsets;
+    private int[] usedByTargets;
+    private boolean[] externals;
+
+    // lazily derived lookups, built from the compacted adjacency
+    private Set<String> rootLabels;
+    private Set<String> leafLabels;
+    private Set<String> leafLabelsIgnoreExternals;
+    private Map<String, Set<String>> dependsOnMap;
+    private Map<String, Set<String>> usedByMap;
+
+    // transitive closures, memoized per generation; indexed by label id
+    private BitSet[] dependencyClosures;
+    private BitSet[] dependentClosures;
+    private final Map<String, Set<String>> transitiveDependencies = new HashMap<>();
+    private final Map<String, Set<String>> transitiveDependents = new HashMap<>();
+
+    // cycles found by the last ordering
+    private List<List<String>> detectedCycles = Collections.emptyList();
+
+    /**
+     * Callers should use the factories to construct the graph.
+     */
+    public CompactDependencyGraph() {}
+
+    // CONSTRUCTION
+
+    @Override
+    public void addDependency(String sourceLabel, String depLabel) {
+        int sourceId = intern(sourceLabel);
+        int depId = intern(depLabel);
+        if (edgeCount == edgeSources.length) {
+            edgeSources = Arrays.copyOf(edgeSources, edgeCount * 2);
+            edgeDeps = Arrays.copyOf(edgeDeps, edgeCount * 2);
+        }
+        edgeSources[edgeCount] = sourceId;
+        edgeDeps[edgeCount] = depId;
+        edgeCount++;
+        generation++;
+    }
+
+    private int intern(String label) {
+        Integer id = labelIds.get(label);
+        if (id == null) {
+            id = labels.size();
+            labelIds.put(label, id);
+            labels.add(label);
+        }
+        return id;
+    }
+
+    /**
+     * Returns a number that changes each time the graph is modified. Callers that cache results derived from the graph
+     * can use this to know when to discard them.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Number of distinct labels in the graph.
+     */
+    public int getLabelCount() {
+        return labels.size();
+    }
+
+    // ACCESSORS
+
+    /**
+     * Provides a map for tracking forward deps. The key is the label as a string, and the value is the set of
+     * dependencies (as labels) for the source. The map is built on demand and is not modifiable.
+     */
+    @Override
+    public Map<String, Set<String>> getDependsOnMap() {
+        freeze();
+        if (dependsOnMap == null) {
+            dependsOnMap = toLabelMap(depOffsets, depTargets);
+        }
+        return dependsOnMap;
+    }
+
+    /**
+     * Provides a map for tracking reverse deps. The key is the label as a string, and the value is the set of sources
+     * (as labels) that depend on the label. The map is built on demand and is not modifiable.
+     */
+    @Override
+    public Map<String, Set<String>> getUsedByMap() {
+        freeze();
+        if (usedByMap == null) {
+            usedByMap = toLabelMap(usedByOffsets, usedByTargets);
+        }
+        return usedByMap;
+    }
+
+    @Override
+    public Set<String> getRootLabels() {
+        freeze();
+        return rootLabels;
+    }
+
+    @Override
+    public Set<String> getLeafLabels() {
+        freeze();
+        return leafLabels;
+    }
+
+    /**
+     * Returns the set of labels that exist as dependencies to other labels in the workspace, and do not have any
+     * dependencies on other labels. If A depends on B, which depends on C, this method will return C.
+     * <p>
+     * If ignoreExternals is true, external labels (e.g. @maven//:com_spring_etc) are never leaves, and a local label
+     * that only depends on external labels is considered a leaf.
+     */
+    @Override
+    public Set<String> getLeafLabels(boolean ignoreExternals) {
+        freeze();
+        if (ignoreExternals) {
+            return leafLabelsIgnoreExternals;
+        }
+        return leafLabels;
+    }
+
+    /**
+     * Returns the cycles found by the most recent call to one of the orderLabels() methods. Each cycle is returned as
+     * the list of labels on it, such that each label depends on the next one, and the last one depends on the first.
+     */
+    public List<List<String>> getDetectedCycles() {
+        return detectedCycles;
+    }
+
+    // ANALYSIS
+
+    @Override
+    public List<BazelPackageLocation> orderLabels(Set<BazelPackageLocation> selectedLabels) {
+        return orderLabels(new ArrayList<>(selectedLabels), true);
+    }
+
+    @Override
+    public List<BazelPackageLocation> orderLabels(List<BazelPackageLocation> selectedLabels) {
+        return orderLabels(selectedLabels, true);
+    }
+
+    /**
+     * Using the computed dependency graph, order the passed labels such that no label appears in the list prior to any
+     * label it depends on, directly or transitively. When there are multiple valid orders, the one that is closest to
+     * the order of the passed labels is chosen.
+     * <p>
+     * Labels that are on a dependency cycle, or that depend on one, cannot be ordered. They are added to the end of the
+     * list in the order they were passed, and the cycles are logged and made available from
+     * {@link #getDetectedCycles()}.
+     * <p>
+     * Pass false to followExternalTransitives to avoid navigating into the dependency graph of the external
+     * dependencies (e.g. maven).
+     */
+    @Override
+    public List<BazelPackageLocation> orderLabels(List<BazelPackageLocation> selectedLabels,
+            boolean followExternalTransitives) {
+        freeze();
+        int labelCount = labels.size();
+
+        // selected labels that are not in the graph get ids past the end of the graph, they have no edges
+        Map<String, Integer> unknownIds = new HashMap<>();
+        int[] selectedIds = new int[selectedLabels.size()];
+        for (int i = 0; i < selectedIds.length; i++) {
+            String name = selectedLabels.get(i).getBazelPackageName();
+            Integer id = labelIds.get(name);
+            if (id == null) {
+                id = unknownIds.get(name);
+                if (id == null) {
+                    id = labelCount + unknownIds.size();
+                    unknownIds.put(name, id);
+                }
+            }
+            selectedIds[i] = id;
+        }
+        int total = labelCount + unknownIds.size();
+
+        // rank each node reachable from the selection with the index of the first selected label that reaches it,
+        // processing ready nodes by rank is what keeps the result close to the passed order
+        int[] rank = new int[total];
+        Arrays.fill(rank, -1);
+        int[] stack = new int[total];
+        for (int i = 0; i < selectedIds.length; i++) {
+            if (rank[selectedIds[i]] >= 0) {
+                continue;
+            }
+            rank[selectedIds[i]] = i;
+            int top = 0;
+            stack[top++] = selectedIds[i];
+            while (top > 0) {
+                int node = stack[--top];
+                if (!isExpanded(node, followExternalTransitives)) {
+                    continue;
+                }
+                for (int e = depOffsets[node]; e < depOffsets[node + 1]; e++) {
+                    int dep = depTargets[e];
+                    if (rank[dep] < 0) {
+                        rank[dep] = i;
+                        stack[top++] = dep;
+                    }
+                }
+            }
+        }
+
+        int[] remainingDeps = new int[total];
+        int[] order = topologicalOrder(rank, Math.max(1, selectedIds.length), followExternalTransitives,
+            remainingDeps);
+
+        // map the ordered nodes back to the selection, allowing for duplicates in the selection
+        int[] positionInOrder = new int[total];
+        Arrays.fill(positionInOrder, Integer.MAX_VALUE);
+        for (int i = 0; i < order.length; i++) {
+            positionInOrder[order[i]] = i;
+        }
+        Integer[] selectionIndexes = new Integer[selectedIds.length];
+        for (int i = 0; i < selectionIndexes.length; i++) {
+            selectionIndexes[i] = i;
+        }
+        // stable sort, so unorderable labels (position MAX_VALUE) stay in the passed order at the end
+        Arrays.sort(selectionIndexes, (a, b) -> Integer.compare(positionInOrder[selectedIds[a]],
+            positionInOrder[selectedIds[b]]));
+
+        List<BazelPackageLocation> orderedLabels = new ArrayList<>(selectedIds.length);
+        for (Integer index : selectionIndexes) {
+            orderedLabels.add(selectedLabels.get(index));
+        }
+
+        detectedCycles = Collections.emptyList();
+        for (int selectedId : selectedIds) {
+            if (remainingDeps[selectedId] > 0) {
+                detectedCycles = extractCycles(rank, remainingDeps);
+                for (List<String> cycle : detectedCycles) {
+                    LOG.error("Dependency cycle detected while ordering labels: {} => {}. Labels on or above the "
+                            + "cycle cannot be ordered and were added in the order they were selected.",
+                        String.join(" => ", cycle), cycle.get(0));
+                }
+                break;
+            }
+        }
+        return orderedLabels;
+    }
+
+    /**
+     * Finds the cycles in the entire graph. Each cycle is returned as the list of labels on it, such that each label
+     * depends on the next one, and the last one depends on the first. Each cycle is reported once, but where cycles
+     * overlap not every cycle is guaranteed to be reported.
+     */
+    public List<List<String>> findCycles() {
+        freeze();
+        int[] rank = new int[labels.size()];
+        int[] remainingDeps = new int[labels.size()];
+        topologicalOrder(rank, 1, true, remainingDeps);
+        return extractCycles(rank, remainingDeps);
+    }
+
+    @Override
+    public boolean isDependency(String label, String possibleDependency) {
+        return isDependency(label, possibleDependency, null, true);
+    }
+
+    @Override
+    public boolean isDependency(String label, String possibleDependency, Map<String, Boolean> depCache) {
+        return isDependency(label, possibleDependency, depCache, true);
+    }
+
+    @Override
+    public boolean isDependency(String label, String possibleDependency, Map<String, Boolean> depCache,
+            boolean followExternalTransitives) {
+        String cacheKey = null;
+        if (depCache != null) {
+            cacheKey = label + "~" + possibleDependency;
+            Boolean cacheValue = depCache.get(cacheKey);
+            if (cacheValue != null) {
+                return cacheValue;
+            }
+        }
+
+        boolean isDep = false;
+        Integer labelId = labelIds.get(label);
+        Integer possibleDependencyId = labelIds.get(possibleDependency);
+        if ((labelId != null) && (possibleDependencyId != null)) {
+            isDep = isDependency(labelId, possibleDependencyId, followExternalTransitives);
+        }
+
+        if (depCache != null) {
+            depCache.put(cacheKey, isDep);
+        }
+        return isDep;
+    }
+
+    /**
+     * Returns all labels that the passed label depends on, directly or transitively. The result is memoized until the
+     * graph is next modified, and is not modifiable.
+     */
+    @Override
+    public Set<String> getTransitiveDependencies(String label) {
+        freeze();
+        return transitiveLabels(label, depOffsets, depTargets, dependencyClosures, transitiveDependencies);
+    }
+
+    /**
+     * Returns all labels that depend on the passed label, directly or transitively. The result is memoized until the
+     * graph is next modified, and is not modifiable.
+     */
+    @Override
+    public Set<String> getTransitiveDependents(String label) {
+        freeze();
+        return transitiveLabels(label, usedByOffsets, usedByTargets, dependentClosures, transitiveDependents);
+    }
+
+    // INTERNALS
+
+    private Set<String> transitiveLabels(String label, int[] offsets, int[] targets, BitSet[] closures,
+            Map<String, Set<String>> cache) {
+        Set<String> result = cache.get(label);
+        if (result == null) {
+            Integer labelId = labelIds.get(label);
+            if (labelId == null) {
+                return Collections.emptySet();
+            }
+            BitSet closure = closure(labelId, offsets, targets, closures);
+            Set<String> labelSet = new LinkedHashSet<>();
+            for (int id = closure.nextSetBit(0); id >= 0; id = closure.nextSetBit(id + 1)) {
+                labelSet.add(labels.get(id));
+            }
+            result = Collections.unmodifiableSet(labelSet);
+            cache.put(label, result);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the set of nodes reachable from the passed node, iteratively. When the traversal reaches a node whose
+     * closure is already known, that closure is merged in whole rather than traversed again.
+     */
+    private BitSet closure(int node, int[] offsets, int[] targets, BitSet[] closures) {
+        BitSet closure = closures[node];
+        if (closure != null) {
+            return closure;
+        }
+        closure = new BitSet(labels.size());
+        int[] stack = new int[labels.size()];
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            int current = stack[--top];
+            for (int e = offsets[current]; e < offsets[current + 1]; e++) {
+                int target = targets[e];
+                if (closure.get(target)) {
+                    continue;
+                }
+                closure.set(target);
+                BitSet known = closures[target];
+                if (known != null) {
+                    closure.or(known);
+                } else {
+                    stack[top++] = target;
+                }
+            }
+        }
+        closures[node] = closure;
+        return closure;
+    }
+
+    private boolean isDependency(int labelId, int possibleDependencyId, boolean followExternalTransitives) {
+        freeze();
+        if (followExternalTransitives) {
+            return closure(labelId, depOffsets, depTargets, dependencyClosures).get(possibleDependencyId);
+        }
+        BitSet visited = new BitSet(labels.size());
+        int[] stack = new int[labels.size()];
+        int top = 0;
+        stack[top++] = labelId;
+        visited.set(labelId);
+        while (top > 0) {
+            int node = stack[--top];
+            if (!isExpanded(node, followExternalTransitives)) {
+                continue;
+            }
+            for (int e = depOffsets[node]; e < depOffsets[node + 1]; e++) {
+                int dep = depTargets[e];
+                if (dep == possibleDependencyId) {
+                    return true;
+                }
+                if (!visited.get(dep)) {
+                    visited.set(dep);
+                    stack[top++] = dep;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Nodes past the end of the graph are labels unknown to the graph. External nodes are not expanded unless asked.
+     */
+    private boolean isExpanded(int node, boolean followExternalTransitives) {
+        return (node < labels.size()) && (followExternalTransitives || !externals[node]);
+    }
+
+    /**
+     * Kahn's algorithm over the nodes with a rank (rank >= 0), emitting dependencies before the nodes that depend on
+     * them. The ready nodes are processed lowest rank first; because a node's rank is never higher than the rank of the
+     * nodes that depend on it, a bucket per rank with a forward moving cursor is enough.
+     * <p>
+     * On return, remainingDeps is non-zero for the nodes that could not be ordered because they are on, or depend on, a
+     * cycle. Those nodes are not in the returned order.
+     */
+    private int[] topologicalOrder(int[] rank, int rankCount, boolean followExternalTransitives,
+            int[] remainingDeps) {
+        int total = rank.length;
+        int[] bucketHeads = new int[rankCount];
+        int[] bucketTails = new int[rankCount];
+        Arrays.fill(bucketHeads, -1);
+        int[] next = new int[total];
+
+        for (int node = 0; node < total; node++) {
+            if ((rank[node] >= 0) && isExpanded(node, followExternalTransitives)) {
+                remainingDeps[node] = depOffsets[node + 1] - depOffsets[node];
+            }
+        }
+        for (int node = 0; node < total; node++) {
+            if ((rank[node] >= 0) && (remainingDeps[node] == 0)) {
+                enqueue(node, rank[node], bucketHeads, bucketTails, next);
+            }
+        }
+
+        int[] order = new int[total];
+        int orderCount = 0;
+        for (int cursor = 0; cursor < rankCount; cursor++) {
+            while (bucketHeads[cursor] >= 0) {
+                int node = bucketHeads[cursor];
+                bucketHeads[cursor] = next[node];
+                order[orderCount++] = node;
+                if (node >= labels.size()) {
+                    continue;
+                }
+                for (int e = usedByOffsets[node]; e < usedByOffsets[node + 1]; e++) {
+                    int source = usedByTargets[e];
+                    if ((rank[source] >= 0) && isExpanded(source, followExternalTransitives)
+                            && (--remainingDeps[source] == 0)) {
+                        enqueue(source, rank[source], bucketHeads, bucketTails, next);
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(order, orderCount);
+    }
+
+    private static void enqueue(int node, int bucket, int[] bucketHeads, int[] bucketTails, int[] next) {
+        next[node] = -1;
+        if (bucketHeads[bucket] < 0) {
+            bucketHeads[bucket] = node;
+        } else {
+            next[bucketTails[bucket]] = node;
+        }
+        bucketTails[bucket] = node;
+    }
+
+    /**
+     * After a topological ordering, every node left with remaining deps has at least one dep that also has remaining
+     * deps. Walking those deps must therefore eventually revisit a node, which closes a cycle.
+     */
+    private List<List<String>> extractCycles(int[] rank, int[] remainingDeps) {
+        List<List<String>> cycles = new ArrayList<>();
+        int[] walkIds = new int[remainingDeps.length];
+        int walkId = 0;
+        List<Integer> path = new ArrayList<>();
+        for (int start = 0; start < remainingDeps.length; start++) {
+            if ((rank[start] < 0) || (remainingDeps[start] == 0) || (walkIds[start] != 0)) {
+                continue;
+            }
+            walkId++;
+            path.clear();
+            int node = start;
+            while (walkIds[node] == 0) {
+                walkIds[node] = walkId;
+                path.add(node);
+                node = firstRemainingDep(node, remainingDeps);
+            }
+            if (walkIds[node] == walkId) {
+                // the walk closed on itself, rather than running into a previously walked path
+                List<String> cycle = new ArrayList<>();
+                for (int i = path.indexOf(node); i < path.size(); i++) {
+                    cycle.add(labels.get(path.get(i)));
+                }
+                cycles.add(cycle);
+            }
+        }
+        return cycles;
+    }
+
+    private int firstRemainingDep(int node, int[] remainingDeps) {
+        for (int e = depOffsets[node]; e < depOffsets[node + 1]; e++) {
+            if (remainingDeps[depTargets[e]] > 0) {
+                return depTargets[e];
+            }
+        }
+        throw new IllegalStateException("Node " + labels.get(node) + " has remaining deps but none are unresolved");
+    }
+
+    /**
+     * Compacts the edges into the adjacency arrays, and derives the root/leaf label sets. This is done once per
+     * generation of the graph.
+     */
+    private void freeze() {
+        if (frozenGeneration == generation) {
+            return;
+        }
+        int labelCount = labels.size();
+
+        int[][] deps = toAdjacency(labelCount, edgeSources, edgeDeps, edgeCount);
+        depOffsets = deps[0];
+        depTargets = deps[1];
+        int[][] usedBy = toAdjacency(labelCount, edgeDeps, edgeSources, edgeCount);
+        usedByOffsets = usedBy[0];
+        usedByTargets = usedBy[1];
+
+        externals = new boolean[labelCount];
+        for (int node = 0; node < labelCount; node++) {
+            externals[node] = labels.get(node).startsWith(BazelLabel.BAZEL_EXTERNALREPO_AT);
+        }
+
+        Set<String> roots = new LinkedHashSet<>();
+        Set<String> leaves = new LinkedHashSet<>();
+        Set<String> leavesIgnoreExternals = new LinkedHashSet<>();
+        for (int node = 0; node < labelCount; node++) {
+            boolean hasDeps = depOffsets[node + 1] > depOffsets[node];
+            boolean isUsed = usedByOffsets[node + 1] > usedByOffsets[node];
+            if (hasDeps && !isUsed) {
+                roots.add(labels.get(node));
+            } else if (!hasDeps && isUsed) {
+                leaves.add(labels.get(node));
+            }
+            if (isUsed && !externals[node] && !hasLocalDeps(node)) {
+                leavesIgnoreExternals.add(labels.get(node));
+            }
+        }
+        rootLabels = Collections.unmodifiableSet(roots);
+        leafLabels = Collections.unmodifiableSet(leaves);
+        leafLabelsIgnoreExternals = Collections.unmodifiableSet(leavesIgnoreExternals);
+        dependsOnMap = null;
+        usedByMap = null;
+        dependencyClosures = new BitSet[labelCount];
+        dependentClosures = new BitSet[labelCount];
+        transitiveDependencies.clear();
+        transitiveDependents.clear();
+
+        frozenGeneration = generation;
+    }
+
+    private boolean hasLocalDeps(int node) {
+        for (int e = depOffsets[node]; e < depOffsets[node + 1]; e++) {
+            if (!externals[depTargets[e]]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the compressed sparse row form of the passed edges, with duplicate edges removed. Returns the offsets
+     * array (length nodeCount+1) and the targets array.
+     */
+    private static int[][] toAdjacency(int nodeCount, int[] from, int[] to, int count) {
+        int[] offsets = new int[nodeCount + 1];
+        for (int i = 0; i < count; i++) {
+            offsets[from[i] + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        int[] targets = new int[count];
+        int[] fill = Arrays.copyOf(offsets, nodeCount);
+        for (int i = 0; i < count; i++) {
+            targets[fill[from[i]]++] = to[i];
+        }
+
+        // sort each row and squeeze out the duplicates
+        int write = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            int start = offsets[node];
+            int end = offsets[node + 1];
+            offsets[node] = write;
+            Arrays.sort(targets, start, end);
+            for (int i = start; i < end; i++) {
+                if ((i == start) || (targets[i] != targets[i - 1])) {
+                    targets[write++] = targets[i];
+                }
+            }
+        }
+        offsets[nodeCount] = write;
+        return new int[][] { offsets, Arrays.copyOf(targets, write) };
+    }
+
+    private Map<String, Set<String>> toLabelMap(int[] offsets, int[] targets) {
+        Map<String, Set<String>> map = new TreeMap<>();
+        for (int node = 0; node < labels.size(); node++) {
+            if (offsets[node + 1] > offsets[node]) {
+                Set<String> values = new LinkedHashSet<>();
+                for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                    values.add(labels.get(targets[e]));
+                }
+                map.put(labels.get(node), Collections.unmodifiableSet(values));
+            }
+        }
+        return Collections.unmodifiableMap(map);
+    }
+}
@@ -23,15 +23,352 @@
  */
 package com.salesforce.bazel.sdk.index;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.salesforce.bazel.sdk.index.jvm.jar.JarIdentifier;
+import com.salesforce.bazel.sdk.index.model.ClassIdentifier;
+import com.salesforce.bazel.sdk.index.model.CodeLocationDescriptor;
+import com.salesforce.bazel.sdk.index.model.CodeLocationIdentifier;
+import com.salesforce.bazel.sdk.logging.LogHelper;
 
 /**
  * A code index can take some time to generate, so this class can persist/read the index to/from file.
- * TODO this is not implemented yet
+ * <p>
+ * The index is written in a compact binary form: a string table (package names, artifact names and paths repeat a
+ * lot), followed by each distinct CodeLocationDescriptor, followed by the three dictionaries which only reference
+ * descriptors by position. Reading the file back therefore restores the same sharing of descriptors between the
+ * artifactDictionary, fileDictionary and typeDictionary that the crawlers originally produced.
+ * <p>
+ * Each descriptor carries the size and last modified time of its file at crawl time, so an indexer can use a
+ * previously persisted index to only recrawl the files that have changed since.
  */
 public class CodeIndexPersister {
+    private static final LogHelper LOG = LogHelper.log(CodeIndexPersister.class);
+
+    public static final String DEFAULT_INDEX_NAME = "bzljavasdk-code-index";
+    public static final String INDEX_FILE_EXTENSION = ".idx";
+
+    // BZCI
+    static final int INDEX_FILE_MAGIC = 0x425A4349;
+    static final int INDEX_FILE_VERSION = 1;
+
+    private static final byte ID_KIND_PLAIN = 0;
+    private static final byte ID_KIND_JAR = 1;
+
+    private final File indexFile;
 
     public CodeIndexPersister(File outputDirectory) {
-        // TODO CodeIndexPersister is not implemented yet. Consider reusing the CodeIndexReport class, it does more or less what we need
+        this(outputDirectory, DEFAULT_INDEX_NAME);
+    }
+
+    /**
+     * @param outputDirectory
+     *            the directory that will contain the index file
+     * @param indexName
+     *            name of the index (e.g. the workspace name) which is used to derive the file name, so that multiple
+     *            indices can share a directory
+     */
+    public CodeIndexPersister(File outputDirectory, String indexName) {
+        indexFile = new File(outputDirectory, indexName + INDEX_FILE_EXTENSION);
+    }
+
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    // WRITE
+
+    /**
+     * Writes the index to file, replacing any previously written index. Failures are logged and reported via the
+     * return value; an index that cannot be persisted is just rebuilt next time.
+     */
+    public synchronized boolean write(CodeIndex index) {
+        File parentDir = indexFile.getParentFile();
+        if ((parentDir != null) && !parentDir.exists() && !parentDir.mkdirs()) {
+            LOG.error("Could not create the directory for the code index file {}", indexFile.getAbsolutePath());
+            return false;
+        }
+        File tempFile = new File(parentDir, indexFile.getName() + ".tmp");
+        try {
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024))) {
+                writeIndex(index, out);
+            }
+            // write then move, so that a crash while writing never leaves a truncated index behind
+            Files.move(tempFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ioe) {
+            LOG.error("Could not write the code index file {}", ioe, indexFile.getAbsolutePath());
+            tempFile.delete();
+            return false;
+        }
+        return true;
+    }
+
+    void writeIndex(CodeIndex index, DataOutputStream out) throws IOException {
+        // collect the distinct descriptors, in a stable order
+        Map<CodeLocationDescriptor, Integer> descriptorIds = new IdentityHashMap<>();
+        List<CodeLocationDescriptor> descriptors = new ArrayList<>();
+        collectDescriptors(index.artifactDictionary, descriptorIds, descriptors);
+        collectDescriptors(index.fileDictionary, descriptorIds, descriptors);
+        collectDescriptors(index.typeDictionary, descriptorIds, descriptors);
+
+        // build the string table
+        StringTable strings = new StringTable();
+        for (CodeLocationDescriptor descriptor : descriptors) {
+            strings.add(descriptor.locationOnDisk.getAbsolutePath());
+            if (descriptor.id instanceof JarIdentifier) {
+                JarIdentifier jarId = (JarIdentifier) descriptor.id;
+                strings.add(jarId.group);
+                strings.add(jarId.artifact);
+                strings.add(jarId.version);
+            } else {
+                strings.add(descriptor.id.locationIdentifier);
+            }
+            strings.add(descriptor.bazelLabel);
+            strings.add(descriptor.version);
+            if (descriptor.containedClasses != null) {
+                for (ClassIdentifier classId : descriptor.containedClasses) {
+                    strings.add(classId.packageName);
+                    strings.add(classId.classname);
+                }
+            }
+        }
+        strings.addKeys(index.artifactDictionary);
+        strings.addKeys(index.fileDictionary);
+        strings.addKeys(index.typeDictionary);
+
+        out.writeInt(INDEX_FILE_MAGIC);
+        out.writeInt(INDEX_FILE_VERSION);
+        out.writeUTF(getOptionsFingerprint(index));
+
+        out.writeInt(strings.values.size());
+        for (String value : strings.values) {
+            out.writeUTF(value);
+        }
+
+        out.writeInt(descriptors.size());
+        for (CodeLocationDescriptor descriptor : descriptors) {
+            out.writeInt(strings.indexOf(descriptor.locationOnDisk.getAbsolutePath()));
+            out.writeLong(descriptor.fileSize);
+            out.writeLong(descriptor.fileLastModified);
+            if (descriptor.id instanceof JarIdentifier) {
+                JarIdentifier jarId = (JarIdentifier) descriptor.id;
+                out.writeByte(ID_KIND_JAR);
+                out.writeInt(strings.indexOf(jarId.group));
+                out.writeInt(strings.indexOf(jarId.artifact));
+                out.writeInt(strings.indexOf(jarId.version));
+            } else {
+                out.writeByte(ID_KIND_PLAIN);
+                out.writeInt(strings.indexOf(descriptor.id.locationIdentifier));
+            }
+            out.writeInt(strings.indexOf(descriptor.bazelLabel));
+            out.writeInt(strings.indexOf(descriptor.version));
+            out.writeInt(descriptor.ageInDays);
+            if (descriptor.containedClasses == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(descriptor.containedClasses.size());
+                for (ClassIdentifier classId : descriptor.containedClasses) {
+                    out.writeInt(strings.indexOf(classId.packageName));
+                    out.writeInt(strings.indexOf(classId.classname));
+                }
+            }
+        }
+
+        writeDictionary(index.artifactDictionary, strings, descriptorIds, out);
+        writeDictionary(index.fileDictionary, strings, descriptorIds, out);
+        writeDictionary(index.typeDictionary, strings, descriptorIds, out);
+    }
+
+    private static void collectDescriptors(Map<String, CodeIndexEntry> dictionary,
+            Map<CodeLocationDescriptor, Integer> descriptorIds, List<CodeLocationDescriptor> descriptors) {
+        for (CodeIndexEntry entry : dictionary.values()) {
+            for (CodeLocationDescriptor descriptor : getLocations(entry)) {
+                if (!descriptorIds.containsKey(descriptor)) {
+                    descriptorIds.put(descriptor, descriptors.size());
+                    descriptors.add(descriptor);
+                }
+            }
+        }
+    }
+
+    private static void writeDictionary(Map<String, CodeIndexEntry> dictionary, StringTable strings,
+            Map<CodeLocationDescriptor, Integer> descriptorIds, DataOutputStream out) throws IOException {
+        out.writeInt(dictionary.size());
+        for (Map.Entry<String, CodeIndexEntry> dictionaryEntry : dictionary.entrySet()) {
+            out.writeInt(strings.indexOf(dictionaryEntry.getKey()));
+            List<CodeLocationDescriptor> locations = getLocations(dictionaryEntry.getValue());
+            out.writeInt(locations.size());
+            for (CodeLocationDescriptor descriptor : locations) {
+                out.writeInt(descriptorIds.get(descriptor));
+            }
+        }
+    }
+
+    private static List<CodeLocationDescriptor> getLocations(CodeIndexEntry entry) {
+        if (entry.multipleLocations != null) {
+            return entry.multipleLocations;
+        }
+        List<CodeLocationDescriptor> locations = new ArrayList<>(1);
+        if (entry.singleLocation != null) {
+            locations.add(entry.singleLocation);
+        }
+        return locations;
+    }
+
+    // READ
+
+    /**
+     * Reads a previously written index into the passed index, replacing its dictionaries. The passed index must be
+     * configured with the same options that were used to build the persisted index.
+     *
+     * @return true if the index was read, false if there is no persisted index, or it is unusable (corrupt, written by
+     *         an incompatible version, or built with different options)
+     */
+    public synchronized boolean read(CodeIndex index) {
+        if (!indexFile.exists()) {
+            return false;
+        }
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 64 * 1024))) {
+            return readIndex(index, in);
+        } catch (IOException | RuntimeException anyE) {
+            LOG.error("Could not read the code index file {}, the index will be rebuilt.", anyE,
+                indexFile.getAbsolutePath());
+            return false;
+        }
+    }
+
+    boolean readIndex(CodeIndex index, DataInputStream in) throws IOException {
+        if ((in.readInt() != INDEX_FILE_MAGIC) || (in.readInt() != INDEX_FILE_VERSION)) {
+            LOG.info("Ignoring the code index file {} as it was written by an incompatible version.",
+                indexFile.getAbsolutePath());
+            return false;
+        }
+        if (!getOptionsFingerprint(index).equals(in.readUTF())) {
+            LOG.info("Ignoring the code index file {} as it was built with different indexer options.",
+                indexFile.getAbsolutePath());
+            return false;
+        }
+
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+
+        CodeLocationDescriptor[] descriptors = new CodeLocationDescriptor[in.readInt()];
+        for (int i = 0; i < descriptors.length; i++) {
+            CodeLocationDescriptor descriptor = new CodeLocationDescriptor();
+            descriptor.locationOnDisk = new File(stringAt(strings, in.readInt()));
+            descriptor.fileSize = in.readLong();
+            descriptor.fileLastModified = in.readLong();
+            byte idKind = in.readByte();
+            if (idKind == ID_KIND_JAR) {
+                String group = stringAt(strings, in.readInt());
+                String artifact = stringAt(strings, in.readInt());
+                String version = stringAt(strings, in.readInt());
+                descriptor.id = new JarIdentifier(group, artifact, version);
+            } else {
+                descriptor.id = new CodeLocationIdentifier(stringAt(strings, in.readInt()));
+            }
+            descriptor.bazelLabel = stringAt(strings, in.readInt());
+            descriptor.version = stringAt(strings, in.readInt());
+            descriptor.ageInDays = in.readInt();
+            int classCount = in.readInt();
+            if (classCount >= 0) {
+                descriptor.containedClasses = new ArrayList<>(classCount);
+                for (int c = 0; c < classCount; c++) {
+                    String packageName = stringAt(strings, in.readInt());
+                    String classname = stringAt(strings, in.readInt());
+                    descriptor.containedClasses.add(new ClassIdentifier(packageName, classname));
+                }
+            }
+            descriptors[i] = descriptor;
+        }
+
+        Map<String, CodeIndexEntry> artifactDictionary = readDictionary(strings, descriptors, in);
+        Map<String, CodeIndexEntry> fileDictionary = readDictionary(strings, descriptors, in);
+        Map<String, CodeIndexEntry> typeDictionary = readDictionary(strings, descriptors, in);
+
+        // only replace the content of the index once the whole file was read successfully
+        index.artifactDictionary = artifactDictionary;
+        index.fileDictionary = fileDictionary;
+        index.typeDictionary = typeDictionary;
+        return true;
+    }
+
+    private static Map<String, CodeIndexEntry> readDictionary(String[] strings, CodeLocationDescriptor[] descriptors,
+            DataInputStream in) throws IOException {
+        Map<String, CodeIndexEntry> dictionary = new TreeMap<>();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            String key = stringAt(strings, in.readInt());
+            int locationCount = in.readInt();
+            CodeIndexEntry entry = new CodeIndexEntry();
+            for (int l = 0; l < locationCount; l++) {
+                entry.addLocation(descriptors[in.readInt()]);
+            }
+            dictionary.put(key, entry);
+        }
+        return dictionary;
+    }
+
+    private static String stringAt(String[] strings, int index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    /**
+     * The persisted index is only valid for an index built with the same options, since the options control what
+     * is collected by the crawlers.
+     */
+    static String getOptionsFingerprint(CodeIndex index) {
+        CodeIndexerOptions options = index.getOptions();
+        if (options == null) {
+            return "none";
+        }
+        return options.getClass().getName() + ":" + options.computeFingerprint();
+    }
+
+    /**
+     * Interns the strings written to the index file. Null is encoded as -1.
+     */
+    private static class StringTable {
+        final List<String> values = new ArrayList<>();
+        final Map<String, Integer> positions = new HashMap<>();
+
+        void add(String value) {
+            if ((value != null) && !positions.containsKey(value)) {
+                positions.put(value, values.size());
+                values.add(value);
+            }
+        }
+
+        void addKeys(Map<String, CodeIndexEntry> dictionary) {
+            for (String key : dictionary.keySet()) {
+                add(key);
+            }
+        }
+
+        int indexOf(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return positions.get(value);
+        }
     }
 }
@@ -93,4 +93,12 @@ public class CodeIndexerOptions {
         return false;
     }
 
+    /**
+     * Computes a string that changes whenever an option that affects the content of the index changes. This is used to
+     * decide if a persisted index can be reused (see CodeIndexPersister).
+     */
+    public String computeFingerprint() {
+        return "types=" + doComputeTypeDictionary;
+    }
+
 }
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.salesforce.bazel.sdk.index.CodeIndexEntry;
+import com.salesforce.bazel.sdk.index.CodeIndexPersister;
 import com.salesforce.bazel.sdk.index.model.CodeLocationDescriptor;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathData;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathEntry;
@@ -58,6 +59,11 @@ public class BazelJvmIndexClasspath extends JvmInMemoryClasspath {
      */
     protected List<File> additionalJarLocations;
 
+    /**
+     * Optional persister, which allows the index to be reloaded from disk and incrementally updated.
+     */
+    protected CodeIndexPersister indexPersister;
+
     // computed data
     protected JvmCodeIndex index;
     protected JvmClasspathData cachedClasspath;
@@ -67,7 +73,7 @@ public class BazelJvmIndexClasspath extends JvmInMemoryClasspath {
      */
     public BazelJvmIndexClasspath(BazelWorkspace bazelWorkspace, OperatingEnvironmentDetectionStrategy os,
             BazelExternalJarRuleManager externalJarRuleManager, List<File> additionalJarLocations) {
-        super("Global Index Classpath", -1);
+        super("Global Index Classpath");
         
         this.bazelWorkspace = bazelWorkspace;
         this.os = os;
@@ -76,7 +82,11 @@ public class BazelJvmIndexClasspath extends JvmInMemoryClasspath {
     }
 
     // API
-    
+
+    public void setIndexPersister(CodeIndexPersister indexPersister) {
+        this.indexPersister = indexPersister;
+    }
+
     /**
      * Computes the JVM classpath for the associated Bazel workspace. The first invocation is expected to take a long
      * time, but subsequent invocations will read from cache.
@@ -105,6 +115,7 @@ public class BazelJvmIndexClasspath extends JvmInMemoryClasspath {
             return index;
         }
         JvmCodeIndexer indexer = new JvmCodeIndexer();
+        indexer.setIndexPersister(indexPersister);
         JvmCodeIndexerOptions indexerOptions = JvmCodeIndexerOptions.buildJvmGlobalSearchOptions();
 
         index = indexer.buildWorkspaceIndex(bazelWorkspace, externalJarRuleManager, indexerOptions, additionalJarLocations,
@@ -35,11 +35,19 @@ package com.salesforce.bazel.sdk.index.jvm;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.salesforce.bazel.sdk.index.CodeIndexEntry;
+import com.salesforce.bazel.sdk.index.CodeIndexPersister;
 import com.salesforce.bazel.sdk.index.CodeIndexer;
 import com.salesforce.bazel.sdk.index.jvm.jar.JarIdentiferResolver;
 import com.salesforce.bazel.sdk.index.jvm.jar.JavaJarCrawler;
+import com.salesforce.bazel.sdk.index.model.CodeLocationDescriptor;
 import com.salesforce.bazel.sdk.lang.jvm.external.BazelExternalJarRuleManager;
 import com.salesforce.bazel.sdk.lang.jvm.external.BazelExternalJarRuleType;
 import com.salesforce.bazel.sdk.logging.LogHelper;
@@ -52,7 +60,21 @@ import com.salesforce.bazel.sdk.util.WorkProgressMonitor;
  */
 public class JvmCodeIndexer extends CodeIndexer {
     private static final LogHelper LOG = LogHelper.log(JvmCodeIndexer.class);
-    
+
+    /**
+     * Optional persister. If set, the index built by the previous run (e.g. before an IDE restart) is read from disk,
+     * only jars that have changed since are recrawled, and the new index is written back.
+     */
+    protected CodeIndexPersister indexPersister;
+
+    // stats for the last build
+    protected int crawledJarCount = 0;
+    protected int reusedJarCount = 0;
+
+    public void setIndexPersister(CodeIndexPersister indexPersister) {
+        this.indexPersister = indexPersister;
+    }
+
     /**
      * Builds an index for an entire workspace, which can be a very expensive operation.
      */
@@ -88,25 +110,92 @@ public class JvmCodeIndexer extends CodeIndexer {
             locations.addAll(additionalJarLocations);
         }
 
-        // now build the index
-        for (File location : locations) {
-            processLocation(bazelWorkspace, externalJarRuleManager, index, location, progressMonitor);
+        // now build the index, reusing the unchanged jars from the persisted index if there is one
+        crawledJarCount = 0;
+        reusedJarCount = 0;
+        Map<String, CodeLocationDescriptor> previousLocations = loadPreviousLocations(indexerOptions);
+        ExecutorService executor = createCrawlerExecutor(indexerOptions);
+        try {
+            for (File location : locations) {
+                processLocation(bazelWorkspace, externalJarRuleManager, index, location, previousLocations,
+                    executor, progressMonitor);
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
 
         JvmCodeIndex.addWorkspaceIndex(bazelWorkspace, index);
+        if (indexPersister != null) {
+            indexPersister.write(index);
+        }
 
-        LOG.info("Finished building the type index for workspace {}", bazelWorkspace.getName());
+        LOG.info("Finished building the type index for workspace {}, read {} jars and reused {} unchanged jars",
+            bazelWorkspace.getName(), crawledJarCount, reusedJarCount);
         return index;
 
     }
 
     void processLocation(BazelWorkspace bazelWorkspace, BazelExternalJarRuleManager externalJarRuleManager,
             JvmCodeIndex index, File location, WorkProgressMonitor progressMonitor) {
+        processLocation(bazelWorkspace, externalJarRuleManager, index, location, null, null, progressMonitor);
+    }
+
+    void processLocation(BazelWorkspace bazelWorkspace, BazelExternalJarRuleManager externalJarRuleManager,
+            JvmCodeIndex index, File location, Map<String, CodeLocationDescriptor> previousLocations,
+            ExecutorService executor, WorkProgressMonitor progressMonitor) {
         if ((location != null) && location.exists()) {
             JarIdentiferResolver jarResolver = new JarIdentiferResolver();
             JavaJarCrawler jarCrawler = new JavaJarCrawler(bazelWorkspace, index, jarResolver, externalJarRuleManager);
+            jarCrawler.setPreviousLocations(previousLocations);
+            jarCrawler.setExecutor(executor);
             jarCrawler.index(location);
+            crawledJarCount += jarCrawler.getCrawledJarCount();
+            reusedJarCount += jarCrawler.getReusedJarCount();
+        }
+    }
+
+    /**
+     * Creates the pool of threads that read the jar files, or returns null if the jars should be read sequentially.
+     */
+    protected ExecutorService createCrawlerExecutor(JvmCodeIndexerOptions indexerOptions) {
+        int threadCount = indexerOptions.getJarCrawlerThreadCount();
+        if (threadCount <= 1) {
+            return null;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "bzl-jar-crawler-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads the persisted index, if any, and returns its locations keyed by absolute path. Returns null if there is no
+     * usable persisted index.
+     */
+    protected Map<String, CodeLocationDescriptor> loadPreviousLocations(JvmCodeIndexerOptions indexerOptions) {
+        if (indexPersister == null) {
+            return null;
+        }
+        JvmCodeIndex previousIndex = new JvmCodeIndex(indexerOptions);
+        if (!indexPersister.read(previousIndex)) {
+            return null;
+        }
+        // every indexed jar has an entry in the file dictionary
+        Map<String, CodeLocationDescriptor> previousLocations = new HashMap<>();
+        for (CodeIndexEntry entry : previousIndex.fileDictionary.values()) {
+            if (entry.multipleLocations != null) {
+                for (CodeLocationDescriptor location : entry.multipleLocations) {
+                    previousLocations.put(location.locationOnDisk.getAbsolutePath(), location);
+                }
+            } else if (entry.singleLocation != null) {
+                previousLocations.put(entry.singleLocation.locationOnDisk.getAbsolutePath(), entry.singleLocation);
+            }
         }
+        return previousLocations;
     }
 
     protected void addInternalLocations(JvmCodeIndex index, List<File> locations) {
@@ -53,6 +53,18 @@ public class JvmCodeIndexerOptions extends CodeIndexerOptions {
      * it to true. This is very expensive to use because it makes a remote call.
      */
     protected boolean doJvmComputeJarAgeUsingRemoteMavenRepo = false;
+
+    /**
+     * Number of threads used to read jar files. Reading jars is I/O and inflate bound, so for large workspaces it
+     * pays off to read several at once. The resulting index is the same regardless of this setting. A value of 1
+     * reads the jars sequentially on the indexing thread.
+     */
+    protected int jvmJarCrawlerThreadCount = 1;
+
+    /**
+     * Upper bound for the number of crawler threads used by default, to avoid saturating the disk.
+     */
+    public static final int DEFAULT_MAX_JAR_CRAWLER_THREADS = 8;
     
 
     // CTORS
@@ -67,9 +79,12 @@ public class JvmCodeIndexerOptions extends CodeIndexerOptions {
      */
     public static JvmCodeIndexerOptions buildJvmGlobalSearchOptions() {
         
-        // currently we just use the defaults, but this would be the central place to change that
-        
-        return new JvmCodeIndexerOptions();
+        // currently we mostly use the defaults, but this would be the central place to change that
+        JvmCodeIndexerOptions options = new JvmCodeIndexerOptions();
+        options.setJarCrawlerThreadCount(
+            Math.min(DEFAULT_MAX_JAR_CRAWLER_THREADS, Runtime.getRuntime().availableProcessors()));
+
+        return options;
     }
 
     
@@ -104,6 +119,13 @@ public class JvmCodeIndexerOptions extends CodeIndexerOptions {
         this.doJvmComputeJarAgeUsingRemoteMavenRepo = doJvmComputeJarAgeUsingRemoteMavenRepo;
     }
 
+
+    public void setJarCrawlerThreadCount(int jvmJarCrawlerThreadCount) {
+        if (isLocked) {
+            return;
+        }
+        this.jvmJarCrawlerThreadCount = Math.max(1, jvmJarCrawlerThreadCount);
+    }
     
     // GETTERS
 
@@ -124,6 +146,10 @@ public class JvmCodeIndexerOptions extends CodeIndexerOptions {
         return doJvmComputeJarAgeUsingRemoteMavenRepo;
     }
 
+    public int getJarCrawlerThreadCount() {
+        return jvmJarCrawlerThreadCount;
+    }
+
     /**
      * Is any form of age computation enabled for JVM Jars?
      */
@@ -131,4 +157,11 @@ public class JvmCodeIndexerOptions extends CodeIndexerOptions {
     public boolean doComputeArtifactAges() {
         return doJvmComputeJarAgeUsingInternalFiles || doJvmComputeJarAgeUsingRemoteMavenRepo;
     }
+
+    @Override
+    public String computeFingerprint() {
+        return super.computeFingerprint() + ",jarAgeInternal=" + doJvmComputeJarAgeUsingInternalFiles + ","
+                + jvmComputeJarAgeUsingInternalFiles_earliestTimestamp + "," + jvmComputeJarAgeUsingInternalFiles_tries
+                + ",jarAgeRemote=" + doJvmComputeJarAgeUsingRemoteMavenRepo;
+    }
 }
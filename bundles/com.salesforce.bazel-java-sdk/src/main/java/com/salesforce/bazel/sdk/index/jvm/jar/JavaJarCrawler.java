@@ -25,7 +25,13 @@ package com.salesforce.bazel.sdk.index.jvm.jar;
 
 import java.io.File;
 import java.io.FilenameFilter;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -43,6 +49,11 @@ import com.salesforce.bazel.sdk.path.FSPathHelper;
  * <p>
  * There is a one to many relationship between JvmCodeIndex and JavaJarCrawler. Many crawlers will
  * be used to build a single JvmCodeIndex. See JvmCodeIndexer to see how that works.
+ * <p>
+ * By default jars are read one after another on the calling thread. If an executor is provided, the directory walk
+ * still happens on the calling thread, but each found jar is read into its own partial result on the executor. The
+ * partial results are then merged into the index in the order the jars were found, so the resulting index is the
+ * same as the one built by the sequential crawl.
  */
 public class JavaJarCrawler {
     private static final LogHelper LOG = LogHelper.log(JavaJarCrawler.class);
@@ -52,6 +63,17 @@ public class JavaJarCrawler {
     private final JarIdentiferResolver resolver;
     private BazelExternalJarRuleManager externalJarRuleManager;
 
+    // locations from a previously built index, keyed by absolute path, that may be reused if the jar is unchanged
+    private Map<String, CodeLocationDescriptor> previousLocations;
+
+    // optional executor to read jars in parallel, and the pending jars that are being read on it (in walk order)
+    private ExecutorService executor;
+    private List<PendingJar> pendingJars;
+
+    // stats
+    private int crawledJarCount = 0;
+    private int reusedJarCount = 0;
+
     public JavaJarCrawler(JvmCodeIndex index, JarIdentiferResolver resolver) {
         this.index = index;
         this.resolver = resolver;
@@ -65,6 +87,38 @@ public class JavaJarCrawler {
         this.externalJarRuleManager = externalJarRuleManager;
     }
 
+    /**
+     * Provides the locations found by a previous indexing run (typically read from disk by the CodeIndexPersister),
+     * keyed by absolute path. A jar that still has the same size and last modified time as the previous location is
+     * not opened again; the previous location is added to the index as is.
+     */
+    public void setPreviousLocations(Map<String, CodeLocationDescriptor> previousLocations) {
+        this.previousLocations = previousLocations;
+    }
+
+    /**
+     * Provides an executor that will be used to read the jars in parallel. The number of threads of the executor bounds
+     * the number of jars that are open at the same time. The executor is not shut down by the crawler. If not set (the
+     * default) the jars are read sequentially on the calling thread.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Number of jars that were opened and read by this crawler.
+     */
+    public int getCrawledJarCount() {
+        return crawledJarCount;
+    }
+
+    /**
+     * Number of jars that were unchanged since the previous indexing run, and were added without being read.
+     */
+    public int getReusedJarCount() {
+        return reusedJarCount;
+    }
+
     /**
      * Crawls the passed file system path, descending directories looking for jar files.
      * Entries are added to the JvmCodeIndex as they are found. 
@@ -87,7 +141,19 @@ public class JavaJarCrawler {
         // gavRoot is a tricky concept, see comments below; it starts off unknown
         File gavRoot = null;
         
-        indexRecur(gavRoot, rootCrawlDirectory);
+        if (executor == null) {
+            indexRecur(gavRoot, rootCrawlDirectory);
+            return;
+        }
+
+        // parallel mode: the walk queues the jars, then the results are merged in the order the jars were found
+        pendingJars = new ArrayList<>();
+        try {
+            indexRecur(gavRoot, rootCrawlDirectory);
+            mergePendingJars();
+        } finally {
+            pendingJars = null;
+        }
     }
 
     /**
@@ -129,9 +195,18 @@ public class JavaJarCrawler {
                     indexRecur(gavRoot, child);
                 } else if (child.canRead()) {
                     if (child.getName().endsWith(".jar")) {
+                        CodeLocationDescriptor previousLocation = findUnchangedPreviousLocation(child);
+                        if (pendingJars != null) {
+                            // parallel mode, unchanged jars are also queued so the merge order is preserved
+                            queueJar(gavRoot, child, previousLocation);
+                            continue;
+                        }
+                        if (previousLocation != null) {
+                            reusedJar(child, previousLocation);
+                            continue;
+                        }
                         zipFile = new ZipFile(child);
-                        
-                        // TODO run this method async in a different thread
+                        crawledJarCount++;
                         foundJar(gavRoot, child, zipFile);
                     }
                 }
@@ -147,6 +222,127 @@ public class JavaJarCrawler {
         }
     }
     
+    /**
+     * Returns the location from the previous indexing run for this jar, if the jar has not changed since.
+     */
+    protected CodeLocationDescriptor findUnchangedPreviousLocation(File jarFile) {
+        if (previousLocations == null) {
+            return null;
+        }
+        CodeLocationDescriptor previousLocation = previousLocations.get(jarFile.getAbsolutePath());
+        if ((previousLocation == null) || !(previousLocation.id instanceof JarIdentifier)) {
+            return null;
+        }
+        if ((previousLocation.fileSize != jarFile.length())
+                || (previousLocation.fileLastModified != jarFile.lastModified())) {
+            return null;
+        }
+        return previousLocation;
+    }
+
+    /**
+     * Adds a location found in a previous indexing run to the index, so that the resulting index is the same as if
+     * the jar had been read again.
+     */
+    protected void reusedJar(File jarFile, CodeLocationDescriptor previousLocation) {
+        LOG.debug("reusing unchanged jar: [{}]", jarFile.getName());
+        reusedJarCount++;
+        addLocation(jarFile, previousLocation);
+    }
+
+    /**
+     * Adds a fully built jar location to the index, making the same additions in the same order as foundJar() and
+     * processJarFileZipEntry() do while reading the jar.
+     */
+    protected void addLocation(File jarFile, CodeLocationDescriptor location) {
+        JarIdentifier jarId = (JarIdentifier) location.id;
+        index.addArtifactLocation(jarId.artifact, location);
+        index.addFileLocation(jarFile.getName(), location);
+        if (location.containedClasses != null) {
+            for (ClassIdentifier classId : location.containedClasses) {
+                index.addTypeLocation(classId.classname, location);
+            }
+        }
+    }
+
+    /**
+     * Parallel mode: queues the reading of the jar on the executor. The result is merged later by mergePendingJars().
+     */
+    protected void queueJar(File gavRoot, File jarFile, CodeLocationDescriptor previousLocation) {
+        PendingJar pendingJar = new PendingJar(jarFile);
+        if (previousLocation != null) {
+            pendingJar.previousLocation = previousLocation;
+        } else {
+            crawledJarCount++;
+            pendingJar.future = executor.submit(() -> readJar(gavRoot, jarFile));
+        }
+        pendingJars.add(pendingJar);
+    }
+
+    /**
+     * Parallel mode: reads the jar into a partial index that is private to this task, and returns the location that
+     * was built for the jar, or null if the jar is not interesting. Runs on the executor.
+     */
+    protected CodeLocationDescriptor readJar(File gavRoot, File jarFile) {
+        JvmCodeIndex partialIndex = new JvmCodeIndex(index.getJvmOptions());
+        JavaJarCrawler partialCrawler =
+                new JavaJarCrawler(bazelWorkspace, partialIndex, resolver, externalJarRuleManager);
+        try (ZipFile zipFile = new ZipFile(jarFile)) {
+            return partialCrawler.foundJar(gavRoot, jarFile, zipFile);
+        } catch (Exception anyE) {
+            LOG.error("Reading jar file lead to unexpected error for path [{}]", anyE, jarFile.getPath());
+        }
+        return null;
+    }
+
+    /**
+     * Parallel mode: merges the partial results into the index, in the order the jars were found during the walk.
+     */
+    protected void mergePendingJars() {
+        for (PendingJar pendingJar : pendingJars) {
+            if (pendingJar.previousLocation != null) {
+                reusedJar(pendingJar.jarFile, pendingJar.previousLocation);
+                continue;
+            }
+            CodeLocationDescriptor location = null;
+            try {
+                location = pendingJar.future.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                LOG.error("Interrupted while waiting for jar file [{}] to be read", pendingJar.jarFile.getPath());
+                cancelPendingJars();
+                return;
+            } catch (ExecutionException ee) {
+                LOG.error("Reading jar file lead to unexpected error for path [{}]", ee.getCause(),
+                    pendingJar.jarFile.getPath());
+            }
+            if (location != null) {
+                addLocation(pendingJar.jarFile, location);
+            }
+        }
+    }
+
+    private void cancelPendingJars() {
+        for (PendingJar pendingJar : pendingJars) {
+            if (pendingJar.future != null) {
+                pendingJar.future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * A jar found by the walk in parallel mode. Either it is unchanged since the previous run, or it is being read.
+     */
+    private static class PendingJar {
+        final File jarFile;
+        CodeLocationDescriptor previousLocation;
+        Future<CodeLocationDescriptor> future;
+
+        PendingJar(File jarFile) {
+            this.jarFile = jarFile;
+        }
+    }
+
     static boolean doSkipDirectory(String directoryName) {
         if (directoryName.contains(".runfiles")) {
             // bazel test sandbox, stay out of here as the jars in here are for running tests
@@ -161,16 +357,19 @@ public class JavaJarCrawler {
      * <p>
      * Configure the CodeIndexOption class in the CodeIndex to alter the behavior of this operation.
      * <p>
-     * TODO someday we will run this method concurrent to other threads, be careful of shared state
+     * In parallel mode this method runs concurrently on a crawler that has a private partial index, so it must not
+     * touch any other shared state.
+     *
+     * @return the location that was added to the index, or null if the jar was ignored
      */
-    protected void foundJar(File gavRootDir, File jarFile, ZipFile zipFile) {
+    protected CodeLocationDescriptor foundJar(File gavRootDir, File jarFile, ZipFile zipFile) {
         LOG.debug("found jar: [{}]", jarFile.getName());
                 
         // precisely identify the jar file
         JarIdentifier jarId = resolver.resolveJarIdentifier(gavRootDir, jarFile, zipFile);
         if (jarId == null) {
             // this jar is not part of the typical dependencies (e.g. it is a jar used in the build toolchain); ignore
-            return;
+            return null;
         }
         String absoluteFilepath = jarFile.getAbsolutePath();
         
@@ -195,6 +394,8 @@ public class JavaJarCrawler {
 
         // we have enough information to add an index entry, build the descriptor
         CodeLocationDescriptor jarLocationDescriptor = new CodeLocationDescriptor(jarFile, jarId, bazelLabel, jarId.version);
+        jarLocationDescriptor.fileSize = jarFile.length();
+        jarLocationDescriptor.fileLastModified = jarFile.lastModified();
         
         // add to our index using artifact name (eg. junit, hamcrest-core, slf4j-api) 
         index.addArtifactLocation(jarId.artifact, jarLocationDescriptor);
@@ -204,7 +405,7 @@ public class JavaJarCrawler {
         // if we don't want an index of each class found in a jar, and we aren't computing internal file ages 
         // we can bail here and save a lot of work
         if (!doComputeTypes && !doUseFileAge) {
-            return;
+            return jarLocationDescriptor;
         }
 
         // BEGIN GOING INSIDE THE JAR FILE
@@ -216,7 +417,7 @@ public class JavaJarCrawler {
             entries = zipFile.entries();
         } catch (Exception anyE) {
             LOG.error("Failure opening file [{}] as a zip/jar. Corrupt file?", anyE, jarFile.getPath());
-            return;
+            return jarLocationDescriptor;
         }
         
         // iterate through the contents for the jar file, for as long as the keepGoing flag is still set
@@ -237,6 +438,7 @@ public class JavaJarCrawler {
         if (!processEntriesState.foundValidAge && doUseRemoteAge) {
             // TODO also provide an option to call a remote system (e.g. Maven Central). It will be slow.
         }
+        return jarLocationDescriptor;
     }
     
     /**
@@ -58,6 +58,13 @@ public class CodeLocationDescriptor {
      */
     public int ageInDays = -1;
 
+    /**
+     * Size and last modified time of the file on disk at the time it was indexed, or -1 if not known. These are used
+     * to detect whether a persisted index entry is still current, and are not related to ageInDays.
+     */
+    public long fileSize = -1;
+    public long fileLastModified = -1;
+
     public CodeLocationDescriptor() {}
     
     public CodeLocationDescriptor(File locationOnDisk, CodeLocationIdentifier id) {
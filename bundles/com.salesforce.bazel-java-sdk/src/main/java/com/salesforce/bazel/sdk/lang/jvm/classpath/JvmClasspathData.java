@@ -89,4 +89,47 @@ public class JvmClasspathData {
      */
     public Set<JvmClasspathEntry> implicitDeps = Collections.emptySet();
 
+    /**
+     * Internal. Adds the classpath computed for a single target into this union classpath. An entry on the main
+     * classpath of any target is not on the test classpath. Merging the targets in the order they were computed gives
+     * the same result as computing them all into this instance.
+     */
+    public void mergeTargetClasspath(JvmClasspathData targetClasspath) {
+        for (Map.Entry<String, JvmClasspathEntry> mainEntry : targetClasspath.mainClasspathEntryMap.entrySet()) {
+            testClasspathEntryMap.remove(mainEntry.getKey());
+            mainClasspathEntryMap.put(mainEntry.getKey(), mainEntry.getValue());
+        }
+        for (Map.Entry<String, JvmClasspathEntry> testEntry : targetClasspath.testClasspathEntryMap.entrySet()) {
+            if (!mainClasspathEntryMap.containsKey(testEntry.getKey())) {
+                testClasspathEntryMap.put(testEntry.getKey(), testEntry.getValue());
+            }
+        }
+        for (BazelProject projectReference : targetClasspath.classpathProjectReferences) {
+            boolean isNewReference = true;
+            for (BazelProject existingReference : classpathProjectReferences) {
+                if (existingReference.name.equals(projectReference.name)) {
+                    isNewReference = false;
+                    break;
+                }
+            }
+            if (isNewReference) {
+                classpathProjectReferences.add(projectReference);
+            }
+        }
+        if (!targetClasspath.implicitDeps.isEmpty()) {
+            implicitDeps = targetClasspath.implicitDeps;
+        }
+        jvmClasspathEntries = assembleClasspathEntries();
+    }
+
+    /**
+     * Internal. Returns the classpath entries from the main and test indices, followed by the implicit deps.
+     */
+    public JvmClasspathEntry[] assembleClasspathEntries() {
+        List<JvmClasspathEntry> classpathEntries = new ArrayList<>(mainClasspathEntryMap.values());
+        classpathEntries.addAll(testClasspathEntryMap.values());
+        // should be added at the end of classpath entries
+        classpathEntries.addAll(implicitDeps);
+        return classpathEntries.toArray(new JvmClasspathEntry[] {});
+    }
 }
\ No newline at end of file
@@ -33,6 +33,9 @@
  */
 package com.salesforce.bazel.sdk.lang.jvm.classpath.impl;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
 import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspath;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathData;
 import com.salesforce.bazel.sdk.logging.LogHelper;
@@ -43,8 +46,10 @@ import com.salesforce.bazel.sdk.util.WorkProgressMonitor;
  * innate ability to compute classpath data; the caller that creates it must provide the classpath data at 
  * initialization.
  * <p>
- * It supports caching. If the cache timeout expires, the classpath data will be erased and this implementation
- * returns null;
+ * It supports caching. The cached classpath is tagged with the generation of its inputs, and is used for as long as
+ * that generation does not change. The generation changes when {@link #clean()} is called, and when the inputs
+ * reported by {@link #getInputGeneration()} are invalidated. Concurrent callers that miss the cache share a single
+ * computation.
  * <p>
  * As a side gig, it is also expected to be the base class of most computational JvmClasspath implementations.
  */
@@ -55,8 +60,27 @@ public class JvmInMemoryClasspath implements JvmClasspath {
     protected String classpathName;
 
     protected JvmClasspathData cachedClasspath;
-    protected long cacheTimeoutMillis = 300000;
-    protected long cachePutTimeMillis = 0;
+
+    /**
+     * The generation the cached classpath was computed for.
+     */
+    private long cachedGeneration = -1;
+
+    /**
+     * Bumped by clean() and updateClasspath(), added to the input generation.
+     */
+    private long localGeneration = 0;
+
+    /**
+     * The computation in progress, if any, and the generation it was started for.
+     */
+    private FutureTask<JvmClasspathData> inflightComputation;
+    private long inflightGeneration = -1;
+
+    // METRICS
+    private long numberComputations = 0;
+    private long numberCacheHits = 0;
+    private long numberSharedComputations = 0;
 
     protected final LogHelper logger;
 
@@ -65,14 +89,13 @@ public class JvmInMemoryClasspath implements JvmClasspath {
      * 
      * @param classpathName
      *            a logical name for the classpath instance, like the Bazel package name or project name.
-     * @param cacheTimeoutMillis
-     *            the timeout in milliseconds; -1 never expires
+     * @param classpath
+     *            the classpath data, which is returned until clean() is called
      */
     public JvmInMemoryClasspath(String classpathName, JvmClasspathData classpath) {
         this.classpathName = classpathName;
-        this.cacheTimeoutMillis = -1;
-        this.cachePutTimeMillis = System.currentTimeMillis();
         this.cachedClasspath = classpath;
+        this.cachedGeneration = 0;
 
         logger = LogHelper.log(this.getClass());
     }
@@ -82,12 +105,9 @@ public class JvmInMemoryClasspath implements JvmClasspath {
      * 
      * @param classpathName
      *            a logical name for the classpath instance, like the Bazel package name or project name.
-     * @param cacheTimeoutMillis
-     *            the timeout in milliseconds; -1 never expires
      */
-    protected JvmInMemoryClasspath(String classpathName, long cacheTimeoutMillis) {
+    protected JvmInMemoryClasspath(String classpathName) {
         this.classpathName = classpathName;
-        this.cacheTimeoutMillis = cacheTimeoutMillis;
 
         logger = LogHelper.log(this.getClass());
     }
@@ -99,16 +119,62 @@ public class JvmInMemoryClasspath implements JvmClasspath {
      */
     @Override
     public JvmClasspathData getClasspathEntries(WorkProgressMonitor progressMonitor) {
-        if (cachedClasspath != null && cacheTimeoutMillis == -1) {
-            return cachedClasspath;
+        // the input generation may come from collaborators, so it is read outside of the monitor
+        long inputGeneration = getInputGeneration();
+        long generation;
+        FutureTask<JvmClasspathData> computation;
+        boolean isOwner = false;
+        synchronized (this) {
+            generation = localGeneration + inputGeneration;
+            if ((cachedClasspath != null) && (cachedGeneration == generation)) {
+                logger.debug("  Using cached classpath for project " + classpathName);
+                numberCacheHits++;
+                return cachedClasspath;
+            }
+            if ((inflightComputation != null) && (inflightGeneration == generation)) {
+                // another caller is already computing this generation, wait for its result
+                numberSharedComputations++;
+                computation = inflightComputation;
+            } else {
+                // where the magic happens
+                // in most cases, this class will be subclassed and the computeClasspath method will be overridden
+                // with code that can compute the classpath using something tangible (build metadata, source files,
+                // etc).
+                computation = new FutureTask<>(() -> computeClasspath(progressMonitor));
+                inflightComputation = computation;
+                inflightGeneration = generation;
+                numberComputations++;
+                isOwner = true;
+            }
         }
-        
-        // where the magic happens
-        // in most cases, this class will be subclassed and the computeClasspath method will be overridden
-        // with code that can compute the classpath using something tangible (build metadata, source files, etc).
-        cachedClasspath = computeClasspath(progressMonitor);
 
-        return cachedClasspath;
+        if (!isOwner) {
+            return getComputedClasspath(computation);
+        }
+
+        // the computation runs outside of the monitor, it can take a long time and may call back into this instance
+        computation.run();
+        JvmClasspathData classpath = null;
+        try {
+            classpath = getComputedClasspath(computation);
+        } finally {
+            // also if the computation failed, so that the next caller computes again instead of sharing the failure
+            inputGeneration = getInputGeneration();
+            synchronized (this) {
+                if (inflightComputation == computation) {
+                    inflightComputation = null;
+                    inflightGeneration = -1;
+                }
+                // if the inputs changed while computing, the result is returned to the callers but not cached
+                if ((localGeneration + inputGeneration) != generation) {
+                    logger.info("Classpath for project {} was invalidated while it was computed.", classpathName);
+                } else if (classpath != null) {
+                    cachedClasspath = classpath;
+                    cachedGeneration = generation;
+                }
+            }
+        }
+        return classpath;
     }
 
     /**
@@ -116,43 +182,102 @@ public class JvmInMemoryClasspath implements JvmClasspath {
      * @param newClasspath
      */
     public void updateClasspath(JvmClasspathData newClasspath) {
-        cachedClasspath = newClasspath;
-        cachePutTimeMillis = System.currentTimeMillis();
+        long inputGeneration = getInputGeneration();
+        synchronized (this) {
+            // a computation in progress must not overwrite the new classpath
+            localGeneration++;
+            cachedClasspath = newClasspath;
+            cachedGeneration = localGeneration + inputGeneration;
+        }
     }
 
     @Override
-    public void clean() {
+    public synchronized void clean() {
+        localGeneration++;
         cachedClasspath = null;
-        cachePutTimeMillis = 0;
+    }
+
+    /**
+     * Returns the number of times the classpath was computed.
+     */
+    public synchronized long getComputationCount() {
+        return numberComputations;
+    }
+
+    /**
+     * Returns the number of requests served from the cached classpath.
+     */
+    public synchronized long getCacheHitCount() {
+        return numberCacheHits;
+    }
+
+    /**
+     * Returns the number of requests that waited for a computation already in progress, instead of starting their own.
+     */
+    public synchronized long getSharedComputationCount() {
+        return numberSharedComputations;
+    }
+
+    /**
+     * Returns the number of computations avoided, by the cache or by sharing a computation in progress.
+     */
+    public synchronized long getAvoidedComputationCount() {
+        return numberCacheHits + numberSharedComputations;
     }
 
     // SUBCLASS API
 
     /**
-     * If the classpath is not cached, this method will recompute it.
+     * Computes the classpath, when there is no cached classpath for the current generation.
      * <p>
      * For subclasses, this is the main method to implement.
      */
     protected JvmClasspathData computeClasspath(WorkProgressMonitor progressMonitor) {
-        // if this class is not subclassed, and we get here, the captive JvmClasspathData has expired
+        // if this class is not subclassed, and we get here, the captive JvmClasspathData was cleaned
         // and we just return null. this isn't a good situation. so if you are using this class without
-        // subclassing, be sure to set the timeout to -1
+        // subclassing, don't call clean()
         return null;
     }
 
+    /**
+     * Returns the generation of the inputs to the classpath computation. Subclasses that compute the classpath from
+     * invalidatable data (e.g. aspect data) return a value that increases whenever that data is invalidated. The
+     * default implementation returns 0, such that only clean() invalidates the cached classpath.
+     */
+    protected long getInputGeneration() {
+        return 0;
+    }
+
     // INTERNAL
 
-    protected JvmClasspathData getCachedEntries() {
-        if (cachedClasspath != null) {
-            long now = System.currentTimeMillis();
-            if ((now - cachePutTimeMillis) <= cacheTimeoutMillis) {
-                logger.debug("  Using cached classpath for project " + classpathName);
-                return cachedClasspath;
+    /**
+     * Waits for the computation, which is run by the first caller. Callers expect a classpath, so the wait is not
+     * abandoned on interrupt, the interrupt is restored once the result is available.
+     */
+    private JvmClasspathData getComputedClasspath(FutureTask<JvmClasspathData> computation) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return computation.get();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                } catch (ExecutionException ee) {
+                    Throwable cause = ee.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
             }
-            logger.info("Evicted classpath from cache for project " + classpathName);
-            cachedClasspath = null;
         }
-        return null;
     }
 
 }
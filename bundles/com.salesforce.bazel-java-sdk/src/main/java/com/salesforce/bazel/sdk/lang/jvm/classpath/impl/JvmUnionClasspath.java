@@ -23,9 +23,17 @@
  */
 package com.salesforce.bazel.sdk.lang.jvm.classpath.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import com.salesforce.bazel.sdk.command.BazelCommandManager;
@@ -59,8 +67,9 @@ import com.salesforce.bazel.sdk.workspace.OperatingEnvironmentDetectionStrategy;
  * There is an instance of this class for each project.
  */
 public class JvmUnionClasspath extends JvmInMemoryClasspath {
-    // TODO make classpath cache timeout configurable
-    private static final long CLASSPATH_CACHE_TIMEOUT_MS = 300000;
+    private static final int MAX_CLASSPATH_THREADS = 4;
+    private static final String CLASSPATH_THREAD_PREFIX = "bzl-classpath-";
+    private static ExecutorService classpathExecutor;
 
     protected final BazelWorkspace bazelWorkspace;
     protected final BazelProjectManager bazelProjectManager;
@@ -74,7 +83,7 @@ public class JvmUnionClasspath extends JvmInMemoryClasspath {
             BazelProject bazelProject, ImplicitClasspathHelper implicitDependencyHelper,
             OperatingEnvironmentDetectionStrategy osDetector, BazelCommandManager bazelCommandManager,
             List<JvmClasspathStrategy> orderedClasspathStrategies) {
-        super(bazelProject.name, CLASSPATH_CACHE_TIMEOUT_MS);
+        super(bazelProject.name);
         
         this.bazelWorkspace = bazelWorkspace;
         this.bazelProjectManager = bazelProjectManager;
@@ -87,7 +96,8 @@ public class JvmUnionClasspath extends JvmInMemoryClasspath {
 
     /**
      * Computes the JVM classpath for the associated BazelProject. This response is cached in
-     * the super class. External callers will invoke getClasspathEntries() which in turn invokes this method.
+     * the super class, until the aspect or query data of the project's package is flushed. External callers will
+     * invoke getClasspathEntries() which in turn invokes this method.
      */
     @Override
     protected JvmClasspathData computeClasspath(WorkProgressMonitor progressMonitor) {
@@ -100,11 +110,7 @@ public class JvmUnionClasspath extends JvmInMemoryClasspath {
         long startTimeMS = System.currentTimeMillis();
 
         boolean isImport = false;
-        JvmClasspathData response = getCachedEntries();
-        if (response != null) {
-            return response;
-        }
-        response = new JvmClasspathData();
+        JvmClasspathData response = new JvmClasspathData();
 
         logger.info("Computing classpath for project " + bazelProject.name + " (import? " + isImport + ")");
         BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner =
@@ -125,43 +131,139 @@ public class JvmUnionClasspath extends JvmInMemoryClasspath {
         // now get the actual list of activated targets, with wildcard resolved using the BUILD file model if necessary
         Set<String> actualActivatedTargets = configuredTargetsForProject.getActualTargets(bazelBuildFileModel);
 
-        // Iterate over the activated targets and compute the classpath for each. The result will be aggregated into a
-        // union classpath in the JvmClasspathResponse that contains all entries for all activated targets
-        for (String targetLabel : actualActivatedTargets) {
-            String targetKindString = bazelBuildFileModel.getRuleTypeForTarget(targetLabel);
-            BazelTargetKind targetKind = BazelTargetKind.valueOfIgnoresCase(targetKindString);
-            
-            try {
-                // invoke our classpath strategies in order, until one is able to complete the classpath
-                for (JvmClasspathStrategy strategy : orderedClasspathStrategies) {
-                    JvmClasspathStrategyRequest request = new JvmClasspathStrategyRequest(bazelProject, targetLabel, targetKind, 
-                        configuredTargetsForProject, actualActivatedTargets, response);
-                    strategy.getClasspathForTarget(request);
-                    if (response.isComplete) {
-                        break;
-                    }
-                    
-                }
-            } catch (Exception anyE) {
-                // computing the classpath for a single target can fail, and we will try to continue
-                logger.error("Exception caught during classpath computation: {}", anyE, anyE.getMessage());
-                continue;
-            }
-        } // for loop
+        // strategies that can load the data of all targets with a single request do that up front
+        JvmClasspathStrategyRequest projectRequest = new JvmClasspathStrategyRequest(bazelProject, null, null,
+                configuredTargetsForProject, actualActivatedTargets, response);
+        for (JvmClasspathStrategy strategy : orderedClasspathStrategies) {
+            strategy.prepareClasspathForTargets(projectRequest);
+        }
 
-        // cache the entries
-        cachePutTimeMillis = System.currentTimeMillis();
-        cachedClasspath = response;
-        logger.debug("Cached the classpath for project " + bazelProject.name);
+        // Compute the classpath for each activated target concurrently, each into its own JvmClasspathData. They are
+        // then merged into the union classpath in the iteration order of the activated targets, which gives the same
+        // classpath as computing the targets one after the other into the union classpath.
+        BazelBuildFile buildFile = bazelBuildFileModel;
+        List<JvmClasspathData> targetClasspaths;
+        try {
+            targetClasspaths = computeClasspathForTargets(projectRequest, buildFile, actualActivatedTargets);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while computing the classpath for project " + bazelProject.name, ie);
+            return returnEmptyClasspathOrThrow(ie);
+        }
+        boolean isComplete = !targetClasspaths.isEmpty();
+        for (JvmClasspathData targetClasspath : targetClasspaths) {
+            response.mergeTargetClasspath(targetClasspath);
+            isComplete = isComplete && targetClasspath.isComplete;
+        }
+        response.isComplete = isComplete;
 
         SimplePerfRecorder.addTime("classpath", startTimeMS);
 
-        return cachedClasspath;
+        return response;
+    }
+
+    /**
+     * The classpath is derived from the aspect and query data of the project's package, so it stays valid until the
+     * command runner flushes that data.
+     */
+    @Override
+    protected long getInputGeneration() {
+        if (bazelWorkspace == null) {
+            return 0;
+        }
+        BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner =
+                bazelCommandManager.getWorkspaceCommandRunner(bazelWorkspace);
+        String packageLabel = bazelProjectManager.getBazelLabelForProject(bazelProject);
+        if ((bazelWorkspaceCmdRunner == null) || (packageLabel == null)) {
+            return 0;
+        }
+        return bazelWorkspaceCmdRunner.getCacheGeneration(new BazelLabel(packageLabel).getPackagePath());
     }
 
 
     // INTERNAL
-    
+
+    /**
+     * Computes the classpath of each target, in the order of the passed targets. The targets are computed on a small
+     * dedicated pool so that a large project does not occupy the JVM wide common pool. If the caller is already a
+     * thread of that pool (a classpath computation that triggers another one), the targets are computed inline so the
+     * bounded pool cannot deadlock on itself.
+     */
+    private List<JvmClasspathData> computeClasspathForTargets(JvmClasspathStrategyRequest projectRequest,
+            BazelBuildFile bazelBuildFileModel, Collection<String> targetLabels) throws InterruptedException {
+        List<JvmClasspathData> targetClasspaths = new ArrayList<>();
+        if ((targetLabels.size() < 2) || Thread.currentThread().getName().startsWith(CLASSPATH_THREAD_PREFIX)) {
+            for (String targetLabel : targetLabels) {
+                targetClasspaths.add(computeClasspathForTarget(projectRequest, bazelBuildFileModel, targetLabel));
+            }
+            return targetClasspaths;
+        }
+
+        ExecutorService executor = getClasspathExecutor();
+        List<Future<JvmClasspathData>> futures = new ArrayList<>();
+        try {
+            for (String targetLabel : targetLabels) {
+                futures.add(
+                    executor.submit(() -> computeClasspathForTarget(projectRequest, bazelBuildFileModel, targetLabel)));
+            }
+            for (Future<JvmClasspathData> future : futures) {
+                targetClasspaths.add(future.get());
+            }
+        } catch (ExecutionException ee) {
+            // computeClasspathForTarget catches the failures of the strategies, so this is unexpected
+            throw new IllegalStateException(ee.getCause());
+        } finally {
+            for (Future<JvmClasspathData> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return targetClasspaths;
+    }
+
+    private static synchronized ExecutorService getClasspathExecutor() {
+        if (classpathExecutor == null) {
+            int threadCount =
+                    Math.max(1, Math.min(MAX_CLASSPATH_THREADS, Runtime.getRuntime().availableProcessors()));
+            AtomicInteger threadIndex = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, CLASSPATH_THREAD_PREFIX + threadIndex.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            // idle threads go away between classpath computations
+            executor.allowCoreThreadTimeOut(true);
+            classpathExecutor = executor;
+        }
+        return classpathExecutor;
+    }
+
+    /**
+     * Computes the classpath of a single target, invoking the classpath strategies in order until one is able to
+     * complete it. This may be called concurrently for the targets of the project.
+     */
+    private JvmClasspathData computeClasspathForTarget(JvmClasspathStrategyRequest projectRequest,
+            BazelBuildFile bazelBuildFileModel, String targetLabel) {
+        JvmClasspathData targetClasspath = new JvmClasspathData();
+        String targetKindString = bazelBuildFileModel.getRuleTypeForTarget(targetLabel);
+        BazelTargetKind targetKind = BazelTargetKind.valueOfIgnoresCase(targetKindString);
+        JvmClasspathStrategyRequest request = projectRequest.forTarget(targetLabel, targetKind, targetClasspath);
+
+        try {
+            for (JvmClasspathStrategy strategy : orderedClasspathStrategies) {
+                strategy.getClasspathForTarget(request);
+                if (targetClasspath.isComplete) {
+                    break;
+                }
+            }
+        } catch (Exception anyE) {
+            // computing the classpath for a single target can fail, and we will try to continue
+            logger.error("Exception caught during classpath computation: {}", anyE, anyE.getMessage());
+            targetClasspath.isComplete = false;
+        }
+        return targetClasspath;
+    }
+
     private BazelBuildFile getBuildFile(BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner, BazelProjectTargets configuredTargetsForProject) throws Exception {
         // TODO this code is hard to follow, why are there collections where we expect there to be a single build file?
         
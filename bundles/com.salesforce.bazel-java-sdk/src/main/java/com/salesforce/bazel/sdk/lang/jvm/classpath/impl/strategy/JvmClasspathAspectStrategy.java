@@ -24,7 +24,6 @@
 package com.salesforce.bazel.sdk.lang.jvm.classpath.impl.strategy;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -70,6 +69,22 @@ public class JvmClasspathAspectStrategy extends JvmClasspathStrategy {
         logger = LogHelper.log(this.getClass());
     }
 
+    /**
+     * Loads the aspect data of all activated targets with a single request, instead of a lookup per target.
+     */
+    @Override
+    public void prepareClasspathForTargets(JvmClasspathStrategyRequest request) {
+        try {
+            BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner =
+                    bazelCommandManager.getWorkspaceCommandRunner(bazelWorkspace);
+            request.aspectTargetInfos =
+                    bazelWorkspaceCmdRunner.getAspectTargetInfos(request.actualActivatedTargets, "getClasspathEntries");
+        } catch (IOException | InterruptedException | BazelCommandLineToolConfigurationException e) {
+            // each target will try again on its own
+            logger.error("Unable to load the aspect data for project {}", e, request.bazelProject.name);
+        }
+    }
+
     @Override
     public JvmClasspathData getClasspathForTarget(JvmClasspathStrategyRequest request) {
 
@@ -84,8 +99,11 @@ public class JvmClasspathAspectStrategy extends JvmClasspathStrategy {
         // we need to query bazel to load all the aspect info objects that are associated with the full
         // dependency graph of the requested target
         try {
-            Map<BazelLabel, Set<AspectTargetInfo>> targetLabelToAspectTargetInfos =
-                    bazelWorkspaceCmdRunner.getAspectTargetInfos(request.actualActivatedTargets, "getClasspathEntries");
+            Map<BazelLabel, Set<AspectTargetInfo>> targetLabelToAspectTargetInfos = request.aspectTargetInfos;
+            if (targetLabelToAspectTargetInfos == null) {
+                targetLabelToAspectTargetInfos = bazelWorkspaceCmdRunner
+                        .getAspectTargetInfos(request.actualActivatedTargets, "getClasspathEntries");
+            }
             Set<AspectTargetInfo> targetInfos = targetLabelToAspectTargetInfos.get(new BazelLabel(request.targetLabel));
 
             if (targetInfos == null) {
@@ -246,12 +264,4 @@ public class JvmClasspathAspectStrategy extends JvmClasspathStrategy {
         
     }
 
-    protected JvmClasspathEntry[] assembleClasspathEntries(JvmClasspathData classpathData) {
-        List<JvmClasspathEntry> classpathEntries = new ArrayList<>(classpathData.mainClasspathEntryMap.values());
-        classpathEntries.addAll(classpathData.testClasspathEntryMap.values());
-        // should be added at the end of classpath entries
-        classpathEntries.addAll(classpathData.implicitDeps);
-        return classpathEntries.toArray(new JvmClasspathEntry[] {});
-    }
-
 }
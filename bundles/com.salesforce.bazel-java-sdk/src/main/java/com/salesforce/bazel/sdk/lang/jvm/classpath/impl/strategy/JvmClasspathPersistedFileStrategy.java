@@ -33,10 +33,42 @@
  */
 package com.salesforce.bazel.sdk.lang.jvm.classpath.impl.strategy;
 
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+import com.salesforce.bazel.sdk.aspect.AspectTargetInfo;
+import com.salesforce.bazel.sdk.aspect.AspectTargetInfoStore;
 import com.salesforce.bazel.sdk.command.BazelCommandManager;
+import com.salesforce.bazel.sdk.command.BazelWorkspaceCommandRunner;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathData;
+import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathEntry;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.impl.util.ImplicitClasspathHelper;
+import com.salesforce.bazel.sdk.lang.jvm.classpath.persist.JvmClasspathSerializer;
+import com.salesforce.bazel.sdk.logging.LogHelper;
+import com.salesforce.bazel.sdk.model.BazelLabel;
 import com.salesforce.bazel.sdk.model.BazelWorkspace;
+import com.salesforce.bazel.sdk.project.BazelProject;
 import com.salesforce.bazel.sdk.project.BazelProjectManager;
 import com.salesforce.bazel.sdk.workspace.OperatingEnvironmentDetectionStrategy;
 
@@ -45,22 +77,383 @@ import com.salesforce.bazel.sdk.workspace.OperatingEnvironmentDetectionStrategy;
  * <p>
  * The main use case is to make restarting your tool (IDE, etc) a cheap operation. By persisting the classpath
  * data file (and reading it with this class) we can skip the expensive recomputation of all classpaths of all
- * open projects. 
+ * open projects.
+ * <p>
+ * There is one file per target, written with the {@link JvmClasspathSerializer}. Each file records a fingerprint of
+ * the BUILD files of the target and of its transitive dependencies, of the aspect files of those dependencies, and of
+ * the projects in the workspace. A file is only used if its fingerprint still matches, which takes a stat of each
+ * BUILD file (their fingerprints are memoized until they change) and of each aspect file, but no Bazel command. The
+ * aspect files are only rewritten when the aspects run, which a valid file avoids, so a change to the deps of a
+ * dependency is detected through its BUILD file. Targets without a valid file are computed by the wrapped computing
+ * strategy (normally {@link JvmClasspathAspectStrategy}), and the result is persisted for the next session.
+ * <p>
+ * The targets of a project may be computed concurrently, each target has its own file.
  */
 public class JvmClasspathPersistedFileStrategy extends JvmClasspathStrategy {
+    private static final LogHelper LOG = LogHelper.log(JvmClasspathPersistedFileStrategy.class);
+
+    public static final String STORE_DIRNAME = "bzljavasdk-classpath";
+
+    /**
+     * Bump this if the format of the persisted files changes, older files will then be ignored.
+     */
+    static final long STORE_VERSION = 2L;
+
+    private static final String METADATA_PAYLOAD_NAME = "metadata";
+    private static final int MAX_FILENAME_LABEL_LENGTH = 100;
+
+    private final File storeDirectory;
+    private final JvmClasspathStrategy computingStrategy;
+    private final JvmClasspathSerializer serializer = new JvmClasspathSerializer();
+
+    /**
+     * Tracks the number of targets whose classpath was read from a persisted file.
+     */
+    final AtomicInteger numberPersistedHits = new AtomicInteger();
+
+    /**
+     * Tracks the number of persisted files that were found but rejected because they are out of date.
+     */
+    final AtomicInteger numberStaleFiles = new AtomicInteger();
+
+    /**
+     * Tracks the number of persisted files written.
+     */
+    final AtomicInteger numberPersistedWrites = new AtomicInteger();
 
+    /**
+     * @param storeDirectory
+     *            the directory into which the classpath files are written; this should be a tool specific data
+     *            location and not within the Bazel workspace
+     * @param computingStrategy
+     *            computes the classpath of the targets that do not have a valid persisted file
+     */
     public JvmClasspathPersistedFileStrategy(BazelWorkspace bazelWorkspace, BazelProjectManager bazelProjectManager,
             ImplicitClasspathHelper implicitDependencyHelper, OperatingEnvironmentDetectionStrategy osDetector,
-            BazelCommandManager bazelCommandManager) {
+            BazelCommandManager bazelCommandManager, File storeDirectory, JvmClasspathStrategy computingStrategy) {
         super(bazelWorkspace, bazelProjectManager, implicitDependencyHelper, osDetector, bazelCommandManager);
+        this.storeDirectory = new File(storeDirectory, STORE_DIRNAME);
+        this.computingStrategy = computingStrategy;
+    }
+
+    /**
+     * Reads and validates the persisted file of each activated target up front, the valid ones are kept in the request
+     * so that the targets do not read them again. The computing strategy only needs to load its data, with a single
+     * batched request, if some target has no valid persisted file.
+     */
+    @Override
+    public void prepareClasspathForTargets(JvmClasspathStrategyRequest request) {
+        Map<String, JvmClasspathData> persistedClasspaths = new HashMap<>();
+        boolean needsComputing = false;
+        for (String targetLabel : request.actualActivatedTargets) {
+            BazelLabel label = new BazelLabel(targetLabel);
+            JvmClasspathData targetClasspath = readPersistedFile(label, getPersistedFile(label));
+            if (targetClasspath != null) {
+                persistedClasspaths.put(targetLabel, targetClasspath);
+            } else {
+                needsComputing = true;
+            }
+        }
+        request.persistedTargetClasspaths = persistedClasspaths;
+        if (needsComputing) {
+            computingStrategy.prepareClasspathForTargets(request);
+        }
     }
 
     @Override
     public JvmClasspathData getClasspathForTarget(JvmClasspathStrategyRequest request) {
-        
-        // TODO 
-        
-        return null;
+        BazelLabel label = new BazelLabel(request.targetLabel);
+        File persistedFile = getPersistedFile(label);
+
+        JvmClasspathData targetClasspath;
+        if (request.persistedTargetClasspaths != null) {
+            // already read and validated while preparing the project
+            targetClasspath = request.persistedTargetClasspaths.get(request.targetLabel);
+        } else {
+            targetClasspath = readPersistedFile(label, persistedFile);
+        }
+        if (targetClasspath != null) {
+            LOG.info("Classpath for {} read from persisted file {}", label, persistedFile.getName());
+            numberPersistedHits.incrementAndGet();
+        } else {
+            targetClasspath = computeAndPersist(request, label, persistedFile);
+        }
+        request.classpathData.mergeTargetClasspath(targetClasspath);
+        request.classpathData.isComplete = targetClasspath.isComplete;
+
+        return request.classpathData;
+    }
+
+    /**
+     * Deletes all persisted classpath files.
+     */
+    public void clear() {
+        File[] persistedFiles = storeDirectory.listFiles();
+        if (persistedFiles != null) {
+            for (File persistedFile : persistedFiles) {
+                persistedFile.delete();
+            }
+        }
+    }
+
+    // INTERNAL
+
+    private JvmClasspathData computeAndPersist(JvmClasspathStrategyRequest request, BazelLabel label,
+            File persistedFile) {
+        // compute into a classpath for just this target, so that it can be persisted on its own
+        JvmClasspathData targetClasspath = new JvmClasspathData();
+        JvmClasspathStrategyRequest targetRequest =
+                request.forTarget(request.targetLabel, request.targetKind, targetClasspath);
+        computingStrategy.getClasspathForTarget(targetRequest);
+
+        if (targetClasspath.isComplete) {
+            writePersistedFile(request, label, targetClasspath, persistedFile);
+        }
+        return targetClasspath;
     }
 
+    /**
+     * Returns the persisted classpath of the target, or null if there is no persisted file or it is out of date.
+     */
+    private JvmClasspathData readPersistedFile(BazelLabel label, File persistedFile) {
+        if (!persistedFile.exists()) {
+            return null;
+        }
+        try {
+            JSONObject body;
+            try (Reader reader = new FileReader(persistedFile)) {
+                body = (JSONObject) new JSONParser().parse(reader);
+            }
+            JSONObject metadata = (JSONObject) body.get(METADATA_PAYLOAD_NAME);
+            JSONObject classpathJson = (JSONObject) body.get("classpath");
+            if ((metadata == null) || (classpathJson == null)
+                    || !Long.valueOf(STORE_VERSION).equals(metadata.get("version"))
+                    || !getWorkspacePath().equals(metadata.get("workspace"))
+                    || !label.getLabelPath().equals(metadata.get("label"))) {
+                LOG.info("Ignoring persisted classpath file {} as it was written for a different version or target.",
+                    persistedFile.getAbsolutePath());
+                return null;
+            }
+            List<String> aspectFilePaths = new ArrayList<>();
+            for (Object aspectFilePath : (JSONArray) metadata.get("aspectFiles")) {
+                aspectFilePaths.add((String) aspectFilePath);
+            }
+            List<String> dependencyLabels = new ArrayList<>();
+            for (Object dependencyLabel : (JSONArray) metadata.get("dependencyLabels")) {
+                dependencyLabels.add((String) dependencyLabel);
+            }
+            if (!computeFingerprint(label, aspectFilePaths, dependencyLabels).equals(metadata.get("fingerprint"))) {
+                LOG.info("Persisted classpath for {} is stale, its BUILD file or dependencies have changed.", label);
+                numberStaleFiles.incrementAndGet();
+                persistedFile.delete();
+                return null;
+            }
+
+            JvmClasspathData targetClasspath = serializer.deserializeFromJson(classpathJson);
+            for (JvmClasspathEntry entry : targetClasspath.jvmClasspathEntries) {
+                if (entry.bazelProject != null) {
+                    // project entries are placed by map, they do not carry a test flag
+                    entry.bazelProject = getManagedProject(entry.bazelProject);
+                    if (entry.isTestJar) {
+                        entry.isTestJar = false;
+                        targetClasspath.testClasspathEntryMap.put(entry.bazelProject.name, entry);
+                    } else {
+                        targetClasspath.mainClasspathEntryMap.put(entry.bazelProject.name, entry);
+                    }
+                } else if (entry.isTestJar) {
+                    targetClasspath.testClasspathEntryMap.put(entry.pathToJar, entry);
+                } else {
+                    targetClasspath.mainClasspathEntryMap.put(entry.pathToJar, entry);
+                }
+            }
+            List<BazelProject> projectReferences = new ArrayList<>();
+            for (BazelProject projectReference : targetClasspath.classpathProjectReferences) {
+                projectReferences.add(getManagedProject(projectReference));
+            }
+            targetClasspath.classpathProjectReferences = projectReferences;
+            JSONObject implicitDepsJson = (JSONObject) metadata.get("implicitDeps");
+            if (implicitDepsJson != null) {
+                targetClasspath.implicitDeps = new LinkedHashSet<>(
+                        Arrays.asList(serializer.deserializeFromJson(implicitDepsJson).jvmClasspathEntries));
+            }
+            return targetClasspath;
+        } catch (Exception anyE) {
+            // a corrupt file is not fatal, we just have to compute the classpath again
+            LOG.error("Could not read the persisted classpath file {}", anyE, persistedFile.getAbsolutePath());
+            return null;
+        }
+    }
+
+    private void writePersistedFile(JvmClasspathStrategyRequest request, BazelLabel label,
+            JvmClasspathData targetClasspath, File persistedFile) {
+        Set<AspectTargetInfo> targetInfos = getAspectTargetInfos(request, label);
+        List<String> aspectFilePaths = getAspectFilePaths(targetInfos);
+        if (aspectFilePaths == null) {
+            // we can't validate this classpath in a future session, so don't persist it at all
+            LOG.info("Not persisting the classpath for {} because its aspect files are not known.", label);
+            persistedFile.delete();
+            return;
+        }
+        List<String> dependencyLabels = getDependencyLabels(targetInfos);
+        JSONArray aspectFilesJson = new JSONArray();
+        aspectFilesJson.addAll(aspectFilePaths);
+        JSONArray dependencyLabelsJson = new JSONArray();
+        dependencyLabelsJson.addAll(dependencyLabels);
+        JvmClasspathData implicitDeps = new JvmClasspathData();
+        implicitDeps.jvmClasspathEntries = targetClasspath.implicitDeps.toArray(new JvmClasspathEntry[] {});
+
+        JSONObject metadata = new JSONObject();
+        metadata.put("version", STORE_VERSION);
+        metadata.put("workspace", getWorkspacePath());
+        metadata.put("label", label.getLabelPath());
+        metadata.put("fingerprint", computeFingerprint(label, aspectFilePaths, dependencyLabels));
+        metadata.put("aspectFiles", aspectFilesJson);
+        metadata.put("dependencyLabels", dependencyLabelsJson);
+        metadata.put("implicitDeps", serializer.serializeToJson(implicitDeps));
+        JSONObject body = serializer.serializeToJson(toPersistedForm(targetClasspath), METADATA_PAYLOAD_NAME, metadata);
+
+        File tempFile = null;
+        try {
+            storeDirectory.mkdirs();
+            tempFile = File.createTempFile(persistedFile.getName(), ".tmp", storeDirectory);
+            try (Writer writer = new FileWriter(tempFile)) {
+                body.writeJSONString(writer);
+            }
+            // write then move, so that a crash while writing never leaves a truncated file behind
+            Files.move(tempFile.toPath(), persistedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            numberPersistedWrites.incrementAndGet();
+        } catch (IOException ioe) {
+            LOG.error("Could not write the persisted classpath file {}", ioe, persistedFile.getAbsolutePath());
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * The serializer files entries by their flags, but project entries on the test classpath are not flagged as test
+     * entries during computation, so flag copies of them.
+     */
+    private static JvmClasspathData toPersistedForm(JvmClasspathData targetClasspath) {
+        List<JvmClasspathEntry> entries = new ArrayList<>(targetClasspath.mainClasspathEntryMap.values());
+        for (JvmClasspathEntry testEntry : targetClasspath.testClasspathEntryMap.values()) {
+            if (testEntry.bazelProject != null) {
+                JvmClasspathEntry projectEntry = new JvmClasspathEntry(testEntry.bazelProject);
+                projectEntry.isTestJar = true;
+                testEntry = projectEntry;
+            }
+            entries.add(testEntry);
+        }
+        JvmClasspathData persistedForm = new JvmClasspathData();
+        persistedForm.jvmClasspathEntries = entries.toArray(new JvmClasspathEntry[] {});
+        persistedForm.classpathProjectReferences = targetClasspath.classpathProjectReferences;
+        return persistedForm;
+    }
+
+    /**
+     * Returns the aspect data of the target's transitive dependencies, or null if it is not known. The aspect data was
+     * just loaded by the computing strategy, so this is served from the cache.
+     */
+    private Set<AspectTargetInfo> getAspectTargetInfos(JvmClasspathStrategyRequest request, BazelLabel label) {
+        try {
+            Map<BazelLabel, Set<AspectTargetInfo>> targetLabelToAspectTargetInfos = request.aspectTargetInfos;
+            if (targetLabelToAspectTargetInfos == null) {
+                BazelWorkspaceCommandRunner bazelWorkspaceCmdRunner =
+                        bazelCommandManager.getWorkspaceCommandRunner(bazelWorkspace);
+                targetLabelToAspectTargetInfos = bazelWorkspaceCmdRunner
+                        .getAspectTargetInfos(request.actualActivatedTargets, "persistClasspath");
+            }
+            return targetLabelToAspectTargetInfos.get(label);
+        } catch (Exception anyE) {
+            LOG.error("Could not load the aspect data for {}", anyE, label);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the sorted paths of the aspect files, or null if they are not all known.
+     */
+    private static List<String> getAspectFilePaths(Set<AspectTargetInfo> targetInfos) {
+        if (targetInfos == null) {
+            return null;
+        }
+        Set<String> aspectFilePaths = new TreeSet<>();
+        for (AspectTargetInfo targetInfo : targetInfos) {
+            File aspectFile = targetInfo.getAspectDataFile();
+            if ((aspectFile == null) || !aspectFile.exists()) {
+                return null;
+            }
+            aspectFilePaths.add(aspectFile.getAbsolutePath());
+        }
+        return new ArrayList<>(aspectFilePaths);
+    }
+
+    /**
+     * Returns the sorted labels of the target's transitive dependencies, as found in the aspect data.
+     */
+    private static List<String> getDependencyLabels(Set<AspectTargetInfo> targetInfos) {
+        Set<String> dependencyLabels = new TreeSet<>();
+        for (AspectTargetInfo targetInfo : targetInfos) {
+            if (targetInfo.getLabelPath() != null) {
+                dependencyLabels.add(targetInfo.getLabelPath());
+            }
+        }
+        return new ArrayList<>(dependencyLabels);
+    }
+
+    /**
+     * Computes the fingerprint of the inputs to the classpath of the target: the content of its BUILD file and of the
+     * BUILD files of its dependencies, the size and modification time of the aspect files of its dependencies, and the
+     * names of the projects in the workspace (a dependency is a project reference if its project is imported,
+     * otherwise a jar).
+     */
+    String computeFingerprint(BazelLabel label, List<String> aspectFilePaths, List<String> dependencyLabels) {
+        File workspaceRootDirectory = bazelWorkspace.getBazelWorkspaceRootDirectory();
+        CRC32 crc = new CRC32();
+        Set<String> dependencyPackages = new TreeSet<>();
+        for (String dependencyLabel : dependencyLabels) {
+            BazelLabel dependency = new BazelLabel(dependencyLabel);
+            if (!dependency.isExternalRepoLabel() && dependencyPackages.add(dependency.getPackagePath())) {
+                String stamp = dependency.getPackagePath() + ":"
+                        + AspectTargetInfoStore.computeBuildFileFingerprint(workspaceRootDirectory, dependency) + "\n";
+                crc.update(stamp.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        for (String aspectFilePath : aspectFilePaths) {
+            File aspectFile = new File(aspectFilePath);
+            // a deleted file has a lastModified of 0, so it changes the fingerprint
+            String stamp = aspectFilePath + ":" + aspectFile.lastModified() + ":" + aspectFile.length() + "\n";
+            crc.update(stamp.getBytes(StandardCharsets.UTF_8));
+        }
+        Set<String> projectNames = new TreeSet<>();
+        for (BazelProject project : bazelProjectManager.getAllProjects()) {
+            projectNames.add(project.name);
+        }
+        for (String projectName : projectNames) {
+            crc.update((projectName + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        String buildFileFingerprint = AspectTargetInfoStore.computeBuildFileFingerprint(workspaceRootDirectory, label);
+        return buildFileFingerprint + ":" + aspectFilePaths.size() + ":" + Long.toHexString(crc.getValue());
+    }
+
+    File getPersistedFile(BazelLabel label) {
+        String labelPath = label.getLabelPath();
+        String fileLabel = labelPath.replaceAll("[^A-Za-z0-9._-]", "_");
+        if (fileLabel.length() > MAX_FILENAME_LABEL_LENGTH) {
+            fileLabel = fileLabel.substring(fileLabel.length() - MAX_FILENAME_LABEL_LENGTH);
+        }
+        // different labels can map to the same readable name, the checksum keeps them apart
+        CRC32 crc = new CRC32();
+        crc.update(labelPath.getBytes(StandardCharsets.UTF_8));
+        return new File(storeDirectory, fileLabel + "-" + Long.toHexString(crc.getValue()) + ".json");
+    }
+
+    private BazelProject getManagedProject(BazelProject project) {
+        BazelProject managedProject = bazelProjectManager.getProject(project.name);
+        return managedProject != null ? managedProject : project;
+    }
+
+    private String getWorkspacePath() {
+        return bazelWorkspace.getBazelWorkspaceRootDirectory().getAbsolutePath();
+    }
 }
@@ -72,6 +72,16 @@ public abstract class JvmClasspathStrategy {
      */
     public abstract JvmClasspathData getClasspathForTarget(JvmClasspathStrategyRequest request);
 
+    /**
+     * Called once per classpath computation, before getClasspathForTarget() is called for each activated target. The
+     * request has no target label. Strategies that can load the data for all targets with a single request do so here
+     * and store it in the request, where it is shared with the target requests. The default implementation does
+     * nothing.
+     * <p>
+     * getClasspathForTarget() may be called concurrently for the targets of a project once this method returns.
+     */
+    public void prepareClasspathForTargets(JvmClasspathStrategyRequest request) {}
+
     
     // INTERNAL
     
@@ -124,7 +134,9 @@ public abstract class JvmClasspathStrategy {
         return entries;
     }
 
-
+    protected JvmClasspathEntry[] assembleClasspathEntries(JvmClasspathData classpathData) {
+        return classpathData.assembleClasspathEntries();
+    }
     
     protected void continueOrThrow(Throwable th) {
         // under real usage, we suppress fatal exceptions because sometimes there are IDE timing issues that can
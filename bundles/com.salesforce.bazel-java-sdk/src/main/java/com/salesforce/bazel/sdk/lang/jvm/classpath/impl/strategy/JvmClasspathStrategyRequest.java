@@ -23,9 +23,12 @@
  */
 package com.salesforce.bazel.sdk.lang.jvm.classpath.impl.strategy;
 
+import java.util.Map;
 import java.util.Set;
 
+import com.salesforce.bazel.sdk.aspect.AspectTargetInfo;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathData;
+import com.salesforce.bazel.sdk.model.BazelLabel;
 import com.salesforce.bazel.sdk.model.BazelTargetKind;
 import com.salesforce.bazel.sdk.project.BazelProject;
 import com.salesforce.bazel.sdk.project.BazelProjectTargets;
@@ -42,6 +45,20 @@ public class JvmClasspathStrategyRequest {
     public Set<String> actualActivatedTargets;
     public  JvmClasspathData classpathData;
 
+    /**
+     * The aspect data of all activated targets, if it was loaded for the whole project by
+     * {@link JvmClasspathStrategy#prepareClasspathForTargets(JvmClasspathStrategyRequest)}. Null if each target must
+     * load it.
+     */
+    public Map<BazelLabel, Set<AspectTargetInfo>> aspectTargetInfos;
+
+    /**
+     * The persisted classpaths that were read and found valid for the whole project by
+     * {@link JvmClasspathStrategy#prepareClasspathForTargets(JvmClasspathStrategyRequest)}, keyed by target label. A
+     * target missing from the map has to be computed. Null if each target must read its own persisted file.
+     */
+    public Map<String, JvmClasspathData> persistedTargetClasspaths;
+
     public JvmClasspathStrategyRequest(BazelProject bazelProject, String targetLabel, BazelTargetKind targetKind,
             BazelProjectTargets configuredTargetsForProject, Set<String> actualActivatedTargets,
             JvmClasspathData classpathData) {
@@ -51,5 +68,17 @@ public class JvmClasspathStrategyRequest {
         this.configuredTargetsForProject = configuredTargetsForProject;
         this.actualActivatedTargets = actualActivatedTargets;
         this.classpathData = classpathData;
-    }    
+    }
+
+    /**
+     * Creates the request for a single target of the project, which shares the data loaded for the project request.
+     */
+    public JvmClasspathStrategyRequest forTarget(String targetLabel, BazelTargetKind targetKind,
+            JvmClasspathData classpathData) {
+        JvmClasspathStrategyRequest targetRequest = new JvmClasspathStrategyRequest(bazelProject, targetLabel,
+                targetKind, configuredTargetsForProject, actualActivatedTargets, classpathData);
+        targetRequest.aspectTargetInfos = aspectTargetInfos;
+        targetRequest.persistedTargetClasspaths = persistedTargetClasspaths;
+        return targetRequest;
+    }
 }
@@ -44,6 +44,7 @@ import org.json.simple.parser.ParseException;
 
 import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathData;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathEntry;
+import com.salesforce.bazel.sdk.project.BazelProject;
 
 /**
  * Serialization and deserialization of the classpath as json.
@@ -88,12 +89,16 @@ public class JvmClasspathSerializer {
             serializeJarEntryToJson(entry, mainDeps, runtimeDeps, testDeps);
         }
         
+        JSONArray projectRefs = new JSONArray();
+        for (BazelProject projectRef : classpathData.classpathProjectReferences) {
+            projectRefs.add(projectRef.name);
+        }
+
         JSONObject body = new JSONObject();
         body.put("deps", mainDeps);
         body.put("runtimeDeps", runtimeDeps);
         body.put("testDeps", testDeps);
-        
-        // TODO project refs
+        body.put("projectRefs", projectRefs);
         
         return body;
     }
@@ -144,7 +149,13 @@ public class JvmClasspathSerializer {
         
         classpathData.jvmClasspathEntries = results.toArray(new JvmClasspathEntry[] {});
         
-        // TODO project refs
+        // the projects are only known by name here, the caller may want to swap in the managed instances
+        JSONArray projectRefs = (JSONArray)body.get("projectRefs");
+        if (projectRefs != null) {
+            for (Object projectRef : projectRefs) {
+                classpathData.classpathProjectReferences.add(new BazelProject((String)projectRef));
+            }
+        }
         
         classpathData.isComplete = true;
         
@@ -156,8 +167,12 @@ public class JvmClasspathSerializer {
     protected void serializeJarEntryToJson(JvmClasspathEntry entry,
             JSONArray mainDeps, JSONArray runtimeDeps, JSONArray testDeps) {
         JSONObject entryJson = new JSONObject();
-        entryJson.put("path", entry.pathToJar);
-        entryJson.put("srcpath", entry.pathToSourceJar);
+        if (entry.bazelProject != null) {
+            entryJson.put("project", entry.bazelProject.name);
+        } else {
+            entryJson.put("path", entry.pathToJar);
+            entryJson.put("srcpath", entry.pathToSourceJar);
+        }
         
         if (entry.isTestJar) {
             testDeps.add(entryJson);
@@ -186,9 +201,14 @@ public class JvmClasspathSerializer {
         
         // minimum data is the path, srcpath is optional (this can be missing if someone hand edits the serialized file)
         String path = (String)entryObj.get("path");
+        String project = (String)entryObj.get("project");
         if (path != null) {
             String srcpath = (String)entryObj.get("srcpath");
             entry = new JvmClasspathEntry(path, srcpath, isRuntimeDep, isTestDep);
+        } else if (project != null) {
+            entry = new JvmClasspathEntry(new BazelProject(project));
+            entry.isRuntimeJar = isRuntimeDep;
+            entry.isTestJar = isTestDep;
         }
         
         return entry;
@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.path;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trie keyed by path segments, which maps directory paths to values. This is useful to answer 'which registered
+ * directories contain this file' in time proportional to the depth of the file path, instead of comparing the file
+ * path against every registered directory.
+ * <p>
+ * Both forward and back slashes are accepted as separators, and empty segments (leading, trailing or repeated
+ * separators) are ignored, so the same path always maps to the same node regardless of the platform it was computed
+ * on. Matching is done on whole segments: /a/src is a prefix of /a/src/Foo.java but not of /a/src2/Foo.java.
+ * <p>
+ * Multiple values can be registered for the same path, they are kept in the order they were added. This class is not
+ * thread safe.
+ */
+public class PathTrie<V> {
+
+    private final Node<V> root = new Node<>();
+    private int size = 0;
+
+    /**
+     * Registers the value for the passed directory path.
+     */
+    public void put(String path, V value) {
+        Node<V> node = root;
+        for (String segment : splitPath(path)) {
+            node = node.children.computeIfAbsent(segment, k -> new Node<>());
+        }
+        if (node.values == null) {
+            node.values = new ArrayList<>(1);
+        }
+        node.values.add(value);
+        size++;
+    }
+
+    /**
+     * Unregisters the value for the passed directory path, values are compared with equals(). Returns false if the
+     * value was not registered for the path. Nodes left empty are kept, they are reused if the path is registered
+     * again.
+     */
+    public boolean remove(String path, V value) {
+        Node<V> node = root;
+        for (String segment : splitPath(path)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                return false;
+            }
+        }
+        if ((node.values == null) || !node.values.remove(value)) {
+            return false;
+        }
+        if (node.values.isEmpty()) {
+            node.values = null;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the values registered for the passed path, or for any of its parent paths. The values registered for the
+     * deepest (most specific) path come first.
+     */
+    public List<V> findPrefixValues(String path) {
+        List<List<V>> matches = null;
+        Node<V> node = root;
+        if (node.values != null) {
+            matches = new ArrayList<>();
+            matches.add(node.values);
+        }
+        for (String segment : splitPath(path)) {
+            node = node.children.get(segment);
+            if (node == null) {
+                break;
+            }
+            if (node.values != null) {
+                if (matches == null) {
+                    matches = new ArrayList<>();
+                }
+                matches.add(node.values);
+            }
+        }
+        if (matches == null) {
+            return Collections.emptyList();
+        }
+        List<V> values = new ArrayList<>();
+        for (int i = matches.size() - 1; i >= 0; i--) {
+            values.addAll(matches.get(i));
+        }
+        return values;
+    }
+
+    /**
+     * Number of registered values.
+     */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        root.children.clear();
+        root.values = null;
+        size = 0;
+    }
+
+    static List<String> splitPath(String path) {
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        int length = path.length();
+        for (int i = 0; i <= length; i++) {
+            if ((i == length) || (path.charAt(i) == '/') || (path.charAt(i) == '\\')) {
+                if (i > start) {
+                    segments.add(path.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return segments;
+    }
+
+    private static class Node<V> {
+        final Map<String, Node<V>> children = new HashMap<>(4);
+        List<V> values;
+    }
+}
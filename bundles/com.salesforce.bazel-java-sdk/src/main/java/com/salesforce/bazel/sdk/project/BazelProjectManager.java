@@ -66,6 +66,18 @@ public abstract class BazelProjectManager {
         }
         projectMap.put(newProject.name, newProject);
         newProject.bazelProjectManager = this;
+        invalidateSourcePathIndex(newProject.name);
+    }
+
+    /**
+     * Removes the project from the manager, typically because it was deleted from the IDE workspace.
+     */
+    public BazelProject removeProject(String name) {
+        BazelProject removedProject = projectMap.remove(name);
+        if (removedProject != null) {
+            invalidateSourcePathIndex(name);
+        }
+        return removedProject;
     }
 
     public BazelProject getProject(String name) {
@@ -118,6 +130,13 @@ public abstract class BazelProjectManager {
      */
     public abstract BazelProject getOwningProjectForSourcePath(BazelWorkspace bazelWorkspace, String sourcePath);
 
+    /**
+     * Implementations may index the source folders of the projects to speed up getOwningProjectForSourcePath(). This
+     * method must be called when a project is added or removed, or when its source folders change, so that the index
+     * entries of that project are refreshed. The default implementation does nothing.
+     */
+    public void invalidateSourcePathIndex(String projectName) {}
+
     /**
      * Creates a project reference between this project and a set of other projects. References are used by IDE code
      * refactoring among other things. The direction of reference goes from this->updatedRefList If this project no
@@ -169,5 +188,6 @@ public abstract class BazelProjectManager {
         String packageLabel = getBazelLabelForProject(bazelProject);
         cmdRunner.flushAspectInfoCacheForPackage(packageLabel);
         cmdRunner.flushQueryCache(new BazelLabel(packageLabel));
+        invalidateSourcePathIndex(projectName);
     }
 }
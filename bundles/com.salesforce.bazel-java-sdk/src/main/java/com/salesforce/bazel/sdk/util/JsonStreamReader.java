@@ -0,0 +1,645 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+/**
+ * Pull style streaming reader for json documents. Unlike the json-simple JSONParser, this reader does not build a tree
+ * of objects for the document; the caller pulls tokens one at a time and binds the values it cares about directly into
+ * its model objects. Values the caller does not care about are skipped without being materialized.
+ * <p>
+ * Instances are reusable, call one of the reset() methods to start reading a new document. The internal buffers are
+ * retained between documents, which avoids the per document allocations of the JSONParser. Instances are not thread
+ * safe.
+ * <p>
+ * Typical usage:
+ *
+ * <pre>
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *     String name = reader.nextName();
+ *     if ("label".equals(name)) {
+ *         label = reader.nextString();
+ *     } else {
+ *         reader.skipValue();
+ *     }
+ * }
+ * reader.endObject();
+ * </pre>
+ *
+ * When a subtree is needed in json-simple form (for example to pass to an existing api that accepts a JSONObject), use
+ * {@link #readValue()}, which produces the same objects as the JSONParser.
+ */
+public final class JsonStreamReader implements Closeable {
+
+    /**
+     * The types of tokens returned by {@link JsonStreamReader#peek()}.
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    // scopes, kept in the scope stack
+    private static final int SCOPE_EMPTY_DOCUMENT = 0;
+    private static final int SCOPE_NONEMPTY_DOCUMENT = 1;
+    private static final int SCOPE_EMPTY_OBJECT = 2;
+    private static final int SCOPE_DANGLING_NAME = 3;
+    private static final int SCOPE_NONEMPTY_OBJECT = 4;
+    private static final int SCOPE_EMPTY_ARRAY = 5;
+    private static final int SCOPE_NONEMPTY_ARRAY = 6;
+
+    private static final int EOF = -1;
+
+    private Reader in;
+    private final char[] buffer;
+    private int pos = 0;
+    private int limit = 0;
+    private long bufferStartPosition = 0;
+
+    private int[] scopes = new int[32];
+    private int depth = 0;
+
+    // the next token, or null if it has not been peeked yet
+    private Token peeked = null;
+    private boolean peekedBoolean;
+
+    // reused for strings that span buffer fills or contain escapes, and for number literals
+    private final StringBuilder scratch = new StringBuilder();
+
+    public JsonStreamReader() {
+        this(8192);
+    }
+
+    public JsonStreamReader(int bufferSize) {
+        buffer = new char[bufferSize];
+    }
+
+    /**
+     * Prepares this reader to read a new document from the passed Reader. The caller remains responsible for closing
+     * the passed Reader.
+     */
+    public JsonStreamReader reset(Reader in) {
+        this.in = in;
+        pos = 0;
+        limit = 0;
+        bufferStartPosition = 0;
+        depth = 0;
+        push(SCOPE_EMPTY_DOCUMENT);
+        peeked = null;
+        return this;
+    }
+
+    /**
+     * Prepares this reader to read a new document from the passed String.
+     */
+    public JsonStreamReader reset(String json) {
+        return reset(new StringReader(json));
+    }
+
+    /**
+     * Returns the type of the next token without consuming it.
+     */
+    public Token peek() throws IOException {
+        if (peeked == null) {
+            peeked = doPeek();
+        }
+        return peeked;
+    }
+
+    /**
+     * Returns true if the current object or array has more elements.
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return (token != Token.END_OBJECT) && (token != Token.END_ARRAY) && (token != Token.END_DOCUMENT);
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(SCOPE_EMPTY_OBJECT);
+        peeked = null;
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+        peeked = null;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(SCOPE_EMPTY_ARRAY);
+        peeked = null;
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+        peeked = null;
+    }
+
+    /**
+     * Consumes the next property name of the current object.
+     */
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        peeked = null;
+        return readQuotedString();
+    }
+
+    /**
+     * Consumes the next value as a String. Numbers are returned as their literal text, and a json null is returned as
+     * null.
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        peeked = null;
+        switch (token) {
+        case STRING:
+            return readQuotedString();
+        case NUMBER:
+            return readNumberLiteral();
+        case NULL:
+            return null;
+        default:
+            throw syntaxError("Expected a string but was " + token);
+        }
+    }
+
+    public long nextLong() throws IOException {
+        Token token = peek();
+        if ((token != Token.NUMBER) && (token != Token.STRING)) {
+            throw syntaxError("Expected a number but was " + token);
+        }
+        String text = nextString();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException nfe) {
+            return (long) parseDouble(text);
+        }
+    }
+
+    public double nextDouble() throws IOException {
+        Token token = peek();
+        if ((token != Token.NUMBER) && (token != Token.STRING)) {
+            throw syntaxError("Expected a number but was " + token);
+        }
+        return parseDouble(nextString());
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        peeked = null;
+        return peekedBoolean;
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+        peeked = null;
+    }
+
+    /**
+     * Skips the next value, including all nested values if it is an object or array. Nothing is materialized.
+     */
+    public void skipValue() throws IOException {
+        int skipDepth = 0;
+        do {
+            Token token = peek();
+            peeked = null;
+            switch (token) {
+            case BEGIN_OBJECT:
+                push(SCOPE_EMPTY_OBJECT);
+                skipDepth++;
+                break;
+            case BEGIN_ARRAY:
+                push(SCOPE_EMPTY_ARRAY);
+                skipDepth++;
+                break;
+            case END_OBJECT:
+            case END_ARRAY:
+                depth--;
+                skipDepth--;
+                break;
+            case NAME:
+            case STRING:
+                skipQuotedString();
+                break;
+            case NUMBER:
+                readNumberLiteral();
+                break;
+            case END_DOCUMENT:
+                throw syntaxError("Unexpected end of document");
+            default:
+                // boolean and null are fully consumed by peek
+                break;
+            }
+        } while (skipDepth > 0);
+    }
+
+    /**
+     * Reads the next value into the json-simple object model: JSONObject, JSONArray, String, Long, Double, Boolean or
+     * null. The types produced are the same as those produced by the json-simple JSONParser.
+     */
+    @SuppressWarnings("unchecked")
+    public Object readValue() throws IOException {
+        Token token = peek();
+        switch (token) {
+        case BEGIN_OBJECT:
+            JSONObject object = new JSONObject();
+            beginObject();
+            while (hasNext()) {
+                String name = nextName();
+                object.put(name, readValue());
+            }
+            endObject();
+            return object;
+        case BEGIN_ARRAY:
+            JSONArray array = new JSONArray();
+            beginArray();
+            while (hasNext()) {
+                array.add(readValue());
+            }
+            endArray();
+            return array;
+        case STRING:
+            return nextString();
+        case NUMBER:
+            peeked = null;
+            String text = readNumberLiteral();
+            if ((text.indexOf('.') >= 0) || (text.indexOf('e') >= 0) || (text.indexOf('E') >= 0)) {
+                return Double.valueOf(text);
+            }
+            return Long.valueOf(text);
+        case BOOLEAN:
+            return nextBoolean();
+        case NULL:
+            nextNull();
+            return null;
+        default:
+            throw syntaxError("Expected a value but was " + token);
+        }
+    }
+
+    /**
+     * Returns the character offset of the reader in the current document, useful for error messages.
+     */
+    public long getPosition() {
+        return bufferStartPosition + pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+            in = null;
+        }
+    }
+
+    // INTERNALS
+
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+    }
+
+    private void push(int scope) {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+        }
+        scopes[depth++] = scope;
+    }
+
+    /**
+     * Determines the next token, consuming the structural characters (commas, colons) that precede it. For names and
+     * strings the opening quote is consumed. Boolean and null literals are consumed entirely.
+     */
+    private Token doPeek() throws IOException {
+        int scope = scopes[depth - 1];
+        if ((scope == SCOPE_EMPTY_ARRAY) || (scope == SCOPE_NONEMPTY_ARRAY)) {
+            scopes[depth - 1] = SCOPE_NONEMPTY_ARRAY;
+            int c = nextNonWhitespace();
+            if ((scope == SCOPE_NONEMPTY_ARRAY) && (c != ',') && (c != ']')) {
+                throw syntaxError("Unterminated array");
+            }
+            c = skipRedundantCommas(c);
+            if (c == ']') {
+                return Token.END_ARRAY;
+            }
+            // leave the first char of the value in the buffer
+            pos--;
+        } else if ((scope == SCOPE_EMPTY_OBJECT) || (scope == SCOPE_NONEMPTY_OBJECT)) {
+            scopes[depth - 1] = SCOPE_DANGLING_NAME;
+            int c = nextNonWhitespace();
+            if ((scope == SCOPE_NONEMPTY_OBJECT) && (c != ',') && (c != '}')) {
+                throw syntaxError("Unterminated object");
+            }
+            c = skipRedundantCommas(c);
+            if (c == '"') {
+                return Token.NAME;
+            } else if (c == '}') {
+                return Token.END_OBJECT;
+            }
+            throw syntaxError("Expected a property name");
+        } else if (scope == SCOPE_DANGLING_NAME) {
+            scopes[depth - 1] = SCOPE_NONEMPTY_OBJECT;
+            if (nextNonWhitespace() != ':') {
+                throw syntaxError("Expected ':'");
+            }
+        } else if (scope == SCOPE_EMPTY_DOCUMENT) {
+            scopes[depth - 1] = SCOPE_NONEMPTY_DOCUMENT;
+        } else if (scope == SCOPE_NONEMPTY_DOCUMENT) {
+            if (nextNonWhitespaceOrEof() == EOF) {
+                return Token.END_DOCUMENT;
+            }
+            throw syntaxError("Expected a single top level value");
+        }
+
+        int c = nextNonWhitespace();
+        switch (c) {
+        case '"':
+            return Token.STRING;
+        case '{':
+            return Token.BEGIN_OBJECT;
+        case '[':
+            return Token.BEGIN_ARRAY;
+        case 't':
+            consumeLiteral("rue");
+            peekedBoolean = true;
+            return Token.BOOLEAN;
+        case 'f':
+            consumeLiteral("alse");
+            peekedBoolean = false;
+            return Token.BOOLEAN;
+        case 'n':
+            consumeLiteral("ull");
+            return Token.NULL;
+        default:
+            if ((c == '-') || ((c >= '0') && (c <= '9'))) {
+                // leave the first char of the number in the buffer
+                pos--;
+                return Token.NUMBER;
+            }
+            throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    /**
+     * The json-simple JSONParser tolerates redundant and trailing commas in objects and arrays, and some producers
+     * (including our own test aspect file generator) rely on that, so we do too.
+     */
+    private int skipRedundantCommas(int c) throws IOException {
+        while (c == ',') {
+            c = nextNonWhitespace();
+        }
+        return c;
+    }
+
+    private void consumeLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (nextChar() != rest.charAt(i)) {
+                throw syntaxError("Invalid literal");
+            }
+        }
+    }
+
+    /**
+     * Reads the remainder of a quoted string, the opening quote has already been consumed.
+     */
+    private String readQuotedString() throws IOException {
+        // fast path: the whole string is in the buffer and has no escapes
+        for (int p = pos; p < limit; p++) {
+            char c = buffer[p];
+            if (c == '"') {
+                String value = new String(buffer, pos, p - pos);
+                pos = p + 1;
+                return value;
+            } else if (c == '\\') {
+                break;
+            }
+        }
+
+        scratch.setLength(0);
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    scratch.append(buffer, start, pos - start - 1);
+                    return scratch.toString();
+                } else if (c == '\\') {
+                    scratch.append(buffer, start, pos - start - 1);
+                    scratch.append(readEscapeCharacter());
+                    start = pos;
+                }
+            }
+            scratch.append(buffer, start, pos - start);
+            if (!fill()) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    private void skipQuotedString() throws IOException {
+        while (true) {
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    return;
+                } else if (c == '\\') {
+                    readEscapeCharacter();
+                }
+            }
+            if (!fill()) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    private char readEscapeCharacter() throws IOException {
+        int c = nextChar();
+        switch (c) {
+        case 'u':
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int h = nextChar();
+                int digit = Character.digit(h, 16);
+                if (digit < 0) {
+                    throw syntaxError("Invalid unicode escape");
+                }
+                value = (value << 4) + digit;
+            }
+            return (char) value;
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case '"':
+        case '\\':
+        case '/':
+            return (char) c;
+        default:
+            throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    private String readNumberLiteral() throws IOException {
+        scratch.setLength(0);
+        while ((pos < limit) || fill()) {
+            char c = buffer[pos];
+            if (((c >= '0') && (c <= '9')) || (c == '-') || (c == '+') || (c == '.') || (c == 'e') || (c == 'E')) {
+                scratch.append(c);
+                pos++;
+            } else {
+                break;
+            }
+        }
+        if (!isNumberLiteral(scratch)) {
+            throw syntaxError("Invalid number '" + scratch + "'");
+        }
+        return scratch.toString();
+    }
+
+    /**
+     * Checks the json number grammar: -?(0|[1-9][0-9]*)(.[0-9]+)?([eE][+-]?[0-9]+)?
+     */
+    private static boolean isNumberLiteral(CharSequence text) {
+        int length = text.length();
+        int i = 0;
+        if ((i < length) && (text.charAt(i) == '-')) {
+            i++;
+        }
+        if ((i < length) && (text.charAt(i) == '0')) {
+            i++;
+        } else {
+            int start = i;
+            i = skipDigits(text, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if ((i < length) && (text.charAt(i) == '.')) {
+            int start = ++i;
+            i = skipDigits(text, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if ((i < length) && ((text.charAt(i) == 'e') || (text.charAt(i) == 'E'))) {
+            i++;
+            if ((i < length) && ((text.charAt(i) == '+') || (text.charAt(i) == '-'))) {
+                i++;
+            }
+            int start = i;
+            i = skipDigits(text, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+
+    private static int skipDigits(CharSequence text, int i) {
+        while ((i < text.length()) && (text.charAt(i) >= '0') && (text.charAt(i) <= '9')) {
+            i++;
+        }
+        return i;
+    }
+
+    private int nextChar() throws IOException {
+        if ((pos == limit) && !fill()) {
+            throw syntaxError("Unexpected end of document");
+        }
+        return buffer[pos++];
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c = nextNonWhitespaceOrEof();
+        if (c == EOF) {
+            throw syntaxError("Unexpected end of document");
+        }
+        return c;
+    }
+
+    private int nextNonWhitespaceOrEof() throws IOException {
+        while ((pos < limit) || fill()) {
+            char c = buffer[pos++];
+            if ((c != ' ') && (c != '\n') && (c != '\r') && (c != '\t')) {
+                return c;
+            }
+        }
+        return EOF;
+    }
+
+    /**
+     * Refills the buffer, discarding its current contents. Returns false at the end of the input.
+     */
+    private boolean fill() throws IOException {
+        if (in == null) {
+            return false;
+        }
+        bufferStartPosition += limit;
+        pos = 0;
+        limit = 0;
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    /**
+     * Number literals are validated when they are read, but a quoted string may still not be a number.
+     */
+    private double parseDouble(String text) throws IOException {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw syntaxError("Expected a number but was '" + text + "'");
+        }
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at position " + getPosition());
+    }
+}
@@ -33,11 +33,14 @@
  */
 package com.salesforce.bazel.sdk.workspace;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.salesforce.bazel.sdk.aspect.AspectDependencyGraphFactory;
 import com.salesforce.bazel.sdk.aspect.AspectTargetInfos;
 import com.salesforce.bazel.sdk.graph.BazelDependencyGraph;
+import com.salesforce.bazel.sdk.graph.CompactDependencyGraphBuilder;
 import com.salesforce.bazel.sdk.logging.LogHelper;
 import com.salesforce.bazel.sdk.model.BazelPackageLocation;
 
@@ -89,7 +92,10 @@ public class ProjectOrderResolverImpl implements ProjectOrderResolver {
         // first, generate the dependency graph for the entire workspace
         List<BazelPackageLocation> orderedModules = null;
         try {
-            BazelDependencyGraph workspaceDepGraph = AspectDependencyGraphFactory.build(aspects, false);
+            // the compact graph orders in linear time, which matters when importing thousands of packages
+            Map<String, String> graphOptions = new HashMap<>();
+            graphOptions.put(CompactDependencyGraphBuilder.OPTION_COMPACT, "true");
+            BazelDependencyGraph workspaceDepGraph = AspectDependencyGraphFactory.build(aspects, false, graphOptions);
             boolean followExternalTransitives = false;
             orderedModules = workspaceDepGraph.orderLabels(selectedPackages, followExternalTransitives);
 
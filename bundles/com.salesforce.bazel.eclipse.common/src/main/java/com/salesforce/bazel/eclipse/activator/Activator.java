@@ -35,15 +35,23 @@
  */
 package com.salesforce.bazel.eclipse.activator;
 
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.Plugin;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.JavaCore;
 import org.osgi.framework.BundleContext;
 
+import com.salesforce.bazel.eclipse.classpath.BazelClasspathChangeListener;
+import com.salesforce.bazel.eclipse.classpath.BazelClasspathSaveParticipant;
+
 /**
  * The activator class controls the Bazel Eclipse plugin life cycle
  */
 public class Activator extends Plugin {
     private static Activator plugin;
 
+    private final BazelClasspathChangeListener classpathChangeListener = new BazelClasspathChangeListener();
+
     // The plug-in ID
     public static final String PLUGIN_ID = "com.salesforce.bazel.eclipse.common"; //$NON-NLS-1$
 
@@ -51,10 +59,18 @@ public class Activator extends Plugin {
     public void start(BundleContext bundleContext) throws Exception {
         super.start(bundleContext);
         plugin = this;
+
+        // tells the classpath containers when JDT asks for the classpath to save it
+        ResourcesPlugin.getWorkspace().addSaveParticipant(PLUGIN_ID, new BazelClasspathSaveParticipant());
+
+        // refreshes the source path index of the project manager when a project classpath is edited
+        JavaCore.addElementChangedListener(classpathChangeListener, ElementChangedEvent.POST_CHANGE);
     }
 
     @Override
     public void stop(BundleContext context) throws Exception {
+        JavaCore.removeElementChangedListener(classpathChangeListener);
+        ResourcesPlugin.getWorkspace().removeSaveParticipant(PLUGIN_ID);
         super.stop(context);
     }
 
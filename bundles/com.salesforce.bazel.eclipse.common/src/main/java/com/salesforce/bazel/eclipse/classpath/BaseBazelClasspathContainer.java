@@ -41,6 +41,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IPath;
@@ -75,7 +76,14 @@ public abstract class BaseBazelClasspathContainer implements IClasspathContainer
     protected final OperatingEnvironmentDetectionStrategy osDetector;
     protected final LogHelper logger;
     protected final BazelWorkspace bazelWorkspace;
-    protected IClasspathEntry[] lastComputedClasspath = null;
+    protected volatile IClasspathEntry[] lastComputedClasspath = null;
+    private volatile List<BazelProject> lastProjectReferences = null;
+
+    /**
+     * Tracks the number of computations whose project references were the same as the previous computation, such
+     * that the project references were not updated.
+     */
+    private final AtomicLong numberSuppressedReferenceUpdates = new AtomicLong();
 
     protected BaseBazelClasspathContainer(IProject eclipseProject, ResourceHelper resourceHelper, JavaCoreHelper jcHelper,
             BazelProjectManager bpManager, OperatingEnvironmentDetectionStrategy osDetectStrategy,
@@ -107,25 +115,14 @@ public abstract class BaseBazelClasspathContainer implements IClasspathContainer
         WorkProgressMonitor progressMonitor = new EclipseWorkProgressMonitor();
 
         // Fast exit - check the caller of this method to decide if we need to incur the expense of a full classpath compute
+        // JDT calls us from saveContainers() while the workspace is saved, see BazelClasspathSaveParticipant.
         // The saveContainers() caller is useful if we were persisting classpath data to disk for faster restarts later
         // but currently we feel that is riskier than just recomputing the classpath on restart.
         // Also, if the user is shutting down the IDE don't waste cycles computing classpaths.
-        if (lastComputedClasspath != null) {
-            StackTraceElement[] stackTraceElements = Thread.currentThread().getStackTrace();
-            for (int i = 0; i < stackTraceElements.length; i++) {
-                StackTraceElement caller = stackTraceElements[i];
-                if (caller.getMethodName().equals("saveContainers")) {
-                    // fullname: JavaModelManager@VariablesAndContainersSaveHelper.saveContainers()
-
-                    // the last computed classpath is good enough for saveContainers() use cases
-                    return lastComputedClasspath;
-                }
-                if (i == 4) {
-                    // we don't know exactly which index it could be, it dependes on subclassing, etc.
-                    // but the saveContainers method should be in the first 5 entries
-                    break;
-                }
-            }
+        IClasspathEntry[] lastClasspath = lastComputedClasspath;
+        if ((lastClasspath != null) && (ClasspathCallContext.getCallSource() == CallSource.SAVE)) {
+            // the last computed classpath is good enough for saveContainers() use cases
+            return lastClasspath;
         }
 
         /**
@@ -162,14 +159,36 @@ public abstract class BaseBazelClasspathContainer implements IClasspathContainer
         // Now update project refs, which includes adding new ones and removing any that may now be obsolete
         // (e.g. dep was removed, project removed from IDE workspace)
         // We need to do this outside of the synchronized block because this next statement requires a lock on the
-        // Eclipse workspace, and this may take some time to acquire.
-        bazelProjectManager.setProjectReferences(bazelProject, computedClasspath.classpathProjectReferences);
+        // Eclipse workspace, and this may take some time to acquire. Most recomputations produce the same references,
+        // in which case we don't even need to read the project description.
+        List<BazelProject> projectReferences = computedClasspath.classpathProjectReferences;
+        if (EclipseClasspathDiffUtil.isSameProjectReferences(lastProjectReferences, projectReferences)) {
+            numberSuppressedReferenceUpdates.incrementAndGet();
+        } else {
+            bazelProjectManager.setProjectReferences(bazelProject, projectReferences);
+            lastProjectReferences = new ArrayList<>(projectReferences);
+        }
 
-        lastComputedClasspath = eclipseClasspathEntries.toArray(new IClasspathEntry[] {});
+        // hand out the previous array when nothing changed, so callers comparing by identity see no change
+        IClasspathEntry[] computedEntries = eclipseClasspathEntries.toArray(new IClasspathEntry[] {});
+        IClasspathEntry[] previousEntries = lastComputedClasspath;
+        if (EclipseClasspathDiffUtil.isSameClasspath(previousEntries, computedEntries)) {
+            computedEntries = previousEntries;
+        } else {
+            lastComputedClasspath = computedEntries;
+        }
 
         SimplePerfRecorder.addTime("classpath_getClasspathEntry", startTimeMillis);
 
-        return lastComputedClasspath;
+        return computedEntries;
+    }
+
+    /**
+     * Returns the number of computations whose project references were the same as the previous computation, such
+     * that the project references were not updated.
+     */
+    public long getNumberSuppressedReferenceUpdates() {
+        return numberSuppressedReferenceUpdates.get();
     }
 
     @Override
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+
+import com.salesforce.bazel.eclipse.component.ComponentContext;
+import com.salesforce.bazel.sdk.project.BazelProjectManager;
+
+/**
+ * Tells the project manager when the raw classpath of a Bazel project changes, so that the index it uses to find the
+ * owning project of a source path is refreshed for that project. This covers the classpath changes we don't make
+ * ourselves, like edits to the .classpath file and the Java Build Path UI.
+ */
+public class BazelClasspathChangeListener implements IElementChangedListener {
+
+    @Override
+    public void elementChanged(ElementChangedEvent event) {
+        ComponentContext context = ComponentContext.getInstance();
+        if (!context.isInitialized()) {
+            return;
+        }
+        BazelProjectManager bazelProjectManager = context.getProjectManager();
+        if (bazelProjectManager != null) {
+            visit(event.getDelta(), bazelProjectManager);
+        }
+    }
+
+    private void visit(IJavaElementDelta delta, BazelProjectManager bazelProjectManager) {
+        IJavaElement element = delta.getElement();
+        if (element.getElementType() == IJavaElement.JAVA_PROJECT) {
+            if (((delta.getFlags() & IJavaElementDelta.F_CLASSPATH_CHANGED) != 0)
+                    && (bazelProjectManager.getProject(element.getElementName()) != null)) {
+                bazelProjectManager.invalidateSourcePathIndex(element.getElementName());
+            }
+            // classpath changes are reported on the project elements, there is no need to go deeper
+            return;
+        }
+        for (IJavaElementDelta child : delta.getAffectedChildren()) {
+            visit(child, bazelProjectManager);
+        }
+    }
+}
@@ -42,13 +42,13 @@ import java.util.List;
 import java.util.Objects;
 import java.util.function.Predicate;
 
-import org.apache.commons.lang3.ObjectUtils;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.JavaModelException;
 import org.osgi.service.prefs.BackingStoreException;
 
+import com.salesforce.bazel.eclipse.activator.Activator;
 import com.salesforce.bazel.eclipse.component.ComponentContext;
 import com.salesforce.bazel.eclipse.runtime.api.JavaCoreHelper;
 import com.salesforce.bazel.eclipse.runtime.api.ResourceHelper;
@@ -57,6 +57,7 @@ import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspath;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathData;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.impl.JvmUnionClasspath;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.impl.strategy.JvmClasspathAspectStrategy;
+import com.salesforce.bazel.sdk.lang.jvm.classpath.impl.strategy.JvmClasspathPersistedFileStrategy;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.impl.strategy.JvmClasspathSourceDerivedStrategy;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.impl.strategy.JvmClasspathStrategy;
 import com.salesforce.bazel.sdk.logging.LogHelper;
@@ -100,8 +101,20 @@ public class BazelClasspathContainer extends BaseBazelClasspathContainer {
                 new EclipseImplicitClasspathHelper(), osDetector, ComponentContext.getInstance().getBazelCommandManager()));
         }
         
-        strategies.add(new JvmClasspathAspectStrategy(bazelWorkspace, bazelProjectManager, 
-            new EclipseImplicitClasspathHelper(), osDetector, ComponentContext.getInstance().getBazelCommandManager()));
+        JvmClasspathStrategy aspectStrategy = new JvmClasspathAspectStrategy(bazelWorkspace, bazelProjectManager, 
+            new EclipseImplicitClasspathHelper(), osDetector, ComponentContext.getInstance().getBazelCommandManager());
+        
+        // persist the computed classpaths in the plugin state location, so that a restart of Eclipse does not need to
+        // run the aspects for every project
+        Activator activator = Activator.getDefault();
+        if (activator != null) {
+            strategies.add(new JvmClasspathPersistedFileStrategy(bazelWorkspace, bazelProjectManager,
+                new EclipseImplicitClasspathHelper(), osDetector,
+                ComponentContext.getInstance().getBazelCommandManager(), activator.getStateLocation().toFile(),
+                aspectStrategy));
+        } else {
+            strategies.add(aspectStrategy);
+        }
 
         
         // create the classpath computation engine
@@ -122,13 +135,14 @@ public class BazelClasspathContainer extends BaseBazelClasspathContainer {
 
     @Override
     public IClasspathEntry[] getClasspathEntries() {
-        CallSource currentCallSource = getCallSource(Thread.currentThread().getStackTrace());
+        // launches tell us they are the caller with a ClasspathCallContext
+        CallSource currentCallSource = ClasspathCallContext.getCallSource();
 
         if (LOG.isDebugLevel()) {
             LOG.debug("Call source for classpath is {}. Last call source was {}", currentCallSource.name(),
                 this.lastCallSource.name());
         }
-        if (ObjectUtils.notEqual(currentCallSource, CallSource.UNDEFINED)) {
+        if ((currentCallSource == CallSource.RUN_DEBUG) || (currentCallSource == CallSource.JUNIT)) {
             lastCallSource = currentCallSource;
         }
 
@@ -162,17 +176,4 @@ public class BazelClasspathContainer extends BaseBazelClasspathContainer {
         }
     }
 
-    private CallSource getCallSource(StackTraceElement[] stack) {
-        for (StackTraceElement elem : stack) {
-            String classname = elem.getClassName();
-            if (classname.endsWith(IClasspathContainerConstants.JAVA_DEBUG_DELEGATE_CMD_HANDLER)) {
-                return CallSource.RUN_DEBUG;
-            }
-            if (classname.endsWith(IClasspathContainerConstants.JUNIT_LAUNCH_CONFIGURATION_DELEGATE)) {
-                return CallSource.JUNIT;
-            }
-        }
-        return CallSource.UNDEFINED;
-    }
-
 }
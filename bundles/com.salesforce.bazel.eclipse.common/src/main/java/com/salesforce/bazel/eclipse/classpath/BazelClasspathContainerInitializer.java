@@ -38,6 +38,7 @@ package com.salesforce.bazel.eclipse.classpath;
 import java.io.IOException;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
@@ -46,6 +47,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.ClasspathContainerInitializer;
 import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaModelException;
 import org.osgi.service.prefs.BackingStoreException;
@@ -70,6 +72,9 @@ public class BazelClasspathContainerInitializer extends ClasspathContainerInitia
     // error state
     public static AtomicBoolean isCorrupt = new AtomicBoolean(false);
 
+    // the number of container updates that were not passed to JDT because the classpath did not change
+    private static final AtomicLong numberSuppressedUpdates = new AtomicLong();
+
     @Override
     public void initialize(IPath eclipseProjectPath, IJavaProject eclipseJavaProject) throws CoreException {
         IProject eclipseProject = eclipseJavaProject.getProject();
@@ -137,6 +142,12 @@ public class BazelClasspathContainerInitializer extends ClasspathContainerInitia
             try {
                 // let the ClasspathContainer recompute its entries
                 IClasspathContainer container = getClasspathContainer(project, isRootProject);
+                if (isUnchangedContainer(containerPath, javaProject, container)) {
+                    // setting the container would cause JDT to reindex and rebuild this project and its dependents
+                    numberSuppressedUpdates.incrementAndGet();
+                    LOG.info("Classpath container of " + project.getName() + " is unchanged, not updating it.");
+                    return;
+                }
                 setClasspathContainerForProject(containerPath, javaProject, container, monitor);
                 LOG.info("Updated classpath container of " + project.getName());
             } catch (IOException | InterruptedException | BackingStoreException e) {
@@ -147,6 +158,32 @@ public class BazelClasspathContainerInitializer extends ClasspathContainerInitia
         }).schedule();
     }
 
+    /**
+     * Returns the number of requested container updates that were not passed to JDT, because the recomputed
+     * classpath was the same as the classpath of the current container.
+     */
+    public static long getSuppressedUpdateCount() {
+        return numberSuppressedUpdates.get();
+    }
+
+    /**
+     * Returns true if the new container has the same entries as the container currently set for the project.
+     */
+    private static boolean isUnchangedContainer(IPath containerPath, IJavaProject javaProject,
+            IClasspathContainer container) throws JavaModelException {
+        JavaCoreHelper ch = ComponentContext.getInstance().getJavaCoreHelper();
+        IClasspathContainer currentContainer = ch.getClasspathContainer(containerPath, javaProject);
+        if (!(currentContainer instanceof BaseBazelClasspathContainer)) {
+            return false;
+        }
+        // use the entries last handed to JDT, asking the current container for its entries would recompute them
+        IClasspathEntry[] currentEntries = ((BaseBazelClasspathContainer) currentContainer).lastComputedClasspath;
+        if (currentEntries == null) {
+            return false;
+        }
+        return EclipseClasspathDiffUtil.isSameClasspath(currentEntries, container.getClasspathEntries());
+    }
+
     private static void flushProjectCaches(IProject project) {
         // get downstream projects of the given project
         JavaCoreHelper javaCoreHelper = ComponentContext.getInstance().getJavaCoreHelper();
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISaveParticipant;
+
+/**
+ * Marks the workspace save as the caller of the classpath containers. JDT persists the classpath containers while the
+ * workspace is saved (saveContainers), and the last computed classpath is good enough for that; we don't want to
+ * incur a classpath computation while the user is shutting down the IDE.
+ * <p>
+ * The workspace calls prepareToSave() on all participants before it calls saving() on any of them, and all the calls
+ * are made on the thread that saves the workspace.
+ */
+public class BazelClasspathSaveParticipant implements ISaveParticipant {
+    private ClasspathCallContext saveContext;
+
+    @Override
+    public void prepareToSave(ISaveContext context) {
+        closeSaveContext();
+        saveContext = ClasspathCallContext.enter(CallSource.SAVE);
+    }
+
+    @Override
+    public void saving(ISaveContext context) {}
+
+    @Override
+    public void doneSaving(ISaveContext context) {
+        closeSaveContext();
+    }
+
+    @Override
+    public void rollback(ISaveContext context) {
+        closeSaveContext();
+    }
+
+    private void closeSaveContext() {
+        if (saveContext != null) {
+            saveContext.close();
+            saveContext = null;
+        }
+    }
+}
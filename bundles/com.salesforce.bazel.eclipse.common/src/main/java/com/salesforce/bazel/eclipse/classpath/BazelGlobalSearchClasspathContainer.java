@@ -46,11 +46,13 @@ import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.JavaModelException;
 import org.osgi.service.prefs.BackingStoreException;
 
+import com.salesforce.bazel.eclipse.activator.Activator;
 import com.salesforce.bazel.eclipse.component.ComponentContext;
 import com.salesforce.bazel.eclipse.preferences.BazelPreferenceKeys;
 import com.salesforce.bazel.eclipse.runtime.api.JavaCoreHelper;
 import com.salesforce.bazel.eclipse.runtime.api.ResourceHelper;
 import com.salesforce.bazel.sdk.command.BazelCommandLineToolConfigurationException;
+import com.salesforce.bazel.sdk.index.CodeIndexPersister;
 import com.salesforce.bazel.sdk.index.jvm.BazelJvmIndexClasspath;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathData;
 import com.salesforce.bazel.sdk.lang.jvm.external.BazelExternalJarRuleManager;
@@ -129,6 +131,7 @@ public class BazelGlobalSearchClasspathContainer extends BaseBazelClasspathConta
             List<File> additionalJarLocations = loadAdditionalLocations();
             bazelJvmIndexClasspath =
                     new BazelJvmIndexClasspath(bazelWorkspace, os, externalJarManager, additionalJarLocations);
+            bazelJvmIndexClasspath.setIndexPersister(buildIndexPersister(bazelWorkspace));
             instances.add(bazelJvmIndexClasspath);
         }
 
@@ -142,6 +145,19 @@ public class BazelGlobalSearchClasspathContainer extends BaseBazelClasspathConta
         return computedClasspath;
     }
 
+    /**
+     * The index is persisted in the plugin state location, so that after a restart of Eclipse only the jars that
+     * changed need to be indexed again.
+     */
+    public static CodeIndexPersister buildIndexPersister(BazelWorkspace bazelWorkspace) {
+        Activator activator = Activator.getDefault();
+        if (activator == null) {
+            return null;
+        }
+        return new CodeIndexPersister(activator.getStateLocation().toFile(),
+                "bzljavasdk-code-index-" + bazelWorkspace.getName());
+    }
+
     // TODO this clean() method should not be static
     public static void clean() {
         for (BazelJvmIndexClasspath instance : instances) {
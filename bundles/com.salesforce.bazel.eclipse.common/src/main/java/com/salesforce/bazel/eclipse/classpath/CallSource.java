@@ -1,5 +1,5 @@
 package com.salesforce.bazel.eclipse.classpath;
 
 public enum CallSource {
-    RUN_DEBUG, JUNIT, UNDEFINED;
+    RUN_DEBUG, JUNIT, SAVE, UNDEFINED;
 }
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+/**
+ * Tells the Bazel classpath containers which kind of caller is asking for the classpath. JDT does not pass this
+ * information to the containers, so the code paths that need special treatment enter a context around their calls
+ * into JDT:
+ *
+ * <pre>
+ * try (ClasspathCallContext context = ClasspathCallContext.enter(CallSource.JUNIT)) {
+ *     // launch
+ * }
+ * </pre>
+ *
+ * The context is per thread, and contexts can be nested. Looking up the call source is a thread local read, JDT asks
+ * for the classpath very frequently (reconcile, search) so the containers must not inspect the stack to find out.
+ */
+public final class ClasspathCallContext implements AutoCloseable {
+    private static final ThreadLocal<CallSource> currentCallSource =
+            ThreadLocal.withInitial(() -> CallSource.UNDEFINED);
+
+    private final CallSource previousCallSource;
+
+    private ClasspathCallContext(CallSource previousCallSource) {
+        this.previousCallSource = previousCallSource;
+    }
+
+    /**
+     * Sets the call source of the current thread, until the returned context is closed.
+     */
+    public static ClasspathCallContext enter(CallSource callSource) {
+        ClasspathCallContext context = new ClasspathCallContext(currentCallSource.get());
+        currentCallSource.set(callSource);
+        return context;
+    }
+
+    /**
+     * Returns the call source of the current thread, UNDEFINED if the caller did not enter a context.
+     */
+    public static CallSource getCallSource() {
+        return currentCallSource.get();
+    }
+
+    /**
+     * Restores the call source that was current when this context was entered.
+     */
+    @Override
+    public void close() {
+        currentCallSource.set(previousCallSource);
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import java.util.List;
+import java.util.Objects;
+
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathEntry;
+
+import com.salesforce.bazel.sdk.project.BazelProject;
+
+/**
+ * Structural comparison of the classpath entries computed by the Bazel classpath containers. Handing JDT a container
+ * with the same entries still triggers a reindex and a rebuild of the project and its dependents, so callers use this
+ * to only notify JDT when the classpath actually changed.
+ * <p>
+ * The comparison covers the attributes that the containers set on their entries: the kind, the path, the source
+ * attachment and the extra attributes (e.g. the test flag). Order matters, as it is the order of the classpath.
+ */
+public final class EclipseClasspathDiffUtil {
+
+    /**
+     * Computes an order sensitive hash of the entries, which is a quick check before comparing the entries.
+     */
+    public static int computeHash(IClasspathEntry[] entries) {
+        if (entries == null) {
+            return 0;
+        }
+        int hash = 1;
+        for (IClasspathEntry entry : entries) {
+            hash = (31 * hash) + computeEntryHash(entry);
+        }
+        return hash;
+    }
+
+    /**
+     * Returns true if the two classpaths have the same entries, in the same order.
+     */
+    public static boolean isSameClasspath(IClasspathEntry[] previous, IClasspathEntry[] current) {
+        if ((previous == null) || (current == null)) {
+            return previous == current;
+        }
+        if ((previous.length != current.length) || (computeHash(previous) != computeHash(current))) {
+            return false;
+        }
+        for (int i = 0; i < previous.length; i++) {
+            if (!isSameEntry(previous[i], current[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the two lists reference the same projects, in the same order.
+     */
+    public static boolean isSameProjectReferences(List<BazelProject> previous, List<BazelProject> current) {
+        if ((previous == null) || (current == null)) {
+            return previous == current;
+        }
+        if (previous.size() != current.size()) {
+            return false;
+        }
+        for (int i = 0; i < previous.size(); i++) {
+            if (!previous.get(i).name.equals(current.get(i).name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // INTERNAL
+
+    private static int computeEntryHash(IClasspathEntry entry) {
+        int hash = Objects.hash(entry.getEntryKind(), entry.getPath(), entry.getSourceAttachmentPath());
+        IClasspathAttribute[] attributes = entry.getExtraAttributes();
+        if (attributes != null) {
+            for (IClasspathAttribute attribute : attributes) {
+                hash = (31 * hash) + Objects.hash(attribute.getName(), attribute.getValue());
+            }
+        }
+        return hash;
+    }
+
+    private static boolean isSameEntry(IClasspathEntry previous, IClasspathEntry current) {
+        if ((previous.getEntryKind() != current.getEntryKind()) || !Objects.equals(previous.getPath(), current.getPath())
+                || !Objects.equals(previous.getSourceAttachmentPath(), current.getSourceAttachmentPath())) {
+            return false;
+        }
+        IClasspathAttribute[] previousAttributes = previous.getExtraAttributes();
+        IClasspathAttribute[] currentAttributes = current.getExtraAttributes();
+        int previousCount = previousAttributes == null ? 0 : previousAttributes.length;
+        int currentCount = currentAttributes == null ? 0 : currentAttributes.length;
+        if (previousCount != currentCount) {
+            return false;
+        }
+        for (int i = 0; i < previousCount; i++) {
+            if (!Objects.equals(previousAttributes[i].getName(), currentAttributes[i].getName())
+                    || !Objects.equals(previousAttributes[i].getValue(), currentAttributes[i].getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -48,10 +48,12 @@ import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaProject;
 
+import com.salesforce.bazel.eclipse.component.ComponentContext;
 import com.salesforce.bazel.eclipse.runtime.api.JavaCoreHelper;
 import com.salesforce.bazel.eclipse.runtime.api.ResourceHelper;
 import com.salesforce.bazel.sdk.logging.LogHelper;
 import com.salesforce.bazel.sdk.path.FSPathHelper;
+import com.salesforce.bazel.sdk.project.BazelProjectManager;
 import com.salesforce.bazel.sdk.project.structure.ProjectStructure;
 import com.salesforce.bazel.sdk.util.SimplePerfRecorder;
 
@@ -127,6 +129,12 @@ public final class EclipseSourceClasspathUtil {
         IClasspathEntry[] newClasspath = classpathEntries.toArray(new IClasspathEntry[classpathEntries.size()]);
         javaProject.setRawClasspath(newClasspath, null);
         SimplePerfRecorder.addTime("import_createprojects_sourcecp_3", startTimeMS);
+
+        // the source folders changed, so the index used to find the owning project of a source path is stale
+        BazelProjectManager bazelProjectManager = ComponentContext.getInstance().getProjectManager();
+        if (bazelProjectManager != null) {
+            bazelProjectManager.invalidateSourcePathIndex(javaProject.getProject().getName());
+        }
     }
 
     private static void buildSourceClasspathEntries(IPath bazelWorkspacePath, IJavaProject javaProject,
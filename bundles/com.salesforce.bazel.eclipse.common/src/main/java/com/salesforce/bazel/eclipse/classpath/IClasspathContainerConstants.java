@@ -2,6 +2,4 @@ package com.salesforce.bazel.eclipse.classpath;
 
 public interface IClasspathContainerConstants {
     String CONTAINER_NAME = "com.salesforce.bazel.eclipse.BAZEL_CONTAINER";
-    String JAVA_DEBUG_DELEGATE_CMD_HANDLER = "JavaDebugDelegateCommandHandler";
-    String JUNIT_LAUNCH_CONFIGURATION_DELEGATE = "JUnitLaunchConfigurationDelegate";
 }
@@ -2,6 +2,7 @@ package com.salesforce.bazel.eclipse.component;
 
 import java.io.File;
 
+import com.salesforce.bazel.eclipse.activator.Activator;
 import com.salesforce.bazel.sdk.command.BazelWorkspaceCommandRunner;
 import com.salesforce.bazel.sdk.logging.LogHelper;
 import com.salesforce.bazel.sdk.model.BazelWorkspace;
@@ -58,6 +59,12 @@ public class EclipseBazelWorkspaceContext {
         BazelWorkspaceCommandRunner commandRunner = getWorkspaceCommandRunner();
         getBazelWorkspace().setBazelWorkspaceMetadataStrategy(commandRunner);
         getBazelWorkspace().setBazelWorkspaceCommandRunner(commandRunner);
+
+        // persist the aspect data in the plugin state location, so that it survives restarts of Eclipse
+        Activator activator = Activator.getDefault();
+        if ((commandRunner != null) && (activator != null)) {
+            commandRunner.setAspectStoreDirectory(activator.getStateLocation().toFile());
+        }
     }
 
     /**
@@ -46,6 +46,7 @@ import com.salesforce.bazel.eclipse.runtime.api.JavaCoreHelper;
 import com.salesforce.bazel.eclipse.runtime.api.ResourceHelper;
 import com.salesforce.bazel.eclipse.utils.BazelProjectSettingsUtils;
 import com.salesforce.bazel.eclipse.utils.EclipseProjectSettingsUtils;
+import com.salesforce.bazel.eclipse.utils.EclipseSourcePathIndex;
 import com.salesforce.bazel.sdk.model.BazelLabel;
 import com.salesforce.bazel.sdk.model.BazelWorkspace;
 import com.salesforce.bazel.sdk.path.FSPathHelper;
@@ -55,12 +56,22 @@ import com.salesforce.bazel.sdk.project.BazelProjectTargets;
 
 public abstract class AbstractBazelProjectManager extends BazelProjectManager {
 
+    /**
+     * Index of the source folders of all projects, built on first use and refreshed per project when projects change.
+     */
+    private final EclipseSourcePathIndex sourcePathIndex =
+            new EclipseSourcePathIndex(this::getAllProjects, this::getResourceHelper, this::getJavaCoreHelper);
+
     public AbstractBazelProjectManager() {}
 
     @Override
     public BazelProject getOwningProjectForSourcePath(BazelWorkspace bazelWorkspace, String sourcePath) {
-        return EclipseProjectSettingsUtils.getOwningProjectForSourcePath(bazelWorkspace, sourcePath, getAllProjects(),
-            getResourceHelper(), getJavaCoreHelper());
+        return sourcePathIndex.findOwningProject(bazelWorkspace, sourcePath);
+    }
+
+    @Override
+    public void invalidateSourcePathIndex(String projectName) {
+        sourcePathIndex.updateProject(projectName);
     }
 
     /**
@@ -33,8 +33,11 @@
  */
 package com.salesforce.bazel.eclipse.project;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.resources.IProject;
@@ -44,6 +47,7 @@ import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.JavaModelException;
 
 import com.salesforce.bazel.eclipse.runtime.api.ResourceHelper;
+import com.salesforce.bazel.sdk.graph.CompactDependencyGraph;
 import com.salesforce.bazel.sdk.model.BazelPackageLocation;
 
 /**
@@ -51,32 +55,70 @@ import com.salesforce.bazel.sdk.model.BazelPackageLocation;
  */
 public class EclipseProjectUtils {
 
+    // the project reference graph of the last call, and the project references it was built from; the graph memoizes
+    // the transitive closures, so it is reused until the imported projects or their references change
+    private static final Object projectGraphLock = new Object();
+    private static Map<String, List<String>> projectGraphReferences;
+    private static CompactDependencyGraph projectGraph;
+    private static int projectGraphBuildCount = 0;
+
     public static Set<IProject> getDownstreamProjectsOf(IProject project, IJavaProject[] allImportedProjects) {
+        Map<String, IProject> projectsByName = new HashMap<>();
+        Map<String, List<String>> projectReferences = new HashMap<>();
+        for (IJavaProject javaProject : allImportedProjects) {
+            IProject downstream = javaProject.getProject();
+            projectsByName.put(downstream.getName(), downstream);
+            try {
+                projectReferences.put(downstream.getName(), Arrays.asList(javaProject.getRequiredProjectNames()));
+            } catch (JavaModelException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        Set<String> downstreamProjectNames;
+        synchronized (projectGraphLock) {
+            downstreamProjectNames = getProjectGraph(projectReferences).getTransitiveDependents(project.getName());
+        }
+
         Set<IProject> downstreamProjects = new LinkedHashSet<>(); // cannot be a TreeSet because Project doesn't implement Comparable
-        collectDownstreamProjects(project, downstreamProjects, allImportedProjects);
+        for (String downstreamProjectName : downstreamProjectNames) {
+            IProject downstream = projectsByName.get(downstreamProjectName);
+            if (downstream != null) {
+                downstreamProjects.add(downstream);
+            }
+        }
         return downstreamProjects;
     }
 
-    // determines all downstream projects, including transitives, of the specified "upstream" project, by looking at the
-    // specified "allImportedProjects", and adds them to the specified "downstreams" Set.
-    private static void collectDownstreamProjects(IProject upstream, Set<IProject> downstreams,
-            IJavaProject[] allImportedProjects) {
-        for (IJavaProject project : allImportedProjects) {
-            try {
-                for (String requiredProjectName : project.getRequiredProjectNames()) {
-                    String upstreamProjectName = upstream.getName();
-                    if (upstreamProjectName.equals(requiredProjectName)) {
-                        IProject downstream = project.getProject();
-                        if (!downstreams.contains(downstream)) {
-                            downstreams.add(downstream);
-                            collectDownstreamProjects(downstream, downstreams, allImportedProjects);
-                        }
-                    }
-                }
-            } catch (JavaModelException ex) {
-                throw new IllegalStateException(ex);
+    /**
+     * Number of times the project reference graph was built, because the imported projects or their references
+     * changed.
+     */
+    public static int getProjectGraphBuildCount() {
+        synchronized (projectGraphLock) {
+            return projectGraphBuildCount;
+        }
+    }
+
+    /**
+     * Models the project references as a dependency graph, so that the downstream projects are found with a single
+     * traversal of the reverse dependencies, rather than by rescanning every project for each one found. Must be
+     * called with the projectGraphLock held.
+     */
+    private static CompactDependencyGraph getProjectGraph(Map<String, List<String>> projectReferences) {
+        if ((projectGraph != null) && projectReferences.equals(projectGraphReferences)) {
+            return projectGraph;
+        }
+        CompactDependencyGraph graph = new CompactDependencyGraph();
+        for (Map.Entry<String, List<String>> references : projectReferences.entrySet()) {
+            for (String requiredProjectName : references.getValue()) {
+                graph.addDependency(references.getKey(), requiredProjectName);
             }
         }
+        projectGraph = graph;
+        projectGraphReferences = projectReferences;
+        projectGraphBuildCount++;
+        return graph;
     }
 
     /**
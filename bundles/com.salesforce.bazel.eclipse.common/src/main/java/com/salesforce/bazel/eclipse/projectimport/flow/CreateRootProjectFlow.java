@@ -141,6 +141,7 @@ public class CreateRootProjectFlow extends AbstractImportFlowStep {
             // add the created path to the classpath as a Source cp entry
             IClasspathEntry sourceClasspathEntry = javaCoreHelper.newSourceEntry(sourceDir, null, false);
             javaProject.setRawClasspath(new IClasspathEntry[] { sourceClasspathEntry }, null);
+            ComponentContext.getInstance().getProjectManager().invalidateSourcePathIndex(project.getName());
         } catch (CoreException ex) {
             LOG.error("Error in the creation of dummy source folder for the root project", ex);
             throw new IllegalStateException(ex);
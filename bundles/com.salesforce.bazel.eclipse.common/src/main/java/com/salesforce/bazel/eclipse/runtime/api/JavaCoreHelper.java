@@ -102,6 +102,21 @@ public interface JavaCoreHelper {
     void setClasspathContainer(IPath containerPath, IJavaProject[] affectedProjects,
             IClasspathContainer[] respectiveContainers, IProgressMonitor monitor) throws JavaModelException;
 
+    /**
+     * Answers the project specific value for a given classpath container. In case this container path could not be
+     * resolved, then will answer <code>null</code>. Both the container path and the project context are supposed to be
+     * non-null.
+     *
+     * @param containerPath
+     *            the name of the container, which needs to be resolved
+     * @param project
+     *            a specific project in which the container is being resolved
+     * @return the corresponding classpath container or <code>null</code> if unable to find one
+     * @throws JavaModelException
+     * @see #setClasspathContainer(IPath, IJavaProject[], IClasspathContainer[], IProgressMonitor)
+     */
+    IClasspathContainer getClasspathContainer(IPath containerPath, IJavaProject project) throws JavaModelException;
+
     /**
      * Returns the raw classpath for the project, as a list of classpath entries. This corresponds to the exact set of
      * entries which were assigned using <code>setRawClasspath</code>, in particular such a classpath may contain
@@ -55,6 +55,12 @@ public class EclipseJavaCoreHelper implements JavaCoreHelper {
         JavaCore.setClasspathContainer(containerPath, affectedProjects, respectiveContainers, monitor);
     }
 
+    @Override
+    public IClasspathContainer getClasspathContainer(IPath containerPath, IJavaProject project)
+            throws JavaModelException {
+        return JavaCore.getClasspathContainer(containerPath, project);
+    }
+
     @Override
     public IClasspathEntry[] getRawClasspath(IJavaProject javaProject) {
         try {
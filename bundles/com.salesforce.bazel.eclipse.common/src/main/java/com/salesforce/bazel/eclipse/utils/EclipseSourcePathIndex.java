@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.eclipse.utils;
+
+import java.io.File;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+
+import com.salesforce.bazel.eclipse.runtime.api.JavaCoreHelper;
+import com.salesforce.bazel.eclipse.runtime.api.ResourceHelper;
+import com.salesforce.bazel.sdk.logging.LogHelper;
+import com.salesforce.bazel.sdk.model.BazelWorkspace;
+import com.salesforce.bazel.sdk.path.FSPathHelper;
+import com.salesforce.bazel.sdk.path.PathTrie;
+import com.salesforce.bazel.sdk.project.BazelProject;
+
+/**
+ * Index of the source folders of a set of Eclipse projects, used to find the project that owns a source path.
+ * <p>
+ * Indexing a project canonicalizes each source folder location and compiles its inclusion/exclusion globs once. A
+ * lookup then only walks the segments of the source path in a PathTrie, instead of visiting every source classpath
+ * entry of every project. The index is built from all projects on the first lookup. After that it is maintained one
+ * project at a time: the project manager calls {@link #updateProject(String)} when a project is added, removed or
+ * its source folders change (see BazelProjectManager.invalidateSourcePathIndex(String)).
+ * <p>
+ * This class is thread safe.
+ */
+public class EclipseSourcePathIndex {
+    private static final LogHelper LOG = LogHelper.log(EclipseSourcePathIndex.class);
+
+    private final Supplier<Collection<BazelProject>> bazelProjects;
+    private final Supplier<ResourceHelper> resourceHelper;
+    private final Supplier<JavaCoreHelper> javaCoreHelper;
+
+    private final PathTrie<SourceFolder> sourceFolders = new PathTrie<>();
+
+    /**
+     * The indexed source folders of each project, so that a project can be reindexed on its own. key=project name
+     */
+    private final Map<String, List<SourceFolder>> projectSourceFolders = new HashMap<>();
+    private boolean isBuilt = false;
+
+    // canonicalizing the workspace root touches the file system, so it is done once per index
+    private File workspaceRootDirectory;
+    private String canonicalWorkspaceRoot;
+
+    /**
+     * @param bazelProjects
+     *            supplies all projects, the index is built from them on the first lookup
+     */
+    public EclipseSourcePathIndex(Supplier<Collection<BazelProject>> bazelProjects,
+            Supplier<ResourceHelper> resourceHelper, Supplier<JavaCoreHelper> javaCoreHelper) {
+        this.bazelProjects = bazelProjects;
+        this.resourceHelper = resourceHelper;
+        this.javaCoreHelper = javaCoreHelper;
+    }
+
+    /**
+     * Builds the index for the source classpath entries of the passed projects.
+     */
+    public static EclipseSourcePathIndex build(Collection<BazelProject> bazelProjects, ResourceHelper resourceHelper,
+            JavaCoreHelper javaCoreHelper) {
+        return new EclipseSourcePathIndex(() -> bazelProjects, () -> resourceHelper, () -> javaCoreHelper);
+    }
+
+    /**
+     * Locates the project that owns the source path, or null if an owning project is not found. If the source path is
+     * contained in nested source folders, the innermost source folder wins.
+     *
+     * @param sourcePath
+     *            the relative path from the root of the workspace to a source folder or source file
+     */
+    public synchronized BazelProject findOwningProject(BazelWorkspace bazelWorkspace, String sourcePath) {
+        ensureBuilt();
+        String canonicalSourcePathString = getCanonicalWorkspaceRoot(bazelWorkspace) + File.separator + sourcePath;
+        List<SourceFolder> candidates = sourceFolders.findPrefixValues(canonicalSourcePathString);
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        Path canonicalSourcePath = new File(canonicalSourcePathString).toPath();
+        for (SourceFolder candidate : candidates) {
+            if (candidate.includes(canonicalSourcePath)) {
+                return candidate.project;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reindexes the source folders of the named project. If the project is no longer one of the supplied projects, its
+     * source folders are removed from the index.
+     */
+    public synchronized void updateProject(String projectName) {
+        if (!isBuilt) {
+            // the project is indexed with all the others on the first lookup
+            return;
+        }
+        List<SourceFolder> previousSourceFolders = projectSourceFolders.remove(projectName);
+        if (previousSourceFolders != null) {
+            for (SourceFolder sourceFolder : previousSourceFolders) {
+                sourceFolders.remove(sourceFolder.canonicalPath, sourceFolder);
+            }
+        }
+        FileSystem fileSystem = FileSystems.getDefault();
+        for (BazelProject bazelProject : bazelProjects.get()) {
+            if (bazelProject.name.equals(projectName)) {
+                indexProject(bazelProject, fileSystem);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Number of indexed source folders.
+     */
+    public synchronized int size() {
+        ensureBuilt();
+        return sourceFolders.size();
+    }
+
+    // INTERNAL
+
+    private void ensureBuilt() {
+        if (isBuilt) {
+            return;
+        }
+        FileSystem fileSystem = FileSystems.getDefault();
+        for (BazelProject bazelProject : bazelProjects.get()) {
+            indexProject(bazelProject, fileSystem);
+        }
+        isBuilt = true;
+    }
+
+    private void indexProject(BazelProject bazelProject, FileSystem fileSystem) {
+        IProject iProject = (IProject) bazelProject.getProjectImpl();
+        IJavaProject jProject = javaCoreHelper.get().getJavaProjectForProject(iProject);
+        IClasspathEntry[] classpathEntries = javaCoreHelper.get().getRawClasspath(jProject);
+        if (classpathEntries == null) {
+            LOG.error("No classpath entries found for project [" + jProject.getElementName() + "]");
+            return;
+        }
+        List<SourceFolder> indexedSourceFolders = new ArrayList<>();
+        for (IClasspathEntry entry : classpathEntries) {
+            if (entry.getEntryKind() != IClasspathEntry.CPE_SOURCE) {
+                continue;
+            }
+            IResource res = resourceHelper.get().findMemberInWorkspace(entry.getPath());
+            if (res == null) {
+                continue;
+            }
+            IPath sourceFolderLocation = res.getLocation();
+            if ((sourceFolderLocation == null) || sourceFolderLocation.isEmpty()) {
+                continue;
+            }
+            String canonicalSourceFolder =
+                    FSPathHelper.getCanonicalPathStringSafely(sourceFolderLocation.toOSString());
+            SourceFolder sourceFolder = new SourceFolder(bazelProject, canonicalSourceFolder,
+                    compilePatterns(fileSystem, entry.getInclusionPatterns()),
+                    compilePatterns(fileSystem, entry.getExclusionPatterns()));
+            sourceFolders.put(canonicalSourceFolder, sourceFolder);
+            indexedSourceFolders.add(sourceFolder);
+        }
+        projectSourceFolders.put(bazelProject.name, indexedSourceFolders);
+    }
+
+    private String getCanonicalWorkspaceRoot(BazelWorkspace bazelWorkspace) {
+        File rootDirectory = bazelWorkspace.getBazelWorkspaceRootDirectory();
+        if ((canonicalWorkspaceRoot == null) || !rootDirectory.equals(workspaceRootDirectory)) {
+            canonicalWorkspaceRoot = FSPathHelper.getCanonicalPathStringSafely(rootDirectory);
+            workspaceRootDirectory = rootDirectory;
+        }
+        return canonicalWorkspaceRoot;
+    }
+
+    private static PathMatcher[] compilePatterns(FileSystem fileSystem, IPath[] patterns) {
+        if ((patterns == null) || (patterns.length == 0)) {
+            return null;
+        }
+        PathMatcher[] matchers = new PathMatcher[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            matchers[i] = fileSystem.getPathMatcher("glob:" + patterns[i].toOSString());
+        }
+        return matchers;
+    }
+
+    /**
+     * A source classpath entry of a project, with its globs precompiled.
+     */
+    private static class SourceFolder {
+        final BazelProject project;
+        final String canonicalPath;
+        final PathMatcher[] inclusionMatchers;
+        final PathMatcher[] exclusionMatchers;
+
+        SourceFolder(BazelProject project, String canonicalPath, PathMatcher[] inclusionMatchers,
+                PathMatcher[] exclusionMatchers) {
+            this.project = project;
+            this.canonicalPath = canonicalPath;
+            this.inclusionMatchers = inclusionMatchers;
+            this.exclusionMatchers = exclusionMatchers;
+        }
+
+        boolean includes(Path path) {
+            if (matchesAny(path, exclusionMatchers)) {
+                return false;
+            }
+            return (inclusionMatchers == null) || matchesAny(path, inclusionMatchers);
+        }
+
+        private static boolean matchesAny(Path path, PathMatcher[] matchers) {
+            if (matchers != null) {
+                for (PathMatcher matcher : matchers) {
+                    if (matcher.matches(path)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
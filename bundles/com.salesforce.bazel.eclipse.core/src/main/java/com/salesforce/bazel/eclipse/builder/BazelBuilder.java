@@ -218,11 +218,16 @@ public class BazelBuilder extends IncrementalProjectBuilder {
             return true;
         }
         List<String> bazelBuildFlags = getAllBazelBuildFlags(projects);
-        List<BazelProblem> errors = cmdRunner.runBazelBuild(bazelTargets, bazelBuildFlags, progressMonitor);
-        // publish errors (even if no errors, this must run so that previous errors are cleared)
         Map<BazelLabel, BazelProject> labelToProject = bazelProjectManager.getBazelLabelToProjectMap(bazelProjects);
         BazelErrorPublisher errorPublisher = new BazelErrorPublisher(rootProject, projects, labelToProject);
-        errorPublisher.publish(errors, monitor);
+
+        // errors show up in the Problems View as Bazel reports them, the listener is called on the thread that reads
+        // the Bazel output, and the publisher creates the markers in a job that this build does not wait for
+        List<BazelProblem> errors = cmdRunner.runBazelBuild(bazelTargets, bazelBuildFlags, progressMonitor,
+            errorPublisher::publishProgressively);
+
+        // publish the final errors (even if no errors, this must run so that previous errors are cleared)
+        errorPublisher.publishAfterProgressive(errors);
         // also publish warnings
         warningPublisher.publish(projects, monitor);
         return errors.isEmpty();
@@ -35,14 +35,25 @@ package com.salesforce.bazel.eclipse.builder;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Collectors;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceRuleFactory;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.resources.WorkspaceJob;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.MultiRule;
 
 import com.salesforce.bazel.sdk.logging.LogHelper;
 import com.salesforce.bazel.sdk.model.BazelLabel;
@@ -63,6 +74,11 @@ class BazelErrorPublisher {
     private final Map<BazelLabel, BazelProject> labelToProject;
     private final BazelProblemMarkerManager markerManager;
 
+    // progressive publishing, see publishProgressively()
+    private final ConcurrentLinkedQueue<BazelProblem> progressiveProblems = new ConcurrentLinkedQueue<>();
+    private volatile List<BazelProblem> finalProblems;
+    private ProgressivePublishJob progressivePublishJob;
+
     public BazelErrorPublisher(IProject rootProject, Collection<IProject> projects,
             Map<BazelLabel, BazelProject> labelToProject) {
         this.rootProject = rootProject;
@@ -76,6 +92,29 @@ class BazelErrorPublisher {
         publishToProblemsView(errors, monitor);
     }
 
+    /**
+     * Publishes a single error while the build is still running. This is called on the thread that reads the Bazel
+     * output, while the builder thread holds the workspace rule and waits for that output, so the markers are created
+     * by a job that only takes the marker rule of the projects, and that the build never waits for. The markers that a
+     * previous build published for a project are removed when the first error of that project arrives.
+     * <p>
+     * Once the build completes, {@link #publishAfterProgressive(List)} must be called with all the errors.
+     */
+    public void publishProgressively(BazelProblem error) {
+        progressiveProblems.add(error);
+        getProgressivePublishJob().schedule();
+    }
+
+    /**
+     * Replaces the markers of all the projects with the errors of the completed build (even if there are no errors,
+     * this must be called so that previous errors are cleared). The same job publishes them after any errors still
+     * queued by {@link #publishProgressively(BazelProblem)}, so they cannot overwrite the final markers.
+     */
+    public void publishAfterProgressive(List<BazelProblem> errors) {
+        finalProblems = new ArrayList<>(errors);
+        getProgressivePublishJob().schedule();
+    }
+
     // maps the specified errors to the project instances they belong to, and returns that mapping
     static Map<IProject, List<BazelProblem>> assignErrorsToOwningProject(List<BazelProblem> errors,
             Map<BazelLabel, BazelProject> labelToProject, IProject rootProject) {
@@ -112,12 +151,23 @@ class BazelErrorPublisher {
     }
 
     private void clearProblemsView(IProgressMonitor monitor) {
+        markerManager.clear(getAllProjects(), monitor);
+    }
+
+    private List<IProject> getAllProjects() {
         List<IProject> allProjects = new ArrayList<>(projects.size() + 1);
         allProjects.addAll(projects);
         if (rootProject != null) {
             allProjects.add(rootProject);
         }
-        markerManager.clear(allProjects, monitor);
+        return allProjects;
+    }
+
+    private synchronized ProgressivePublishJob getProgressivePublishJob() {
+        if (progressivePublishJob == null) {
+            progressivePublishJob = new ProgressivePublishJob();
+        }
+        return progressivePublishJob;
     }
 
     private void publishToProblemsView(List<BazelProblem> errors, IProgressMonitor monitor) {
@@ -128,6 +178,69 @@ class BazelErrorPublisher {
         }
     }
 
+    /**
+     * Creates the markers for the queued problems. A job never runs concurrently with itself, and if it is scheduled
+     * while it runs it runs again afterwards, so the problems are published in order and none are left in the queue.
+     */
+    private class ProgressivePublishJob extends WorkspaceJob {
+        // projects whose markers from the previous build have been removed
+        private final Set<IProject> clearedProjects = new HashSet<>();
+        private boolean done = false;
+
+        ProgressivePublishJob() {
+            super("Publishing Bazel build problems");
+            setSystem(true);
+
+            // the default rule factory does not need a rule for markers, in particular not the workspace root
+            IResourceRuleFactory ruleFactory = ResourcesPlugin.getWorkspace().getRuleFactory();
+            ISchedulingRule rule = null;
+            for (IProject project : getAllProjects()) {
+                rule = MultiRule.combine(rule, ruleFactory.markerRule(project));
+            }
+            setRule(rule);
+        }
+
+        @Override
+        public IStatus runInWorkspace(IProgressMonitor monitor) {
+            List<BazelProblem> problems = new ArrayList<>();
+            for (BazelProblem problem = progressiveProblems.poll(); problem != null; problem =
+                    progressiveProblems.poll()) {
+                problems.add(problem);
+            }
+            if (done) {
+                return Status.OK_STATUS;
+            }
+            List<BazelProblem> errors = finalProblems;
+            try {
+                if (errors != null) {
+                    // the final list contains the problems that were published progressively
+                    done = true;
+                    markerManager.clearWithinRule(getAllProjects());
+                    publishWithinRule(errors, Collections.emptySet());
+                } else {
+                    clearedProjects.addAll(publishWithinRule(problems, clearedProjects));
+                }
+            } catch (Exception anyE) {
+                LOG.error("Failed to publish the Bazel build problems", anyE);
+            }
+            return Status.OK_STATUS;
+        }
+
+        /**
+         * Publishes the problems, first removing the previous markers of the projects not in the cleared set. Returns
+         * the projects that problems were published to.
+         */
+        private Set<IProject> publishWithinRule(List<BazelProblem> problems, Set<IProject> cleared) {
+            Map<IProject, List<BazelProblem>> projectToErrors =
+                    assignErrorsToOwningProject(problems, labelToProject, rootProject);
+            for (IProject project : projectToErrors.keySet()) {
+                markerManager.publishWithinRule(projectToErrors.get(project), project,
+                    !cleared.contains(project));
+            }
+            return projectToErrors.keySet();
+        }
+    }
+
     private static void mapProblemToProject(BazelProblem problem, IProject project,
             Map<IProject, List<BazelProblem>> projectToErrors) {
         List<BazelProblem> storedErrors = projectToErrors.get(project);
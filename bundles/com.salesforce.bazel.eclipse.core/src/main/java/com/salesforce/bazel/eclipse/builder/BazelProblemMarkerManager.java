@@ -138,6 +138,37 @@ public class BazelProblemMarkerManager {
         });
     }
 
+    /**
+     * Clears the markers associated with the specified projects and this instance's ownerId, for callers that already
+     * hold the marker rule of the projects, like a WorkspaceJob. Unlike {@link #clear(Collection, IProgressMonitor)},
+     * this does not need the workspace root rule, so it does not conflict with a running build.
+     *
+     * @param projects
+     *            the projects to clear the markers for
+     */
+    public void clearWithinRule(Collection<IProject> projects) {
+        runClear(projects);
+    }
+
+    /**
+     * Publishes specified BazelProblem instances as markers to the Problems View, for callers that already hold the
+     * marker rule of the project, like a WorkspaceJob. Unlike {@link #publish(List, IProject, IProgressMonitor)}, this
+     * does not need the workspace root rule, so it does not conflict with a running build.
+     *
+     * @param problems
+     *            the problems to publish
+     * @param project
+     *            the project to associate the published markers with
+     * @param clearBeforePublish
+     *            whether the markers previously published for the project are removed first
+     */
+    public void publishWithinRule(List<BazelProblem> problems, IProject project, boolean clearBeforePublish) {
+        if (clearBeforePublish) {
+            runClear(Collections.singleton(project));
+        }
+        runPublish(problems, project);
+    }
+
     private void runClear(Collection<IProject> projects) {
         for (IProject project : projects) {
             List<IMarker> markers = getAndRemoveMarkers(project);
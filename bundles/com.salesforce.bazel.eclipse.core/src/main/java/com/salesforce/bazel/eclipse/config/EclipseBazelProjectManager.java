@@ -33,10 +33,6 @@
  */
 package com.salesforce.bazel.eclipse.config;
 
-import java.io.File;
-import java.nio.file.FileSystems;
-import java.nio.file.Path;
-import java.nio.file.PathMatcher;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -48,15 +44,12 @@ import java.util.stream.Collectors;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IProjectDescription;
-import org.eclipse.core.resources.IResource;
-import org.eclipse.core.runtime.IPath;
-import org.eclipse.jdt.core.IClasspathEntry;
-import org.eclipse.jdt.core.IJavaProject;
 import org.osgi.service.prefs.BackingStoreException;
 import org.osgi.service.prefs.Preferences;
 
 import com.salesforce.bazel.eclipse.runtime.api.JavaCoreHelper;
 import com.salesforce.bazel.eclipse.runtime.api.ResourceHelper;
+import com.salesforce.bazel.eclipse.utils.EclipseSourcePathIndex;
 import com.salesforce.bazel.sdk.logging.LogHelper;
 import com.salesforce.bazel.sdk.model.BazelLabel;
 import com.salesforce.bazel.sdk.model.BazelWorkspace;
@@ -71,70 +64,26 @@ public class EclipseBazelProjectManager extends BazelProjectManager {
     private final JavaCoreHelper javaCoreHelper;
     private final LogHelper logger;
 
+    /**
+     * Index of the source folders of all projects, built on first use and refreshed per project when projects change.
+     */
+    private final EclipseSourcePathIndex sourcePathIndex;
+
     public EclipseBazelProjectManager(ResourceHelper resourceHelper, JavaCoreHelper javaCoreHelper) {
         this.resourceHelper = resourceHelper;
         this.javaCoreHelper = javaCoreHelper;
         logger = LogHelper.log(this.getClass());
+        sourcePathIndex = new EclipseSourcePathIndex(this::getAllProjects, () -> resourceHelper, () -> javaCoreHelper);
     }
 
     @Override
     public BazelProject getOwningProjectForSourcePath(BazelWorkspace bazelWorkspace, String sourcePath) {
-        Collection<BazelProject> bazelProjects = getAllProjects();
-
-        String canonicalSourcePathString =
-                FSPathHelper.getCanonicalPathStringSafely(bazelWorkspace.getBazelWorkspaceRootDirectory())
-                        + File.separator + sourcePath;
-        Path canonicalSourcePath = new File(canonicalSourcePathString).toPath();
-
-        for (BazelProject candidateProject : bazelProjects) {
-            IProject iProject = (IProject) candidateProject.getProjectImpl();
-            IJavaProject jProject = javaCoreHelper.getJavaProjectForProject(iProject);
-            IClasspathEntry[] classpathEntries = javaCoreHelper.getRawClasspath(jProject);
-            if (classpathEntries == null) {
-                logger.error("No classpath entries found for project [" + jProject.getElementName() + "]");
-                continue;
-            }
-            for (IClasspathEntry entry : classpathEntries) {
-                if (entry.getEntryKind() != IClasspathEntry.CPE_SOURCE) {
-                    continue;
-                }
-                IResource res = resourceHelper.findMemberInWorkspace(entry.getPath());
-                if (res == null) {
-                    continue;
-                }
-                IPath projectLocation = res.getLocation();
-                if ((projectLocation != null) && !projectLocation.isEmpty()) {
-                    String canonicalProjectRoot =
-                            FSPathHelper.getCanonicalPathStringSafely(projectLocation.toOSString());
-                    if (canonicalSourcePathString.startsWith(canonicalProjectRoot)) {
-                        IPath[] inclusionPatterns = entry.getInclusionPatterns();
-                        IPath[] exclusionPatterns = entry.getExclusionPatterns();
-                        if (!matchPatterns(canonicalSourcePath, exclusionPatterns)
-                                && ((inclusionPatterns == null) || (inclusionPatterns.length == 0)
-                                        || matchPatterns(canonicalSourcePath, inclusionPatterns))) {
-                            return candidateProject;
-                        }
-                    }
-                }
-            }
-        }
-        return null;
+        return sourcePathIndex.findOwningProject(bazelWorkspace, sourcePath);
     }
 
-    /**
-     * Globby match of file system patterns for a given path. If the path matches any of the patterns, this method
-     * returns true.
-     */
-    private boolean matchPatterns(Path path, IPath[] patterns) {
-        if (patterns != null) {
-            for (IPath p : patterns) {
-                PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + p.toOSString());
-                if (matcher.matches(path)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    @Override
+    public void invalidateSourcePathIndex(String projectName) {
+        sourcePathIndex.updateProject(projectName);
     }
 
     @Override
@@ -43,6 +43,9 @@ import org.eclipse.jdt.junit.launcher.JUnitLaunchConfigurationDelegate;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.swt.widgets.Display;
 
+import com.salesforce.bazel.eclipse.classpath.CallSource;
+import com.salesforce.bazel.eclipse.classpath.ClasspathCallContext;
+
 /**
  * Plug point into the Eclipse JUnit launcher call chain; allows us to inject the Bazel runtime classpath provider so
  * the test uses the Bazel computed classpath.
@@ -62,7 +65,8 @@ public class BazelJunitLaunchConfigurationDelegate extends JUnitLaunchConfigurat
         BazelTestClasspathProvider.enable(configuration);
         BazelTestClasspathProvider.canOpenErrorDialog.set(true);
 
-        try {
+        // the Bazel classpath container adjusts the classpath it returns for JUnit launches
+        try (ClasspathCallContext context = ClasspathCallContext.enter(CallSource.JUNIT)) {
             super.launch(configuration, mode, launch, monitor);
         } catch (Exception anyE) {
             if (BazelTestClasspathProvider.canOpenErrorDialog.get()) {
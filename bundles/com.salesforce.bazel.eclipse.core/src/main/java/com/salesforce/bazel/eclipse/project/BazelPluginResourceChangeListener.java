@@ -29,8 +29,10 @@ import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
 
 import com.salesforce.bazel.eclipse.BazelNature;
+import com.salesforce.bazel.eclipse.component.ComponentContext;
 import com.salesforce.bazel.eclipse.component.EclipseBazelWorkspaceContext;
 import com.salesforce.bazel.sdk.logging.LogHelper;
+import com.salesforce.bazel.sdk.project.BazelProjectManager;
 
 /**
  * Global change listener for Bazel plugin for Eclipse Workspaces.
@@ -52,6 +54,11 @@ public class BazelPluginResourceChangeListener implements IResourceChangeListene
                     && (event.getType() == IResourceChangeEvent.PRE_DELETE)) {
                 LOG.info("User is deleting the Bazel Workspace project {} from the Eclipse workspace", name);
                 EclipseBazelWorkspaceContext.getInstance().resetBazelWorkspace();
+            } else if (event.getType() == IResourceChangeEvent.PRE_DELETE) {
+                BazelProjectManager projectManager = ComponentContext.getInstance().getProjectManager();
+                if (projectManager != null) {
+                    projectManager.removeProject(name);
+                }
             }
         }
     }
@@ -80,6 +80,7 @@ public class SetupRootClasspathContainerFlow implements ImportFlow {
             List<File> additionalJarLocations = BazelGlobalSearchClasspathContainer.loadAdditionalLocations();
 
             JvmCodeIndexer indexer = new JvmCodeIndexer();
+            indexer.setIndexPersister(BazelGlobalSearchClasspathContainer.buildIndexPersister(bazelWorkspace));
             JvmCodeIndexerOptions indexerOptions = JvmCodeIndexerOptions.buildJvmGlobalSearchOptions();
             
             // this might take a while if it hasn't been computed yet
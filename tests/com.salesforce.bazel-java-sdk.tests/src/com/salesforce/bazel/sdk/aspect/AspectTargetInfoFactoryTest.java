@@ -0,0 +1,133 @@
+package com.salesforce.bazel.sdk.aspect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.bazel.sdk.aspect.jvm.JVMAspectTargetInfo;
+import com.salesforce.bazel.sdk.workspace.test.TestAspectFileCreator;
+
+/**
+ * The aspect files are parsed with a streaming reader that binds directly into the model. These tests verify that the
+ * result is the same as when the file is parsed into a json-simple tree first.
+ */
+public class AspectTargetInfoFactoryTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private static final String handcraftedAspect = "{\n" //
+            + "  \"build_file_artifact_location\": {\"relative_path\": \"projects/libs/apple/BUILD\", \"is_source\": true},\n"
+            + "  \"unknown_array\": [{\"a\": [1, 2.5, -3e2, null]}, [], \"x\"],\n" //
+            + "  \"deps\": [\n" //
+            + "    {\"dependency_type\": 0, \"target\": {\"label\": \"//projects/libs/banana:banana\"}},\n"
+            + "    {\"target\": {\"label\": \"@maven//:com_google_guava_guava\", \"extra\": {\"y\": false}}}\n"
+            + "  ],\n" //
+            + "  \"java_ide_info\": {\n" //
+            + "    \"unknown\": {\"nested\": [\"}\", \"]\"]},\n" //
+            + "    \"jars\": [{\n" //
+            + "      \"jar\": {\"relative_path\": \"projects/libs/apple/libapple.jar\", \"root_execution_path_fragment\": \"bazel-out/k8-fastbuild/bin\"},\n"
+            + "      \"interface_jar\": {\"relative_path\": \"projects/libs/apple/libapple-hjar.jar\", \"root_execution_path_fragment\": \"bazel-out/k8-fastbuild/bin\"},\n"
+            + "      \"source_jar\": {\"relative_path\": \"projects/libs/apple/libapple-src.jar\", \"is_external\": false}\n"
+            + "    }],\n" //
+            + "    \"generated_jars\": [{\"jar\": {\"relative_path\": \"gen/libapple-gen.jar\"}}],\n" //
+            + "    \"main_class\": \"demo.apple.\\u0041pple\",\n" //
+            + "    \"sources\": [{\"relative_path\": \"projects/libs/apple/src/main/java/demo/apple/Apple.java\"},"
+            + " {\"relative_path\": \"projects/libs/apple/src/main/java/demo/apple/\\\"Quoted\\\".java\"}]\n" //
+            + "  },\n" //
+            + "  \"kind_string\": \"java_library\",\n" //
+            + "  \"key\": {\"label\": \"//projects/libs/apple:apple\", \"aspect_ids\": [\"x\"]}\n" //
+            + "}\n";
+
+    private static final String noIdeInfoAspect = "{\n" //
+            + "  \"build_file_artifact_location\": {\"relative_path\": \"projects/libs/proto/BUILD\"},\n"
+            + "  \"kind_string\": \"proto_library\",\n" //
+            + "  \"key\": {\"label\": \"//projects/libs/proto:proto\"}\n" //
+            + "}\n";
+
+    @Test
+    public void testStreamingMatchesTreeParse() throws Exception {
+        List<String> deps = Arrays.asList("//projects/libs/banana:banana");
+        List<String> sources = Arrays.asList("projects/libs/apple/src/main/java/demo/apple/Apple.java",
+            "projects/libs/apple/src/main/java/demo/apple/Orchard.java");
+
+        List<String> jsons = new ArrayList<>();
+        jsons.add(TestAspectFileCreator.createAspectJsonForJavaLibraryTarget("projects/libs/apple", "apple", "apple",
+            deps, sources));
+        jsons.add(TestAspectFileCreator.createAspectJsonForJavaTestTarget("projects/libs/apple", "apple", "apple-test",
+            deps, sources, true));
+        jsons.add(TestAspectFileCreator.createAspectJsonForJavaArtifact("external/maven/BUILD.bazel", true, null, null,
+            "demo.Main", "@maven//:junit_junit", "java_import", "external/maven/junit.jar", null,
+            "external/maven/junit-sources.jar"));
+        jsons.add(handcraftedAspect);
+        jsons.add(noIdeInfoAspect);
+
+        int i = 0;
+        for (String json : jsons) {
+            File aspectFile = tmpFolder.newFile("target" + i++ + AspectTargetInfoFactory.ASPECT_FILENAME_SUFFIX);
+            Files.write(aspectFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+
+            AspectTargetInfo expected = AspectTargetInfoFactory.loadAspectFileAsTree(aspectFile);
+            AspectTargetInfo actual = AspectTargetInfoFactory.loadAspectFile(aspectFile);
+            assertNotNull(json, expected);
+            assertNotNull(json, actual);
+            assertEquals(expected.getClass(), actual.getClass());
+            assertEquals(expected.toString(), actual.toString());
+            assertEquals(expected.getDeps(), actual.getDeps());
+            assertEquals(expected.getSources(), actual.getSources());
+            assertEquals(expected.getWorkspaceRelativePath(), actual.getWorkspaceRelativePath());
+            if (expected instanceof JVMAspectTargetInfo) {
+                // JVMAspectOutputJarSet does not implement equals()
+                assertEquals(((JVMAspectTargetInfo) expected).getJars().toString(),
+                    ((JVMAspectTargetInfo) actual).getJars().toString());
+                assertEquals(((JVMAspectTargetInfo) expected).getGeneratedJars().toString(),
+                    ((JVMAspectTargetInfo) actual).getGeneratedJars().toString());
+                assertEquals(((JVMAspectTargetInfo) expected).getMainClass(),
+                    ((JVMAspectTargetInfo) actual).getMainClass());
+            }
+        }
+    }
+
+    @Test
+    public void testBuildFileArtifactLocation() throws Exception {
+        File aspectFile = tmpFolder.newFile("apple" + AspectTargetInfoFactory.ASPECT_FILENAME_SUFFIX);
+        Files.write(aspectFile.toPath(), handcraftedAspect.getBytes(StandardCharsets.UTF_8));
+        assertEquals("projects/libs/apple/BUILD",
+            AspectTargetInfoFactory.loadAspectFile(aspectFile).getWorkspaceRelativePath());
+
+        // the test aspect files contain the location as a plain string
+        aspectFile = tmpFolder.newFile("junit" + AspectTargetInfoFactory.ASPECT_FILENAME_SUFFIX);
+        Files.write(aspectFile.toPath(),
+            TestAspectFileCreator.createAspectJsonForJavaArtifact("external/maven/BUILD.bazel", true, null, null,
+                "demo.Main", "@maven//:junit_junit", "java_import", "external/maven/junit.jar", null,
+                "external/maven/junit-sources.jar").getBytes(StandardCharsets.UTF_8));
+        assertEquals("external/maven/BUILD.bazel",
+            AspectTargetInfoFactory.loadAspectFile(aspectFile).getWorkspaceRelativePath());
+    }
+
+    @Test
+    public void testMalformedAspectFile() throws Exception {
+        File aspectFile = tmpFolder.newFile("broken" + AspectTargetInfoFactory.ASPECT_FILENAME_SUFFIX);
+        Files.write(aspectFile.toPath(), handcraftedAspect.substring(0, 300).getBytes(StandardCharsets.UTF_8));
+
+        try {
+            AspectTargetInfoFactory.loadAspectFileAsTree(aspectFile);
+            fail("tree parse should reject a truncated file");
+        } catch (IllegalArgumentException expected) {}
+        try {
+            AspectTargetInfoFactory.loadAspectFile(aspectFile);
+            fail("streaming parse should reject a truncated file");
+        } catch (IllegalArgumentException expected) {}
+    }
+}
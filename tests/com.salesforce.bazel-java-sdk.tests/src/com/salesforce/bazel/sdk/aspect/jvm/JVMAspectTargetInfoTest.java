@@ -0,0 +1,72 @@
+package com.salesforce.bazel.sdk.aspect.jvm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Test;
+
+public class JVMAspectTargetInfoTest {
+
+    private static final int NUM_JARS = 50;
+
+    /**
+     * The jar sets are built directly from the already parsed json. They must be the same as with the old approach,
+     * which serialized each jar set back to json text and parsed it again.
+     */
+    @Test
+    public void testJarSetBinding() throws Exception {
+        JSONObject aspectObject = (JSONObject) new JSONParser().parse(createSyntheticAspectJson(NUM_JARS));
+        JSONArray jarsArray = (JSONArray) ((JSONObject) aspectObject.get("java_ide_info")).get("jars");
+        File aspectFile = new File("synthetic.bzljavasdk-data.json");
+
+        JVMAspectTargetInfo targetInfo = new JVMAspectTargetInfo(aspectFile, aspectObject, "synthetic/BUILD",
+                "java_library", "//synthetic:synthetic", Collections.emptyList());
+        List<JVMAspectOutputJarSet> jars = targetInfo.getJars();
+        assertEquals(NUM_JARS, jars.size());
+        assertEquals(jarSetsByRoundTrip(jarsArray).toString(), jars.toString());
+        assertEquals(jars.toString(), JVMAspectTargetInfo.jsonArrayToJarArray(jarsArray).toString());
+
+        String base = "external/maven/v1/https/repo1.maven.org/maven2/com/example/lib7/1.0/lib7";
+        JVMAspectOutputJarSet jarSet = jars.get(7);
+        assertTrue(jarSet.getJar().endsWith(base + ".jar"));
+        assertTrue(jarSet.getInterfaceJar().endsWith(base + "-hjar.jar"));
+        assertTrue(jarSet.getSrcJar().endsWith(base + "-sources.jar"));
+        assertTrue(targetInfo.getGeneratedJars().isEmpty());
+    }
+
+    private static List<JVMAspectOutputJarSet> jarSetsByRoundTrip(JSONArray jarsArray) throws Exception {
+        JSONParser jsonParser = new JSONParser();
+        List<JVMAspectOutputJarSet> jarList = new ArrayList<>();
+        for (Object jarSet : jarsArray) {
+            JSONObject jarSetObject = (JSONObject) jsonParser.parse(jarSet.toString());
+            jarList.add(new JVMAspectOutputJarSet(jarSetObject));
+        }
+        return jarList;
+    }
+
+    private static String createSyntheticAspectJson(int numJars) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"kind_string\":\"java_library\",\"key\":{\"label\":\"//synthetic:synthetic\"},");
+        sb.append("\"java_ide_info\":{\"sources\":[],\"generated_jars\":[],\"jars\":[");
+        for (int i = 0; i < numJars; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            String base = "external/maven/v1/https/repo1.maven.org/maven2/com/example/lib" + i + "/1.0/lib" + i;
+            sb.append("{\"jar\":{\"relative_path\":\"").append(base).append(".jar\",");
+            sb.append("\"root_execution_path_fragment\":\"bazel-out/k8-fastbuild/bin\"},");
+            sb.append("\"interface_jar\":{\"relative_path\":\"").append(base).append("-hjar.jar\"},");
+            sb.append("\"source_jar\":{\"relative_path\":\"").append(base).append("-sources.jar\"}}");
+        }
+        sb.append("]}}");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.bep.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.bazel.sdk.bep.BazelBuildEventsPollingFileStream;
+import com.salesforce.bazel.sdk.bep.event.BEPEvent;
+import com.salesforce.bazel.sdk.bep.event.BEPStartedEvent;
+
+public class BEPFileParserTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testReadNewEventsOnlyReadsAppendedLines() throws Exception {
+        File bepFile = tmpFolder.newFile("bep_build.json");
+        write(bepFile, startedEvent("1622343691246") + progressEvent(1) + progressEvent(2), false);
+        BEPFileParser parser = new BEPFileParser(bepFile);
+
+        BEPFileContents contents = parser.readNewEvents("test");
+        assertEquals(3, contents.events.size());
+        assertEquals(1622343691246L, contents.startedEvent.getStartTimeMillis());
+        assertEquals(bepFile.length(), parser.getTailOffset());
+
+        // nothing new
+        assertTrue(parser.readNewEvents("test").events.isEmpty());
+
+        // a complete line and a partial line, only the complete line is parsed
+        String nextEvent = progressEvent(4);
+        write(bepFile, progressEvent(3) + nextEvent.substring(0, 20), true);
+        contents = parser.readNewEvents("test");
+        assertEquals(1, contents.events.size());
+        assertEquals(3, contents.events.get(0).getIndex());
+        assertFalse(contents.hasLastEvent);
+        // the started event is reported for the build, even though it was not read in this pass
+        assertEquals(1622343691246L, contents.startedEvent.getStartTimeMillis());
+
+        // the partial line is completed
+        write(bepFile, nextEvent.substring(20) + finishedEvent(), true);
+        contents = parser.readNewEvents("test");
+        assertEquals(2, contents.events.size());
+        assertEquals(4, contents.events.get(0).getIndex());
+        assertTrue(contents.hasLastEvent);
+        assertEquals(bepFile.length(), parser.getTailOffset());
+    }
+
+    @Test
+    public void testReadNewEventsMatchesReadEvents() throws Exception {
+        File bepFile = tmpFolder.newFile("bep_build.json");
+        StringBuilder sb = new StringBuilder(startedEvent("1622343691246"));
+        for (int i = 1; i < 2000; i++) {
+            sb.append(progressEvent(i));
+        }
+        sb.append(finishedEvent());
+        write(bepFile, sb.toString(), false);
+
+        BEPFileContents fullContents = new BEPFileParser(bepFile).readEvents("test", null);
+        BEPFileContents tailContents = new BEPFileParser(bepFile).readNewEvents("test");
+        assertEquals(fullContents.events.size(), tailContents.events.size());
+        for (int i = 0; i < fullContents.events.size(); i++) {
+            BEPEvent expected = fullContents.events.get(i);
+            BEPEvent actual = tailContents.events.get(i);
+            assertEquals(expected.getEventType(), actual.getEventType());
+            assertEquals(expected.getIndex(), actual.getIndex());
+        }
+        assertEquals(fullContents.hasLastEvent, tailContents.hasLastEvent);
+    }
+
+    @Test
+    public void testTruncatedOrReplacedFileIsReadFromStart() throws Exception {
+        File bepFile = tmpFolder.newFile("bep_build.json");
+        write(bepFile, startedEvent("1000000000000") + progressEvent(1) + progressEvent(2) + finishedEvent(), false);
+        BEPFileParser parser = new BEPFileParser(bepFile);
+        assertEquals(4, parser.readNewEvents("test").events.size());
+
+        // a new build truncates the file
+        write(bepFile, startedEvent("2000000000000") + progressEvent(1), false);
+        BEPFileContents contents = parser.readNewEvents("test");
+        assertEquals(2, contents.events.size());
+        assertEquals(BEPStartedEvent.NAME, contents.events.get(0).getEventType());
+        assertEquals(2000000000000L, contents.startedEvent.getStartTimeMillis());
+        assertFalse(contents.hasLastEvent);
+
+        // a new build that already wrote more than we had read before
+        StringBuilder sb = new StringBuilder(startedEvent("3000000000000"));
+        for (int i = 1; i < 10; i++) {
+            sb.append(progressEvent(i));
+        }
+        write(bepFile, sb.toString(), false);
+        contents = parser.readNewEvents("test");
+        assertEquals(10, contents.events.size());
+        assertEquals(0, contents.events.get(0).getIndex());
+        assertEquals(3000000000000L, contents.startedEvent.getStartTimeMillis());
+    }
+
+    @Test
+    public void testReplacedFileClearsErrorEvents() throws Exception {
+        File bepFile = tmpFolder.newFile("bep_build.json");
+        write(bepFile, startedEvent("1000000000000") + progressEvent(1) + finishedEvent(false), false);
+        BEPFileParser parser = new BEPFileParser(bepFile);
+        parser.readNewEvents("test");
+        assertEquals(1, parser.getBuildErrorEvents().size());
+
+        // a new build rewrites the file, the errors of the previous build are no longer reported
+        write(bepFile, startedEvent("2000000000000") + progressEvent(1) + finishedEvent(), false);
+        parser.readNewEvents("test");
+        assertTrue(parser.getBuildErrorEvents().isEmpty());
+
+        // a failure of the new build is reported once
+        write(bepFile, startedEvent("3000000000000") + progressEvent(1) + progressEvent(2) + finishedEvent(false),
+            false);
+        parser.readNewEvents("test");
+        assertEquals(1, parser.getBuildErrorEvents().size());
+        assertEquals(3, parser.getBuildErrorEvents().get(0).getIndex());
+    }
+
+    @Test
+    public void testSkipExistingEvents() throws Exception {
+        File bepFile = tmpFolder.newFile("bep_build.json");
+        write(bepFile, startedEvent("1622343691246") + progressEvent(1), false);
+        BEPFileParser parser = new BEPFileParser(bepFile);
+        parser.skipExistingEvents();
+        assertEquals(bepFile.length(), parser.getTailOffset());
+
+        write(bepFile, progressEvent(2), true);
+        assertEquals(1, parser.readNewEvents("test").events.size());
+    }
+
+    @Test
+    public void testPollingStreamTailsAndStops() throws Exception {
+        File bepFile = tmpFolder.newFile("bep_test.json");
+        write(bepFile, startedEvent("1622343691246") + progressEvent(1), false);
+
+        BazelBuildEventsPollingFileStream stream = new BazelBuildEventsPollingFileStream();
+        stream.setFilePollerIntervalSeconds(1);
+        stream.setUseWatchService(true);
+        stream.addFileToMonitor(bepFile, false);
+        List<BEPEvent> received = new CopyOnWriteArrayList<>();
+        stream.subscribe(received::add);
+        stream.activateStream();
+        try {
+            write(bepFile, progressEvent(2) + finishedEvent(), true);
+            long deadline = System.currentTimeMillis() + 10000;
+            while ((received.size() < 2) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(50);
+            }
+            // the events written before the stream was created are not published
+            assertEquals(2, received.size());
+            assertTrue(received.get(1).isLastMessage());
+        } finally {
+            stream.stopStream();
+        }
+        boolean pollerAlive = Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(t -> t.getName().equals("bzl-bep-file-poller") && t.isAlive());
+        assertFalse(pollerAlive);
+    }
+
+    // HELPERS
+
+    private static void write(File file, String content, boolean append) throws Exception {
+        if (append) {
+            Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        } else {
+            Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+
+    private static String startedEvent(String startTimeMillis) {
+        return "{\"id\":{\"started\":{}},\"children\":[{\"progress\":{}},{\"buildFinished\":{}}],"
+                + "\"started\":{\"uuid\":\"b4fa160a-2233-48de-b4d1-463a20c67256\",\"startTimeMillis\":\""
+                + startTimeMillis + "\",\"buildToolVersion\":\"3.7.1\",\"command\":\"build\","
+                + "\"workingDirectory\":\"/tmp/ws\",\"workspaceDirectory\":\"/tmp/ws\",\"serverPid\":\"58316\"}}\n";
+    }
+
+    private static String progressEvent(int count) {
+        return "{\"id\":{\"progress\":{\"opaqueCount\":" + count + "}},\"children\":[{\"progress\":{\"opaqueCount\":"
+                + (count + 1) + "}}],\"progress\":{\"stderr\":\"Analyzing: target //foo:bar" + count + "\\n\"}}\n";
+    }
+
+    private static String finishedEvent() {
+        return finishedEvent(true);
+    }
+
+    private static String finishedEvent(boolean overallSuccess) {
+        return "{\"id\":{\"buildFinished\":{}},\"lastMessage\":true,\"finished\":{\"overallSuccess\":"
+                + overallSuccess + ",\"exitCode\":{\"name\":\"" + (overallSuccess ? "SUCCESS" : "BUILD_FAILURE")
+                + "\"},\"finishTimeMillis\":\"1622343692246\"}}\n";
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.salesforce.bazel.sdk.command.test.TestBazelCommandEnvironmentFactory;
+import com.salesforce.bazel.sdk.model.BazelWorkspace;
+import com.salesforce.bazel.sdk.workspace.OperatingEnvironmentDetectionStrategy;
+import com.salesforce.bazel.sdk.workspace.test.TestOptions;
+
+public class BazelCommandManagerTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testWorkspaceRunnerIsSharedAcrossThreads() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        env.createTestEnvironment(testDir, new TestOptions());
+        BazelCommandManager manager = env.bazelCommandManager;
+        File workspaceRoot = env.testWorkspace.workspaceDescriptor.workspaceRootDirectory;
+
+        // different spellings of the same workspace root
+        File symlinkRoot = new File(testDir, "bazel-ws-link");
+        Files.createSymbolicLink(symlinkRoot.toPath(), workspaceRoot.toPath());
+        File[] roots = new File[] { workspaceRoot, symlinkRoot,
+                new File(workspaceRoot, ".." + File.separator + workspaceRoot.getName()) };
+
+        int threadCount = 16;
+        OperatingEnvironmentDetectionStrategy osStrategy = Mockito.mock(OperatingEnvironmentDetectionStrategy.class);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            for (int round = 0; round < 20; round++) {
+                String workspaceName = "ws" + round;
+                File roundRoot = new File(testDir, workspaceName);
+                roundRoot.mkdirs();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<BazelWorkspaceCommandRunner>> lookups = new ArrayList<>();
+                for (int i = 0; i < threadCount; i++) {
+                    File root = ((i % 2) == 0) ? roundRoot : roots[i % roots.length];
+                    lookups.add(executor.submit(() -> {
+                        start.await();
+                        return manager.getWorkspaceCommandRunner(new BazelWorkspace(workspaceName, root, osStrategy));
+                    }));
+                }
+                start.countDown();
+
+                BazelWorkspaceCommandRunner roundRunner = null;
+                for (int i = 0; i < threadCount; i++) {
+                    BazelWorkspaceCommandRunner runner = lookups.get(i).get(10, TimeUnit.SECONDS);
+                    if ((i % 2) == 0) {
+                        if (roundRunner == null) {
+                            roundRunner = runner;
+                        }
+                        assertSame(roundRunner, runner);
+                    } else {
+                        // the runner created by the environment is reused, whatever path is used to reach it
+                        assertSame(env.bazelWorkspaceCommandRunner, runner);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // the environment workspace, plus one per round
+        assertEquals(21, manager.getWorkspaceCommandRunnerCount());
+    }
+}
@@ -24,20 +24,32 @@
 package com.salesforce.bazel.sdk.command;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import com.salesforce.bazel.sdk.aspect.AspectTargetInfo;
+import com.salesforce.bazel.sdk.command.internal.BazelQueryResultCache;
 import com.salesforce.bazel.sdk.command.test.MockWorkProgressMonitor;
 import com.salesforce.bazel.sdk.command.test.TestBazelCommandEnvironmentFactory;
 import com.salesforce.bazel.sdk.model.BazelLabel;
+import com.salesforce.bazel.sdk.model.BazelProblem;
 import com.salesforce.bazel.sdk.workspace.test.TestBazelWorkspaceDescriptor;
 import com.salesforce.bazel.sdk.workspace.test.TestBazelWorkspaceFactory;
 import com.salesforce.bazel.sdk.workspace.test.TestOptions;
@@ -126,4 +138,225 @@ public class BazelWorkspaceCommandRunnerTest {
         // run a clean, should not throw an exception
         workspaceRunner.runBazelClean(new MockWorkProgressMonitor());
     }
+
+    @Test
+    public void testWorkspaceRunner_queryCache() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazelws-qcache");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "obase-qcache");
+        outputbaseDir.mkdirs();
+
+        TestOptions testOptions = new TestOptions().numberOfJavaPackages(3);
+        TestBazelWorkspaceDescriptor descriptor =
+                new TestBazelWorkspaceDescriptor(workspaceDir, outputbaseDir).testOptions(testOptions);
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(descriptor);
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        workspace.build();
+        env.createTestEnvironment(workspace, testDir, testOptions);
+        BazelWorkspaceCommandRunner workspaceRunner = env.bazelWorkspaceCommandRunner;
+        BazelQueryResultCache cache = workspaceRunner.getQueryResultCache();
+
+        // interleave queries for two packages, each is only run once (MockQueryCommand simulates the responses)
+        String query0 = "kind(rule, set(//projects/libs/javalib0:*))";
+        String query1 = "kind(rule, set(//projects/libs/javalib1:*))";
+        List<String> results0 = workspaceRunner.computeBazelQuery(query0);
+        List<String> results1 = workspaceRunner.computeBazelQuery(query1);
+        assertEquals(results0, workspaceRunner.computeBazelQuery(query0));
+        assertEquals(results1, workspaceRunner.computeBazelQuery(query1));
+        assertEquals(2, env.commandBuilder.getBazelCommandCount("query"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        // a BUILD file change in javalib0 only flushes the query for that package
+        workspaceRunner.flushQueryCache(new BazelLabel("//projects/libs/javalib0"));
+        workspaceRunner.computeBazelQuery(query0);
+        workspaceRunner.computeBazelQuery(query1);
+        assertEquals(3, env.commandBuilder.getBazelCommandCount("query"));
+        assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void testWorkspaceRunner_queryFlushedWhileRunning() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazelws-qflush");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "obase-qflush");
+        outputbaseDir.mkdirs();
+
+        TestOptions testOptions = new TestOptions().numberOfJavaPackages(2);
+        TestBazelWorkspaceDescriptor descriptor =
+                new TestBazelWorkspaceDescriptor(workspaceDir, outputbaseDir).testOptions(testOptions);
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(descriptor);
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        workspace.build();
+        env.createTestEnvironment(workspace, testDir, testOptions);
+        BazelWorkspaceCommandRunner workspaceRunner = env.bazelWorkspaceCommandRunner;
+        BazelLabel lib0 = new BazelLabel("//projects/libs/javalib0");
+        List<BazelLabel> lib0Targets = Collections.singletonList(new BazelLabel("//projects/libs/javalib0:*"));
+
+        // the BUILD file of javalib0 changes while each query is running
+        env.commandBuilder.commandListener = args -> {
+            if ((args.size() > 1) && "query".equals(args.get(1))) {
+                workspaceRunner.flushQueryCache(lib0);
+            }
+        };
+        String query0 = "kind(rule, set(//projects/libs/javalib0:*))";
+        String query1 = "kind(rule, set(//projects/libs/javalib1:*))";
+        workspaceRunner.computeBazelQuery(query1);
+        workspaceRunner.queryBazelTargetsInBuildFile(lib0Targets);
+        workspaceRunner.computeBazelQuery(query0);
+        assertEquals(3, env.commandBuilder.getBazelCommandCount("query"));
+        env.commandBuilder.commandListener = null;
+
+        // the results that were current when the queries started are not cached, the others are
+        workspaceRunner.computeBazelQuery(query0);
+        workspaceRunner.computeBazelQuery(query1);
+        workspaceRunner.queryBazelTargetsInBuildFile(lib0Targets);
+        assertEquals(5, env.commandBuilder.getBazelCommandCount("query"));
+
+        // now that nothing changes during the queries, the results are cached
+        workspaceRunner.computeBazelQuery(query0);
+        workspaceRunner.queryBazelTargetsInBuildFile(lib0Targets);
+        assertEquals(5, env.commandBuilder.getBazelCommandCount("query"));
+    }
+
+    @Test
+    public void testWorkspaceRunner_infoMemoized() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazelws-info");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "obase-info");
+        outputbaseDir.mkdirs();
+
+        TestOptions testOptions = new TestOptions().numberOfJavaPackages(1);
+        TestBazelWorkspaceDescriptor descriptor =
+                new TestBazelWorkspaceDescriptor(workspaceDir, outputbaseDir).testOptions(testOptions);
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(descriptor);
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        workspace.build();
+        env.createTestEnvironment(workspace, testDir, testOptions);
+        BazelWorkspaceCommandRunner workspaceRunner = env.bazelWorkspaceCommandRunner;
+
+        // all the info based lookups share a single 'bazel info' invocation
+        assertEquals(descriptor.dirExecRoot.getCanonicalFile(), workspaceRunner.computeBazelWorkspaceExecRoot());
+        assertEquals(outputbaseDir.getCanonicalFile(), workspaceRunner.computeBazelWorkspaceOutputBase());
+        assertEquals(descriptor.dirBazelBin.getCanonicalFile(), workspaceRunner.computeBazelWorkspaceBin());
+        assertEquals(descriptor.dirBazelBin.getAbsoluteFile(), workspaceRunner.getBazelGeneratedFilesFolder());
+        workspaceRunner.getProjectOutputPath(new BazelLabel("//projects/libs/javalib0:javalib0"));
+        workspaceRunner.getProjectOutputPath(new BazelLabel("//projects/libs/javalib0:javalib0"));
+        assertEquals(1, env.commandBuilder.getBazelCommandCount("info"));
+
+        // a .bazelrc change may change the output locations, it is noticed on the next config check
+        Files.write(new File(workspaceDir, ".bazelrc").toPath(), "build --jobs 4\n".getBytes());
+        workspaceRunner.workspaceConfigCheckIntervalMillis = 0L;
+        workspaceRunner.computeBazelWorkspaceExecRoot();
+        workspaceRunner.computeBazelWorkspaceBin();
+        assertEquals(2, env.commandBuilder.getBazelCommandCount("info"));
+
+        // the canonical locations are flushed with the info
+        workspaceRunner.flushBazelWorkspaceInfo();
+        assertEquals(descriptor.dirBazelBin.getCanonicalFile(), workspaceRunner.computeBazelWorkspaceBin());
+        assertEquals(3, env.commandBuilder.getBazelCommandCount("info"));
+    }
+
+    @Test
+    public void testWorkspaceRunner_cacheGeneration() throws Exception {
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        env.createTestEnvironment(tmpFolder.newFolder(), new TestOptions().numberOfJavaPackages(2));
+        BazelWorkspaceCommandRunner workspaceRunner = env.bazelWorkspaceCommandRunner;
+        String lib0 = "projects/libs/javalib0";
+        String lib1 = "projects/libs/javalib1";
+
+        // package flushes only change the generation of that package
+        long lib0Generation = workspaceRunner.getCacheGeneration(lib0);
+        long lib1Generation = workspaceRunner.getCacheGeneration(lib1);
+        workspaceRunner.flushAspectInfoCache("//projects/libs/javalib0:javalib0");
+        assertTrue(workspaceRunner.getCacheGeneration(lib0) > lib0Generation);
+        assertEquals(lib1Generation, workspaceRunner.getCacheGeneration(lib1));
+
+        lib0Generation = workspaceRunner.getCacheGeneration(lib0);
+        workspaceRunner.flushQueryCache(new BazelLabel("//projects/libs/javalib1"));
+        assertEquals(lib0Generation, workspaceRunner.getCacheGeneration(lib0));
+        assertTrue(workspaceRunner.getCacheGeneration(lib1) > lib1Generation);
+
+        // workspace flushes change the generation of all packages
+        lib0Generation = workspaceRunner.getCacheGeneration(lib0);
+        lib1Generation = workspaceRunner.getCacheGeneration(lib1);
+        workspaceRunner.flushAspectInfoCache();
+        assertTrue(workspaceRunner.getCacheGeneration(lib0) > lib0Generation);
+        assertTrue(workspaceRunner.getCacheGeneration(lib1) > lib1Generation);
+    }
+
+    @Test
+    public void testWorkspaceRunner_cachedReadsDoNotWaitForBuild() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazelws-contention");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "obase-contention");
+        outputbaseDir.mkdirs();
+
+        TestOptions testOptions = new TestOptions().numberOfJavaPackages(3);
+        TestBazelWorkspaceDescriptor descriptor =
+                new TestBazelWorkspaceDescriptor(workspaceDir, outputbaseDir).testOptions(testOptions);
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(descriptor);
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        workspace.build();
+        env.createTestEnvironment(workspace, testDir, testOptions);
+        BazelWorkspaceCommandRunner workspaceRunner = env.bazelWorkspaceCommandRunner;
+
+        // warm the caches
+        String query = "kind(rule, set(//projects/libs/javalib0:*))";
+        Set<String> aspectTargets = Collections.singleton("//projects/libs/javalib0:*");
+        File execRoot = workspaceRunner.computeBazelWorkspaceExecRoot();
+        List<String> queryResults = workspaceRunner.computeBazelQuery(query);
+        workspaceRunner.getAspectTargetInfos(aspectTargets, "warmup");
+
+        // start a long build, which holds the Bazel client
+        long buildMillis = 2000;
+        testOptions.buildLatencyMillis = buildMillis;
+        ExecutorService executor = Executors.newFixedThreadPool(9);
+        try {
+            Set<String> buildTargets = Collections.singleton("//projects/libs/javalib0");
+            Future<List<BazelProblem>> build = executor
+                    .submit(() -> workspaceRunner.runBazelBuild(buildTargets, Collections.emptyList()));
+            Thread.sleep(100);
+            assertFalse(build.isDone());
+
+            // cached reads from many threads are answered while the build is running
+            List<Future<Long>> readers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int reader = i;
+                readers.add(executor.submit(() -> {
+                    long start = System.currentTimeMillis();
+                    for (int j = 0; j < 100; j++) {
+                        assertEquals(execRoot, workspaceRunner.computeBazelWorkspaceExecRoot());
+                        assertEquals(queryResults, workspaceRunner.computeBazelQuery(query));
+                        assertEquals(1, workspaceRunner.getAspectTargetInfos(aspectTargets, "reader").size());
+                        if (reader == 0) {
+                            // flushes of other entries do not wait for the build either
+                            workspaceRunner.flushAspectInfoCache("//projects/libs/javalib1:*");
+                            workspaceRunner.flushQueryCache(new BazelLabel("//projects/libs/javalib2"));
+                        }
+                    }
+                    return System.currentTimeMillis() - start;
+                }));
+            }
+            for (Future<Long> reader : readers) {
+                long readMillis = reader.get(buildMillis, TimeUnit.MILLISECONDS);
+                assertTrue("cached reads took " + readMillis + "ms", readMillis < (buildMillis / 4));
+            }
+            assertFalse(build.isDone());
+
+            // a second Bazel invocation queues behind the build, it does not fail or deadlock
+            testOptions.buildLatencyMillis = 0;
+            String queuedQueryText = "kind(rule, set(//projects/libs/javalib1:*))";
+            Future<List<String>> queuedQuery =
+                    executor.submit(() -> workspaceRunner.computeBazelQuery(queuedQueryText));
+            assertTrue(build.get(buildMillis * 5, TimeUnit.MILLISECONDS).isEmpty());
+            queuedQuery.get(buildMillis * 5, TimeUnit.MILLISECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
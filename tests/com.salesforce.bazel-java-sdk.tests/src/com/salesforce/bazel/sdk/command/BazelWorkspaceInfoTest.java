@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class BazelWorkspaceInfoTest {
+
+    @Test
+    public void testParse() {
+        BazelWorkspaceInfo info = BazelWorkspaceInfo.parse(Arrays.asList(
+            "INFO: Invocation ID: a6809b5e-3fb4-462e-8fcc-2c18575122e7",
+            "execution_root: /tmp/_bazel/abc/execroot/ws",
+            "output_base: /tmp/_bazel/abc\r",
+            "bazel-bin: /tmp/_bazel/abc/execroot/ws/bazel-out/k8-fastbuild/bin",
+            "release: release 5.1.0"), BazelWorkspaceInfo.DEFAULT_KEYS);
+
+        assertEquals(new File("/tmp/_bazel/abc/execroot/ws"), info.getExecutionRoot());
+        assertEquals(new File("/tmp/_bazel/abc"), info.getOutputBase());
+        assertEquals(new File("/tmp/_bazel/abc/execroot/ws/bazel-out/k8-fastbuild/bin"), info.getBazelBin());
+
+        // not requested, so not recorded
+        assertNull(info.get("release"));
+        assertEquals(3, info.getValues().size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingKey() {
+        BazelWorkspaceInfo info = BazelWorkspaceInfo.parse(Arrays.asList("execution_root: /tmp/ws"),
+            BazelWorkspaceInfo.DEFAULT_KEYS);
+        info.getBazelGenfiles();
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.salesforce.bazel.sdk.model.BazelProblem;
+
+public class IncrementalBazelOutputParserTest {
+
+    // recorded stderr transcripts of failed builds, as selected by the command runner
+    private static final List<List<String>> TRANSCRIPTS = Arrays.asList(
+        // BUILD file errors, the type is only known at the summary line
+        Arrays.asList("ERROR: /home/user/ws/projects/libs/apple/apple-api/BUILD:16:5: positional argument may not "
+                + "follow keyword argument",
+            "ERROR: /home/user/ws/projects/libs/apple/apple-api/BUILD:18: name 'xyx' is not defined",
+            "ERROR: error loading package 'projects/libs/apple/apple-api': Package 'projects/libs/apple/apple-api' "
+                    + "contains errors",
+            "INFO: Elapsed time: 0.312s",
+            "FAILED: Build did NOT complete successfully (0 packages loaded)"),
+        // Java errors in two targets, with status lines in between
+        Arrays.asList("ERROR: /home/user/ws/sayhello/BUILD:1:1: Building sayhello/libsayhello.jar (2 source files) "
+                + "failed (Exit 1)",
+            "sayhello/src/main/java/com/blah/foo/hello/Main.java:16: error: cannot find symbol", "    blah 1 2 3",
+            "             ^",
+            "ERROR: /home/user/ws/sayhello/BUILD:1:1: Building sayhello/libsayhello.jar (2 source files) failed "
+                    + "(Exit 1)",
+            "sayhello/src/main/java/com/blah/foo/hello/Main.java:17: error: cannot find symbols",
+            "INFO: Elapsed time: 0.196s, Critical Path: 0.03s"),
+        // consecutive Java errors, the last one without details
+        Arrays.asList("ERROR: /home/user/ws/projects/libs/banana/banana-api/BUILD:1:1: Building "
+                + "projects/libs/banana/banana-api/libbanana-api.jar (2 source files) failed (Exit 1)",
+            "projects/libs/banana/banana-api/src/main/java/demo/banana/api/Banana.java:41: error: ';' expected",
+            "projects/libs/banana/banana-api/src/main/java/demo/banana/api/Banana.java:42: error: ';' expected",
+            "", "projects/libs/banana/banana-api/src/main/java/demo/banana/api/Banana.java:45: error: ';' expected",
+            "    this.species = species", "                        ^",
+            "projects/libs/banana/banana-api/src/main/java/demo/banana/api/Banana.java:50: error: missing return"),
+        // a Java error reported before a package loading error, the first indication wins
+        Arrays.asList("ERROR: /home/user/ws/a/BUILD:1:1: Building a/liba.jar (1 source file) failed (Exit 1)",
+            "a/src/main/java/a/A.java:3: error: class, interface, or enum expected", "  foo",
+            "ERROR: /home/user/ws/b/BUILD:2:1: name 'java_libary' is not defined",
+            "ERROR: error loading package 'b': Package 'b' contains errors"),
+        // unrecognized output
+        Arrays.asList("ERROR: some unknown error", "INFO: Elapsed time: 0.1s"),
+        // nothing selected, successful build
+        new ArrayList<>());
+
+    @Test
+    public void testReplayMatchesBatchParser() {
+        for (List<String> transcript : TRANSCRIPTS) {
+            List<BazelProblem> expected = new BazelOutputParser().convertErrorOutputToProblems(transcript);
+
+            List<BazelProblem> published = new ArrayList<>();
+            IncrementalBazelOutputParser parser = new IncrementalBazelOutputParser(published::add);
+            for (String line : transcript) {
+                parser.accept(line);
+            }
+            List<BazelProblem> problems = parser.finish();
+
+            assertEquals(transcript.toString(), expected, problems);
+            assertEquals(transcript.toString(), expected, published);
+        }
+    }
+
+    @Test
+    public void testJavaProblemPublishedWhenComplete() {
+        List<String> transcript = TRANSCRIPTS.get(1);
+        List<BazelProblem> published = new ArrayList<>();
+        IncrementalBazelOutputParser parser = new IncrementalBazelOutputParser(published::add);
+
+        parser.accept(transcript.get(0));
+        parser.accept(transcript.get(1));
+        assertTrue(published.isEmpty());
+        // the details line completes the first problem
+        parser.accept(transcript.get(2));
+        assertEquals(1, published.size());
+        assertEquals(16, published.get(0).getLineNumber());
+        assertEquals("Cannot find symbol: blah 1 2 3", published.get(0).getDescription());
+    }
+
+    @Test
+    public void testBuildFileProblemsPublishedOnceTypeIsKnown() {
+        List<String> transcript = TRANSCRIPTS.get(0);
+        List<BazelProblem> published = new ArrayList<>();
+        IncrementalBazelOutputParser parser = new IncrementalBazelOutputParser(published::add);
+
+        parser.accept(transcript.get(0));
+        parser.accept(transcript.get(1));
+        assertTrue(published.isEmpty());
+        parser.accept(transcript.get(2));
+        assertEquals(2, published.size());
+        assertEquals(2, parser.getNumberOfPublishedProblems());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoLinesAfterFinish() {
+        IncrementalBazelOutputParser parser = new IncrementalBazelOutputParser(null);
+        parser.finish();
+        parser.accept("ERROR: too late");
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AspectBatchSizerTest {
+
+    @Test
+    public void testInitialBatchSize() {
+        AspectBatchSizer sizer = new AspectBatchSizer();
+        assertEquals(AspectBatchSizer.DEFAULT_INITIAL_BATCH_SIZE, sizer.getBatchSize());
+        assertTrue(sizer.getMillisPerLabel() < 0);
+    }
+
+    @Test
+    public void testSlowLabelsShrinkBatches() {
+        AspectBatchSizer sizer = new AspectBatchSizer(25, 5, 250, 10000);
+
+        // 25 labels took 50s, so 2s per label, and the next batch should take 10s
+        sizer.recordBatch(25, 50000);
+        assertEquals(5, sizer.getBatchSize());
+        assertEquals(2000.0, sizer.getMillisPerLabel(), 0.1);
+    }
+
+    @Test
+    public void testFastLabelsGrowBatchesGradually() {
+        AspectBatchSizer sizer = new AspectBatchSizer(25, 5, 250, 10000);
+
+        // 10ms per label would allow 1000 labels per batch, but growth is limited to doubling per batch
+        sizer.recordBatch(25, 250);
+        assertEquals(50, sizer.getBatchSize());
+        sizer.recordBatch(50, 500);
+        assertEquals(100, sizer.getBatchSize());
+        sizer.recordBatch(100, 1000);
+        assertEquals(200, sizer.getBatchSize());
+        sizer.recordBatch(200, 2000);
+        assertEquals(250, sizer.getBatchSize());
+    }
+
+    @Test
+    public void testSmoothing() {
+        AspectBatchSizer sizer = new AspectBatchSizer(10, 1, 1000, 10000);
+        sizer.recordBatch(10, 10000);
+        assertEquals(10, sizer.getBatchSize());
+
+        // a single much faster batch only halves the per label estimate
+        sizer.recordBatch(10, 10);
+        assertEquals(500.5, sizer.getMillisPerLabel(), 0.1);
+        assertEquals(20, sizer.getBatchSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBounds() {
+        new AspectBatchSizer(25, 10, 5, 10000);
+    }
+}
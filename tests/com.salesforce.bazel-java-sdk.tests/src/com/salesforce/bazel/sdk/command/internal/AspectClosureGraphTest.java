@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.salesforce.bazel.sdk.aspect.AspectTargetInfo;
+import com.salesforce.bazel.sdk.init.JvmRuleInit;
+import com.salesforce.bazel.sdk.model.BazelLabel;
+
+public class AspectClosureGraphTest {
+
+    @Test
+    public void testChain() {
+        Map<BazelLabel, AspectTargetInfo> infos = new LinkedHashMap<>();
+        addInfo(infos, "//a:a", "java_library", "//b:b");
+        addInfo(infos, "//b:b", "java_library", "//c:c", "@maven//:missing");
+        addInfo(infos, "//c:c", "java_library");
+        AspectClosureGraph graph = new AspectClosureGraph(infos);
+
+        assertEquals(set("//b:b", "//c:c"), labelsOf(graph, "//a:a"));
+        assertEquals(set("//c:c"), labelsOf(graph, "//b:b"));
+        assertEquals(set(), labelsOf(graph, "//c:c"));
+        assertNull(graph.getId(new BazelLabel("@maven//:missing")));
+    }
+
+    @Test
+    public void testCycleExcludesRequestedLabel() {
+        Map<BazelLabel, AspectTargetInfo> infos = new LinkedHashMap<>();
+        addInfo(infos, "//a:a", "java_library", "//b:b");
+        addInfo(infos, "//b:b", "java_library", "//c:c");
+        addInfo(infos, "//c:c", "java_library", "//a:a", "//d:d");
+        addInfo(infos, "//d:d", "java_library");
+        AspectClosureGraph graph = new AspectClosureGraph(infos);
+
+        assertEquals(set("//b:b", "//c:c", "//d:d"), labelsOf(graph, "//a:a"));
+        assertEquals(set("//a:a", "//c:c", "//d:d"), labelsOf(graph, "//b:b"));
+        assertEquals(set(), labelsOf(graph, "//d:d"));
+    }
+
+    @Test
+    public void testTestTargetIncludesItself() {
+        Map<BazelLabel, AspectTargetInfo> infos = new LinkedHashMap<>();
+        addInfo(infos, "//a:a-test", JvmRuleInit.KIND_JAVA_TEST.getKindName(), "//a:a");
+        addInfo(infos, "//a:a", "java_library");
+        AspectClosureGraph graph = new AspectClosureGraph(infos);
+
+        assertEquals(set("//a:a", "//a:a-test"), labelsOf(graph, "//a:a-test"));
+        assertEquals(Arrays.asList(0, 1), graph.getIdsInPackage("a"));
+    }
+
+    @Test
+    public void testClosuresAreMemoized() {
+        Map<BazelLabel, AspectTargetInfo> infos = new LinkedHashMap<>();
+        addInfo(infos, "//a:a", "java_library", "//b:b");
+        addInfo(infos, "//b:b", "java_library");
+        AspectClosureGraph graph = new AspectClosureGraph(infos);
+
+        int id = graph.getId(new BazelLabel("//a:a"));
+        assertSame(graph.getTransitiveClosure(id), graph.getTransitiveClosure(id));
+        assertSame(graph.getAllInfos(), graph.getAllInfos());
+        assertEquals(2, graph.getAllInfos().size());
+    }
+
+    @Test
+    public void testMatchesBreadthFirstSearch() {
+        // random graph with plenty of cycles, compared against a plain BFS per label
+        Random random = new Random(42);
+        int size = 300;
+        Map<BazelLabel, AspectTargetInfo> infos = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            List<String> deps = new ArrayList<>();
+            int depCount = random.nextInt(4);
+            for (int d = 0; d < depCount; d++) {
+                deps.add("//p" + random.nextInt(size) + ":t");
+            }
+            addInfo(infos, "//p" + i + ":t", "java_library", deps.toArray(new String[0]));
+        }
+
+        // request in random order, so that some closures are computed before and some after their deps
+        List<BazelLabel> requested = new ArrayList<>(infos.keySet());
+        Collections.shuffle(requested, random);
+        AspectClosureGraph graph = new AspectClosureGraph(infos);
+        for (BazelLabel label : requested) {
+            Set<AspectTargetInfo> expected = breadthFirstClosure(infos, infos.get(label));
+            assertEquals(label.toString(), expected, graph.getTransitiveClosure(graph.getId(label)));
+        }
+    }
+
+    @Test
+    public void testLongChain() {
+        // a chain this long would overflow the stack with a recursive walk
+        int size = 20000;
+        Map<BazelLabel, AspectTargetInfo> infos = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            if (i < (size - 1)) {
+                addInfo(infos, "//p" + i + ":t", "java_library", "//p" + (i + 1) + ":t");
+            } else {
+                addInfo(infos, "//p" + i + ":t", "java_library");
+            }
+        }
+        AspectClosureGraph graph = new AspectClosureGraph(infos);
+        assertEquals(size - 1, graph.getTransitiveClosure(0).size());
+        assertEquals(size - 2, graph.getTransitiveClosure(1).size());
+        assertTrue(graph.getTransitiveClosure(size - 1).isEmpty());
+    }
+
+    // HELPERS
+
+    private static void addInfo(Map<BazelLabel, AspectTargetInfo> infos, String label, String kind, String... deps) {
+        // the constructor is protected, so use an anonymous subclass
+        infos.put(new BazelLabel(label), new AspectTargetInfo(new File(""), "BUILD", kind, label,
+                new ArrayList<>(Arrays.asList(deps)), new ArrayList<>()) {});
+    }
+
+    private static Set<String> labelsOf(AspectClosureGraph graph, String label) {
+        Set<String> labels = new TreeSet<>();
+        for (AspectTargetInfo info : graph.getTransitiveClosure(graph.getId(new BazelLabel(label)))) {
+            labels.add(info.getLabelPath());
+        }
+        return labels;
+    }
+
+    private static Set<String> set(String... labels) {
+        return new TreeSet<>(Arrays.asList(labels));
+    }
+
+    private static Set<AspectTargetInfo> breadthFirstClosure(Map<BazelLabel, AspectTargetInfo> infos,
+            AspectTargetInfo root) {
+        Set<AspectTargetInfo> visited = new HashSet<>();
+        List<AspectTargetInfo> queue = new ArrayList<>(Collections.singletonList(root));
+        while (!queue.isEmpty()) {
+            AspectTargetInfo current = queue.remove(0);
+            for (String dep : current.getDeps()) {
+                AspectTargetInfo depInfo = infos.get(new BazelLabel(dep));
+                if ((depInfo != null) && visited.add(depInfo)) {
+                    queue.add(depInfo);
+                }
+            }
+        }
+        visited.remove(root);
+        return visited;
+    }
+}
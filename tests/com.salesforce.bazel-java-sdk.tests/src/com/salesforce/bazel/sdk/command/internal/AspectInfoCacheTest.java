@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.salesforce.bazel.sdk.aspect.AspectTargetInfo;
+import com.salesforce.bazel.sdk.model.BazelLabel;
+
+public class AspectInfoCacheTest {
+
+    @Test
+    public void testRemovePackage() {
+        AspectInfoCache cache = new AspectInfoCache();
+        cache.put(new BazelLabel("//a/b:*"), infos(2));
+        cache.put(new BazelLabel("//a/b:t1"), infos(1));
+        cache.put(new BazelLabel("//a/b/c:t1"), infos(1));
+        cache.put(new BazelLabel("//x:t1"), infos(1));
+
+        Set<BazelLabel> removed = cache.removePackage("a/b");
+        assertEquals(2, removed.size());
+        assertTrue(removed.contains(new BazelLabel("//a/b:t1")));
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(new BazelLabel("//a/b/c:t1")));
+        assertEquals(4, cache.getWeight());
+
+        // nothing left to remove
+        assertTrue(cache.removePackage("a/b").isEmpty());
+    }
+
+    @Test
+    public void testRemoveKeepsIndexConsistent() {
+        AspectInfoCache cache = new AspectInfoCache();
+        cache.put(new BazelLabel("//a:t1"), infos(1));
+        cache.put(new BazelLabel("//a:t2"), infos(1));
+        cache.remove(new BazelLabel("//a:t1"));
+
+        Set<BazelLabel> removed = cache.removePackage("a");
+        assertEquals(Collections.singleton(new BazelLabel("//a:t2")), removed);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testEvictionByEntries() {
+        AspectInfoCache cache = new AspectInfoCache(2, Long.MAX_VALUE);
+        cache.put(new BazelLabel("//a:t1"), infos(1));
+        cache.put(new BazelLabel("//b:t1"), infos(1));
+        // touch a, so that b is the least recently used
+        cache.get(new BazelLabel("//a:t1"));
+        cache.put(new BazelLabel("//c:t1"), infos(1));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(new BazelLabel("//b:t1")));
+        assertTrue(cache.removePackage("b").isEmpty());
+    }
+
+    @Test
+    public void testEvictionByWeight() {
+        AspectInfoCache cache = new AspectInfoCache(100, 10);
+        cache.put(new BazelLabel("//a:t1"), infos(4)); // weight 5
+        cache.put(new BazelLabel("//b:t1"), infos(4)); // weight 5
+        assertEquals(0, cache.getEvictionCount());
+        cache.put(new BazelLabel("//c:t1"), infos(1)); // weight 2, over the limit
+
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.get(new BazelLabel("//a:t1")));
+        assertEquals(7, cache.getWeight());
+
+        // a single entry over the limit is still kept
+        cache.put(new BazelLabel("//d:t1"), infos(20));
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get(new BazelLabel("//d:t1")));
+    }
+
+    @Test
+    public void testShrinkingLimits() {
+        AspectInfoCache cache = new AspectInfoCache();
+        for (int i = 0; i < 10; i++) {
+            cache.put(new BazelLabel("//p" + i + ":t"), infos(1));
+        }
+        cache.setLimits(3, Long.MAX_VALUE);
+        assertEquals(3, cache.size());
+        assertEquals(7, cache.getEvictionCount());
+    }
+
+    private static Set<AspectTargetInfo> infos(int count) {
+        Set<AspectTargetInfo> infos = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            // the constructor is protected, so use an anonymous subclass
+            infos.add(new AspectTargetInfo(new File(""), "BUILD", "java_library", "//z:t" + i, new ArrayList<>(),
+                    new ArrayList<>()) {});
+        }
+        return infos;
+    }
+}
@@ -93,6 +93,30 @@ public class BazelCommandExecutorTest {
         assertEquals("result line 2", result.get(1));
     }
 
+    @Test
+    public void testStreamErrorLines() throws Exception {
+        TestBazelCommandEnvironmentFactory env = createEnv("stream");
+
+        List<String> errLines = new ArrayList<>();
+        errLines.add("result line 1");
+        errLines.add("result line 2");
+        env.commandBuilder.addSimulatedOutput("testcommand1", new ArrayList<>(), errLines);
+
+        List<String> args = new ArrayList<>();
+        args.add("fake");
+        args.add("//projects/libs/javalib0"); // $SLASH_OK bazel path
+
+        BazelCommandExecutor executor =
+                new BazelCommandExecutor(env.bazelExecutable.bazelExecutableFile, env.commandBuilder);
+        List<String> streamed = new ArrayList<>();
+        int exitCode = executor.runBazelAndStreamErrorLines(ConsoleType.WORKSPACE,
+            env.bazelWorkspaceCommandRunner.getBazelWorkspaceRootDirectory(), new MockWorkProgressMonitor(), args,
+            t -> t, streamed::add, 0);
+
+        assertEquals(0, exitCode);
+        assertEquals(errLines, streamed);
+    }
+
     @Test
     public void testStripInfo() {
         List<String> outputLines = new ArrayList<>();
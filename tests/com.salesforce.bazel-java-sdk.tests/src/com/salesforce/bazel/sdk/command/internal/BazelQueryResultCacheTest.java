@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BazelQueryResultCacheTest {
+
+    @Test
+    public void testHitAndMiss() {
+        BazelQueryResultCache cache = new BazelQueryResultCache();
+        assertNull(cache.get("tests(//a/b:all)"));
+        cache.put("tests(//a/b:all)", Arrays.asList("//a/b:t1", "//a/b:t2"));
+
+        // whitespace is only collapsed, never removed, so this is a different query
+        List<String> results = cache.get("tests( //a/b:all)");
+        assertNull(results);
+        results = cache.get("  tests(//a/b:all)  ");
+        assertNotNull(results);
+        assertEquals(2, results.size());
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testNormalizedWhitespace() {
+        BazelQueryResultCache cache = new BazelQueryResultCache();
+        cache.put("attr(test_class,  Foo$,\n//a:all)", Arrays.asList("//a:t1"));
+        assertNotNull(cache.get("attr(test_class, Foo$, //a:all)"));
+    }
+
+    @Test
+    public void testResultsAreCopied() {
+        BazelQueryResultCache cache = new BazelQueryResultCache();
+        cache.put("//a:all", Arrays.asList("//a:t1"));
+        cache.get("//a:all").clear();
+        assertEquals(1, cache.get("//a:all").size());
+    }
+
+    @Test
+    public void testLruEviction() {
+        BazelQueryResultCache cache = new BazelQueryResultCache(2);
+        cache.put("//a:all", Arrays.asList("//a:t1"));
+        cache.put("//b:all", Arrays.asList("//b:t1"));
+
+        // touch a, so that b becomes the eldest
+        assertNotNull(cache.get("//a:all"));
+        cache.put("//c:all", Arrays.asList("//c:t1"));
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get("//a:all"));
+        assertNull(cache.get("//b:all"));
+        assertNotNull(cache.get("//c:all"));
+    }
+
+    @Test
+    public void testInvalidatePackage() {
+        BazelQueryResultCache cache = new BazelQueryResultCache();
+        cache.put("tests(//a/b:all)", Arrays.asList("//a/b:t1"));
+        cache.put("tests(//a/bc:all)", Arrays.asList("//a/bc:t1"));
+        cache.put("tests(//a/...)", Arrays.asList("//a/b:t1", "//a/bc:t1"));
+        cache.put("tests(//x/...)", Arrays.asList("//x:t1"));
+
+        assertEquals(2, cache.invalidatePackage("//a/b"));
+        assertNull(cache.get("tests(//a/b:all)"));
+        assertNull(cache.get("tests(//a/...)"));
+        assertNotNull(cache.get("tests(//a/bc:all)"));
+        assertNotNull(cache.get("tests(//x/...)"));
+        assertEquals(2, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void testInvalidatePackage_transitiveQueries() {
+        BazelQueryResultCache cache = new BazelQueryResultCache();
+        cache.put("kind('source file', deps(//a/b:*))", Arrays.asList("//a/b:A.java"));
+        cache.put("somequery", Arrays.asList("//q:t1"));
+        cache.put("tests(//a/b:all)", Arrays.asList("//a/b:t1"));
+
+        // a dependency of //a/b changed, the deps() query may see it, as may the query without packages
+        assertEquals(2, cache.invalidatePackage("z/y"));
+        assertNotNull(cache.get("tests(//a/b:all)"));
+    }
+
+    @Test
+    public void testPutAfterConcurrentInvalidation() {
+        BazelQueryResultCache cache = new BazelQueryResultCache();
+        long generation = cache.getGeneration();
+
+        // //a/b changes while the queries run
+        cache.invalidatePackage("//a/b");
+        assertFalse(cache.put("tests(//a/b:all)", Arrays.asList("//a/b:t1"), generation));
+        assertFalse(cache.put("kind('source file', deps(//x:*))", Arrays.asList("//x:X.java"), generation));
+        assertTrue(cache.put("tests(//a/bc:all)", Arrays.asList("//a/bc:t1"), generation));
+        assertNull(cache.get("tests(//a/b:all)"));
+        assertNotNull(cache.get("tests(//a/bc:all)"));
+
+        // a query started after the change is cached
+        assertTrue(cache.put("tests(//a/b:all)", Arrays.asList("//a/b:t1"), cache.getGeneration()));
+
+        // everything changes while a query runs
+        generation = cache.getGeneration();
+        cache.invalidateAll();
+        assertFalse(cache.put("tests(//q:all)", Arrays.asList("//q:t1"), generation));
+        assertTrue(cache.put("tests(//q:all)", Arrays.asList("//q:t1"), cache.getGeneration()));
+    }
+
+    @Test
+    public void testFindReferencedPackages() {
+        assertEquals(2, BazelQueryResultCache.findReferencedPackages("set(//a/b:c @repo//d:e)").size());
+        assertEquals(true, BazelQueryResultCache.findReferencedPackages("set(//a/b:c //a/b:d)").contains("a/b"));
+        assertEquals(true, BazelQueryResultCache.findReferencedPackages("tests(//a/...)").contains("a/..."));
+    }
+}
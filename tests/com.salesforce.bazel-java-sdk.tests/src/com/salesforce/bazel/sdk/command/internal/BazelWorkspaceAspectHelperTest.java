@@ -25,12 +25,24 @@ package com.salesforce.bazel.sdk.command.internal;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -38,6 +50,7 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import com.salesforce.bazel.sdk.aspect.AspectTargetInfo;
+import com.salesforce.bazel.sdk.aspect.AspectTargetInfoStore;
 import com.salesforce.bazel.sdk.command.test.TestBazelCommandEnvironmentFactory;
 import com.salesforce.bazel.sdk.model.BazelLabel;
 import com.salesforce.bazel.sdk.workspace.test.TestBazelWorkspaceDescriptor;
@@ -155,17 +168,210 @@ public class BazelWorkspaceAspectHelperTest {
         assertEquals(1, aspectHelper.numberCacheHits); // the entries all came from cache
     }
 
+    @Test
+    public void testAspectCacheFlushForPackage() throws Exception {
+        TestBazelCommandEnvironmentFactory env = createEnv("pflush", new TestOptions().numberOfJavaPackages(2));
+        BazelWorkspaceAspectProcessor aspectHelper = env.bazelWorkspaceCommandRunner.getBazelWorkspaceAspectHelper();
+        BazelLabel label0 = new BazelLabel("//projects/libs/javalib0:*"); // $SLASH_OK bazel path
+        BazelLabel label1 = new BazelLabel("//projects/libs/javalib1:*"); // $SLASH_OK bazel path
+        aspectHelper.getAspectTargetInfos(Arrays.asList(label0, label1), "testAspectCacheFlushForPackage");
+        int cachedCount = aspectHelper.aspectInfoCache_current.size();
+
+        // only the wildcard and concrete targets of javalib0 are flushed
+        Set<BazelLabel> flushed =
+                aspectHelper.flushAspectInfoCacheForPackage(new BazelLabel("//projects/libs/javalib0")); // $SLASH_OK
+        assertTrue(flushed.contains(label0));
+        for (BazelLabel flushedLabel : flushed) {
+            assertEquals("projects/libs/javalib0", flushedLabel.getPackagePath());
+        }
+        assertEquals(cachedCount - flushed.size(), aspectHelper.aspectInfoCache_current.size());
+        assertNotNull(aspectHelper.aspectInfoCache_current.get(label1));
+    }
+
+    @Test
+    public void testAspectLastGoodRetention() throws Exception {
+        TestBazelCommandEnvironmentFactory env = createEnv("lgood", new TestOptions().numberOfJavaPackages(2));
+        BazelWorkspaceAspectProcessor aspectHelper = env.bazelWorkspaceCommandRunner.getBazelWorkspaceAspectHelper();
+        aspectHelper.setLastGoodRetentionLimits(2, Long.MAX_VALUE);
+
+        BazelLabel label0 = new BazelLabel("//projects/libs/javalib0:*"); // $SLASH_OK bazel path
+        BazelLabel label1 = new BazelLabel("//projects/libs/javalib1:*"); // $SLASH_OK bazel path
+        aspectHelper.getAspectTargetInfos(Arrays.asList(label0, label1), "testAspectLastGoodRetention");
+
+        // the current cache is unbounded, the last good cache keeps only the most recent entries
+        assertTrue(aspectHelper.aspectInfoCache_current.size() > 2);
+        assertEquals(2, aspectHelper.aspectInfoCache_lastgood.size());
+        assertEquals(aspectHelper.aspectInfoCache_current.size() - 2, aspectHelper.getLastGoodEvictionCount());
+    }
+
+    @Test
+    public void testAspectPersistentStore() throws Exception {
+        TestBazelCommandEnvironmentFactory env = createEnv("store");
+        BazelWorkspaceAspectProcessor aspectHelper = env.bazelWorkspaceCommandRunner.getBazelWorkspaceAspectHelper();
+        File workspaceDir = env.bazelWorkspaceCommandRunner.getBazelWorkspaceRootDirectory();
+        File storeDir = tmpFolder.newFolder();
+        aspectHelper.setAspectTargetInfoStore(new AspectTargetInfoStore(storeDir, workspaceDir));
+        BazelLabel label = new BazelLabel("//projects/libs/javalib0:*"); // $SLASH_OK bazel path
+        List<BazelLabel> targets = Collections.singletonList(label);
+
+        // first session, the aspects are run and the results are written to the store
+        Map<BazelLabel, Set<AspectTargetInfo>> aspectMap =
+                aspectHelper.getAspectTargetInfos(targets, "testAspectPersistentStore");
+        int numAspects = aspectMap.get(label).size();
+        assertEquals(0, aspectHelper.numberPersistedCacheHits);
+        assertTrue(new File(storeDir, AspectTargetInfoStore.STORE_FILENAME).exists());
+
+        // simulate a restart: the in memory cache is gone, and the store is loaded from disk
+        aspectHelper.aspectInfoCache_current.clear();
+        aspectHelper.setAspectTargetInfoStore(new AspectTargetInfoStore(storeDir, workspaceDir));
+        aspectMap = aspectHelper.getAspectTargetInfos(targets, "testAspectPersistentStore");
+        assertEquals(numAspects, aspectMap.get(label).size());
+        assertEquals(0, aspectHelper.numberCacheHits);
+        assertEquals(1, aspectHelper.numberPersistedCacheHits);
+
+        // change the BUILD file, and restart again; the stored entry is stale and must not be used
+        File buildFile = new File(workspaceDir, "projects/libs/javalib0/BUILD"); // $SLASH_OK bazel path
+        try (FileWriter writer = new FileWriter(buildFile, true)) {
+            writer.write("\n# a change\n");
+        }
+        aspectHelper.aspectInfoCache_current.clear();
+        aspectHelper.setAspectTargetInfoStore(new AspectTargetInfoStore(storeDir, workspaceDir));
+        aspectMap = aspectHelper.getAspectTargetInfos(targets, "testAspectPersistentStore");
+        assertEquals(numAspects, aspectMap.get(label).size());
+        assertEquals(1, aspectHelper.numberPersistedCacheHits);
+    }
+
+    @Test
+    public void testAspectPersistentStoreDependencyChange() throws Exception {
+        // javalib1 depends on javalib0
+        TestBazelCommandEnvironmentFactory env = createEnv("storedep", new TestOptions().numberOfJavaPackages(2));
+        BazelWorkspaceAspectProcessor aspectHelper = env.bazelWorkspaceCommandRunner.getBazelWorkspaceAspectHelper();
+        File workspaceDir = env.bazelWorkspaceCommandRunner.getBazelWorkspaceRootDirectory();
+        File storeDir = tmpFolder.newFolder();
+        aspectHelper.setAspectTargetInfoStore(new AspectTargetInfoStore(storeDir, workspaceDir));
+        BazelLabel label = new BazelLabel("//projects/libs/javalib1:*"); // $SLASH_OK bazel path
+        List<BazelLabel> targets = Collections.singletonList(label);
+        aspectHelper.getAspectTargetInfos(targets, "testAspectPersistentStoreDependencyChange");
+
+        aspectHelper.aspectInfoCache_current.clear();
+        aspectHelper.setAspectTargetInfoStore(new AspectTargetInfoStore(storeDir, workspaceDir));
+        aspectHelper.getAspectTargetInfos(targets, "testAspectPersistentStoreDependencyChange");
+        assertEquals(1, aspectHelper.numberPersistedCacheHits);
+
+        // the deps of javalib0 change, which does not touch the BUILD file of javalib1 or rerun any aspect
+        File buildFile = new File(workspaceDir, "projects/libs/javalib0/BUILD"); // $SLASH_OK bazel path
+        try (FileWriter writer = new FileWriter(buildFile, true)) {
+            writer.write("\n# changed deps\n");
+        }
+        aspectHelper.aspectInfoCache_current.clear();
+        aspectHelper.setAspectTargetInfoStore(new AspectTargetInfoStore(storeDir, workspaceDir));
+        int batchesBefore = aspectHelper.numberAspectBatches;
+        aspectHelper.getAspectTargetInfos(targets, "testAspectPersistentStoreDependencyChange");
+        assertEquals(1, aspectHelper.numberPersistedCacheHits);
+        assertEquals(batchesBefore + 1, aspectHelper.numberAspectBatches);
+    }
+
+    @Test
+    public void testAspectPersistentStoreFlushPackage() throws Exception {
+        TestBazelCommandEnvironmentFactory env = createEnv("storeflush", new TestOptions().numberOfJavaPackages(2));
+        BazelWorkspaceAspectProcessor aspectHelper = env.bazelWorkspaceCommandRunner.getBazelWorkspaceAspectHelper();
+        File workspaceDir = env.bazelWorkspaceCommandRunner.getBazelWorkspaceRootDirectory();
+        File storeDir = tmpFolder.newFolder();
+        aspectHelper.setAspectTargetInfoStore(new AspectTargetInfoStore(storeDir, workspaceDir));
+        BazelLabel label0 = new BazelLabel("//projects/libs/javalib0:*"); // $SLASH_OK bazel path
+        BazelLabel label1 = new BazelLabel("//projects/libs/javalib1:*"); // $SLASH_OK bazel path
+        aspectHelper.getAspectTargetInfos(Arrays.asList(label0, label1), "testAspectPersistentStoreFlushPackage");
+
+        // restart, the package index of the store is rebuilt from the store file
+        aspectHelper.aspectInfoCache_current.clear();
+        AspectTargetInfoStore store = new AspectTargetInfoStore(storeDir, workspaceDir);
+        aspectHelper.setAspectTargetInfoStore(store);
+        int numEntries = store.size();
+
+        // only the entries of the flushed package are removed
+        aspectHelper.flushAspectInfoCacheForPackage(new BazelLabel("//projects/libs/javalib0")); // $SLASH_OK
+        int numEntriesLib1 = store.size();
+        assertTrue((numEntriesLib1 > 0) && (numEntriesLib1 < numEntries));
+        aspectHelper.flushAspectInfoCacheForPackage(new BazelLabel("//projects/libs/javalib0")); // $SLASH_OK
+        assertEquals(numEntriesLib1, store.size());
+        aspectHelper.flushAspectInfoCacheForPackage(new BazelLabel("//projects/libs/javalib1")); // $SLASH_OK
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testAspectBatchPipelining() throws Exception {
+        // 3 batches of 4 packages
+        int numPackages = 12;
+        int numBatches = 3;
+        TestOptions testOptions = new TestOptions().numberOfJavaPackages(numPackages);
+        TestBazelCommandEnvironmentFactory env = createEnv("pipe", testOptions);
+        BazelWorkspaceAspectProcessor aspectHelper = env.bazelWorkspaceCommandRunner.getBazelWorkspaceAspectHelper();
+        List<BazelLabel> targets = new ArrayList<>();
+        for (int i = 0; i < numPackages; i++) {
+            targets.add(new BazelLabel("//projects/libs/javalib" + i + ":*")); // $SLASH_OK bazel path
+        }
+        aspectHelper.setAspectBatchSizer(new AspectBatchSizer(4, 4, 4, 1000));
+
+        // sequential baseline: each batch is parsed on the calling thread after its build completes
+        aspectHelper.setAspectParsingExecutor(null);
+        Map<BazelLabel, Set<AspectTargetInfo>> sequentialMap = aspectHelper.getAspectTargetInfos(targets, "seq");
+        assertEquals(numBatches, aspectHelper.numberAspectBatches);
+
+        // pipelined: the build of batch N+1 does not proceed until the parsing of batch N has started, which can only
+        // happen if the parsing runs while the next batch builds
+        List<CountDownLatch> parseStarted = new ArrayList<>();
+        for (int i = 0; i < numBatches; i++) {
+            parseStarted.add(new CountDownLatch(1));
+        }
+        AtomicInteger startedParses = new AtomicInteger();
+        AtomicInteger builds = new AtomicInteger();
+        List<Boolean> overlapped = Collections.synchronizedList(new ArrayList<>());
+        testOptions.beforeBuildHook(() -> {
+            int build = builds.getAndIncrement();
+            if (build > 0) {
+                try {
+                    overlapped.add(parseStarted.get(build - 1).await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        ExecutorService executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>()) {
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                parseStarted.get(startedParses.getAndIncrement()).countDown();
+            }
+        };
+        aspectHelper.flushAspectInfoCache();
+        aspectHelper.numberAspectBatches = 0;
+        try {
+            aspectHelper.setAspectParsingExecutor(executor);
+            Map<BazelLabel, Set<AspectTargetInfo>> pipelinedMap = aspectHelper.getAspectTargetInfos(targets, "pipe");
+
+            assertEquals(toLabelPaths(sequentialMap), toLabelPaths(pipelinedMap));
+            assertEquals(numPackages, pipelinedMap.size());
+            assertEquals(numBatches, aspectHelper.numberAspectBatches);
+            assertEquals(Arrays.asList(true, true), overlapped);
+        } finally {
+            testOptions.beforeBuildHook(null);
+            executor.shutdownNow();
+        }
+    }
+
     // INTERNAL
 
     private TestBazelCommandEnvironmentFactory createEnv(String testKey) throws Exception {
+        return createEnv(testKey, new TestOptions().numberOfJavaPackages(1));
+    }
+
+    private TestBazelCommandEnvironmentFactory createEnv(String testKey, TestOptions testOptions) throws Exception {
         File testDir = tmpFolder.newFolder();
         File workspaceDir = new File(testDir, "bazelws-" + testKey);
         workspaceDir.mkdirs();
         File outputbaseDir = new File(testDir, "obase-" + testKey);
         outputbaseDir.mkdirs();
 
-        TestOptions testOptions = new TestOptions().numberOfJavaPackages(1);
-
         TestBazelWorkspaceDescriptor descriptor =
                 new TestBazelWorkspaceDescriptor(workspaceDir, outputbaseDir).testOptions(testOptions);
         TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(descriptor);
@@ -177,6 +383,16 @@ public class BazelWorkspaceAspectHelperTest {
         return env;
     }
 
+    private static Map<BazelLabel, Set<String>> toLabelPaths(Map<BazelLabel, Set<AspectTargetInfo>> aspectMap) {
+        Map<BazelLabel, Set<String>> labelPaths = new HashMap<>();
+        for (Map.Entry<BazelLabel, Set<AspectTargetInfo>> entry : aspectMap.entrySet()) {
+            Set<String> paths = new TreeSet<>();
+            entry.getValue().forEach(ati -> paths.add(ati.getLabelPath()));
+            labelPaths.put(entry.getKey(), paths);
+        }
+        return labelPaths;
+    }
+
     private void printAspectInfos(Set<AspectTargetInfo> aspects, String testName) {
         int index = 0;
         System.out.println("Aspect list for test " + testName);
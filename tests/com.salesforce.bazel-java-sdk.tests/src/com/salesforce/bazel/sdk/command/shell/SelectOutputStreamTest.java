@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command.shell;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+public class SelectOutputStreamTest {
+
+    private static final Function<String, String> SELECT_INFO_LINES = x -> x.startsWith("INFO") ? x : null;
+
+    @Test
+    public void testBulkWriteSplitsLines() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SelectOutputStream sos = new SelectOutputStream(out, SELECT_INFO_LINES);
+        byte[] content = "INFO: one\nother\nINFO: two\nlast".getBytes(StandardCharsets.UTF_8);
+        sos.write(content, 0, content.length);
+        sos.close();
+
+        assertEquals(List.of("INFO: one", "INFO: two"), sos.getLines());
+        assertEquals(List.of("other\n", "last"), sos.getOutputLines());
+        assertEquals("other\nlast", out.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    public void testLineSpanningWrites() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SelectOutputStream sos = new SelectOutputStream(out, SELECT_INFO_LINES);
+        write(sos, "IN");
+        write(sos, "FO: spanning");
+        write(sos, " line\nfoo");
+        sos.write('\n');
+        write(sos, "\n");
+        sos.close();
+
+        assertEquals(List.of("INFO: spanning line"), sos.getLines());
+        assertEquals(List.of("foo\n", "\n", ""), sos.getOutputLines());
+    }
+
+    @Test
+    public void testMultibyteCharacterSplitAcrossWrites() throws Exception {
+        SelectOutputStream sos = new SelectOutputStream(null, x -> x);
+        byte[] content = "INFO: café\n".getBytes(StandardCharsets.UTF_8);
+        // split inside the two byte encoding of the last character
+        sos.write(content, 0, content.length - 2);
+        sos.write(content, content.length - 2, 2);
+        sos.close();
+
+        assertEquals("INFO: café", sos.getLines().get(0));
+    }
+
+    @Test
+    public void testBulkAndSingleByteWritesAreEquivalent() throws Exception {
+        byte[] content = generateOutput(new Random(42), 2000);
+        Random chunks = new Random(7);
+
+        ByteArrayOutputStream singleOut = new ByteArrayOutputStream();
+        SelectOutputStream single = new SelectOutputStream(singleOut, SELECT_INFO_LINES);
+        for (byte b : content) {
+            single.write(b);
+        }
+        single.close();
+
+        ByteArrayOutputStream bulkOut = new ByteArrayOutputStream();
+        SelectOutputStream bulk = new SelectOutputStream(bulkOut, SELECT_INFO_LINES);
+        int offset = 0;
+        while (offset < content.length) {
+            int len = Math.min(content.length - offset, 1 + chunks.nextInt(300));
+            bulk.write(content, offset, len);
+            offset += len;
+        }
+        bulk.close();
+
+        ByteArrayOutputStream legacyOut = new ByteArrayOutputStream();
+        LegacySelectOutputStream legacy = new LegacySelectOutputStream(legacyOut, SELECT_INFO_LINES);
+        legacy.write(content);
+        legacy.close();
+
+        assertEquals(legacy.lines, single.getLines());
+        assertEquals(legacy.lines, bulk.getLines());
+        assertEquals(legacy.outputLines, single.getOutputLines());
+        assertEquals(legacy.outputLines, bulk.getOutputLines());
+        assertArrayEquals(legacyOut.toByteArray(), singleOut.toByteArray());
+        assertArrayEquals(legacyOut.toByteArray(), bulkOut.toByteArray());
+    }
+
+    @Test
+    public void testSelectedLineConsumer() throws Exception {
+        List<String> consumed = new ArrayList<>();
+        SelectOutputStream sos = new SelectOutputStream(null, SELECT_INFO_LINES, consumed::add);
+        write(sos, "INFO: one\nother\n");
+        // delivered as soon as the line is complete, not on close
+        assertEquals(List.of("INFO: one"), consumed);
+        write(sos, "INFO: two");
+        sos.close();
+
+        assertEquals(List.of("INFO: one", "INFO: two"), consumed);
+        assertTrue(sos.getLines().isEmpty());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWriteAfterClose() throws Exception {
+        SelectOutputStream sos = new SelectOutputStream(null, null);
+        sos.close();
+        sos.write(new byte[] { 'a' }, 0, 1);
+    }
+
+    // HELPERS
+
+    private static void write(OutputStream out, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] generateOutput(Random random, int numLines) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < numLines; i++) {
+            int kind = random.nextInt(4);
+            if (kind == 0) {
+                sb.append("INFO: Analyzed target //projects/libs/lib").append(i).append(":lib");
+            } else if (kind == 1) {
+                sb.append("bazel-out/k8-fastbuild/bin/projects/libs/lib").append(i).append("/liblib.jar");
+            } else if (kind == 2) {
+                sb.append("Loading: ").append(random.nextInt(1000)).append(" packages loaded ✓");
+            }
+            sb.append('\n');
+        }
+        sb.append("trailing line without newline");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The previous byte at a time implementation, kept as the reference for the equivalence test.
+     */
+    private static class LegacySelectOutputStream extends OutputStream {
+        private final OutputStream output;
+        private final Function<String, String> selector;
+        final List<String> lines = new LinkedList<>();
+        final List<String> outputLines = new LinkedList<>();
+        private final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        LegacySelectOutputStream(OutputStream output, Function<String, String> selector) {
+            this.output = output;
+            this.selector = selector;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (((byte) b) == '\n') {
+                select(true);
+            } else {
+                stream.write(b);
+            }
+        }
+
+        private void select(boolean appendNewLine) throws IOException {
+            String line = null;
+            if (selector != null) {
+                line = selector.apply(stream.toString(StandardCharsets.UTF_8.name()));
+            }
+            if (line != null) {
+                lines.add(line);
+            } else if (output != null) {
+                if (appendNewLine) {
+                    stream.write('\n');
+                }
+                output.write(stream.toByteArray());
+                outputLines.add(stream.toString(StandardCharsets.UTF_8.name()));
+            }
+            stream.reset();
+        }
+
+        @Override
+        public void close() throws IOException {
+            select(false);
+        }
+    }
+}
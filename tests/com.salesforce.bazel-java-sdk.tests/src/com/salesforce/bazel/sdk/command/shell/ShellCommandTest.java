@@ -43,6 +43,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.function.Function;
@@ -155,6 +156,8 @@ public class ShellCommandTest {
 
         assertEquals("a", stdoutStr);
         assertEquals("b", stderrStr);
+        assertEquals(4, ((ShellCommand) cmd).getStdoutBytes());
+        assertEquals(4, ((ShellCommand) cmd).getStderrBytes());
         assertEquals("a", cmd.getSelectedErrorLines().get(0));
         assertEquals("b", cmd.getSelectedOutputLines().get(0));
         assertEquals(1, mockConsoleFactory.consoles.size());
@@ -235,4 +238,29 @@ public class ShellCommandTest {
         assertEquals(1, cmd.getSelectedOutputLines().size());
         assertEquals(tempFolder.getRoot().getCanonicalPath(), cmd.getSelectedOutputLines().get(0));
     }
+
+    @Test
+    public void testBashCommandStreamsLinesWhileRunning() throws IOException, InterruptedException {
+        if (isWindows) {
+            return; // no bash on Windows
+        }
+        List<String> streamed = new ArrayList<>();
+        List<Long> arrivalTimes = new ArrayList<>();
+        CommandBuilder builder = ShellCommand.builder(mockConsoleFactory, mockShellEnvironment).setConsoleName(null)
+                .setDirectory(tempFolder.getRoot());
+        builder.addArguments("bash", "-c", "echo a >&2; sleep 1; echo b >&2");
+        builder.setStderrLineSelector(NON_EMPTY_LINES_SELECTOR).setStderrLineConsumer(line -> {
+            streamed.add(line);
+            arrivalTimes.add(System.currentTimeMillis());
+        });
+        Command cmd = builder.build();
+        assertEquals(0, cmd.run());
+        long endTime = System.currentTimeMillis();
+
+        assertEquals(List.of("a", "b"), streamed);
+        // the first line was delivered while the command was still sleeping
+        assertTrue((endTime - arrivalTimes.get(0)) >= 500);
+        // streamed lines are not also accumulated
+        assertTrue(cmd.getSelectedErrorLines().isEmpty());
+    }
 }
@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.command.shell;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ShellStreamPumpTest {
+
+    @Test
+    public void testPumpCopiesAllBytes() throws Exception {
+        ShellStreamPump pump = new ShellStreamPump(2, 1000);
+        byte[] content = new byte[123456];
+        new Random(1).nextBytes(content);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Future<Long> copy = pump.pump(new ByteArrayInputStream(content), out);
+
+        assertEquals(content.length, copy.get(10, TimeUnit.SECONDS).longValue());
+        assertArrayEquals(content, out.toByteArray());
+        assertEquals(1, pump.getNumberOfPumps());
+        assertEquals(content.length, pump.getTotalBytes());
+    }
+
+    @Test
+    public void testThreadsAreReused() throws Exception {
+        ShellStreamPump pump = new ShellStreamPump(2, 4096);
+        for (int i = 0; i < 20; i++) {
+            pump.pump(new ByteArrayInputStream(new byte[100]), new ByteArrayOutputStream()).get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(20, pump.getNumberOfPumps());
+        assertEquals(2000, pump.getTotalBytes());
+        assertEquals(0, pump.getNumberOfOverflowThreads());
+        assertTrue(pump.getPoolSize() <= 2);
+    }
+
+    @Test
+    public void testOverflowWhenPoolIsBusy() throws Exception {
+        ShellStreamPump pump = new ShellStreamPump(1, 4096);
+
+        // occupy the only pooled thread with a stream that stays open
+        PipedOutputStream blockingSource = new PipedOutputStream();
+        PipedInputStream blockingInput = new PipedInputStream(blockingSource);
+        Future<Long> blocked = pump.pump(blockingInput, new ByteArrayOutputStream());
+
+        // the next pumps must not wait for the busy thread
+        List<Future<Long>> copies = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            copies.add(pump.pump(new ByteArrayInputStream(new byte[10]), new ByteArrayOutputStream()));
+        }
+        for (Future<Long> copy : copies) {
+            assertEquals(10L, copy.get(10, TimeUnit.SECONDS).longValue());
+        }
+        assertEquals(3, pump.getNumberOfOverflowThreads());
+
+        blockingSource.write(new byte[5]);
+        blockingSource.close();
+        assertEquals(5L, blocked.get(10, TimeUnit.SECONDS).longValue());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBufferSize() {
+        new ShellStreamPump(1, 0);
+    }
+}
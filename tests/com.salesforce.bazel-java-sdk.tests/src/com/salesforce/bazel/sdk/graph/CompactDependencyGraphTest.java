@@ -0,0 +1,323 @@
+package com.salesforce.bazel.sdk.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.salesforce.bazel.sdk.model.BazelPackageLocation;
+
+public class CompactDependencyGraphTest {
+
+    @Test
+    public void testSingleTree() {
+        CompactDependencyGraph graph = new CompactDependencyGraph();
+
+        graph.addDependency("rootA", "midA1");
+        graph.addDependency("rootA", "midA2");
+        graph.addDependency("midA1", "leafA1");
+        graph.addDependency("midA1", "leafA1b");
+        graph.addDependency("midA2", "leafA2");
+        // duplicate edges are ignored
+        graph.addDependency("midA2", "leafA2");
+
+        assertEquals(Collections.singleton("rootA"), graph.getRootLabels());
+        assertEquals(new LinkedHashSet<>(Arrays.asList("leafA1", "leafA1b", "leafA2")), graph.getLeafLabels());
+        assertEquals(new LinkedHashSet<>(Arrays.asList("leafA1", "leafA1b")), graph.getDependsOnMap().get("midA1"));
+        assertEquals(Collections.singleton("midA2"), graph.getUsedByMap().get("leafA2"));
+        assertTrue(graph.isDependency("rootA", "leafA2"));
+        assertFalse(graph.isDependency("leafA2", "rootA"));
+        assertFalse(graph.isDependency("midA1", "leafA2"));
+
+        List<BazelPackageLocation> orderedLabels = graph.orderLabels(locations("midA2", "rootA", "leafA2"));
+        assertOrder(orderedLabels, "leafA2", "midA2", "rootA");
+        assertTrue(graph.getDetectedCycles().isEmpty());
+    }
+
+    @Test
+    public void testMultiDistinctTrees() {
+        CompactDependencyGraph graph = new CompactDependencyGraph();
+
+        graph.addDependency("rootA", "midA1");
+        graph.addDependency("rootA", "midA2");
+        graph.addDependency("midA1", "leafA1");
+        graph.addDependency("midA1", "leafA1b");
+        graph.addDependency("midA2", "leafA2");
+
+        graph.addDependency("rootB", "midB1");
+        graph.addDependency("rootB", "midB2");
+        graph.addDependency("midB1", "leafB1");
+        graph.addDependency("midB1", "leafB1b");
+        graph.addDependency("midB2", "leafB2");
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList("rootA", "rootB")), graph.getRootLabels());
+        assertEquals(6, graph.getLeafLabels().size());
+
+        List<BazelPackageLocation> orderedLabels = graph.orderLabels(locations("rootA", "midA1", "leafA1", "rootB"));
+        assertOrder(orderedLabels, "leafA1", "midA1", "rootA", "rootB");
+
+        // independent labels keep the selected order
+        orderedLabels = graph.orderLabels(locations("rootB", "leafA1b", "rootA", "midB2"));
+        assertOrder(orderedLabels, "midB2", "rootB", "leafA1b", "rootA");
+    }
+
+    @Test
+    public void testExternalDeps() {
+        CompactDependencyGraph graph = new CompactDependencyGraph();
+
+        graph.addDependency("rootA", "midA1");
+        graph.addDependency("rootA", "midA2");
+        graph.addDependency("midA1", "leafA1");
+        graph.addDependency("midA1", "leafA1b");
+        graph.addDependency("midA2", "leafA2");
+        graph.addDependency("leafA2", "@maven//:com_springframework_spring");
+        graph.addDependency("@maven//:com_springframework_spring", "@maven//:com_foo_bar");
+
+        assertEquals(Collections.singleton("rootA"), graph.getRootLabels());
+        assertEquals(new LinkedHashSet<>(Arrays.asList("leafA1", "leafA1b", "@maven//:com_foo_bar")),
+            graph.getLeafLabels());
+        // leafA2 only depends on external deps
+        assertEquals(new LinkedHashSet<>(Arrays.asList("leafA1", "leafA1b", "leafA2")), graph.getLeafLabels(true));
+
+        assertTrue(graph.isDependency("rootA", "@maven//:com_foo_bar", null, true));
+        assertFalse(graph.isDependency("rootA", "@maven//:com_foo_bar", null, false));
+        assertTrue(graph.isDependency("rootA", "@maven//:com_springframework_spring", null, false));
+
+        List<BazelPackageLocation> orderedLabels =
+                graph.orderLabels(locations("@maven//:com_foo_bar", "rootA", "leafA2"), false);
+        assertOrder(orderedLabels, "@maven//:com_foo_bar", "leafA2", "rootA");
+    }
+
+    @Test
+    public void testCycles() {
+        CompactDependencyGraph graph = new CompactDependencyGraph();
+
+        graph.addDependency("root", "a");
+        graph.addDependency("a", "b");
+        graph.addDependency("b", "c");
+        graph.addDependency("c", "a");
+        graph.addDependency("c", "leaf");
+        graph.addDependency("root", "other");
+        graph.addDependency("other", "leaf");
+
+        List<List<String>> cycles = graph.findCycles();
+        assertEquals(1, cycles.size());
+        assertEquals(Arrays.asList("a", "b", "c"), cycles.get(0));
+
+        // labels on or above the cycle are added at the end, in the selected order
+        List<BazelPackageLocation> orderedLabels = graph.orderLabels(locations("root", "b", "other", "leaf"));
+        assertOrder(orderedLabels, "leaf", "other", "root", "b");
+        assertEquals(1, graph.getDetectedCycles().size());
+
+        // a self dependency is a cycle as well
+        graph.addDependency("leaf", "leaf");
+        assertEquals(2, graph.findCycles().size());
+    }
+
+    @Test
+    public void testUnknownLabels() {
+        CompactDependencyGraph graph = new CompactDependencyGraph();
+        graph.addDependency("a", "b");
+
+        List<BazelPackageLocation> orderedLabels = graph.orderLabels(locations("unknown1", "a", "unknown2", "b"));
+        assertOrder(orderedLabels, "unknown1", "b", "a", "unknown2");
+        assertFalse(graph.isDependency("unknown1", "a"));
+    }
+
+    @Test
+    public void testModificationAfterLookup() {
+        CompactDependencyGraph graph = new CompactDependencyGraph();
+        graph.addDependency("a", "b");
+        assertEquals(Collections.singleton("a"), graph.getRootLabels());
+        int generation = graph.getGeneration();
+
+        graph.addDependency("c", "a");
+        assertTrue(graph.getGeneration() != generation);
+        assertEquals(Collections.singleton("c"), graph.getRootLabels());
+        assertTrue(graph.isDependency("c", "b"));
+    }
+
+    @Test
+    public void testTransitiveQueries() {
+        CompactDependencyGraph graph = new CompactDependencyGraph();
+        graph.addDependency("rootA", "mid1");
+        graph.addDependency("rootA", "mid2");
+        graph.addDependency("mid1", "leaf1");
+        graph.addDependency("mid2", "leaf2");
+        graph.addDependency("rootB", "mid1");
+
+        assertEquals(new LinkedHashSet<>(Arrays.asList("mid1", "mid2", "leaf1", "leaf2")),
+            graph.getTransitiveDependencies("rootA"));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("rootA", "mid1", "rootB")),
+            graph.getTransitiveDependents("leaf1"));
+        assertTrue(graph.getTransitiveDependencies("leaf1").isEmpty());
+        assertTrue(graph.getTransitiveDependents("unknown").isEmpty());
+
+        // memoized until the graph changes
+        Set<String> dependents = graph.getTransitiveDependents("leaf1");
+        assertSame(dependents, graph.getTransitiveDependents("leaf1"));
+        graph.addDependency("rootC", "rootB");
+        assertEquals(new LinkedHashSet<>(Arrays.asList("rootA", "mid1", "rootB", "rootC")),
+            graph.getTransitiveDependents("leaf1"));
+
+        // a label on a cycle depends on itself
+        graph.addDependency("leaf2", "rootA");
+        assertTrue(graph.getTransitiveDependencies("rootA").contains("rootA"));
+    }
+
+    @Test
+    public void testTransitiveQueriesDeepChain() {
+        // a recursive traversal would overflow the stack
+        int depth = 100000;
+        CompactDependencyGraph graph = new CompactDependencyGraph();
+        for (int i = 0; i < depth; i++) {
+            graph.addDependency("pkg" + i, "pkg" + (i + 1));
+        }
+        assertEquals(depth, graph.getTransitiveDependencies("pkg0").size());
+        assertEquals(depth, graph.getTransitiveDependents("pkg" + depth).size());
+        // reuses the memoized closure of pkg0 (in the new generation)
+        graph.addDependency("root", "pkg0");
+        assertEquals(depth + 1, graph.getTransitiveDependencies("root").size());
+        assertTrue(graph.isDependency("pkg10", "pkg" + depth));
+        assertFalse(graph.isDependency("pkg10", "pkg9"));
+    }
+
+    @Test
+    public void testTransitiveQueriesMatchDefaultImplementation() {
+        Random random = new Random(11);
+        CompactDependencyGraph compact = new CompactDependencyGraph();
+        InMemoryDependencyGraph inMemory = new InMemoryDependencyGraph();
+        for (int i = 0; i < 1000; i++) {
+            // random edges, including cycles
+            String source = "pkg" + random.nextInt(200);
+            String dep = "pkg" + random.nextInt(200);
+            compact.addDependency(source, dep);
+            inMemory.addDependency(source, dep);
+        }
+        for (int i = 0; i < 200; i++) {
+            String label = "pkg" + i;
+            assertEquals(inMemory.getTransitiveDependencies(label), compact.getTransitiveDependencies(label));
+            assertEquals(inMemory.getTransitiveDependents(label), compact.getTransitiveDependents(label));
+        }
+    }
+
+    @Test
+    public void testMatchesInMemoryGraph() {
+        Random random = new Random(42);
+        int nodes = 300;
+        CompactDependencyGraph compact = new CompactDependencyGraph();
+        InMemoryDependencyGraph inMemory = new InMemoryDependencyGraph();
+        for (int i = 0; i < 1500; i++) {
+            // edges only go from higher to lower numbers, so the graph is acyclic
+            int source = 1 + random.nextInt(nodes - 1);
+            String sourceLabel = "pkg" + source;
+            String depLabel = "pkg" + random.nextInt(source);
+            compact.addDependency(sourceLabel, depLabel);
+            inMemory.addDependency(sourceLabel, depLabel);
+        }
+
+        assertEquals(inMemory.getRootLabels(), compact.getRootLabels());
+        assertEquals(inMemory.getLeafLabels(), compact.getLeafLabels());
+        assertEquals(inMemory.getDependsOnMap(), compact.getDependsOnMap());
+        assertEquals(inMemory.getUsedByMap(), compact.getUsedByMap());
+
+        List<String> selected = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            selected.add("pkg" + random.nextInt(nodes));
+        }
+        Map<String, Boolean> depCache = new HashMap<>();
+        for (String label : selected) {
+            for (String possibleDep : selected) {
+                assertEquals(inMemory.isDependency(label, possibleDep, depCache),
+                    compact.isDependency(label, possibleDep));
+            }
+        }
+
+        List<BazelPackageLocation> ordered = compact.orderLabels(locations(selected.toArray(new String[0])));
+        assertEquals(selected.size(), ordered.size());
+        assertValidOrder(compact, ordered);
+    }
+
+    @Test
+    public void testLargeGraphOrdering() {
+        // the shape of a large monorepo import, every package depends on a few of the packages before it
+        Random random = new Random(7);
+        int nodes = 3000;
+        CompactDependencyGraph graph = new CompactDependencyGraph();
+        List<String> selected = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            for (int d = 0; (d < 8) && (i > 0); d++) {
+                graph.addDependency("pkg" + i, "pkg" + random.nextInt(i));
+            }
+            graph.addDependency("pkg" + i, "@maven//:dep" + random.nextInt(200));
+            selected.add("pkg" + i);
+        }
+        Collections.shuffle(selected, random);
+
+        List<BazelPackageLocation> ordered = graph.orderLabels(locations(selected.toArray(new String[0])), false);
+
+        assertEquals(nodes, ordered.size());
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            positions.put(ordered.get(i).getBazelPackageName(), i);
+        }
+        for (Map.Entry<String, Set<String>> entry : graph.getDependsOnMap().entrySet()) {
+            for (String dep : entry.getValue()) {
+                if (!dep.startsWith("@")) {
+                    assertTrue(positions.get(dep) < positions.get(entry.getKey()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFactoryOption() {
+        CompactDependencyGraphBuilder builder = new CompactDependencyGraphBuilder();
+        Map<String, String> options = new HashMap<>();
+        assertNull(builder.build("test", options));
+        options.put(CompactDependencyGraphBuilder.OPTION_COMPACT, "true");
+        assertTrue(builder.build("test", options) instanceof CompactDependencyGraph);
+    }
+
+    // HELPERS
+
+    private static List<BazelPackageLocation> locations(String... labels) {
+        List<BazelPackageLocation> locations = new ArrayList<>();
+        for (String label : labels) {
+            locations.add(new InMemoryPackageLocation(label));
+        }
+        return locations;
+    }
+
+    private static void assertOrder(List<BazelPackageLocation> orderedLabels, String... expected) {
+        List<String> actual = new ArrayList<>();
+        for (BazelPackageLocation location : orderedLabels) {
+            actual.add(location.getBazelPackageName());
+        }
+        assertEquals(Arrays.asList(expected), actual);
+    }
+
+    private static void assertValidOrder(BazelDependencyGraph graph, List<BazelPackageLocation> ordered) {
+        for (int i = 0; i < ordered.size(); i++) {
+            for (int j = i + 1; j < ordered.size(); j++) {
+                String earlier = ordered.get(i).getBazelPackageName();
+                String later = ordered.get(j).getBazelPackageName();
+                assertFalse(earlier + " is ordered before its dependency " + later,
+                    !earlier.equals(later) && graph.isDependency(earlier, later));
+            }
+        }
+    }
+}
@@ -169,4 +169,23 @@ public class InMemoryDependencyGraphTest {
         assertEquals("midA2", orderedLabels.get(1).getBazelPackageName());
         assertEquals("rootA", orderedLabels.get(2).getBazelPackageName());
     }
+
+    @Test
+    public void testTransitiveQueries() {
+        InMemoryDependencyGraph graph = new InMemoryDependencyGraph();
+
+        // deep enough that a recursive traversal would overflow the stack
+        int depth = 50000;
+        for (int i = 0; i < depth; i++) {
+            graph.addDependency("pkg" + i, "pkg" + (i + 1));
+        }
+        graph.addDependency("other", "pkg10");
+
+        assertEquals(depth, graph.getTransitiveDependencies("pkg0").size());
+        assertEquals(depth - 10 + 1, graph.getTransitiveDependencies("other").size());
+        Set<String> dependents = graph.getTransitiveDependents("pkg11");
+        assertEquals(12, dependents.size());
+        assertTrue(dependents.contains("other"));
+        assertTrue(graph.getTransitiveDependents("pkg0").isEmpty());
+    }
 }
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.bazel.sdk.index.jvm.JvmCodeIndex;
+import com.salesforce.bazel.sdk.index.jvm.JvmCodeIndexerOptions;
+import com.salesforce.bazel.sdk.index.jvm.jar.JarIdentiferResolver;
+import com.salesforce.bazel.sdk.index.jvm.jar.JavaJarCrawler;
+import com.salesforce.bazel.sdk.index.model.CodeLocationDescriptor;
+
+public class CodeIndexPersisterTest {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        File gavRoot = createRepository();
+        JvmCodeIndex index = crawl(gavRoot, null);
+
+        CodeIndexPersister persister = new CodeIndexPersister(tmpFolder.newFolder("state"));
+        assertTrue(persister.write(index));
+        assertTrue(persister.getIndexFile().exists());
+
+        JvmCodeIndex readIndex = new JvmCodeIndex(buildOptions());
+        assertTrue(persister.read(readIndex));
+
+        TestIndexSetupHelper.assertSameIndex(index, readIndex);
+
+        // the descriptors are shared between the dictionaries, just like after a crawl
+        CodeLocationDescriptor byArtifact = readIndex.artifactDictionary.get("red").getPrimaryLocation();
+        assertSame(byArtifact, readIndex.fileDictionary.get("red-2.0.0.jar").getPrimaryLocation());
+        assertSame(byArtifact, readIndex.typeDictionary.get("Red").getPrimaryLocation());
+    }
+
+    @Test
+    public void testReadRejectsMissingCorruptOrIncompatible() throws Exception {
+        File stateDir = tmpFolder.newFolder("state");
+        CodeIndexPersister persister = new CodeIndexPersister(stateDir, "ws");
+        assertFalse(persister.read(new JvmCodeIndex(buildOptions())));
+
+        // written with different options
+        JvmCodeIndex index = crawl(createRepository(), null);
+        assertTrue(persister.write(index));
+        JvmCodeIndexerOptions otherOptions = buildOptions();
+        otherOptions.setDoComputeJarAgeUsingInternalFiles(true);
+        assertFalse(persister.read(new JvmCodeIndex(otherOptions)));
+
+        // truncated file, the passed index is left untouched
+        byte[] content = Files.readAllBytes(persister.getIndexFile().toPath());
+        Files.write(persister.getIndexFile().toPath(), Arrays.copyOf(content, content.length / 2));
+        JvmCodeIndex readIndex = new JvmCodeIndex(buildOptions());
+        assertFalse(persister.read(readIndex));
+        assertTrue(readIndex.typeDictionary.isEmpty());
+    }
+
+    @Test
+    public void testIncrementalCrawlOnlyReadsChangedJars() throws Exception {
+        File gavRoot = createRepository();
+        JvmCodeIndex index = crawl(gavRoot, null);
+        CodeIndexPersister persister = new CodeIndexPersister(tmpFolder.newFolder("state"));
+        assertTrue(persister.write(index));
+
+        // change one jar, delete another, add a new one
+        File redJar = TestIndexSetupHelper.createJar(gavRoot, "com.acme", "red", "2.0.0", "com.acme.red.Red",
+            "com.acme.red.Crimson", "com.acme.shared.Util");
+        redJar.setLastModified(redJar.lastModified() + 5000);
+        assertTrue(new File(gavRoot, "org/acme/green/3.0.0/green-3.0.0.jar").delete());
+        TestIndexSetupHelper.createJar(gavRoot, "net.acme", "yellow", "1.1.0", "net.acme.Yellow");
+
+        JvmCodeIndex previousIndex = new JvmCodeIndex(buildOptions());
+        assertTrue(persister.read(previousIndex));
+        Map<String, CodeLocationDescriptor> previousLocations = new HashMap<>();
+        for (CodeIndexEntry entry : previousIndex.fileDictionary.values()) {
+            CodeLocationDescriptor location = entry.getPrimaryLocation();
+            previousLocations.put(location.locationOnDisk.getAbsolutePath(), location);
+        }
+
+        JvmCodeIndex incrementalIndex = new JvmCodeIndex(buildOptions());
+        JavaJarCrawler crawler = new JavaJarCrawler(incrementalIndex, new JarIdentiferResolver());
+        crawler.setPreviousLocations(previousLocations);
+        crawler.index(gavRoot);
+        assertEquals(2, crawler.getCrawledJarCount()); // red and yellow
+        assertEquals(2, crawler.getReusedJarCount()); // blue and blue 1.1.0
+
+        // the result must be the same as a full crawl
+        JvmCodeIndex fullIndex = crawl(gavRoot, null);
+        TestIndexSetupHelper.assertSameIndex(fullIndex, incrementalIndex);
+        assertFalse(incrementalIndex.artifactDictionary.containsKey("green"));
+        assertTrue(incrementalIndex.typeDictionary.containsKey("Crimson"));
+    }
+
+    // HELPERS
+
+    private File createRepository() throws Exception {
+        File gavRoot = tmpFolder.newFolder("repository");
+        TestIndexSetupHelper.createJar(gavRoot, "com.acme", "blue", "1.0.0", "com.acme.blue.Blue",
+            "com.acme.shared.Util");
+        TestIndexSetupHelper.createJar(gavRoot, "com.acme", "blue", "1.1.0", "com.acme.blue.Blue",
+            "com.acme.blue.Navy");
+        TestIndexSetupHelper.createJar(gavRoot, "com.acme", "red", "2.0.0", "com.acme.red.Red");
+        TestIndexSetupHelper.createJar(gavRoot, "org.acme", "green", "3.0.0", "org.acme.Green",
+            "com.acme.shared.Util");
+        return gavRoot;
+    }
+
+    private static JvmCodeIndexerOptions buildOptions() {
+        JvmCodeIndexerOptions options = new JvmCodeIndexerOptions();
+        options.setDoComputeTypeDictionary(true);
+        return options;
+    }
+
+    private static JvmCodeIndex crawl(File gavRoot, Map<String, CodeLocationDescriptor> previousLocations) {
+        JvmCodeIndex index = new JvmCodeIndex(buildOptions());
+        JavaJarCrawler crawler = new JavaJarCrawler(index, new JarIdentiferResolver());
+        crawler.setPreviousLocations(previousLocations);
+        crawler.index(gavRoot);
+        return index;
+    }
+}
@@ -1,6 +1,17 @@
 package com.salesforce.bazel.sdk.index;
 
+import static org.junit.Assert.assertEquals;
+
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import com.salesforce.bazel.sdk.index.model.ClassIdentifier;
+import com.salesforce.bazel.sdk.index.model.CodeLocationDescriptor;
 
 public class TestIndexSetupHelper {
 
@@ -18,4 +29,66 @@ public class TestIndexSetupHelper {
         return null;
     }
 
+    /**
+     * Writes a Maven layout jar (e.g. com/acme/blue/1.0.0/blue-1.0.0.jar) under the passed gav root directory. The
+     * jar contains an (empty) entry for each passed classname.
+     */
+    public static File createJar(File gavRoot, String group, String artifact, String version, String... classnames)
+            throws IOException {
+        File jarDir = new File(gavRoot, group.replace('.', File.separatorChar) + File.separator + artifact
+                + File.separator + version);
+        jarDir.mkdirs();
+        File jarFile = new File(jarDir, artifact + "-" + version + ".jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jarFile))) {
+            for (String classname : classnames) {
+                out.putNextEntry(new ZipEntry(classname.replace('.', '/') + ".class"));
+                out.write(new byte[] { (byte) 0xCA, (byte) 0xFE });
+                out.closeEntry();
+            }
+        }
+        return jarFile;
+    }
+
+    /**
+     * Asserts that the two indices have the same content, including the order of locations within each entry.
+     */
+    public static void assertSameIndex(CodeIndex expected, CodeIndex actual) {
+        assertEquals(renderDictionary(expected.artifactDictionary), renderDictionary(actual.artifactDictionary));
+        assertEquals(renderDictionary(expected.fileDictionary), renderDictionary(actual.fileDictionary));
+        assertEquals(renderDictionary(expected.typeDictionary), renderDictionary(actual.typeDictionary));
+    }
+
+    /**
+     * Renders all the data of a dictionary of the index (including the order of locations) so that two indices can be
+     * compared for equality.
+     */
+    public static String renderDictionary(Map<String, CodeIndexEntry> dictionary) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, CodeIndexEntry> entry : dictionary.entrySet()) {
+            sb.append(entry.getKey()).append(" ->");
+            CodeIndexEntry indexEntry = entry.getValue();
+            if (indexEntry.multipleLocations != null) {
+                renderLocations(indexEntry.multipleLocations, sb);
+            } else {
+                renderLocations(List.of(indexEntry.singleLocation), sb);
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    private static void renderLocations(List<CodeLocationDescriptor> locations, StringBuilder sb) {
+        for (CodeLocationDescriptor location : locations) {
+            sb.append(" [").append(location.locationOnDisk.getAbsolutePath()).append("|")
+                    .append(location.id.locationIdentifier).append("|").append(location.bazelLabel).append("|")
+                    .append(location.version).append("|").append(location.ageInDays).append("|")
+                    .append(location.fileSize).append("|").append(location.fileLastModified).append("|");
+            if (location.containedClasses != null) {
+                for (ClassIdentifier classId : location.containedClasses) {
+                    sb.append(classId).append(",");
+                }
+            }
+            sb.append("]");
+        }
+    }
 }
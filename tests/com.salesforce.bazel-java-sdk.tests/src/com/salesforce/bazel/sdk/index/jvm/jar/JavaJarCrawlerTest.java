@@ -28,10 +28,23 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.bazel.sdk.index.TestIndexSetupHelper;
+import com.salesforce.bazel.sdk.index.jvm.JvmCodeIndex;
+import com.salesforce.bazel.sdk.index.jvm.JvmCodeIndexerOptions;
 
 public class JavaJarCrawlerTest {
 
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
     @Test
     public void testSkipDirectory() {
         boolean result = JavaJarCrawler.doSkipDirectory("com/salesforce/foo.runfiles/Bar.jar"); // we don't index runfiles
@@ -89,4 +102,42 @@ public class JavaJarCrawlerTest {
         result = JavaJarCrawler.convertClassfileNameToClassname(null);
         assertNull(result);
     }
+
+    @Test
+    public void testParallelCrawlMatchesSequentialCrawl() throws Exception {
+        int numJars = 2000;
+        File gavRoot = tmpFolder.newFolder("repository");
+        for (int i = 0; i < numJars; i++) {
+            // pairs of jars share an artifact (two versions), and all jars share some classnames, so that the order of
+            // the locations in the index entries matters
+            TestIndexSetupHelper.createJar(gavRoot, "com.acme.g" + (i % 40), "lib" + (i / 2), "1." + (i % 2) + ".0",
+                "com.acme.shared.Util", "com.acme.g" + (i % 40) + ".Type" + i, "com.acme.common.Common" + (i % 50));
+        }
+
+        JvmCodeIndex sequentialIndex = new JvmCodeIndex(buildOptions());
+        JavaJarCrawler sequentialCrawler = new JavaJarCrawler(sequentialIndex, new JarIdentiferResolver());
+        sequentialCrawler.index(gavRoot);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            JvmCodeIndex parallelIndex = new JvmCodeIndex(buildOptions());
+            JavaJarCrawler parallelCrawler = new JavaJarCrawler(parallelIndex, new JarIdentiferResolver());
+            parallelCrawler.setExecutor(executor);
+            parallelCrawler.index(gavRoot);
+
+            assertEquals(numJars, sequentialCrawler.getCrawledJarCount());
+            assertEquals(numJars, parallelCrawler.getCrawledJarCount());
+            assertEquals(numJars / 2, parallelIndex.artifactDictionary.size());
+            assertEquals(numJars, parallelIndex.typeDictionary.get("Util").multipleLocations.size());
+            TestIndexSetupHelper.assertSameIndex(sequentialIndex, parallelIndex);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static JvmCodeIndexerOptions buildOptions() {
+        JvmCodeIndexerOptions options = new JvmCodeIndexerOptions();
+        options.setDoComputeTypeDictionary(true);
+        return options;
+    }
 }
@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.lang.jvm.classpath.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathData;
+import com.salesforce.bazel.sdk.util.WorkProgressMonitor;
+
+public class JvmInMemoryClasspathTest {
+
+    @Test
+    public void testPrecomputedClasspath() {
+        JvmClasspathData data = new JvmClasspathData();
+        JvmInMemoryClasspath classpath = new JvmInMemoryClasspath("test", data);
+
+        assertSame(data, classpath.getClasspathEntries(null));
+        assertSame(data, classpath.getClasspathEntries(null));
+        assertEquals(2, classpath.getCacheHitCount());
+
+        // without a subclass, there is nothing to recompute after a clean
+        classpath.clean();
+        assertNull(classpath.getClasspathEntries(null));
+    }
+
+    @Test
+    public void testCachedUntilGenerationChanges() {
+        CountingClasspath classpath = new CountingClasspath(0);
+
+        JvmClasspathData first = classpath.getClasspathEntries(null);
+        assertSame(first, classpath.getClasspathEntries(null));
+        assertEquals(1, classpath.getComputationCount());
+        assertEquals(1, classpath.getCacheHitCount());
+
+        // the inputs were flushed
+        classpath.inputGeneration.incrementAndGet();
+        JvmClasspathData second = classpath.getClasspathEntries(null);
+        assertNotSame(first, second);
+        assertEquals(2, classpath.getComputationCount());
+
+        // clean
+        classpath.clean();
+        assertNotSame(second, classpath.getClasspathEntries(null));
+        assertEquals(3, classpath.getComputationCount());
+
+        // update
+        JvmClasspathData updated = new JvmClasspathData();
+        classpath.updateClasspath(updated);
+        assertSame(updated, classpath.getClasspathEntries(null));
+        assertEquals(3, classpath.getComputationCount());
+    }
+
+    @Test
+    public void testConcurrentCallersShareComputation() throws Exception {
+        CountingClasspath classpath = new CountingClasspath(200);
+        int threadCount = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<JvmClasspathData>> results = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return classpath.getClasspathEntries(null);
+                }));
+            }
+            start.countDown();
+
+            JvmClasspathData expected = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<JvmClasspathData> result : results) {
+                assertSame(expected, result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, classpath.getComputationCount());
+        assertEquals(1, classpath.numberComputeCalls.get());
+        assertTrue(classpath.getSharedComputationCount() > 0);
+        assertEquals(threadCount - 1, classpath.getAvoidedComputationCount());
+    }
+
+    @Test
+    public void testInvalidatedDuringComputationIsNotCached() {
+        CountingClasspath classpath = new CountingClasspath(0);
+        classpath.bumpWhileComputing = true;
+
+        JvmClasspathData first = classpath.getClasspathEntries(null);
+        classpath.bumpWhileComputing = false;
+
+        // the result was computed from stale inputs, so it is computed again
+        JvmClasspathData second = classpath.getClasspathEntries(null);
+        assertNotSame(first, second);
+        assertSame(second, classpath.getClasspathEntries(null));
+        assertEquals(2, classpath.getComputationCount());
+    }
+
+    @Test
+    public void testFailedComputationIsNotShared() {
+        CountingClasspath classpath = new CountingClasspath(0);
+        classpath.failuresRemaining.set(1);
+
+        try {
+            classpath.getClasspathEntries(null);
+            fail("the computation should have failed");
+        } catch (IllegalStateException expected) {}
+
+        // the next caller at the same generation computes again, instead of getting the failed computation
+        JvmClasspathData classpathData = classpath.getClasspathEntries(null);
+        assertNotNull(classpathData);
+        assertSame(classpathData, classpath.getClasspathEntries(null));
+        assertEquals(2, classpath.getComputationCount());
+        assertEquals(0, classpath.getSharedComputationCount());
+    }
+
+    // HELPERS
+
+    private static class CountingClasspath extends JvmInMemoryClasspath {
+        final AtomicLong inputGeneration = new AtomicLong();
+        final AtomicInteger numberComputeCalls = new AtomicInteger();
+        final AtomicInteger failuresRemaining = new AtomicInteger();
+        final long computeMillis;
+        volatile boolean bumpWhileComputing = false;
+
+        CountingClasspath(long computeMillis) {
+            super("counting");
+            this.computeMillis = computeMillis;
+        }
+
+        @Override
+        protected JvmClasspathData computeClasspath(WorkProgressMonitor progressMonitor) {
+            numberComputeCalls.incrementAndGet();
+            if (computeMillis > 0) {
+                try {
+                    Thread.sleep(computeMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (bumpWhileComputing) {
+                inputGeneration.incrementAndGet();
+            }
+            if (failuresRemaining.getAndDecrement() > 0) {
+                throw new IllegalStateException("simulated failure");
+            }
+            return new JvmClasspathData();
+        }
+
+        @Override
+        protected long getInputGeneration() {
+            return inputGeneration.get();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.lang.jvm.classpath.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.salesforce.bazel.sdk.command.test.TestBazelCommandEnvironmentFactory;
+import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathData;
+import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathEntry;
+import com.salesforce.bazel.sdk.lang.jvm.classpath.impl.strategy.JvmClasspathAspectStrategy;
+import com.salesforce.bazel.sdk.lang.jvm.classpath.impl.strategy.JvmClasspathStrategyRequest;
+import com.salesforce.bazel.sdk.lang.jvm.classpath.impl.util.ImplicitClasspathHelper;
+import com.salesforce.bazel.sdk.model.BazelBuildFile;
+import com.salesforce.bazel.sdk.model.BazelLabel;
+import com.salesforce.bazel.sdk.model.BazelTargetKind;
+import com.salesforce.bazel.sdk.model.BazelWorkspace;
+import com.salesforce.bazel.sdk.model.test.MockBazelWorkspaceMetadataStrategy;
+import com.salesforce.bazel.sdk.project.BazelProject;
+import com.salesforce.bazel.sdk.project.BazelProjectManager;
+import com.salesforce.bazel.sdk.project.BazelProjectTargets;
+import com.salesforce.bazel.sdk.workspace.OperatingEnvironmentDetectionStrategy;
+import com.salesforce.bazel.sdk.workspace.test.TestBazelWorkspaceDescriptor;
+import com.salesforce.bazel.sdk.workspace.test.TestBazelWorkspaceFactory;
+import com.salesforce.bazel.sdk.workspace.test.TestOptions;
+
+public class JvmUnionClasspathTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private static final String PACKAGE = "//projects/libs/javalib0";
+
+    @Test
+    public void testTargetsAreComputedWithSingleAspectRequest() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazelws-union");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "obase-union");
+        outputbaseDir.mkdirs();
+
+        TestOptions testOptions = new TestOptions().numberOfJavaPackages(3);
+        TestBazelWorkspaceDescriptor descriptor =
+                new TestBazelWorkspaceDescriptor(workspaceDir, outputbaseDir).testOptions(testOptions);
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(descriptor);
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        workspace.build();
+        env.createTestEnvironment(workspace, testDir, testOptions);
+
+        OperatingEnvironmentDetectionStrategy osDetector = Mockito.mock(OperatingEnvironmentDetectionStrategy.class);
+        Mockito.when(osDetector.isTestRuntime()).thenReturn(true);
+        BazelWorkspace bazelWorkspace = new BazelWorkspace("test", workspaceDir, osDetector,
+                new MockBazelWorkspaceMetadataStrategy("test", workspaceDir, outputbaseDir, osDetector));
+        BazelProject project = new BazelProject("javalib0");
+        BazelProjectTargets targets = new BazelProjectTargets(project, PACKAGE);
+        targets.activateWildcardTarget("*");
+        BazelProjectManager projectManager = Mockito.mock(BazelProjectManager.class);
+        Mockito.when(projectManager.getConfiguredBazelTargets(project, false)).thenReturn(targets);
+        Mockito.when(projectManager.getBazelLabelForProject(project)).thenReturn(PACKAGE);
+        ImplicitClasspathHelper implicitHelper = new ImplicitClasspathHelper();
+        JvmClasspathAspectStrategy aspectStrategy = new JvmClasspathAspectStrategy(bazelWorkspace, projectManager,
+                implicitHelper, osDetector, env.bazelCommandManager);
+
+        JvmUnionClasspath classpath = new JvmUnionClasspath(bazelWorkspace, projectManager, project, implicitHelper,
+                osDetector, env.bazelCommandManager, Collections.singletonList(aspectStrategy));
+        int buildCount = env.commandBuilder.getBazelCommandCount("build");
+        JvmClasspathData union = classpath.getClasspathEntries(null);
+        assertTrue(union.isComplete);
+        assertTrue(union.jvmClasspathEntries.length > 0);
+        // the library and the test target share one aspect build
+        assertEquals(buildCount + 1, env.commandBuilder.getBazelCommandCount("build"));
+
+        // the result is the same as computing the targets one after the other into the union classpath
+        BazelBuildFile buildFile = env.bazelWorkspaceCommandRunner
+                .queryBazelTargetsInBuildFile(Collections.singletonList(new BazelLabel(PACKAGE + ":*"))).iterator()
+                .next();
+        Set<String> actualTargets = targets.getActualTargets(buildFile);
+        assertEquals(2, actualTargets.size());
+        JvmClasspathData sequential = new JvmClasspathData();
+        for (String target : actualTargets) {
+            BazelTargetKind kind = BazelTargetKind.valueOfIgnoresCase(buildFile.getRuleTypeForTarget(target));
+            aspectStrategy.getClasspathForTarget(
+                new JvmClasspathStrategyRequest(project, target, kind, targets, actualTargets, sequential));
+        }
+        assertEquals(describe(sequential), describe(union));
+    }
+
+    // HELPERS
+
+    private static List<String> describe(JvmClasspathData classpathData) {
+        List<String> descriptions = new ArrayList<>();
+        for (JvmClasspathEntry entry : classpathData.jvmClasspathEntries) {
+            descriptions.add(entry.pathToJar + (entry.isTestJar ? " (test)" : ""));
+        }
+        return descriptions;
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.lang.jvm.classpath.impl.strategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.salesforce.bazel.sdk.command.test.TestBazelCommandEnvironmentFactory;
+import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathData;
+import com.salesforce.bazel.sdk.lang.jvm.classpath.impl.util.ImplicitClasspathHelper;
+import com.salesforce.bazel.sdk.model.BazelLabel;
+import com.salesforce.bazel.sdk.model.BazelTargetKind;
+import com.salesforce.bazel.sdk.model.BazelWorkspace;
+import com.salesforce.bazel.sdk.project.BazelProject;
+import com.salesforce.bazel.sdk.project.BazelProjectManager;
+import com.salesforce.bazel.sdk.project.BazelProjectTargets;
+import com.salesforce.bazel.sdk.workspace.OperatingEnvironmentDetectionStrategy;
+import com.salesforce.bazel.sdk.workspace.test.TestBazelWorkspaceDescriptor;
+import com.salesforce.bazel.sdk.workspace.test.TestBazelWorkspaceFactory;
+import com.salesforce.bazel.sdk.workspace.test.TestOptions;
+
+public class JvmClasspathPersistedFileStrategyTest {
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private static final String TARGET = "//projects/libs/javalib0:javalib0";
+    private static final String DEPENDENT_TARGET = "//projects/libs/javalib1:javalib1";
+
+    @Test
+    public void testClasspathIsServedFromPersistedFile() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazelws-cp");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "obase-cp");
+        outputbaseDir.mkdirs();
+        File storeDir = new File(testDir, "store");
+
+        TestOptions testOptions = new TestOptions().numberOfJavaPackages(3);
+        TestBazelWorkspaceDescriptor descriptor =
+                new TestBazelWorkspaceDescriptor(workspaceDir, outputbaseDir).testOptions(testOptions);
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(descriptor);
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        workspace.build();
+        env.createTestEnvironment(workspace, testDir, testOptions);
+
+        OperatingEnvironmentDetectionStrategy osDetector = Mockito.mock(OperatingEnvironmentDetectionStrategy.class);
+        Mockito.when(osDetector.isTestRuntime()).thenReturn(true);
+        BazelWorkspace bazelWorkspace = new BazelWorkspace("test", workspaceDir, osDetector);
+        BazelProjectManager projectManager = Mockito.mock(BazelProjectManager.class);
+        ImplicitClasspathHelper implicitHelper = new ImplicitClasspathHelper();
+
+        // first session, the aspects are run and the result is persisted
+        JvmClasspathAspectStrategy aspectStrategy = new JvmClasspathAspectStrategy(bazelWorkspace, projectManager,
+                implicitHelper, osDetector, env.bazelCommandManager);
+        JvmClasspathPersistedFileStrategy strategy = new JvmClasspathPersistedFileStrategy(bazelWorkspace,
+                projectManager, implicitHelper, osDetector, env.bazelCommandManager, storeDir, aspectStrategy);
+        JvmClasspathData computed = strategy.getClasspathForTarget(createRequest());
+        assertTrue(computed.isComplete);
+        assertTrue(computed.jvmClasspathEntries.length > 0);
+        assertEquals(0, strategy.numberPersistedHits.get());
+        assertEquals(1, strategy.numberPersistedWrites.get());
+        assertTrue(strategy.getPersistedFile(new BazelLabel(TARGET)).exists());
+
+        // next session, the same classpath is read from disk without consulting the computing strategy
+        JvmClasspathStrategy computingStrategy = Mockito.mock(JvmClasspathStrategy.class);
+        strategy = new JvmClasspathPersistedFileStrategy(bazelWorkspace, projectManager, implicitHelper, osDetector,
+                env.bazelCommandManager, storeDir, computingStrategy);
+        JvmClasspathData persisted = strategy.getClasspathForTarget(createRequest());
+        assertTrue(persisted.isComplete);
+        assertEquals(getJarPaths(computed), getJarPaths(persisted));
+        assertEquals(1, strategy.numberPersistedHits.get());
+        Mockito.verifyZeroInteractions(computingStrategy);
+
+        // importing another project can turn a jar into a project reference, so that invalidates the file
+        Mockito.when(projectManager.getAllProjects()).thenReturn(Collections.singletonList(new BazelProject("other")));
+        strategy.getClasspathForTarget(createRequest());
+        assertEquals(1, strategy.numberStaleFiles.get());
+        Mockito.when(projectManager.getAllProjects()).thenReturn(Collections.emptyList());
+
+        // the computing strategy is consulted again when the BUILD file changes
+        strategy = new JvmClasspathPersistedFileStrategy(bazelWorkspace, projectManager, implicitHelper, osDetector,
+                env.bazelCommandManager, storeDir, aspectStrategy);
+        strategy.getClasspathForTarget(createRequest());
+        assertEquals(1, strategy.numberPersistedWrites.get());
+        File buildFile = new File(workspaceDir, "projects/libs/javalib0/" + descriptor.buildFilename);
+        Files.write(buildFile.toPath(), "\n# changed\n".getBytes(), StandardOpenOption.APPEND);
+        JvmClasspathData recomputed = strategy.getClasspathForTarget(createRequest());
+        assertEquals(0, strategy.numberPersistedHits.get());
+        assertEquals(1, strategy.numberStaleFiles.get());
+        assertEquals(2, strategy.numberPersistedWrites.get());
+        assertEquals(getJarPaths(computed), getJarPaths(recomputed));
+        assertFalse(strategy.getPersistedFile(new BazelLabel("//projects/libs/javalib1:javalib1")).exists());
+    }
+
+    @Test
+    public void testDependencyBuildFileChangeInvalidatesFile() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazelws-dep");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "obase-dep");
+        outputbaseDir.mkdirs();
+        File storeDir = new File(testDir, "store");
+
+        // javalib1 depends on javalib0
+        TestOptions testOptions = new TestOptions().numberOfJavaPackages(2);
+        TestBazelWorkspaceDescriptor descriptor =
+                new TestBazelWorkspaceDescriptor(workspaceDir, outputbaseDir).testOptions(testOptions);
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(descriptor);
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        workspace.build();
+        env.createTestEnvironment(workspace, testDir, testOptions);
+
+        OperatingEnvironmentDetectionStrategy osDetector = Mockito.mock(OperatingEnvironmentDetectionStrategy.class);
+        Mockito.when(osDetector.isTestRuntime()).thenReturn(true);
+        BazelWorkspace bazelWorkspace = new BazelWorkspace("test", workspaceDir, osDetector);
+        BazelProjectManager projectManager = Mockito.mock(BazelProjectManager.class);
+        ImplicitClasspathHelper implicitHelper = new ImplicitClasspathHelper();
+        JvmClasspathAspectStrategy aspectStrategy = new JvmClasspathAspectStrategy(bazelWorkspace, projectManager,
+                implicitHelper, osDetector, env.bazelCommandManager);
+
+        JvmClasspathPersistedFileStrategy strategy = new JvmClasspathPersistedFileStrategy(bazelWorkspace,
+                projectManager, implicitHelper, osDetector, env.bazelCommandManager, storeDir, aspectStrategy);
+        strategy.getClasspathForTarget(createRequest(DEPENDENT_TARGET));
+        assertEquals(1, strategy.numberPersistedWrites.get());
+        strategy.getClasspathForTarget(createRequest(DEPENDENT_TARGET));
+        assertEquals(1, strategy.numberPersistedHits.get());
+
+        // the deps of javalib0 change, which changes the classpath of javalib1 but does not rerun any aspect
+        File buildFile = new File(workspaceDir, "projects/libs/javalib0/" + descriptor.buildFilename);
+        Files.write(buildFile.toPath(), "\n# changed deps\n".getBytes(), StandardOpenOption.APPEND);
+        strategy.getClasspathForTarget(createRequest(DEPENDENT_TARGET));
+        assertEquals(1, strategy.numberPersistedHits.get());
+        assertEquals(1, strategy.numberStaleFiles.get());
+        assertEquals(2, strategy.numberPersistedWrites.get());
+    }
+
+    @Test
+    public void testPrepareDelegatesForStaleFile() throws Exception {
+        File testDir = tmpFolder.newFolder();
+        File workspaceDir = new File(testDir, "bazelws-prep");
+        workspaceDir.mkdirs();
+        File outputbaseDir = new File(testDir, "obase-prep");
+        outputbaseDir.mkdirs();
+        File storeDir = new File(testDir, "store");
+
+        // javalib1 depends on javalib0
+        TestOptions testOptions = new TestOptions().numberOfJavaPackages(2);
+        TestBazelWorkspaceDescriptor descriptor =
+                new TestBazelWorkspaceDescriptor(workspaceDir, outputbaseDir).testOptions(testOptions);
+        TestBazelWorkspaceFactory workspace = new TestBazelWorkspaceFactory(descriptor);
+        TestBazelCommandEnvironmentFactory env = new TestBazelCommandEnvironmentFactory();
+        workspace.build();
+        env.createTestEnvironment(workspace, testDir, testOptions);
+
+        OperatingEnvironmentDetectionStrategy osDetector = Mockito.mock(OperatingEnvironmentDetectionStrategy.class);
+        Mockito.when(osDetector.isTestRuntime()).thenReturn(true);
+        BazelWorkspace bazelWorkspace = new BazelWorkspace("test", workspaceDir, osDetector);
+        BazelProjectManager projectManager = Mockito.mock(BazelProjectManager.class);
+        ImplicitClasspathHelper implicitHelper = new ImplicitClasspathHelper();
+        JvmClasspathAspectStrategy aspectStrategy = new JvmClasspathAspectStrategy(bazelWorkspace, projectManager,
+                implicitHelper, osDetector, env.bazelCommandManager);
+        JvmClasspathPersistedFileStrategy strategy = new JvmClasspathPersistedFileStrategy(bazelWorkspace,
+                projectManager, implicitHelper, osDetector, env.bazelCommandManager, storeDir, aspectStrategy);
+        strategy.getClasspathForTarget(createRequest(DEPENDENT_TARGET));
+        assertEquals(1, strategy.numberPersistedWrites.get());
+
+        // all files are valid, so the computing strategy has nothing to load and the target reuses the prepared data
+        JvmClasspathStrategy computingStrategy = Mockito.mock(JvmClasspathStrategy.class);
+        strategy = new JvmClasspathPersistedFileStrategy(bazelWorkspace, projectManager, implicitHelper, osDetector,
+                env.bazelCommandManager, storeDir, computingStrategy);
+        JvmClasspathStrategyRequest request = createRequest(DEPENDENT_TARGET);
+        strategy.prepareClasspathForTargets(request);
+        assertTrue(strategy.getClasspathForTarget(request).isComplete);
+        assertEquals(1, strategy.numberPersistedHits.get());
+        Mockito.verifyZeroInteractions(computingStrategy);
+
+        // the file still exists after a dependency BUILD file change, but it is stale so the batched load is needed
+        File buildFile = new File(workspaceDir, "projects/libs/javalib0/" + descriptor.buildFilename);
+        Files.write(buildFile.toPath(), "\n# changed deps\n".getBytes(), StandardOpenOption.APPEND);
+        request = createRequest(DEPENDENT_TARGET);
+        strategy.prepareClasspathForTargets(request);
+        assertEquals(1, strategy.numberStaleFiles.get());
+        Mockito.verify(computingStrategy).prepareClasspathForTargets(request);
+        assertTrue(request.persistedTargetClasspaths.isEmpty());
+    }
+
+    // HELPERS
+
+    private static JvmClasspathStrategyRequest createRequest() {
+        return createRequest(TARGET);
+    }
+
+    private static JvmClasspathStrategyRequest createRequest(String target) {
+        BazelLabel label = new BazelLabel(target);
+        BazelProject project = new BazelProject(label.getTargetName());
+        BazelProjectTargets targets = new BazelProjectTargets(project, "//" + label.getPackagePath());
+        targets.activateSpecificTargets(Collections.singleton(target));
+        Set<String> actualTargets = Collections.singleton(target);
+        return new JvmClasspathStrategyRequest(project, target, BazelTargetKind.valueOfIgnoresCase("java_library"),
+                targets, actualTargets, new JvmClasspathData());
+    }
+
+    private static List<String> getJarPaths(JvmClasspathData classpathData) {
+        return Arrays.stream(classpathData.jvmClasspathEntries).map(e -> e.pathToJar).sorted()
+                .collect(Collectors.toList());
+    }
+}
@@ -34,6 +34,7 @@
 package com.salesforce.bazel.sdk.lang.jvm.classpath.persist;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.json.simple.JSONArray;
@@ -42,6 +43,7 @@ import org.junit.Test;
 
 import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathData;
 import com.salesforce.bazel.sdk.lang.jvm.classpath.JvmClasspathEntry;
+import com.salesforce.bazel.sdk.project.BazelProject;
 
 public class JvmClasspathSerializerTest {
 
@@ -69,6 +71,30 @@ public class JvmClasspathSerializerTest {
         verifyMockDataJson(body2);
     }
 
+    @Test
+    public void testRoundTripProjectEntries() {
+        JvmClasspathSerializer serializer = new JvmClasspathSerializer();
+        JvmClasspathData mockClasspath = new JvmClasspathData();
+        JvmClasspathEntry testProjectEntry = new JvmClasspathEntry(new BazelProject("libb"));
+        testProjectEntry.isTestJar = true;
+        mockClasspath.jvmClasspathEntries = new JvmClasspathEntry[] { new JvmClasspathEntry(new BazelProject("liba")),
+                testProjectEntry, new JvmClasspathEntry("/a/b/c/aaa.jar", null, false, false) };
+        mockClasspath.classpathProjectReferences.add(new BazelProject("liba"));
+        mockClasspath.classpathProjectReferences.add(new BazelProject("libb"));
+
+        JvmClasspathData deserialized = serializer.deserializeFromJson(serializer.serializeToJson(mockClasspath));
+
+        assertEquals(3, deserialized.jvmClasspathEntries.length);
+        // main entries keep their order, test entries follow
+        assertEquals("liba", deserialized.jvmClasspathEntries[0].bazelProject.name);
+        assertFalse(deserialized.jvmClasspathEntries[0].isTestJar);
+        assertEquals("/a/b/c/aaa.jar", deserialized.jvmClasspathEntries[1].pathToJar);
+        assertEquals("libb", deserialized.jvmClasspathEntries[2].bazelProject.name);
+        assertTrue(deserialized.jvmClasspathEntries[2].isTestJar);
+        assertEquals(2, deserialized.classpathProjectReferences.size());
+        assertEquals("liba", deserialized.classpathProjectReferences.get(0).name);
+    }
+
     // HELPERS
 
     void verifyMockDataJson(JSONObject body) {
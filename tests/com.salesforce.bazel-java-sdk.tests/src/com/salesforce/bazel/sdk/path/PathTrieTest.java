@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.sdk.path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class PathTrieTest {
+
+    @Test
+    public void testFindPrefixValues() {
+        PathTrie<String> trie = new PathTrie<>();
+        trie.put("/ws/projects/libs/apple/src/main/java", "apple-main");
+        trie.put("/ws/projects/libs/apple/src/test/java", "apple-test");
+        trie.put("/ws/projects/libs/apple", "apple-root");
+        trie.put("/ws/projects/libs/banana/src/main/java", "banana-main");
+        assertEquals(4, trie.size());
+
+        assertEquals(Arrays.asList("apple-main", "apple-root"),
+            trie.findPrefixValues("/ws/projects/libs/apple/src/main/java/com/acme/Apple.java"));
+        assertEquals(Arrays.asList("apple-test", "apple-root"),
+            trie.findPrefixValues("/ws/projects/libs/apple/src/test/java"));
+        assertEquals(Arrays.asList("apple-root"), trie.findPrefixValues("/ws/projects/libs/apple/BUILD"));
+        assertEquals(Arrays.asList("banana-main"),
+            trie.findPrefixValues("/ws/projects/libs/banana/src/main/java/Banana.java"));
+        assertTrue(trie.findPrefixValues("/ws/projects/libs/cherry/src/main/java/Cherry.java").isEmpty());
+        assertTrue(trie.findPrefixValues("/ws/projects").isEmpty());
+    }
+
+    @Test
+    public void testWholeSegmentMatching() {
+        PathTrie<String> trie = new PathTrie<>();
+        trie.put("/ws/lib/src", "src");
+
+        assertEquals(Arrays.asList("src"), trie.findPrefixValues("/ws/lib/src/Foo.java"));
+        assertTrue(trie.findPrefixValues("/ws/lib/src2/Foo.java").isEmpty());
+    }
+
+    @Test
+    public void testSeparatorsAreNormalized() {
+        PathTrie<String> trie = new PathTrie<>();
+        trie.put("C:\\ws\\lib\\src\\", "src");
+        trie.put("/ws//other/", "other");
+
+        assertEquals(Arrays.asList("src"), trie.findPrefixValues("C:/ws/lib/src/Foo.java"));
+        assertEquals(Arrays.asList("other"), trie.findPrefixValues("\\ws\\other\\Bar.java"));
+    }
+
+    @Test
+    public void testMultipleValuesForSamePath() {
+        PathTrie<String> trie = new PathTrie<>();
+        trie.put("/ws/lib/src", "first");
+        trie.put("/ws/lib/src", "second");
+
+        assertEquals(Arrays.asList("first", "second"), trie.findPrefixValues("/ws/lib/src/Foo.java"));
+
+        trie.clear();
+        assertEquals(0, trie.size());
+        assertTrue(trie.findPrefixValues("/ws/lib/src/Foo.java").isEmpty());
+    }
+
+    @Test
+    public void testRemove() {
+        PathTrie<String> trie = new PathTrie<>();
+        trie.put("/ws/lib", "lib");
+        trie.put("/ws/lib/src", "first");
+        trie.put("/ws/lib/src", "second");
+
+        assertTrue(trie.remove("/ws/lib/src", "first"));
+        assertEquals(2, trie.size());
+        assertEquals(Arrays.asList("second", "lib"), trie.findPrefixValues("/ws/lib/src/Foo.java"));
+
+        // not registered for that path
+        assertFalse(trie.remove("/ws/lib/src", "lib"));
+        assertFalse(trie.remove("/ws/other", "lib"));
+
+        assertTrue(trie.remove("/ws/lib/src", "second"));
+        assertEquals(Arrays.asList("lib"), trie.findPrefixValues("/ws/lib/src/Foo.java"));
+
+        trie.put("/ws/lib/src", "again");
+        assertEquals(Arrays.asList("again", "lib"), trie.findPrefixValues("/ws/lib/src/Foo.java"));
+    }
+}
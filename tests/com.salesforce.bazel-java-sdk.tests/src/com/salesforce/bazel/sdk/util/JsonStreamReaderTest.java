@@ -0,0 +1,143 @@
+package com.salesforce.bazel.sdk.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.json.simple.parser.JSONParser;
+import org.junit.Test;
+
+import com.salesforce.bazel.sdk.bep.BazelBuildEventTypeManager;
+import com.salesforce.bazel.sdk.bep.event.BEPEvent;
+import com.salesforce.bazel.sdk.bep.event.BEPProgressEvent;
+
+public class JsonStreamReaderTest {
+
+    private static final String[] documents = { "{}", "[]", "\"\"", "0", "-12", "3.25", "-1.5e3", "2E-2", "true", "false",
+            "null", "{\"a\":1,\"b\":[1,2,3],\"c\":{\"d\":null,\"e\":true}}",
+            " { \"nested\" : [ [ ], { }, [ { \"x\" : [ \"y\" ] } ] ] } ",
+            "{\"escapes\":\"quote \\\" backslash \\\\ slash \\/ tab \\t newline \\n cr \\r bs \\b ff \\f\"}",
+            "{\"unicode\":\"\\u00e9t\\u00E9 \\u2603 caf\u00e9\"}", "[9223372036854775807,-9223372036854775808,0.5]",
+            "{\"trailing\":[1,2,],\"commas\":{\"a\":\"b\",},}",
+            // BEP events
+            "{\"id\":{\"buildFinished\":{}},\"children\":[{\"buildToolLogs\":{}},{\"buildMetrics\":{}}],"
+                    + "\"finished\":{\"overallSuccess\":true,\"finishTimeMillis\":\"1622351858397\","
+                    + "\"exitCode\":{\"name\":\"SUCCESS\"},\"anomalyReport\":{}}}",
+            "{\"id\":{\"workspace\":{}},\"workspaceInfo\":{\"localExecRoot\":\"/private/var/tmp/_bazel/execroot/ws\"}}",
+            "{\"id\":{\"progress\":{\"opaqueCount\":3}},\"children\":[{\"progress\":{\"opaqueCount\":4}}],"
+                    + "\"progress\":{\"stderr\":\"\\u001b[32mINFO: \\u001b[0mAnalyzed 1 target.\\n\"}}" };
+
+    @Test
+    public void testReadValueMatchesJSONParser() throws Exception {
+        JsonStreamReader reader = new JsonStreamReader();
+        for (String document : documents) {
+            Object expected = new JSONParser().parse(document);
+            assertEquals(document, expected, reader.reset(document).readValue());
+            assertEquals(JsonStreamReader.Token.END_DOCUMENT, reader.peek());
+        }
+    }
+
+    @Test
+    public void testSmallBuffers() throws Exception {
+        // buffer refills in the middle of strings, escapes, numbers and literals
+        for (int bufferSize = 1; bufferSize < 8; bufferSize++) {
+            JsonStreamReader reader = new JsonStreamReader(bufferSize);
+            for (String document : documents) {
+                Object expected = new JSONParser().parse(document);
+                assertEquals(document, expected, reader.reset(new StringReader(document)).readValue());
+            }
+        }
+    }
+
+    @Test
+    public void testSkipValue() throws Exception {
+        JsonStreamReader reader = new JsonStreamReader();
+        reader.reset("{\"skip\":{\"a\":[1,{\"b\":\"}\"}],\"c\":\"\\\"\"},\"keep\":\"value\",\"n\":42,\"t\":true}");
+        reader.beginObject();
+        assertEquals("skip", reader.nextName());
+        reader.skipValue();
+        assertEquals("keep", reader.nextName());
+        assertEquals("value", reader.nextString());
+        assertEquals("n", reader.nextName());
+        assertEquals(42L, reader.nextLong());
+        assertEquals("t", reader.nextName());
+        assertTrue(reader.nextBoolean());
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertEquals(JsonStreamReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void testNullString() throws Exception {
+        JsonStreamReader reader = new JsonStreamReader();
+        reader.reset("[null]");
+        reader.beginArray();
+        assertNull(reader.nextString());
+        reader.endArray();
+    }
+
+    @Test
+    public void testMalformed() throws Exception {
+        String[] malformed = { "", "{", "[1,2", "{\"a\" 1}", "{\"a\":}", "\"unterminated", "tru", "{\"a\":\"\\x\"}",
+                "{} {}", "{1:2}", "1-2", "[-]", "1.", ".5", "1e", "--1", "01", "{\"a\":1.2.3}" };
+        JsonStreamReader reader = new JsonStreamReader();
+        for (String document : malformed) {
+            try {
+                reader.reset(document).readValue();
+                reader.peek();
+                fail("Expected a failure for " + document);
+            } catch (IOException expected) {}
+        }
+        // the reader must still be usable after a failure
+        assertEquals(new JSONParser().parse(documents[11]), reader.reset(documents[11]).readValue());
+
+        // numbers that are quoted strings are not validated until they are converted
+        try {
+            reader.reset("[\"1-2\"]").beginArray();
+            reader.nextLong();
+            fail("Expected a failure for a string that is not a number");
+        } catch (IOException expected) {}
+    }
+
+    @Test
+    public void testParseBEPEvents() throws Exception {
+        BEPEvent finished = BazelBuildEventTypeManager.parseEvent(documents[17], 0);
+        assertEquals("buildFinished", finished.getEventType());
+        assertFalse(finished.isError());
+
+        // unsupported event types are not materialized, but still get a placeholder event
+        BEPEvent workspace = BazelBuildEventTypeManager.parseEvent(documents[18], 1);
+        assertEquals(BazelBuildEventTypeManager.EVENTTYPE_IGNORED, workspace.getEventType());
+
+        BEPEvent progress = BazelBuildEventTypeManager.parseEvent(documents[19], 2);
+        assertEquals("progress", progress.getEventType());
+
+        // a partially written event is rejected, even if it is of an ignored type
+        assertNull(BazelBuildEventTypeManager.parseEvent(documents[18].substring(0, 40), 3));
+    }
+
+    @Test
+    public void testParseBEPEventType() throws Exception {
+        // the first supported key of the id wins, unsupported and null keys are passed over
+        BEPEvent progress = BazelBuildEventTypeManager.parseEvent(
+            "{\"id\":{\"workspace\":{},\"buildFinished\":null,\"progress\":{},\"buildFinished\":{}},"
+                    + "\"progress\":{\"stderr\":\"some output\"}}",
+            0);
+        assertEquals("progress", progress.getEventType());
+
+        BEPEvent finished = BazelBuildEventTypeManager
+                .parseEvent("{\"id\":{\"buildFinished\":{},\"progress\":{}},\"finished\":{\"exitCode\":{}}}", 1);
+        assertEquals("buildFinished", finished.getEventType());
+
+        // the id is usually first, but the members before it are kept too
+        BEPEvent late = BazelBuildEventTypeManager
+                .parseEvent("{\"progress\":{\"stderr\":\"late id\"},\"id\":{\"progress\":{}}}", 2);
+        assertEquals("progress", late.getEventType());
+        assertEquals("late id", ((BEPProgressEvent) late).getStderr().get(0));
+    }
+}
@@ -38,6 +38,27 @@ public class EclipseClasspathUtilTest {
         assertTrue(downstreams.contains(C.getProject()));
     }
 
+    @Test
+    public void testGetDownstreamProjectsOf_reusesProjectGraph() throws Exception {
+        IJavaProject A = getMockedProject("A", new String[] { "B" });
+        IJavaProject B = getMockedProject("B", new String[] { "C" });
+        IJavaProject C = getMockedProject("C", new String[] {});
+
+        int buildCount = EclipseProjectUtils.getProjectGraphBuildCount();
+        assertEquals(2, EclipseProjectUtils.getDownstreamProjectsOf(C.getProject(), new IJavaProject[] { A, B, C })
+                .size());
+        assertEquals(1, EclipseProjectUtils.getDownstreamProjectsOf(B.getProject(), new IJavaProject[] { A, B, C })
+                .size());
+        assertEquals(buildCount + 1, EclipseProjectUtils.getProjectGraphBuildCount());
+
+        // A no longer depends on B, the graph must be rebuilt
+        IJavaProject changedA = getMockedProject("A", new String[] { "C" });
+        Set<IProject> downstreams =
+                EclipseProjectUtils.getDownstreamProjectsOf(B.getProject(), new IJavaProject[] { changedA, B, C });
+        assertTrue(downstreams.isEmpty());
+        assertEquals(buildCount + 2, EclipseProjectUtils.getProjectGraphBuildCount());
+    }
+
     // production breaks if the impl is a TreeSet, so we test for that explicitly here
     // (IProject's impl doesn't implement Comparable)
     @Test
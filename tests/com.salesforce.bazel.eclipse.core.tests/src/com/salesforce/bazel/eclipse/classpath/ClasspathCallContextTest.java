@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ClasspathCallContextTest {
+
+    @Test
+    public void testCallSource_default() {
+        assertEquals(CallSource.UNDEFINED, ClasspathCallContext.getCallSource());
+    }
+
+    @Test
+    public void testCallSource_nestedContexts() {
+        try (ClasspathCallContext outer = ClasspathCallContext.enter(CallSource.JUNIT)) {
+            assertEquals(CallSource.JUNIT, ClasspathCallContext.getCallSource());
+
+            try (ClasspathCallContext inner = ClasspathCallContext.enter(CallSource.SAVE)) {
+                assertEquals(CallSource.SAVE, ClasspathCallContext.getCallSource());
+            }
+            assertEquals(CallSource.JUNIT, ClasspathCallContext.getCallSource());
+        }
+        assertEquals(CallSource.UNDEFINED, ClasspathCallContext.getCallSource());
+    }
+
+    @Test
+    public void testCallSource_otherThread() throws Exception {
+        CallSource[] otherThreadCallSource = new CallSource[1];
+        try (ClasspathCallContext context = ClasspathCallContext.enter(CallSource.RUN_DEBUG)) {
+            Thread otherThread = new Thread(() -> otherThreadCallSource[0] = ClasspathCallContext.getCallSource());
+            otherThread.start();
+            otherThread.join();
+        }
+        assertEquals(CallSource.UNDEFINED, otherThreadCallSource[0]);
+    }
+
+    @Test
+    public void testSaveParticipant() {
+        BazelClasspathSaveParticipant participant = new BazelClasspathSaveParticipant();
+
+        participant.prepareToSave(null);
+        assertEquals(CallSource.SAVE, ClasspathCallContext.getCallSource());
+        participant.saving(null);
+        assertEquals(CallSource.SAVE, ClasspathCallContext.getCallSource());
+        participant.doneSaving(null);
+        assertEquals(CallSource.UNDEFINED, ClasspathCallContext.getCallSource());
+
+        participant.prepareToSave(null);
+        participant.rollback(null);
+        assertEquals(CallSource.UNDEFINED, ClasspathCallContext.getCallSource());
+    }
+}
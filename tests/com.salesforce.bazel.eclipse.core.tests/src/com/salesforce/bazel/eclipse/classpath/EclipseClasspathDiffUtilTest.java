@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2022, Salesforce.com, Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this list of conditions and the following
+ * disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ * following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ * 3. Neither the name of Salesforce.com nor the names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.bazel.eclipse.classpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.junit.Test;
+
+import com.salesforce.bazel.eclipse.mock.MockIClasspathAttribute;
+import com.salesforce.bazel.eclipse.mock.MockIClasspathEntry;
+import com.salesforce.bazel.sdk.project.BazelProject;
+
+public class EclipseClasspathDiffUtilTest {
+
+    @Test
+    public void testSameClasspath() {
+        IClasspathEntry[] previous = new IClasspathEntry[] { libraryEntry("a.jar", false), libraryEntry("b.jar", true),
+                projectEntry("other") };
+        IClasspathEntry[] current = new IClasspathEntry[] { libraryEntry("a.jar", false), libraryEntry("b.jar", true),
+                projectEntry("other") };
+
+        assertEquals(EclipseClasspathDiffUtil.computeHash(previous), EclipseClasspathDiffUtil.computeHash(current));
+        assertTrue(EclipseClasspathDiffUtil.isSameClasspath(previous, current));
+    }
+
+    @Test
+    public void testChangedClasspath() {
+        IClasspathEntry[] previous = new IClasspathEntry[] { libraryEntry("a.jar", false), libraryEntry("b.jar", true) };
+
+        // order
+        assertFalse(EclipseClasspathDiffUtil.isSameClasspath(previous,
+            new IClasspathEntry[] { libraryEntry("b.jar", true), libraryEntry("a.jar", false) }));
+        // test flag
+        assertFalse(EclipseClasspathDiffUtil.isSameClasspath(previous,
+            new IClasspathEntry[] { libraryEntry("a.jar", false), libraryEntry("b.jar", false) }));
+        // added entry
+        assertFalse(EclipseClasspathDiffUtil.isSameClasspath(previous, new IClasspathEntry[] {
+                libraryEntry("a.jar", false), libraryEntry("b.jar", true), libraryEntry("c.jar", false) }));
+        // no previous classpath
+        assertFalse(EclipseClasspathDiffUtil.isSameClasspath(null, previous));
+    }
+
+    @Test
+    public void testProjectReferences() {
+        assertTrue(EclipseClasspathDiffUtil.isSameProjectReferences(
+            Arrays.asList(new BazelProject("a"), new BazelProject("b")),
+            Arrays.asList(new BazelProject("a"), new BazelProject("b"))));
+        assertFalse(EclipseClasspathDiffUtil.isSameProjectReferences(
+            Arrays.asList(new BazelProject("a"), new BazelProject("b")), Arrays.asList(new BazelProject("a"))));
+        assertFalse(EclipseClasspathDiffUtil.isSameProjectReferences(null, Arrays.asList(new BazelProject("a"))));
+    }
+
+    // HELPERS
+
+    private static IClasspathEntry libraryEntry(String jar, boolean isTest) {
+        MockIClasspathEntry entry = new MockIClasspathEntry(IClasspathEntry.CPE_LIBRARY, new Path("/tmp/" + jar),
+                new Path("/tmp/src-" + jar));
+        if (isTest) {
+            entry.addExtraAttribute(new MockIClasspathAttribute(IClasspathAttribute.TEST, "true"));
+        }
+        return entry;
+    }
+
+    private static IClasspathEntry projectEntry(String projectName) {
+        return new MockIClasspathEntry(IClasspathEntry.CPE_PROJECT, new Path("/" + projectName));
+    }
+}
@@ -122,6 +122,12 @@ public class MockJavaCoreHelper implements JavaCoreHelper {
     // UNIMPLEMENTED METHODS
     // Please move implemented methods, in alphabetical order, above this line if you implement a method.
 
+    @Override
+    public IClasspathContainer getClasspathContainer(IPath containerPath, IJavaProject project)
+            throws JavaModelException {
+        throw new UnsupportedOperationException(UOE_MSG);
+    }
+
     @Override
     public void setClasspathContainer(IPath containerPath, IJavaProject[] affectedProjects,
             IClasspathContainer[] respectiveContainers, IProgressMonitor monitor) throws JavaModelException {